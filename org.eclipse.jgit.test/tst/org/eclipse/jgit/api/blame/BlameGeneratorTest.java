@@ -13,11 +13,17 @@
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.blame.BlameGenerator;
 import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
 import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.Test;
 
@@ -164,6 +170,51 @@ public void testLinesAllDeletedShortenedWalk() throws Exception {
 		}
 	}
 
+	@Test
+	public void testBlameWithChangedPathFilters() throws Exception {
+		try (Git git = new Git(db)) {
+			writeTrashFile("file.txt", join("first", "second"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c1 = git.commit().setMessage("create file").call();
+
+			for (int i = 0; i < 3; i++) {
+				writeTrashFile("dir/other.txt", join("other" + i));
+				git.add().addFilepattern("dir/other.txt").call();
+				git.commit().setMessage("change other " + i).call();
+			}
+
+			writeTrashFile("file.txt", join("first", "second", "third"));
+			git.add().addFilepattern("file.txt").call();
+			RevCommit c2 = git.commit().setMessage("change file").call();
+
+			StoredConfig config = db.getConfig();
+			config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+			config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+					ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS, true);
+			config.save();
+			new GC((FileRepository) db)
+					.writeCommitGraph(Collections.singleton(c2));
+
+			try (BlameGenerator generator = new BlameGenerator(db, "file.txt")) {
+				generator.push(null, db.resolve(Constants.HEAD));
+				assertEquals(3, generator.getResultContents().size());
+
+				assertTrue(generator.next());
+				assertEquals(c2, generator.getSourceCommit());
+				assertEquals(2, generator.getResultStart());
+				assertEquals(3, generator.getResultEnd());
+
+				assertTrue(generator.next());
+				assertEquals(c1, generator.getSourceCommit());
+				assertEquals(0, generator.getResultStart());
+				assertEquals(2, generator.getResultEnd());
+
+				assertFalse(generator.next());
+			}
+		}
+	}
+
 	private static String join(String... lines) {
 		StringBuilder joined = new StringBuilder();
 		for (String line : lines)
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.commitgraph;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ChangedPathFilterTest {
+
+	@Test
+	public void testMurmur3MatchesGit() {
+		// Expected values from C git's t0095-bloom.sh.
+		assertEquals(0x627b0c2c, ChangedPathFilter.murmur3(
+				ByteBuffer.wrap("Hello world!".getBytes(UTF_8)), 0));
+		assertEquals(0x2e4ff723, ChangedPathFilter.murmur3(ByteBuffer.wrap(
+				"The quick brown fox jumps over the lazy dog".getBytes(UTF_8)),
+				0));
+	}
+
+	@Test
+	public void testFilterDataMatchesGit() {
+		// "compute bloom key for empty string" in C git's t0095-bloom.sh.
+		ChangedPathFilter f = ChangedPathFilter.fromPaths(
+				Collections.singleton(ByteBuffer.wrap(new byte[0])));
+		assertEquals(2, f.size());
+		byte[] data = new byte[f.size()];
+		f.copyTo(data, 0);
+		assertArrayEquals(new byte[] { 0x11, 0x11 }, data);
+	}
+
+	@Test
+	public void testContainsAddedPaths() {
+		Set<ByteBuffer> paths = new HashSet<>();
+		for (String p : new String[] { "README", "src", "src/Main.java",
+				"src/util", "src/util/List.java" }) {
+			paths.add(ByteBuffer.wrap(p.getBytes(UTF_8)));
+		}
+		ChangedPathFilter f = ChangedPathFilter.fromPaths(paths);
+		assertEquals(7, f.size());
+		for (ByteBuffer p : paths) {
+			assertTrue(f.maybeContains(p.array()));
+		}
+		assertFalse(f.maybeContains("doc".getBytes(UTF_8)));
+		assertFalse(f.maybeContains("src/Other.java".getBytes(UTF_8)));
+	}
+
+	@Test
+	public void testNoChanges() {
+		ChangedPathFilter f = ChangedPathFilter
+				.fromPaths(Collections.emptySet());
+		assertEquals(1, f.size());
+		assertFalse(f.maybeContains("a".getBytes(UTF_8)));
+		assertFalse(f.maybeContains(new byte[0]));
+	}
+
+	@Test
+	public void testTooManyChanges() {
+		ChangedPathFilter f = ChangedPathFilter.fromPaths(null);
+		assertEquals(1, f.size());
+		assertTrue(f.maybeContains("a".getBytes(UTF_8)));
+		assertTrue(f.maybeContains("b/c".getBytes(UTF_8)));
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2022, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.commitgraph;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.lib.Constants.COMMIT_GENERATION_UNKNOWN;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.NB;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommitGraphTest extends RepositoryTestCase {
+
+	private TestRepository<FileRepository> tr;
+
+	private RevWalk walk;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		tr = new TestRepository<>(db, new RevWalk(db), mockSystemReader);
+		walk = new RevWalk(db);
+	}
+
+	@Test
+	public void testGraphWithSingleBranch() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(a);
+		RevCommit tip = commit(b);
+
+		CommitGraph graph = writeAndRead(tip);
+		assertEquals(4, graph.getCommitCnt());
+		verifyCommits(graph, root, a, b, tip);
+
+		assertEquals(1, generation(graph, root));
+		assertEquals(2, generation(graph, a));
+		assertEquals(3, generation(graph, b));
+		assertEquals(4, generation(graph, tip));
+	}
+
+	@Test
+	public void testGraphWithMerges() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit c = commit(a);
+		RevCommit merge = commit(c, b);
+
+		CommitGraph graph = writeAndRead(merge);
+		assertEquals(5, graph.getCommitCnt());
+		verifyCommits(graph, root, a, b, c, merge);
+
+		assertEquals(4, generation(graph, merge));
+		assertEquals(2, graph.getCommitData(graph.findGraphPosition(merge))
+				.getParents().length);
+	}
+
+	@Test
+	public void testGraphWithOctopusMerge() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit c = commit(root);
+		RevCommit d = commit(root);
+		RevCommit octopus1 = commit(a, b, c);
+		RevCommit octopus2 = commit(d, b, a, c);
+		RevCommit tip = commit(octopus1, octopus2);
+
+		CommitGraph graph = writeAndRead(tip);
+		assertEquals(8, graph.getCommitCnt());
+		verifyCommits(graph, root, a, b, c, d, octopus1, octopus2, tip);
+	}
+
+	@Test
+	public void testChangedPathFilters() throws Exception {
+		RevCommit root = tr.commit().add("d/f", "1").add("README", "r")
+				.create();
+		RevCommit a = tr.commit().parent(root).add("d/f", "2").create();
+		RevCommit b = tr.commit().parent(a).add("e/g/h", "3").create();
+		RevCommit side = tr.commit().parent(root).add("README", "s")
+				.create();
+		RevCommit merge = tr.commit().parent(b).parent(side)
+				.add("README", "s").create();
+		RevCommit empty = tr.commit().parent(merge).create();
+
+		CommitGraph graph = read(write(Collections.singleton(empty), true));
+		verifyCommits(graph, root, a, b, side, merge, empty);
+
+		assertChangedPaths(graph, root, "d", "d/f", "README");
+		assertUnchangedPaths(graph, root, "e", "d/g");
+
+		assertChangedPaths(graph, a, "d", "d/f");
+		assertUnchangedPaths(graph, a, "README", "e", "e/g/h");
+
+		assertChangedPaths(graph, b, "e", "e/g", "e/g/h");
+		assertUnchangedPaths(graph, b, "d", "d/f", "README");
+
+		// Merges are compared against their first parent only.
+		assertChangedPaths(graph, merge, "README");
+		assertUnchangedPaths(graph, merge, "d", "d/f", "e", "e/g/h");
+
+		assertUnchangedPaths(graph, empty, "d", "d/f", "e", "README");
+	}
+
+	@Test
+	public void testNoChangedPathFiltersByDefault() throws Exception {
+		RevCommit root = tr.commit().add("f", "1").create();
+		RevCommit tip = tr.commit().parent(root).add("f", "2").create();
+
+		CommitGraph graph = writeAndRead(tip);
+		assertNull(graph.getChangedPathFilter(graph.findGraphPosition(root)));
+		assertNull(graph.getChangedPathFilter(graph.findGraphPosition(tip)));
+	}
+
+	@Test
+	public void testTooManyChangedPaths() throws Exception {
+		TestRepository<FileRepository>.CommitBuilder cb = tr.commit();
+		for (int i = 0; i <= 512; i++) {
+			cb.add("f" + i, "" + i);
+		}
+		RevCommit big = cb.create();
+
+		CommitGraph graph = read(write(Collections.singleton(big), true));
+		ChangedPathFilter f = graph
+				.getChangedPathFilter(graph.findGraphPosition(big));
+		assertNotNull(f);
+		assertTrue(f.maybeContains("not-there".getBytes(UTF_8)));
+	}
+
+	@Test
+	public void testFindGraphPositionOfUnknownCommit() throws Exception {
+		RevCommit root = commit();
+		RevCommit tip = commit(root);
+		RevCommit unrelated = commit();
+
+		CommitGraph graph = writeAndRead(tip);
+		assertEquals(-1, graph.findGraphPosition(unrelated));
+		assertEquals(-1, graph.findGraphPosition(ObjectId.zeroId()));
+		assertEquals(-1, graph.findGraphPosition(ObjectId
+				.fromString("ffffffffffffffffffffffffffffffffffffffff")));
+		assertNull(graph.getCommitData(-1));
+		assertNull(graph.getCommitData(2));
+		assertNull(graph.getObjectId(2));
+	}
+
+	@Test
+	public void testOpenFile() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit tip = commit(a);
+
+		File file = new File(db.getObjectsDirectory(), "info/commit-graph");
+		try (OutputStream os = new FileOutputStream(file)) {
+			os.write(write(Collections.singleton(tip)));
+		}
+		CommitGraph graph = CommitGraphLoader.open(file);
+		verifyCommits(graph, root, a, tip);
+	}
+
+	@Test
+	public void testReadCorruptGraph() throws Exception {
+		RevCommit root = commit();
+		RevCommit tip = commit(root);
+		byte[] data = write(Collections.singleton(tip));
+
+		byte[] badMagic = data.clone();
+		badMagic[0] = 'X';
+		assertThrows(CommitGraphFormatException.class,
+				() -> read(badMagic));
+
+		byte[] badVersion = data.clone();
+		badVersion[4] = 2;
+		assertThrows(CommitGraphFormatException.class,
+				() -> read(badVersion));
+
+		byte[] badHash = data.clone();
+		badHash[5] = 2;
+		assertThrows(CommitGraphFormatException.class, () -> read(badHash));
+
+		// Make the commit data chunk claim to extend past the end of file.
+		byte[] badChunk = data.clone();
+		NB.encodeInt64(badChunk, 8 + 3 * 12 + 4, data.length + 1);
+		assertThrows(CommitGraphFormatException.class,
+				() -> read(badChunk));
+
+		// Drop the commit data chunk from the chunk table.
+		byte[] missingChunk = data.clone();
+		missingChunk[6] = 2;
+		assertThrows(CommitGraphFormatException.class,
+				() -> read(missingChunk));
+
+		assertThrows(CommitGraphFormatException.class,
+				() -> read(Arrays.copyOf(data, 10)));
+	}
+
+	private void verifyCommits(CommitGraph graph, RevCommit... commits)
+			throws Exception {
+		Set<Integer> positions = new HashSet<>();
+		for (RevCommit c : commits) {
+			walk.parseHeaders(c);
+			int pos = graph.findGraphPosition(c);
+			assertNotEquals(-1, pos);
+			positions.add(Integer.valueOf(pos));
+			assertEquals(c, graph.getObjectId(pos));
+
+			CommitGraph.CommitData data = graph.getCommitData(pos);
+			assertEquals(c.getTree(), data.getTree());
+			assertEquals(c.getCommitTime(), data.getCommitTime());
+			assertNotEquals(COMMIT_GENERATION_UNKNOWN, data.getGeneration());
+
+			int[] parents = data.getParents();
+			ObjectId[] expected = new ObjectId[c.getParentCount()];
+			ObjectId[] actual = new ObjectId[parents.length];
+			for (int i = 0; i < c.getParentCount(); i++) {
+				expected[i] = c.getParent(i).getId();
+				actual[i] = graph.getObjectId(parents[i]);
+			}
+			assertArrayEquals(expected, actual);
+		}
+		assertEquals(commits.length, positions.size());
+	}
+
+	private static void assertChangedPaths(CommitGraph graph, RevCommit c,
+			String... paths) {
+		ChangedPathFilter f = graph
+				.getChangedPathFilter(graph.findGraphPosition(c));
+		assertNotNull(f);
+		for (String path : paths) {
+			assertTrue(path, f.maybeContains(path.getBytes(UTF_8)));
+		}
+	}
+
+	private static void assertUnchangedPaths(CommitGraph graph, RevCommit c,
+			String... paths) {
+		ChangedPathFilter f = graph
+				.getChangedPathFilter(graph.findGraphPosition(c));
+		assertNotNull(f);
+		for (String path : paths) {
+			assertFalse(path, f.maybeContains(path.getBytes(UTF_8)));
+		}
+	}
+
+	private static int generation(CommitGraph graph, RevCommit c) {
+		return graph.getCommitData(graph.findGraphPosition(c)).getGeneration();
+	}
+
+	private CommitGraph writeAndRead(RevCommit tip) throws IOException {
+		return read(write(Collections.singleton(tip)));
+	}
+
+	private static CommitGraph read(byte[] data) throws IOException {
+		return CommitGraphLoader.read(new ByteArrayInputStream(data));
+	}
+
+	private byte[] write(Set<ObjectId> wants) throws IOException {
+		return write(wants, false);
+	}
+
+	private byte[] write(Set<ObjectId> wants, boolean changedPaths)
+			throws IOException {
+		NullProgressMonitor m = NullProgressMonitor.INSTANCE;
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try (RevWalk rw = new RevWalk(db)) {
+			CommitGraphWriter writer = new CommitGraphWriter(
+					GraphCommits.fromWalk(m, wants, rw), changedPaths);
+			writer.write(m, os);
+		}
+		return os.toByteArray();
+	}
+
+	RevCommit commit(RevCommit... parents) throws Exception {
+		return tr.commit(parents);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+public class DirectByteWindowTest {
+	@Test
+	public void testBufferReturnsToPoolAfterLastRelease() {
+		DirectBufferPool pool = new DirectBufferPool(4096, 4096);
+		ByteBuffer b = pool.allocate(100);
+		assertTrue(b.isDirect());
+		assertEquals(100, b.limit());
+
+		DirectByteWindow w = new DirectByteWindow(null, 0, b, pool);
+		assertEquals(100, w.size());
+		assertTrue(w.retain());
+		w.release();
+		assertNotSame(b, pool.allocate(4096));
+
+		w.release();
+		assertFalse(w.retain());
+		ByteBuffer reused = pool.allocate(10);
+		assertSame(b, reused);
+		assertEquals(0, reused.position());
+		assertEquals(10, reused.limit());
+	}
+
+	@Test
+	public void testCopy() {
+		DirectBufferPool pool = new DirectBufferPool(4096, 8192);
+		ByteBuffer b = pool.allocate(5);
+		b.put("hello".getBytes(UTF_8)).flip();
+		DirectByteWindow w = new DirectByteWindow(null, 1000, b, pool);
+
+		byte[] dst = new byte[10];
+		assertEquals(3, w.copy(1002L, dst, 1, 10));
+		assertEquals("llo", new String(dst, 1, 3, UTF_8));
+	}
+
+	@Test
+	public void testInflate() throws Exception {
+		byte[] data = new byte[10000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 31);
+		}
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DeflaterOutputStream out = new DeflaterOutputStream(compressed,
+				new Deflater())) {
+			out.write(data);
+		}
+		byte[] z = compressed.toByteArray();
+
+		DirectBufferPool pool = new DirectBufferPool(8192, 8192);
+		ByteBuffer b = pool.allocate(z.length + 7);
+		b.put(new byte[7]).put(z).flip();
+		DirectByteWindow w = new DirectByteWindow(null, 0, b, pool);
+
+		Inflater inf = new Inflater();
+		try {
+			assertEquals(z.length, w.setInput(7, inf));
+			byte[] actual = new byte[data.length];
+			assertEquals(data.length, inf.inflate(actual));
+			assertTrue(inf.finished());
+			assertArrayEquals(data, actual);
+		} finally {
+			inf.end();
+		}
+	}
+}
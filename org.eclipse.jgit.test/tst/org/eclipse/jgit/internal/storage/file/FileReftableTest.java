@@ -41,8 +41,10 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefComparator;
 import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.RefRename;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.RefUpdate.Result;
 import org.eclipse.jgit.lib.ReflogEntry;
@@ -644,6 +646,39 @@ public void testGetRefsWithPrefixExcludingOverlappingPrefixes() throws IOExcepti
 		checkContainsRef(refs, db.exactRef("HEAD"));
 	}
 
+	@Test
+	public void testScanRefsByPrefix() throws Exception {
+		ObjectId cur = db.resolve("master");
+		List<ReceiveCommand> cmds = new ArrayList<>();
+		// More refs than one batch, with names prefixing each other.
+		for (int i = 0; i < 1100; i++) {
+			cmds.add(new ReceiveCommand(ObjectId.zeroId(), cur,
+					"refs/heads/scan/" + i));
+		}
+		try (RevWalk rw = new RevWalk(db)) {
+			db.getRefDatabase().newBatchUpdate().addCommand(cmds)
+					.execute(rw, NullProgressMonitor.INSTANCE);
+		}
+
+		for (String prefix : new String[] { RefDatabase.ALL, "refs/heads/",
+				"refs/heads/scan/", "refs/heads/scan/1", "refs/heads/scan/99",
+				"HEAD", "refs/nonexistent/" }) {
+			List<String> expect = new ArrayList<>();
+			for (Ref r : RefComparator
+					.sort(db.getRefDatabase().getRefsByPrefix(prefix))) {
+				expect.add(r.getName());
+			}
+			List<String> actual = new ArrayList<>();
+			try (RefScanner rs = db.getRefDatabase()
+					.scanRefsByPrefix(prefix)) {
+				while (rs.next()) {
+					actual.add(rs.getRef().getName());
+				}
+			}
+			assertEquals(prefix, expect, actual);
+		}
+	}
+
 	private RefUpdate updateRef(String name) throws IOException {
 		final RefUpdate ref = db.updateRef(name);
 		ref.setNewObjectId(db.resolve(Constants.HEAD));
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+	@Test
+	public void testIncrement() {
+		FrequencySketch sketch = new FrequencySketch(512);
+		assertEquals(0, sketch.frequency(42));
+		sketch.increment(42);
+		assertEquals(1, sketch.frequency(42));
+		sketch.increment(42);
+		assertEquals(2, sketch.frequency(42));
+	}
+
+	@Test
+	public void testSaturates() {
+		FrequencySketch sketch = new FrequencySketch(512);
+		for (int i = 0; i < 100; i++) {
+			sketch.increment(7);
+		}
+		assertEquals(15, sketch.frequency(7));
+	}
+
+	@Test
+	public void testHotItemsOutrankScan() {
+		FrequencySketch sketch = new FrequencySketch(512);
+		for (int i = 0; i < 10; i++) {
+			for (int hot = 0; hot < 16; hot++) {
+				sketch.increment(hot);
+			}
+		}
+		for (int cold = 1000; cold < 1256; cold++) {
+			sketch.increment(cold);
+		}
+		for (int hot = 0; hot < 16; hot++) {
+			assertTrue(sketch.frequency(hot) > sketch.frequency(1000 + hot));
+		}
+	}
+
+	@Test
+	public void testAging() {
+		FrequencySketch sketch = new FrequencySketch(16);
+		for (int i = 0; i < 15; i++) {
+			sketch.increment(3);
+		}
+		assertEquals(15, sketch.frequency(3));
+
+		// 10 * 16 additions halve every counter.
+		for (int i = 0; i < 160; i++) {
+			sketch.increment(100000 + i);
+		}
+		assertTrue(sketch.frequency(3) < 15);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2022, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Test;
+
+public class GcCommitGraphTest extends GcTestCase {
+
+	@Test
+	public void testWriteWhenGc() throws Exception {
+		RevCommit tip = commitChain(10);
+		tr.update("master", tip);
+
+		enableCommitGraph(true, true);
+		gc.gc().get();
+
+		File graphFile = commitGraphFile();
+		assertTrue(graphFile.isFile());
+		CommitGraph graph = repo.getObjectDatabase().getCommitGraph().get();
+		assertNotNull(graph);
+		assertEquals(10, graph.getCommitCnt());
+		assertTrue(graph.findGraphPosition(tip) >= 0);
+	}
+
+	@Test
+	public void testNotWriteWhenDisabled() throws Exception {
+		RevCommit tip = commitChain(3);
+		tr.update("master", tip);
+
+		enableCommitGraph(false, true);
+		gc.gc().get();
+		assertFalse(commitGraphFile().exists());
+
+		enableCommitGraph(true, false);
+		gc.gc().get();
+		assertFalse(commitGraphFile().exists());
+	}
+
+	@Test
+	public void testNotUsedWhenCoreCommitGraphDisabled() throws Exception {
+		RevCommit tip = commitChain(3);
+		tr.update("master", tip);
+
+		gc.writeCommitGraph(Collections.singleton(tip));
+		assertTrue(commitGraphFile().isFile());
+		assertFalse(repo.getObjectDatabase().getCommitGraph().isPresent());
+
+		enableCommitGraph(false, true);
+		assertTrue(repo.getObjectDatabase().getCommitGraph().isPresent());
+	}
+
+	@Test
+	public void testReloadAfterRewrite() throws Exception {
+		enableCommitGraph(true, true);
+		RevCommit tip = commitChain(3);
+		tr.update("master", tip);
+		gc.gc().get();
+		assertEquals(3, repo.getObjectDatabase().getCommitGraph().get()
+				.getCommitCnt());
+
+		RevCommit next = tr.commit().parent(tip).create();
+		tr.update("master", next);
+		gc.gc().get();
+		CommitGraph graph = repo.getObjectDatabase().getCommitGraph().get();
+		assertEquals(4, graph.getCommitCnt());
+		assertTrue(graph.findGraphPosition(next) >= 0);
+	}
+
+	private File commitGraphFile() {
+		return new File(repo.getObjectsDirectory(),
+				Constants.INFO_COMMIT_GRAPH);
+	}
+
+	private void enableCommitGraph(boolean gcWrite, boolean core)
+			throws Exception {
+		StoredConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, gcWrite);
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_COMMIT_GRAPH, core);
+		config.save();
+	}
+}
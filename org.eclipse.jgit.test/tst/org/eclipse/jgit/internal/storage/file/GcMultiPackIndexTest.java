@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndexLoader;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapIndex.Bitmap;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.junit.Test;
+
+public class GcMultiPackIndexTest extends GcTestCase {
+
+	@Test
+	public void testWriteWhenEnabled() throws Exception {
+		RevCommit tip = commitChain(5);
+		tr.update("master", tip);
+		enableWriteMultiPackIndex();
+
+		Collection<Pack> packs = gc.gc().get();
+		assertEquals(1, packs.size());
+		Pack pack = packs.iterator().next();
+
+		MultiPackIndex midx = MultiPackIndexLoader.open(midxFile());
+		assertArrayEquals(
+				new String[] {
+						pack.getPackFile().create(PackExt.INDEX).getName() },
+				midx.getPackNames());
+		assertEquals(pack.getIndex().getObjectCount(),
+				midx.getObjectCount());
+		assertAllObjectsReadable(pack);
+	}
+
+	@Test
+	public void testDeletedWhenDisabled() throws Exception {
+		tr.update("master", commitChain(3));
+		gc.gc().get();
+		gc.writeMultiPackIndex();
+		assertTrue(midxFile().exists());
+
+		tr.update("master", tr.commit().parent(tr.getRevWalk()
+				.parseCommit(repo.resolve("master"))).create());
+		gc.gc().get();
+		assertFalse(midxFile().exists());
+	}
+
+	@Test
+	public void testLookupInUncoveredPack() throws Exception {
+		RevCommit a = commitChain(3);
+		tr.update("master", a);
+		gc.gc().get();
+		gc.writeMultiPackIndex();
+
+		// The new pack is not covered by the multi-pack-index yet.
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		tr.update("master", b);
+		writePack(Collections.singleton(b), Collections.singleton(a));
+		assertEquals(2, repo.getObjectDatabase().getPacks().size());
+		assertEquals(1,
+				MultiPackIndexLoader.open(midxFile()).getPackNames().length);
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			assertAllObjectsReadable(p);
+		}
+
+		gc.writeMultiPackIndex();
+		MultiPackIndex midx = MultiPackIndexLoader.open(midxFile());
+		assertEquals(2, midx.getPackNames().length);
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			assertAllObjectsReadable(p);
+		}
+		assertFalse(repo.getObjectDatabase().has(ObjectId
+				.fromString("ffffffffffffffffffffffffffffffffffffffff")));
+	}
+
+	@Test
+	public void testLookupWithPackMissing() throws Exception {
+		RevCommit a = commitChain(3);
+		tr.update("master", a);
+		gc.gc().get();
+		Pack oldPack = repo.getObjectDatabase().getPacks().iterator().next();
+
+		// The new pack holds copies of all objects of the old one, which the
+		// multi-pack-index prefers as the pack is newer.
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		tr.update("master", b);
+		Pack newPack = writePack(Collections.singleton(b),
+				Collections.emptySet());
+		gc.writeMultiPackIndex();
+
+		repo.getObjectDatabase().close();
+		newPack.getPackFile().create(PackExt.INDEX).delete();
+		newPack.getPackFile().delete();
+
+		assertEquals(1, repo.getObjectDatabase().getPacks().size());
+		assertAllObjectsReadable(oldPack);
+		assertFalse(repo.getObjectDatabase().has(b));
+	}
+
+	@Test
+	public void testBitmapsCoverAllPacks() throws Exception {
+		RevCommit a = commitChain(3);
+		tr.update("master", a);
+		gc.gc().get();
+
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		tr.update("master", b);
+		writePack(Collections.singleton(b), Collections.singleton(a));
+		gc.writeMultiPackIndex();
+		assertTrue(bitmapFile().exists());
+
+		try (ObjectReader reader = repo.newObjectReader()) {
+			BitmapIndex index = reader.getBitmapIndex();
+			Bitmap bitmap = index.getBitmap(b);
+			assertNotNull(bitmap);
+			BitmapBuilder reachable = index.newBitmapBuilder().or(bitmap);
+			for (Pack p : repo.getObjectDatabase().getPacks()) {
+				for (PackIndex.MutableEntry me : p.getIndex()) {
+					assertTrue(reachable.contains(me.toObjectId()));
+				}
+			}
+
+			// Counting objects is answered from the bitmaps alone.
+			BitmapWalker walker = new BitmapWalker(new ObjectWalk(reader),
+					index, null);
+			BitmapBuilder objects = walker.findObjects(
+					Collections.singleton(b), null, true);
+			assertEquals(0, walker.getCountOfBitmapIndexMisses());
+			assertEquals(reachable.retrieveCompressed().cardinality(),
+					objects.retrieveCompressed().cardinality());
+		}
+	}
+
+	@Test
+	public void testStaleBitmapsNotUsed() throws Exception {
+		RevCommit a = commitChain(3);
+		tr.update("master", a);
+		gc.gc().get();
+		RevCommit b = tr.commit().parent(a).add("b", "b").create();
+		tr.update("master", b);
+		writePack(Collections.singleton(b), Collections.singleton(a));
+		gc.writeMultiPackIndex();
+		File staleBitmap = new File(repo.getDirectory(), "stale.bitmap");
+		Files.copy(bitmapFile().toPath(), staleBitmap.toPath());
+
+		RevCommit c = tr.commit().parent(b).add("c", "c").create();
+		tr.update("master", c);
+		writePack(Collections.singleton(c), Collections.singleton(b));
+		PackConfig pc = new PackConfig(repo);
+		pc.setBuildBitmaps(false);
+		gc.setPackConfig(pc);
+		gc.writeMultiPackIndex();
+		assertFalse(bitmapFile().exists());
+
+		MultiPackIndex midx = MultiPackIndexLoader.open(midxFile());
+		assertEquals(3, midx.getPackNames().length);
+		assertThrows(IOException.class,
+				() -> PackBitmapIndex.open(staleBitmap, midx));
+		try (ObjectReader reader = repo.newObjectReader()) {
+			BitmapIndex index = reader.getBitmapIndex();
+			assertNull(index.getBitmap(b));
+		}
+	}
+
+	private void assertAllObjectsReadable(Pack pack) throws Exception {
+		try (ObjectReader reader = repo.newObjectReader()) {
+			for (PackIndex.MutableEntry me : pack.getIndex()) {
+				assertTrue(repo.getObjectDatabase().has(me.toObjectId()));
+				assertTrue(reader.open(me.toObjectId()).getSize() >= 0);
+				assertEquals(reader.open(me.toObjectId()).getSize(),
+						reader.getObjectSize(me.toObjectId(),
+								ObjectReader.OBJ_ANY));
+			}
+		}
+	}
+
+	private Pack writePack(Set<ObjectId> want, Set<ObjectId> have)
+			throws Exception {
+		ObjectDirectory odb = repo.getObjectDatabase();
+		PackFile pack;
+		try (PackWriter pw = new PackWriter(repo)) {
+			pw.preparePack(NullProgressMonitor.INSTANCE, want, have);
+			pack = new PackFile(odb.getPackDirectory(), pw.computeName(),
+					PackExt.PACK);
+			try (OutputStream out = new BufferedOutputStream(
+					new FileOutputStream(pack))) {
+				pw.writePack(NullProgressMonitor.INSTANCE,
+						NullProgressMonitor.INSTANCE, out);
+			}
+			try (OutputStream out = new BufferedOutputStream(
+					new FileOutputStream(pack.create(PackExt.INDEX)))) {
+				pw.writeIndex(out);
+			}
+		}
+		Pack p = odb.openPack(pack);
+		gc.prunePacked();
+		return p;
+	}
+
+	private void enableWriteMultiPackIndex() throws Exception {
+		StoredConfig config = repo.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_MULTI_PACK_INDEX, true);
+		config.save();
+	}
+
+	private File bitmapFile() {
+		return new File(repo.getObjectDatabase().getPackDirectory(),
+				Constants.MULTI_PACK_INDEX_BITMAP);
+	}
+
+	private File midxFile() {
+		return new File(repo.getObjectDatabase().getPackDirectory(),
+				Constants.MULTI_PACK_INDEX);
+	}
+}
@@ -36,6 +36,10 @@ public class GcOrphanFilesTest extends GcTestCase {
 
 	private static final String PACK_File_3 = PACK + "-3.pack";
 
+	private static final String REV_File_1 = PACK + "-1.rev";
+
+	private static final String REV_File_2 = PACK + "-2.rev";
+
 	private File packDir;
 
 	@Override
@@ -69,6 +73,19 @@ public void bitmapDeletedButIdxAndPackNot() throws Exception {
 		assertTrue(new File(packDir, PACK_File_3).exists());
 	}
 
+	@Test
+	public void reverseIndexDeletedWithoutPack() throws Exception {
+		createFileInPackFolder(REV_File_1);
+		createFileInPackFolder(IDX_File_2);
+		createFileInPackFolder(REV_File_2);
+		createFileInPackFolder(PACK_File_2);
+		gc.gc().get();
+		assertFalse(new File(packDir, REV_File_1).exists());
+		assertTrue(new File(packDir, IDX_File_2).exists());
+		assertTrue(new File(packDir, REV_File_2).exists());
+		assertTrue(new File(packDir, PACK_File_2).exists());
+	}
+
 	@Test
 	public void malformedIdxNotDeleted() throws Exception {
 		createFileInPackFolder(IDX_File_malformed);
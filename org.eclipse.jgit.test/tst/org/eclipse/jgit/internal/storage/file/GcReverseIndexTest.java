@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.junit.Test;
+
+public class GcReverseIndexTest extends GcTestCase {
+
+	@Test
+	public void testWriteWhenEnabled() throws Exception {
+		RevCommit tip = commitChain(5);
+		tr.update("master", tip);
+
+		PackConfig config = new PackConfig(repo);
+		config.setWriteReverseIndex(true);
+		gc.setPackConfig(config);
+		Collection<Pack> packs = gc.gc().get();
+		assertEquals(1, packs.size());
+
+		Pack pack = packs.iterator().next();
+		File revFile = pack.getPackFile().create(PackExt.REVERSE_INDEX);
+		assertTrue(PackReverseIndexFactory.open(revFile,
+				pack.getIndex()) instanceof PackReverseIndexV1);
+		assertReverseIndexMatches(pack);
+	}
+
+	@Test
+	public void testNotWrittenByDefault() throws Exception {
+		tr.update("master", commitChain(3));
+		Collection<Pack> packs = gc.gc().get();
+		assertEquals(1, packs.size());
+
+		Pack pack = packs.iterator().next();
+		assertFalse(pack.getPackFile().create(PackExt.REVERSE_INDEX)
+				.exists());
+		assertReverseIndexMatches(pack);
+	}
+
+	private static void assertReverseIndexMatches(Pack pack)
+			throws Exception {
+		for (PackIndex.MutableEntry me : pack.getIndex()) {
+			assertEquals(me.toObjectId(),
+					pack.findObjectForOffset(me.getOffset()));
+		}
+	}
+}
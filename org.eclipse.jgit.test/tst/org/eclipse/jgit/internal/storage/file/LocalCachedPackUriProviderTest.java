@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.PacketLineIn;
+import org.eclipse.jgit.transport.PacketLineOut;
+import org.eclipse.jgit.transport.UploadPack;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalCachedPackUriProviderTest
+		extends LocalDiskRepositoryTestCase {
+	private FileRepository server;
+
+	private TestRepository<FileRepository> remote;
+
+	/** Stand-in for a static file server serving the pack directory. */
+	private ServerSocket http;
+
+	private Thread httpThread;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		server = createBareRepository();
+		server.getConfig().setString("protocol", null, "version", "2");
+		server.getConfig().setBoolean("uploadpack", null, "allowsidebandall",
+				true);
+		remote = new TestRepository<>(server);
+
+		http = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		httpThread = new Thread(this::serveHttp);
+		httpThread.start();
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception {
+		http.close();
+		httpThread.join();
+		remote.close();
+		super.tearDown();
+	}
+
+	@Test
+	public void testFetchOffloadsPackFile() throws Exception {
+		RevCommit inPack = remote.branch("master").commit().add("a", "a")
+				.create();
+		new GC(server).gc().get();
+		RevCommit loose = remote.branch("master").commit().add("b", "b")
+				.create();
+
+		InputStream response = fetch(loose, "packfile-uris http\n");
+		PacketLineIn pckIn = new PacketLineIn(response);
+		String s;
+		for (s = pckIn.readString(); s.startsWith("\002"); s = pckIn
+				.readString()) {
+			// Skip progress.
+		}
+		assertEquals("\001packfile-uris", s);
+		String[] uri = pckIn.readString().substring(1).split(" ");
+		assertTrue(PacketLineIn.isDelimiter(pckIn.readString()));
+		assertEquals("\001packfile", pckIn.readString());
+
+		Pack pack = server.getObjectDatabase().getPacks().iterator().next();
+		assertEquals("http://127.0.0.1:" + http.getLocalPort() + "/pack/"
+				+ pack.getPackFile().getName(), uri[1]);
+		byte[] downloaded;
+		try (InputStream in = new URL(uri[1]).openStream()) {
+			downloaded = in.readAllBytes();
+		}
+		// The hash is the pack checksum, which clients verify.
+		assertEquals(uri[0], ObjectId.fromRaw(Arrays.copyOfRange(downloaded,
+				downloaded.length - 20, downloaded.length)).name());
+
+		Repository client = createBareRepository();
+		parse(client, new ByteArrayInputStream(packData(response)));
+		assertTrue(client.getObjectDatabase().has(loose));
+		assertFalse(client.getObjectDatabase().has(inPack));
+		parse(client, new ByteArrayInputStream(downloaded));
+		assertTrue(client.getObjectDatabase().has(inPack));
+	}
+
+	@Test
+	public void testProtocolNotSupported() throws Exception {
+		RevCommit inPack = remote.branch("master").commit().add("a", "a")
+				.create();
+		new GC(server).gc().get();
+
+		InputStream response = fetch(inPack, "packfile-uris https\n");
+		PacketLineIn pckIn = new PacketLineIn(response);
+		String s;
+		for (s = pckIn.readString(); s.startsWith("\002"); s = pckIn
+				.readString()) {
+			// Skip progress.
+		}
+		assertEquals("\001packfile-uris", s);
+		assertTrue(PacketLineIn.isDelimiter(pckIn.readString()));
+	}
+
+	private InputStream fetch(RevCommit want, String uriProtocols)
+			throws IOException {
+		ByteArrayOutputStream send = new ByteArrayOutputStream();
+		PacketLineOut pckOut = new PacketLineOut(send);
+		pckOut.writeString("command=fetch\n");
+		pckOut.writeDelim();
+		pckOut.writeString("want " + want.name() + "\n");
+		pckOut.writeString("sideband-all\n");
+		pckOut.writeString(uriProtocols);
+		pckOut.writeString("done\n");
+		pckOut.end();
+
+		ByteArrayOutputStream recv = new ByteArrayOutputStream();
+		try (UploadPack up = new UploadPack(server)) {
+			up.setExtraParameters(Collections.singleton("version=2"));
+			up.setCachedPackUriProvider(new LocalCachedPackUriProvider(
+					"http://127.0.0.1:" + http.getLocalPort() + "/pack"));
+			up.upload(new ByteArrayInputStream(send.toByteArray()), recv,
+					null);
+		}
+		InputStream in = new ByteArrayInputStream(recv.toByteArray());
+		PacketLineIn pckIn = new PacketLineIn(in);
+		while (!PacketLineIn.isEnd(pckIn.readString())) {
+			// Skip capabilities.
+		}
+		return in;
+	}
+
+	/** Pack data of a side-band response, up to its flush packet. */
+	private static byte[] packData(InputStream in) throws IOException {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		byte[] hdr = new byte[4];
+		for (;;) {
+			IO.readFully(in, hdr, 0, 4);
+			int len = RawParseUtils.parseHexInt16(hdr, 0);
+			if (len == 0) {
+				return data.toByteArray();
+			}
+			byte[] pkt = new byte[len - 4];
+			IO.readFully(in, pkt, 0, pkt.length);
+			if (pkt[0] == 1) {
+				data.write(pkt, 1, pkt.length - 1);
+			}
+		}
+	}
+
+	private static void parse(Repository repo, InputStream in)
+			throws IOException {
+		try (ObjectInserter ins = repo.newObjectInserter()) {
+			PackParser pp = ins.newPackParser(in);
+			pp.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+		}
+	}
+
+	private void serveHttp() {
+		File dir = server.getObjectDatabase().getPackDirectory();
+		while (!http.isClosed()) {
+			try (Socket s = http.accept()) {
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), US_ASCII));
+				String path = in.readLine().split(" ")[1];
+				for (String h = in.readLine(); h != null
+						&& !h.isEmpty(); h = in.readLine()) {
+					// Skip headers.
+				}
+				File f = new File(dir, path.substring("/pack/".length()));
+				OutputStream out = s.getOutputStream();
+				if (f.isFile()) {
+					byte[] body = Files.readAllBytes(f.toPath());
+					out.write(("HTTP/1.0 200 OK\r\nContent-Length: "
+							+ body.length + "\r\n\r\n").getBytes(US_ASCII));
+					out.write(body);
+				} else {
+					out.write("HTTP/1.0 404 Not Found\r\n\r\n"
+							.getBytes(US_ASCII));
+				}
+				out.flush();
+			} catch (IOException e) {
+				// Closed by tearDown.
+			}
+		}
+	}
+}
@@ -39,7 +39,7 @@ public void setUp() throws Exception {
 		// index with both small (< 2^31) and big offsets
 		idx = PackIndex.open(JGitTestUtil.getTestResourceFile(
 				"pack-huge.idx"));
-		reverseIdx = new PackReverseIndex(idx);
+		reverseIdx = PackReverseIndexFactory.computeFromIndex(idx);
 	}
 
 	/**
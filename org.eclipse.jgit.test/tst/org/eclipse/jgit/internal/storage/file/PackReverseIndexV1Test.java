@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
+import org.eclipse.jgit.junit.JGitTestUtil;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackReverseIndexV1Test extends RepositoryTestCase {
+
+	private PackIndex idx;
+
+	private byte[] data;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		// index with both small (< 2^31) and big offsets
+		idx = PackIndex.open(JGitTestUtil.getTestResourceFile(
+				"pack-huge.idx"));
+		List<PackedObjectInfo> objectsByName = new ArrayList<>();
+		for (MutableEntry me : idx) {
+			PackedObjectInfo info = new PackedObjectInfo(me.toObjectId());
+			info.setOffset(me.getOffset());
+			objectsByName.add(info);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PackReverseIndexWriterV1(out).write(objectsByName,
+				idx.packChecksum);
+		data = out.toByteArray();
+	}
+
+	@Test
+	public void testFileFormat() throws Exception {
+		int cnt = (int) idx.getObjectCount();
+		assertEquals(12 + 4 * cnt + 40, data.length);
+		assertArrayEquals(PackReverseIndexV1.MAGIC,
+				Arrays.copyOfRange(data, 0, 4));
+		assertArrayEquals(idx.packChecksum,
+				Arrays.copyOfRange(data, data.length - 40, data.length - 20));
+
+		MessageDigest md = Constants.newMessageDigest();
+		md.update(data, 0, data.length - 20);
+		assertArrayEquals(md.digest(),
+				Arrays.copyOfRange(data, data.length - 20, data.length));
+	}
+
+	@Test
+	public void testMatchesComputedIndex() throws Exception {
+		PackReverseIndex computed = PackReverseIndexFactory
+				.computeFromIndex(idx);
+		PackReverseIndex read = open(data);
+		for (int i = 0; i < idx.getObjectCount(); i++) {
+			assertEquals(computed.findObjectByPosition(i),
+					read.findObjectByPosition(i));
+		}
+		for (MutableEntry me : idx) {
+			long offset = me.getOffset();
+			assertEquals(me.toObjectId(), read.findObject(offset));
+			assertEquals(computed.findPosition(offset),
+					read.findPosition(offset));
+			assertEquals(computed.findNextOffset(offset, Long.MAX_VALUE),
+					read.findNextOffset(offset, Long.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testWrongOffset() throws Exception {
+		PackReverseIndex read = open(data);
+		assertNull(read.findObject(0));
+		assertEquals(-1, read.findPosition(0));
+		assertThrows(CorruptObjectException.class,
+				() -> read.findNextOffset(0, Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testRejectInvalidFiles() throws Exception {
+		byte[] badMagic = data.clone();
+		badMagic[0] = 'X';
+		assertThrows(IOException.class, () -> open(badMagic));
+
+		byte[] badVersion = data.clone();
+		badVersion[7] = 2;
+		assertThrows(IOException.class, () -> open(badVersion));
+
+		byte[] otherPack = data.clone();
+		otherPack[data.length - 40] ^= 1;
+		assertThrows(IOException.class, () -> open(otherPack));
+
+		assertThrows(IOException.class,
+				() -> open(Arrays.copyOf(data, data.length - 1)));
+		assertThrows(FileNotFoundException.class,
+				() -> PackReverseIndexFactory.open(
+						new File(db.getDirectory(), "missing.rev"), idx));
+	}
+
+	private PackReverseIndex open(byte[] content) throws IOException {
+		File file = new File(db.getDirectory(), "pack.rev");
+		Files.write(file.toPath(), content);
+		return PackReverseIndexFactory.open(file, idx);
+	}
+}
@@ -13,6 +13,7 @@
 import static org.eclipse.jgit.internal.storage.pack.PackWriter.NONE;
 import static org.eclipse.jgit.lib.Constants.INFO_ALTERNATES;
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -28,13 +29,18 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -44,6 +50,7 @@
 import org.eclipse.jgit.junit.JGitTestUtil;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectIdSet;
@@ -61,6 +68,7 @@
 import org.eclipse.jgit.storage.pack.PackStatistics;
 import org.eclipse.jgit.test.resources.SampleDataRepositoryTestCase;
 import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.util.io.ChannelBufferedOutputStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -278,6 +286,19 @@ public void testWritePack2() throws IOException {
 		writeVerifyPack2(false);
 	}
 
+	/**
+	 * Create pack as in {@link #testWritePack2()}, enumerating trees on
+	 * several threads.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWritePack2ParallelCounting() throws IOException {
+		config.setParallelCounting(true);
+		config.setThreads(4);
+		writeVerifyPack2(false);
+	}
+
 	/**
 	 * Test pack writing with deltas reuse, delta-base first rule. Pack
 	 * content/preparation as in {@link #testWritePack2()}.
@@ -460,6 +481,187 @@ public void testDeltaStatistics() throws Exception {
 		}
 	}
 
+	@Test
+	public void testTotalDeltaSearchMemoryLimit() throws Exception {
+		// TestRepository will close repo
+		FileRepository repo = createBareRepository();
+		try (TestRepository<FileRepository> testRepo = new TestRepository<>(
+				repo)) {
+			BranchBuilder bb = testRepo.branch("refs/heads/master");
+			RevCommit tip = null;
+			for (int i = 0; i < 6; i++) {
+				CommitBuilder cb = bb.commit();
+				for (String path : new String[] { "a", "b", "c", "d" }) {
+					cb.add(path,
+							genDeltableData(2000 + 100 * i + path.charAt(0)));
+				}
+				tip = cb.create();
+			}
+
+			config.setDeltaCompress(true);
+			config.setReuseDeltas(false);
+			config.setThreads(4);
+			assertTrue(countDeltas(repo, tip) > 0);
+
+			// Room for a single object leaves nothing to compare with.
+			config.setTotalDeltaSearchMemoryLimit(1);
+			assertEquals(0, countDeltas(repo, tip));
+		}
+	}
+
+	@Test
+	public void testDeltaIslands() throws Exception {
+		// TestRepository will close repo
+		FileRepository repo = createBareRepository();
+		try (TestRepository<FileRepository> testRepo = new TestRepository<>(
+				repo)) {
+			RevCommit one = testRepo.branch("refs/virtual/1/heads/main")
+					.commit().add("a", genDeltableData(2000)).create();
+			RevCommit two = testRepo.branch("refs/virtual/2/heads/main")
+					.commit().add("a", genDeltableData(2100)).create();
+			List<Ref> refs = repo.getRefDatabase().getRefs();
+
+			config.setDeltaCompress(true);
+			config.setReuseDeltas(false);
+			assertTrue(countDeltas(repo, refs, one, two) > 0);
+
+			// Each island has its own blob, so there is no base left.
+			config.setDeltaIslands(
+					Collections.singletonList("refs/virtual/([0-9]+)/"));
+			assertEquals(0, countDeltas(repo, refs, one, two));
+
+			// Deltas across islands stored by a previous pack are not reused.
+			config.setDeltaIslands(Collections.emptyList());
+			config.setReuseDeltas(true);
+			GC gc = new GC(repo);
+			gc.setPackConfig(new PackConfig(config));
+			gc.gc().get();
+			assertTrue(countDeltas(repo, refs, one, two) > 0);
+			config.setDeltaIslands(
+					Collections.singletonList("refs/virtual/([0-9]+)/"));
+			assertEquals(0, countDeltas(repo, refs, one, two));
+		}
+	}
+
+	@Test
+	public void testCopyObjectRuns() throws Exception {
+		// TestRepository will close repo
+		FileRepository repo = createBareRepository();
+		try (TestRepository<FileRepository> testRepo = new TestRepository<>(
+				repo)) {
+			BranchBuilder bb = testRepo.branch("refs/heads/master");
+			RevCommit old = null;
+			RevCommit tip = null;
+			for (int i = 0; i < 6; i++) {
+				CommitBuilder cb = bb.commit();
+				for (String path : new String[] { "a", "b", "c", "d" }) {
+					cb.add(path,
+							genDeltableData(2000 + 100 * i + path.charAt(0)));
+				}
+				tip = cb.create();
+				if (i == 2) {
+					old = tip;
+				}
+			}
+			new GC(repo).gc().get();
+
+			// A clone copies the pack in runs, a fetch also has gaps after
+			// which deltas are written with a new base offset.
+			for (Set<ObjectId> have : Arrays.asList(NONE, haves(old))) {
+				byte[] runs = writeForClient(repo, tip, have, false);
+				byte[] objects = writeForClient(repo, tip, have, true);
+				assertArrayEquals(objects, runs);
+
+				FileRepository clone = createBareRepository();
+				try (ObjectInserter ins = clone.newObjectInserter()) {
+					PackParser p = ins.newPackParser(
+							new ByteArrayInputStream(runs));
+					p.parse(NullProgressMonitor.INSTANCE);
+					ins.flush();
+				}
+				assertTrue(clone.getObjectDatabase().has(tip));
+			}
+		}
+	}
+
+	@Test
+	public void testTransferToChannel() throws Exception {
+		// TestRepository will close repo
+		FileRepository repo = createBareRepository();
+		try (TestRepository<FileRepository> testRepo = new TestRepository<>(
+				repo)) {
+			byte[] big = new byte[256 << 10];
+			new Random(0).nextBytes(big);
+			RevCommit tip = testRepo.branch("refs/heads/master").commit()
+					.add("big", testRepo.blob(big)).add("small", "small")
+					.create();
+			new GC(repo).gc().get();
+
+			// The large object, or the whole pack if it is reused as a
+			// cached pack, is sent from the file to the channel.
+			for (boolean cachedPacks : new boolean[] { false, true }) {
+				ByteArrayOutputStream expect = new ByteArrayOutputStream();
+				writeForClient(repo, tip, NONE, false, cachedPacks, expect);
+
+				ByteArrayOutputStream buf = new ByteArrayOutputStream();
+				AtomicLong transferred = new AtomicLong();
+				try (OutputStream out = new ChannelBufferedOutputStream(buf,
+						Channels.newChannel(buf)) {
+					@Override
+					public void transferFrom(FileChannel src, long position,
+							long count) throws IOException {
+						transferred.addAndGet(count);
+						super.transferFrom(src, position, count);
+					}
+				}) {
+					writeForClient(repo, tip, NONE, false, cachedPacks, out);
+				}
+				assertArrayEquals(expect.toByteArray(), buf.toByteArray());
+				assertTrue(transferred.get() >= big.length);
+			}
+		}
+	}
+
+	private byte[] writeForClient(Repository repo, ObjectId tip,
+			Set<ObjectId> have, boolean validate) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeForClient(repo, tip, have, validate, false, out);
+		return out.toByteArray();
+	}
+
+	private void writeForClient(Repository repo, ObjectId tip,
+			Set<ObjectId> have, boolean validate, boolean cachedPacks,
+			OutputStream out) throws IOException {
+		try (PackWriter pw = new PackWriter(config, repo.newObjectReader())) {
+			NullProgressMonitor m = NullProgressMonitor.INSTANCE;
+			pw.setIndexDisabled(true);
+			pw.setUseBitmaps(true);
+			pw.setUseCachedPacks(cachedPacks);
+			pw.setDeltaBaseAsOffset(true);
+			pw.setReuseValidatingObjects(validate);
+			pw.preparePack(m, wants(tip), have);
+			pw.writePack(m, m, out);
+			assertEquals(pw.getObjectCount(),
+					pw.getStatistics().getReusedObjects());
+		}
+	}
+
+	private long countDeltas(Repository repo, ObjectId tip)
+			throws IOException {
+		return countDeltas(repo, null, tip);
+	}
+
+	private long countDeltas(Repository repo, List<Ref> refs,
+			ObjectId... tips) throws IOException {
+		try (PackWriter pw = new PackWriter(config, repo.newObjectReader())) {
+			NullProgressMonitor m = NullProgressMonitor.INSTANCE;
+			pw.setDeltaIslandRefs(refs);
+			pw.preparePack(m, wants(tips), NONE);
+			pw.writePack(m, m, new ByteArrayOutputStream());
+			return pw.getStatistics().getTotalDeltas();
+		}
+	}
+
 	// Generate consistent junk data for building files that delta well
 	private String genDeltableData(int length) {
 		assertTrue("Generated data must have a length > 0", length > 0);
@@ -504,6 +706,49 @@ public void testWriteIndex() throws Exception {
 		}
 	}
 
+	@Test
+	public void testParallelCountingFindsSameObjects() throws Exception {
+		Set<ObjectId> interestings = new HashSet<>();
+		for (Ref ref : db.getRefDatabase().getRefs()) {
+			interestings.add(ref.getObjectId());
+		}
+		Set<ObjectId> uninterestings = haves(ObjectId
+				.fromString("540a36d136cf413e4b064c2b0e0a4db60f77feab"));
+		for (Set<ObjectId> have : Arrays.asList(NONE, uninterestings)) {
+			config.setParallelCounting(false);
+			List<ObjectId> expected = new ArrayList<>();
+			try (PackWriter pw = new PackWriter(config, db.newObjectReader())) {
+				pw.preparePack(NullProgressMonitor.INSTANCE, interestings, have);
+				for (ObjectId id : allObjects()) {
+					if (pw.willInclude(id)) {
+						expected.add(id);
+					}
+				}
+				assertEquals(expected.size(), pw.getObjectCount());
+			}
+
+			config.setParallelCounting(true);
+			config.setThreads(4);
+			try (PackWriter pw = new PackWriter(config, db.newObjectReader())) {
+				pw.preparePack(NullProgressMonitor.INSTANCE, interestings, have);
+				assertEquals(expected.size(), pw.getObjectCount());
+				for (ObjectId id : expected) {
+					assertTrue(pw.willInclude(id));
+				}
+			}
+		}
+	}
+
+	private Set<ObjectId> allObjects() throws IOException {
+		Set<ObjectId> all = new HashSet<>();
+		for (Pack p : db.getObjectDatabase().getPacks()) {
+			for (MutableEntry me : p) {
+				all.add(me.toObjectId());
+			}
+		}
+		return all;
+	}
+
 	@Test
 	public void testExclude() throws Exception {
 		// TestRepository closes repo
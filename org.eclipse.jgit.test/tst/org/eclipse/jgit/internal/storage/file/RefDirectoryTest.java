@@ -44,9 +44,12 @@
 import org.eclipse.jgit.junit.Repeat;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Ref.Storage;
+import org.eclipse.jgit.lib.RefComparator;
 import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTag;
@@ -1047,6 +1050,159 @@ public void test_repack() throws Exception {
 		assertEquals(v0_1.getId(), all.get("refs/tags/v0.1").getObjectId());
 	}
 
+	@Test
+	public void testPackedRefsMmap_ExactRef() throws IOException {
+		enablePackedRefsMmap();
+		StringBuilder packed = new StringBuilder(
+				"# pack-refs with: peeled sorted \n");
+		for (int i = 10; i < 60; i++) {
+			packed.append(A.name()).append(" refs/heads/b").append(i)
+					.append('\n');
+		}
+		for (int i = 14; i < 60; i += 7) {
+			packed.append(v1_0.name()).append(" refs/tags/t").append(i)
+					.append('\n');
+			packed.append('^').append(v1_0.getObject().name()).append('\n');
+		}
+		writePackedRefs(packed.toString());
+
+		for (int i = 10; i < 60; i++) {
+			Ref r = refdir.exactRef("refs/heads/b" + i);
+			assertEquals(Storage.PACKED, r.getStorage());
+			assertEquals(A, r.getObjectId());
+			assertTrue(r.isPeeled());
+			assertNull(r.getPeeledObjectId());
+
+			r = refdir.exactRef("refs/tags/t" + i);
+			if (i % 7 == 0) {
+				assertEquals(v1_0, r.getObjectId());
+				assertEquals(v1_0.getObject(), r.getPeeledObjectId());
+			} else {
+				assertNull(r);
+			}
+		}
+		assertNull(refdir.exactRef("refs/heads/a"));
+		assertNull(refdir.exactRef("refs/heads/b1"));
+		assertNull(refdir.exactRef("refs/heads/b60"));
+		assertNull(refdir.exactRef("refs/tags/t"));
+		assertNull(refdir.exactRef("refs/tags/u"));
+
+		Ref head = refdir.exactRef(HEAD);
+		assertTrue(head.isSymbolic());
+		assertNull(head.getObjectId());
+	}
+
+	@Test
+	public void testPackedRefsMmap_GetRefsByPrefix() throws IOException {
+		enablePackedRefsMmap();
+		writePackedRefs("# pack-refs with: peeled sorted \n" + //
+				A.name() + " refs/heads/master\n" + //
+				B.name() + " refs/heads/other\n" + //
+				v1_0.name() + " refs/tags/v1.0\n" + //
+				"^" + v1_0.getObject().name() + "\n");
+		writeLooseRef("refs/heads/loose", B);
+
+		List<Ref> heads = refdir.getRefsByPrefix(R_HEADS);
+		assertEquals(3, heads.size());
+		assertEquals("refs/heads/loose", heads.get(0).getName());
+		assertEquals(LOOSE, heads.get(0).getStorage());
+		assertEquals("refs/heads/master", heads.get(1).getName());
+		assertEquals(Storage.PACKED, heads.get(1).getStorage());
+		assertEquals("refs/heads/other", heads.get(2).getName());
+
+		Map<String, Ref> tags = refdir.getRefs(R_TAGS);
+		assertEquals(1, tags.size());
+		assertEquals(v1_0.getObject(), tags.get("v1.0").getPeeledObjectId());
+
+		assertTrue(refdir.getRefsByPrefix("refs/notes/").isEmpty());
+		assertEquals(5, refdir.getRefs(RefDatabase.ALL).size());
+	}
+
+	@Test
+	public void testPackedRefsMmap_Unsorted() throws IOException {
+		enablePackedRefsMmap();
+		writePackedRefs("# pack-refs with: peeled \n" + //
+				B.name() + " refs/heads/other\n" + //
+				A.name() + " refs/heads/master\n");
+
+		assertEquals(A, refdir.exactRef("refs/heads/master").getObjectId());
+		assertEquals(B, refdir.exactRef("refs/heads/other").getObjectId());
+		assertEquals(2, refdir.getRefsByPrefix(R_HEADS).size());
+	}
+
+	@Test
+	public void testPackedRefsMmap_AfterPack() throws Exception {
+		enablePackedRefsMmap();
+		writeLooseRef("refs/heads/master", A);
+		writeLooseRef("refs/heads/other", B);
+		writeLooseRef("refs/tags/v1.0", v1_0);
+		refdir.pack(Arrays.asList("refs/heads/master", "refs/heads/other",
+				"refs/tags/v1.0"));
+		assertFalse(new File(diskRepo.getDirectory(), "refs/heads/master")
+				.exists());
+
+		Ref master = refdir.exactRef("refs/heads/master");
+		assertEquals(Storage.PACKED, master.getStorage());
+		assertEquals(A, master.getObjectId());
+		Ref tag = refdir.exactRef("refs/tags/v1.0");
+		assertEquals(v1_0.getObject(), tag.getPeeledObjectId());
+
+		repo.update("refs/heads/other", A);
+		refdir.pack(Arrays.asList("refs/heads/other"));
+		assertEquals(A, refdir.exactRef("refs/heads/other").getObjectId());
+		assertEquals(Storage.PACKED,
+				refdir.exactRef("refs/heads/other").getStorage());
+	}
+
+	@Test
+	public void testScanRefsByPrefix() throws IOException {
+		writePackedRefs("# pack-refs with: peeled sorted \n" + //
+				A.name() + " refs/heads/master\n" + //
+				B.name() + " refs/heads/other\n" + //
+				v1_0.name() + " refs/tags/v1.0\n" + //
+				"^" + v1_0.getObject().name() + "\n");
+		writeLooseRef("refs/heads/master", B);
+		writeLooseRef("refs/heads/master2", A);
+		writeLooseRef("refs/heads/sym", "ref: refs/heads/other\n");
+		writeLooseRef("refs/heads/broken", "ref: refs/heads/missing\n");
+
+		assertScanMatchesGetRefs();
+		enablePackedRefsMmap();
+		assertScanMatchesGetRefs();
+
+		try (RefScanner rs = refdir.scanRefsByPrefix("refs/heads/mas")) {
+			assertTrue(rs.next());
+			assertEquals("refs/heads/master", rs.getRef().getName());
+			assertEquals(LOOSE, rs.getRef().getStorage());
+			assertEquals(B, rs.getRef().getObjectId());
+			assertTrue(rs.next());
+			assertEquals("refs/heads/master2", rs.getRef().getName());
+			assertFalse(rs.next());
+		}
+	}
+
+	private void assertScanMatchesGetRefs() throws IOException {
+		for (String prefix : new String[] { RefDatabase.ALL, "r", "refs/",
+				R_HEADS, "refs/heads/m", "refs/heads/master", R_TAGS, HEAD,
+				"H", "refs/notes/", "X" }) {
+			List<Ref> expect = new ArrayList<>(
+					RefComparator.sort(refdir.getRefsByPrefix(prefix)));
+			List<Ref> actual = new ArrayList<>();
+			try (RefScanner rs = refdir.scanRefsByPrefix(prefix)) {
+				while (rs.next()) {
+					actual.add(rs.getRef());
+				}
+			}
+			assertEquals(prefix, expect.size(), actual.size());
+			for (int i = 0; i < expect.size(); i++) {
+				assertEquals(prefix, expect.get(i).getName(),
+						actual.get(i).getName());
+				assertEquals(prefix, expect.get(i).getObjectId(),
+						actual.get(i).getObjectId());
+			}
+		}
+	}
+
 	@Test
 	public void testFindRef_EmptyDatabase() throws IOException {
 		Ref r;
@@ -1337,6 +1493,11 @@ public void testPackedRefsLockFailure() throws Exception {
 		assertEquals(Storage.LOOSE, ref.getStorage());
 	}
 
+	private void enablePackedRefsMmap() {
+		diskRepo.getConfig().setBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				null, ConfigConstants.CONFIG_KEY_PACKED_REFS_MMAP, true);
+	}
+
 	private void writeLooseRef(String name, AnyObjectId id) throws IOException {
 		writeLooseRef(name, id.name() + "\n");
 	}
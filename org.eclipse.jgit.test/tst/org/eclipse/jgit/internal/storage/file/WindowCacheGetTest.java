@@ -30,6 +30,7 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig.EvictionPolicy;
 import org.eclipse.jgit.storage.file.WindowCacheStats;
 import org.eclipse.jgit.test.resources.SampleDataRepositoryTestCase;
 import org.eclipse.jgit.util.MutableInteger;
@@ -44,15 +45,25 @@ public class WindowCacheGetTest extends SampleDataRepositoryTestCase {
 	private List<TestObject> toLoad;
 	private WindowCacheConfig cfg;
 	private boolean useStrongRefs;
+	private EvictionPolicy evictionPolicy;
+	private boolean useOffHeap;
 
-	@Parameters(name = "useStrongRefs={0}")
+	@Parameters(name = "useStrongRefs={0}, evictionPolicy={1}, useOffHeap={2}")
 	public static Collection<Object[]> data() {
-		return Arrays
-				.asList(new Object[][] { { Boolean.TRUE }, { Boolean.FALSE } });
+		return Arrays.asList(new Object[][] {
+				{ Boolean.TRUE, EvictionPolicy.LRU, Boolean.FALSE },
+				{ Boolean.FALSE, EvictionPolicy.LRU, Boolean.FALSE },
+				{ Boolean.TRUE, EvictionPolicy.TINY_LFU, Boolean.FALSE },
+				{ Boolean.FALSE, EvictionPolicy.TINY_LFU, Boolean.FALSE },
+				{ Boolean.FALSE, EvictionPolicy.LRU, Boolean.TRUE },
+				{ Boolean.FALSE, EvictionPolicy.TINY_LFU, Boolean.TRUE } });
 	}
 
-	public WindowCacheGetTest(Boolean useStrongRef) {
+	public WindowCacheGetTest(Boolean useStrongRef,
+			EvictionPolicy evictionPolicy, Boolean useOffHeap) {
 		this.useStrongRefs = useStrongRef.booleanValue();
+		this.evictionPolicy = evictionPolicy;
+		this.useOffHeap = useOffHeap.booleanValue();
 	}
 
 	@Override
@@ -80,6 +91,8 @@ public void setUp() throws Exception {
 		assertEquals(96, toLoad.size());
 		cfg = new WindowCacheConfig();
 		cfg.setPackedGitUseStrongRefs(useStrongRefs);
+		cfg.setEvictionPolicy(evictionPolicy);
+		cfg.setPackedGitUseOffHeap(useOffHeap);
 	}
 
 	@Test
@@ -150,6 +163,7 @@ private static void checkLimits(WindowCacheConfig cfg) {
 		assertTrue("miss ratio should be > 0", 0 <= s.getMissRatio());
 		assertTrue("miss ratio should be < 1", 1 > s.getMissRatio());
 		assertTrue("request count should be > 0", 0 < s.getRequestCount());
+		assertEquals(cfg.getEvictionPolicy(), s.getEvictionPolicy());
 		assertTrue("total load time should be > 0", 0 < s.getTotalLoadTime());
 	}
 
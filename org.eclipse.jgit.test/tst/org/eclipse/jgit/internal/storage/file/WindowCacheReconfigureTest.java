@@ -14,7 +14,9 @@
 import static org.junit.Assert.fail;
 
 import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig.EvictionPolicy;
 import org.junit.Test;
 
 public class WindowCacheReconfigureTest extends RepositoryTestCase {
@@ -103,4 +105,19 @@ public void testConfigureCache_Limits1() {
 		cfg.setPackedGitWindowSize(4096);
 		cfg.install();
 	}
+
+	@Test
+	public void testConfigureCache_EvictionPolicy() {
+		final Config rc = new Config();
+		rc.setString("core", null, "packedGitEvictionPolicy", "tiny_lfu");
+		final WindowCacheConfig cfg = new WindowCacheConfig().fromConfig(rc);
+		assertEquals(EvictionPolicy.TINY_LFU, cfg.getEvictionPolicy());
+		cfg.install();
+		assertEquals(EvictionPolicy.TINY_LFU,
+				WindowCache.getInstance().getStats().getEvictionPolicy());
+
+		new WindowCacheConfig().install();
+		assertEquals(EvictionPolicy.LRU,
+				WindowCache.getInstance().getStats().getEvictionPolicy());
+	}
 }
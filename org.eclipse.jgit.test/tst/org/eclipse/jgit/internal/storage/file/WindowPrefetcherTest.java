@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WindowPrefetcherTest extends LocalDiskRepositoryTestCase {
+	private FileRepository repo;
+
+	private TestRepository<FileRepository> tr;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		WindowCacheConfig cfg = new WindowCacheConfig();
+		cfg.setPackedGitWindowSize(4096);
+		cfg.setPackedGitLimit(64 * 4096);
+		cfg.install();
+
+		repo = createBareRepository();
+		tr = new TestRepository<>(repo);
+	}
+
+	@Override
+	@After
+	public void tearDown() throws Exception {
+		new WindowCacheConfig().install();
+		super.tearDown();
+	}
+
+	@Test
+	public void testOpenReturnsAllObjects() throws Exception {
+		Map<ObjectId, byte[]> blobs = createPackedBlobs(200);
+		RevBlob loose = tr.blob("loose");
+		blobs.put(loose, "loose".getBytes(UTF_8));
+
+		List<ObjectId> want = new ArrayList<>(blobs.keySet());
+		Map<ObjectId, byte[]> actual = new HashMap<>();
+		try (ObjectReader reader = repo.newObjectReader()) {
+			AsyncObjectLoaderQueue<ObjectId> q = reader.open(want, true);
+			try {
+				while (q.next()) {
+					assertEquals(q.getCurrent(), q.getObjectId());
+					actual.put(q.getObjectId(), q.open().getCachedBytes());
+				}
+			} finally {
+				q.release();
+			}
+		}
+		assertEquals(blobs.size(), actual.size());
+		for (Map.Entry<ObjectId, byte[]> e : blobs.entrySet()) {
+			assertArrayEquals(e.getValue(), actual.get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void testGetObjectSize() throws Exception {
+		Map<ObjectId, byte[]> blobs = createPackedBlobs(50);
+		List<ObjectId> want = new ArrayList<>(blobs.keySet());
+		int n = 0;
+		try (ObjectReader reader = repo.newObjectReader()) {
+			AsyncObjectSizeQueue<ObjectId> q = reader.getObjectSize(want,
+					true);
+			try {
+				while (q.next()) {
+					assertEquals(blobs.get(q.getObjectId()).length,
+							q.getSize());
+					n++;
+				}
+			} finally {
+				q.release();
+			}
+		}
+		assertEquals(blobs.size(), n);
+	}
+
+	@Test
+	public void testMissingObject() throws Exception {
+		createPackedBlobs(10);
+		ObjectId missing = ObjectId
+				.fromString("0123456789012345678901234567890123456789");
+		List<ObjectId> want = new ArrayList<>();
+		want.add(missing);
+		try (ObjectReader reader = repo.newObjectReader()) {
+			AsyncObjectLoaderQueue<ObjectId> q = reader.open(want, true);
+			try {
+				assertTrue(q.next());
+				assertEquals(missing, q.getObjectId());
+				q.open();
+				fail("expected MissingObjectException");
+			} catch (MissingObjectException e) {
+				// expected
+			} finally {
+				q.release();
+			}
+		}
+	}
+
+	@Test
+	public void testObjectsSortedByOffset() throws Exception {
+		Map<ObjectId, byte[]> blobs = createPackedBlobs(100);
+		Pack pack = repo.getObjectDatabase().getPacks().iterator().next();
+		WindowPrefetcher<ObjectId> prefetcher = new WindowPrefetcher<>(
+				repo.getObjectDatabase().getPacks(), blobs.keySet());
+		List<WindowPrefetcher.Found<ObjectId>> found = prefetcher
+				.getObjects();
+		assertEquals(blobs.size(), found.size());
+		long last = 0;
+		for (WindowPrefetcher.Found<ObjectId> f : found) {
+			assertEquals(pack, f.pack);
+			assertEquals(pack.findOffset(f.id), f.offset);
+			assertTrue(last < f.offset);
+			last = f.offset;
+		}
+		prefetcher.start();
+		prefetcher.cancel();
+	}
+
+	@Test
+	public void testReadAheadBounded() throws Exception {
+		Random rng = new Random(42);
+		List<ObjectId> want = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			byte[] data = new byte[200];
+			rng.nextBytes(data);
+			RevBlob b = tr.blob(data);
+			want.add(b);
+			tr.lightweightTag("t" + b.name(), b);
+		}
+		tr.branch("master").commit().add("file", tr.blob("x")).create();
+		tr.packAndPrune();
+		Pack pack = repo.getObjectDatabase().getPacks().iterator().next();
+		// Many more windows than may be read ahead.
+		assertTrue(pack.length > 64 * 4096);
+
+		WindowPrefetcher<ObjectId> prefetcher = new WindowPrefetcher<>(
+				repo.getObjectDatabase().getPacks(), want);
+		prefetcher.start();
+		assertEquals(1, prefetcher.getRunsAhead());
+		int n = 0;
+		int maxAhead = 0;
+		while (prefetcher.next() != null) {
+			maxAhead = Math.max(maxAhead, prefetcher.getRunsAhead());
+			n++;
+		}
+		assertEquals(want.size(), n);
+		assertTrue(maxAhead <= 2);
+		prefetcher.cancel();
+		assertEquals(0, prefetcher.getRunsAhead());
+	}
+
+	private Map<ObjectId, byte[]> createPackedBlobs(int count)
+			throws Exception {
+		Map<ObjectId, byte[]> blobs = new HashMap<>();
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			content.append("line ").append(i).append(" of some content\n");
+			byte[] data = (i + "\n" + content).getBytes(UTF_8);
+			blobs.put(tr.blob(data), data);
+		}
+		tr.branch("master").commit().add("file", tr.blob("x")).create();
+		for (ObjectId id : blobs.keySet()) {
+			tr.lightweightTag("t" + id.name(), id);
+		}
+		tr.packAndPrune();
+		return blobs;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
+import org.eclipse.jgit.junit.JGitTestUtil;
+import org.eclipse.jgit.junit.RepositoryTestCase;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.NB;
+import org.junit.Test;
+
+public class MultiPackIndexTest extends RepositoryTestCase {
+
+	private static final String PACK_A = "pack-34be9032ac282b11fa9babdc2b2a93ca996c9c2f.idx";
+
+	private static final String PACK_B = "pack-df2982f284bbabb6bdb59ee3fcc6eb0983e20371.idx";
+
+	private static final String PACK_HUGE = "pack-huge.idx";
+
+	@Test
+	public void testSinglePack() throws Exception {
+		PackIndex a = index(PACK_A);
+		MultiPackIndex midx = writeAndRead(indexes(PACK_A, a));
+
+		assertArrayEquals(new String[] { PACK_A }, midx.getPackNames());
+		assertEquals(a.getObjectCount(), midx.getObjectCount());
+		assertCovers(midx, 0, a);
+	}
+
+	@Test
+	public void testMergesPacks() throws Exception {
+		PackIndex a = index(PACK_A);
+		PackIndex b = index(PACK_B);
+		PackIndex huge = index(PACK_HUGE);
+		MultiPackIndex midx = writeAndRead(
+				indexes(PACK_HUGE, huge, PACK_B, b, PACK_A, a));
+
+		// Pack names are sorted, whatever order they were passed in.
+		assertArrayEquals(new String[] { PACK_A, PACK_B, PACK_HUGE },
+				midx.getPackNames());
+		Set<ObjectId> all = new HashSet<>();
+		for (PackIndex idx : Arrays.asList(a, b, huge)) {
+			for (MutableEntry me : idx) {
+				all.add(me.toObjectId());
+			}
+		}
+		assertEquals(all.size(), midx.getObjectCount());
+		assertCovers(midx, 0, a);
+		assertCovers(midx, 1, b);
+		assertCovers(midx, 2, huge);
+
+		ObjectId prev = null;
+		for (int i = 0; i < midx.getObjectCount(); i++) {
+			ObjectId id = midx.getObjectId(i);
+			if (prev != null) {
+				assertTrue(prev.compareTo(id) < 0);
+			}
+			assertEquals(i, midx.findPosition(id));
+			prev = id;
+		}
+	}
+
+	@Test
+	public void testLargeOffsets() throws Exception {
+		PackIndex huge = index(PACK_HUGE);
+		assertTrue(huge.getOffset64Count() > 0);
+		MultiPackIndex midx = writeAndRead(indexes(PACK_HUGE, huge));
+		assertCovers(midx, 0, huge);
+	}
+
+	@Test
+	public void testDuplicatesPreferFirstPack() throws Exception {
+		PackIndex a = index(PACK_A);
+		String copy = "pack-0000000000000000000000000000000000000000.idx";
+
+		MultiPackIndex midx = writeAndRead(indexes(PACK_A, a, copy, a));
+		assertEquals(a.getObjectCount(), midx.getObjectCount());
+		assertCovers(midx, 1, a);
+
+		midx = writeAndRead(indexes(copy, a, PACK_A, a));
+		assertCovers(midx, 0, a);
+	}
+
+	@Test
+	public void testFindUnknownObject() throws Exception {
+		MultiPackIndex midx = writeAndRead(indexes(PACK_A, index(PACK_A)));
+		assertEquals(-1, midx.findPosition(ObjectId.zeroId()));
+		assertEquals(-1, midx.findPosition(ObjectId
+				.fromString("ffffffffffffffffffffffffffffffffffffffff")));
+	}
+
+	@Test
+	public void testOpenFile() throws Exception {
+		PackIndex a = index(PACK_A);
+		File file = new File(db.getObjectDatabase().getPackDirectory(),
+				"multi-pack-index");
+		try (OutputStream os = new FileOutputStream(file)) {
+			os.write(write(indexes(PACK_A, a)));
+		}
+		assertCovers(MultiPackIndexLoader.open(file), 0, a);
+	}
+
+	@Test
+	public void testChecksum() throws Exception {
+		byte[] data = write(indexes(PACK_A, index(PACK_A)));
+		assertArrayEquals(
+				Arrays.copyOfRange(data, data.length - 20, data.length),
+				read(data).getChecksum());
+	}
+
+	@Test
+	public void testReadCorruptIndex() throws Exception {
+		byte[] data = write(indexes(PACK_A, index(PACK_A)));
+
+		byte[] badMagic = data.clone();
+		badMagic[0] = 'X';
+		assertThrows(IOException.class, () -> read(badMagic));
+
+		byte[] badVersion = data.clone();
+		badVersion[4] = 2;
+		assertThrows(IOException.class, () -> read(badVersion));
+
+		byte[] badHash = data.clone();
+		badHash[5] = 2;
+		assertThrows(IOException.class, () -> read(badHash));
+
+		// Make the pack names chunk claim to extend past the end of file.
+		byte[] badChunk = data.clone();
+		NB.encodeInt64(badChunk, 12 + 12 + 4, data.length + 1);
+		assertThrows(IOException.class, () -> read(badChunk));
+
+		// Claim more packs than there are names.
+		byte[] missingName = data.clone();
+		NB.encodeInt32(missingName, 8, 2);
+		assertThrows(IOException.class, () -> read(missingName));
+
+		assertThrows(IOException.class,
+				() -> read(Arrays.copyOf(data, 10)));
+	}
+
+	private static void assertCovers(MultiPackIndex midx, int packId,
+			PackIndex idx) {
+		for (MutableEntry me : idx) {
+			int pos = midx.findPosition(me.toObjectId());
+			assertNotEquals(-1, pos);
+			assertEquals(me.toObjectId(), midx.getObjectId(pos));
+			if (midx.getPackId(pos) == packId) {
+				assertEquals(me.getOffset(), midx.getOffset(pos));
+			}
+		}
+		for (int i = 0; i < midx.getObjectCount(); i++) {
+			if (midx.getPackId(i) == packId) {
+				assertEquals(idx.findOffset(midx.getObjectId(i)),
+						midx.getOffset(i));
+			}
+		}
+	}
+
+	private static Map<String, PackIndex> indexes(Object... namesAndIndexes) {
+		Map<String, PackIndex> indexes = new LinkedHashMap<>();
+		for (int i = 0; i < namesAndIndexes.length; i += 2) {
+			indexes.put((String) namesAndIndexes[i],
+					(PackIndex) namesAndIndexes[i + 1]);
+		}
+		return indexes;
+	}
+
+	private static PackIndex index(String name) throws IOException {
+		return PackIndex.open(JGitTestUtil.getTestResourceFile(name));
+	}
+
+	private static MultiPackIndex writeAndRead(Map<String, PackIndex> indexes)
+			throws IOException {
+		return read(write(indexes));
+	}
+
+	private static MultiPackIndex read(byte[] data) throws IOException {
+		return MultiPackIndexLoader.read(new ByteArrayInputStream(data));
+	}
+
+	private static byte[] write(Map<String, PackIndex> indexes)
+			throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		new MultiPackIndexWriter(indexes).write(NullProgressMonitor.INSTANCE,
+				os);
+		return os.toByteArray();
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.transport.connectivity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+import org.eclipse.jgit.junit.LocalDiskRepositoryTestCase;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ConnectivityChecker;
+import org.eclipse.jgit.transport.ConnectivityChecker.ConnectivityCheckInfo;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingConnectivityCheckerTest
+		extends LocalDiskRepositoryTestCase {
+	private Repository server;
+
+	private Repository client;
+
+	private TestRepository<Repository> clientRepo;
+
+	private RevCommit base;
+
+	private int fullChecks;
+
+	private StreamingConnectivityChecker checker;
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		server = createBareRepository();
+		client = createBareRepository();
+		clientRepo = new TestRepository<>(client);
+
+		base = clientRepo.commit().add("a/x", "x").add("b/y", "y").create();
+		parse(pack(Collections.singleton(base), Collections.emptySet()),
+				false);
+
+		ConnectivityChecker full = new FullConnectivityChecker();
+		checker = new StreamingConnectivityChecker((info, haves, pm) -> {
+			fullChecks++;
+			full.checkConnectivity(info, haves, pm);
+		});
+	}
+
+	@Test
+	public void testConnectedWithoutWalk() throws Exception {
+		RevCommit tip = clientRepo.commit().parent(base).add("a/x", "x2")
+				.add("b/y", "y").create();
+		PackParser parser = parse(
+				pack(Collections.singleton(tip), Collections.singleton(base)),
+				true);
+
+		// The unchanged tree b and the parent are named by the pack.
+		assertTrue(parser.getReferencedObjectIds().contains(base));
+		assertTrue(parser.getReferencedObjectIds()
+				.contains(clientRepo.get(tip.getTree(), "b")));
+
+		check(parser, base, tip, false);
+		assertEquals(0, fullChecks);
+		check(parser, base, tip, true);
+		assertEquals(0, fullChecks);
+	}
+
+	@Test
+	public void testNotCollected() throws Exception {
+		RevCommit tip = clientRepo.commit().parent(base).add("a/x", "x2")
+				.create();
+		PackParser parser = parse(
+				pack(Collections.singleton(tip), Collections.singleton(base)),
+				false);
+
+		check(parser, base, tip, false);
+		assertEquals(1, fullChecks);
+	}
+
+	@Test
+	public void testMissingObject() throws Exception {
+		RevBlob missing = clientRepo.blob("missing");
+		RevTree tree = clientRepo.tree(clientRepo.file("m", missing));
+		RevCommit tip = clientRepo.commit().parent(base).setTopLevelTree(tree)
+				.create();
+		PackParser parser = parse(pack(Arrays.asList(tip, tree)), true);
+
+		assertThrows(MissingObjectException.class,
+				() -> check(parser, base, tip, false));
+		assertEquals(1, fullChecks);
+	}
+
+	@Test
+	public void testUnreachableObject() throws Exception {
+		RevBlob hidden = clientRepo.blob("hidden");
+		parse(pack(Collections.singletonList(hidden)), false);
+
+		RevTree tree = clientRepo.tree(clientRepo.file("h", hidden));
+		RevCommit tip = clientRepo.commit().parent(base).setTopLevelTree(tree)
+				.create();
+		PackParser parser = parse(pack(Arrays.asList(tip, tree)), true);
+
+		// The blob exists, but is not reachable from the haves.
+		check(parser, base, tip, false);
+		assertEquals(0, fullChecks);
+		assertThrows(MissingObjectException.class,
+				() -> check(parser, base, tip, true));
+		assertEquals(1, fullChecks);
+	}
+
+	@Test
+	public void testUnreachableCommitWithMissingParent() throws Exception {
+		// An existing commit no reference reaches, whose history was pruned.
+		ObjectId missing = ObjectId
+				.fromString("0123456789012345678901234567890123456789");
+		ObjectId dangling = insertCommit(server, base.getTree(), missing);
+		ObjectId tipId = insertCommit(client, base.getTree(), dangling);
+		RevCommit tip;
+		try (RevWalk rw = new RevWalk(client)) {
+			tip = rw.parseCommit(tipId);
+		}
+		PackParser parser = parse(
+				pack(Collections.singletonList((RevObject) tip)), true);
+
+		assertThrows(MissingObjectException.class,
+				() -> check(parser, base, tip, false));
+		assertEquals(1, fullChecks);
+	}
+
+	private static ObjectId insertCommit(Repository repo, ObjectId tree,
+			ObjectId parent) throws IOException {
+		CommitBuilder c = new CommitBuilder();
+		PersonIdent ident = new PersonIdent("A U Thor", "author@example.com");
+		c.setAuthor(ident);
+		c.setCommitter(ident);
+		c.setTreeId(tree);
+		c.setParentId(parent);
+		c.setMessage("dangling");
+		try (ObjectInserter ins = repo.newObjectInserter()) {
+			ObjectId id = ins.insert(c);
+			ins.flush();
+			return id;
+		}
+	}
+
+	private void check(PackParser parser, RevCommit have, RevCommit tip,
+			boolean checkObjects) throws IOException {
+		ConnectivityCheckInfo info = new ConnectivityCheckInfo();
+		info.setRepository(server);
+		info.setParser(parser);
+		info.setCheckObjects(checkObjects);
+		info.setCommands(Collections.singletonList(new ReceiveCommand(have,
+				tip, "refs/heads/master")));
+		try (RevWalk rw = new RevWalk(server)) {
+			info.setWalk(rw);
+			Set<ObjectId> haves = Collections.singleton(have);
+			checker.checkConnectivity(info, haves,
+					NullProgressMonitor.INSTANCE);
+		}
+	}
+
+	private byte[] pack(Set<ObjectId> want, Set<ObjectId> have)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PackWriter pw = new PackWriter(client)) {
+			pw.preparePack(NullProgressMonitor.INSTANCE, want, have);
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		return out.toByteArray();
+	}
+
+	private byte[] pack(List<RevObject> objects) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PackWriter pw = new PackWriter(client)) {
+			pw.preparePack(objects.iterator());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		return out.toByteArray();
+	}
+
+	private PackParser parse(byte[] pack, boolean collect)
+			throws IOException {
+		try (ObjectInserter ins = server.newObjectInserter()) {
+			PackParser parser = ins
+					.newPackParser(new ByteArrayInputStream(pack));
+			parser.setNeedNewObjectIds(true);
+			parser.setNeedBaseObjectIds(true);
+			parser.setNeedReferencedObjectIds(collect);
+			parser.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+			assertFalse(collect && parser.getReferencedObjectIds() == null);
+			return parser;
+		}
+	}
+}
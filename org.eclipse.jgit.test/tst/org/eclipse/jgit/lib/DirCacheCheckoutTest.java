@@ -50,6 +50,7 @@
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.junit.TestRepository;
 import org.eclipse.jgit.junit.TestRepository.BranchBuilder;
+import org.eclipse.jgit.junit.TestRepository.CommitBuilder;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
@@ -258,6 +259,40 @@ public void testInitialCheckout() throws Exception {
 		}
 	}
 
+	@Test
+	public void testParallelCheckout() throws Exception {
+		StoredConfig config = db.getConfig();
+		config.setInt("checkout", null, "workers", 4);
+		config.setInt("checkout", null, "thresholdForParallelism", 1);
+		config.save();
+		try (Git git = new Git(db);
+				TestRepository<Repository> db_t = new TestRepository<>(db)) {
+			BranchBuilder master = db_t.branch("master");
+			CommitBuilder first = master.commit().add("a", "a");
+			HashMap<String, String> expected = mkmap("a", "a");
+			for (int i = 0; i < 50; i++) {
+				String path = "d" + (i % 7) + "/e" + (i % 3) + "/f" + i;
+				first.add(path, "content " + i);
+				expected.put(path, "content " + i);
+			}
+			first.message("m0").create();
+			git.checkout().setName("master").call();
+			assertWorkDir(expected);
+			assertIndex(expected);
+
+			// A file replaced by a directory holding files.
+			expected.remove("a");
+			expected.put("a/x", "x");
+			expected.put("a/y", "y");
+			expected.put("d0/e0/f0", "changed");
+			master.commit().rm("a").add("a/x", "x").add("a/y", "y")
+					.add("d0/e0/f0", "changed").message("m1").create();
+			git.reset().setMode(ResetType.HARD).setRef("master").call();
+			assertWorkDir(expected);
+			assertIndex(expected);
+		}
+	}
+
 	private void checkoutLineEndings(String inIndex, String expected,
 			String attributes) throws Exception {
 		try (Git git = new Git(db);
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2022, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.revwalk;
+
+import static org.eclipse.jgit.lib.Constants.COMMIT_GENERATION_UNKNOWN;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.diff.DiffConfig;
+import org.eclipse.jgit.internal.revwalk.PedestrianReachabilityChecker;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.GC;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revplot.PlotCommit;
+import org.eclipse.jgit.revplot.PlotCommitList;
+import org.eclipse.jgit.revplot.PlotLane;
+import org.eclipse.jgit.revplot.PlotWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.junit.Test;
+
+public class RevWalkCommitGraphTest extends RevWalkTestCase {
+
+	@Test
+	public void testParseHeadersFromGraph() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit c = commit(root);
+		RevCommit merge = commit(a, b);
+		RevCommit octopus = commit(merge, c, b);
+		writeCommitGraph(octopus);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			for (RevCommit expected : new RevCommit[] { root, a, b, c, merge,
+					octopus }) {
+				RevCommit actual = walk.parseCommit(expected);
+				assertTrue(actual.graphPosition >= 0);
+				assertNotEquals(COMMIT_GENERATION_UNKNOWN,
+						actual.getGeneration());
+				assertCommitEquals(expected, actual);
+			}
+			assertEquals(1, walk.parseCommit(root).getGeneration());
+			assertEquals(3, walk.parseCommit(merge).getGeneration());
+			assertEquals(4, walk.parseCommit(octopus).getGeneration());
+		}
+	}
+
+	@Test
+	public void testPathLimitedWalkWithChangedPathFilters() throws Exception {
+		RevCommit root = commitBuilder().add("a/x", "1").add("b/y", "1")
+				.create();
+		RevCommit c1 = commitBuilder().parent(root).add("a/x", "2").create();
+		RevCommit c2 = commitBuilder().parent(c1).add("b/y", "2").create();
+		RevCommit c3 = commitBuilder().parent(c2).add("c/z", "1").create();
+		RevCommit side = commitBuilder().parent(c1).add("a/x", "3").create();
+		RevCommit merge = commitBuilder().parent(c3).parent(side)
+				.add("a/x", "3").create();
+		RevCommit tip = commitBuilder().parent(merge).add("b/y", "3")
+				.create();
+		writeCommitGraph(tip, true);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			RevCommit c = walk.parseCommit(c2);
+			assertNotNull(c.getChangedPathFilter(walk));
+		}
+
+		String[][] pathSets = { { "a" }, { "a/x" }, { "b" }, { "b/y" },
+				{ "c/z" }, { "missing" }, { "a", "c" }, { "b/y", "missing" } };
+		for (String[] paths : pathSets) {
+			TreeFilter filter = AndTreeFilter.create(
+					PathFilterGroup.createFromStrings(paths),
+					TreeFilter.ANY_DIFF);
+			assertWalksEqual(walk(false, tip, filter),
+					walk(true, tip, filter));
+		}
+
+		TreeFilter or = OrTreeFilter.create(PathFilter.create("a"),
+				PathFilter.create("c"));
+		assertWalksEqual(walk(false, tip, or), walk(true, tip, or));
+	}
+
+	@Test
+	public void testFollowFilterWithChangedPathFilters() throws Exception {
+		RevCommit root = commitBuilder().add("a/x", "content\n").create();
+		RevCommit c1 = commitBuilder().parent(root).add("b", "b").create();
+		RevCommit renamed = commitBuilder().parent(c1).rm("a/x")
+				.add("r/x", "content\n").create();
+		RevCommit c2 = commitBuilder().parent(renamed).add("b", "c").create();
+		RevCommit tip = commitBuilder().parent(c2).add("r/x", "more\n")
+				.create();
+		writeCommitGraph(tip, true);
+
+		TreeFilter follow = FollowFilter.create("r/x",
+				new Config().get(DiffConfig.KEY));
+		List<RevCommit> expected = walk(false, tip, follow);
+		List<RevCommit> actual = walk(true, tip,
+				FollowFilter.create("r/x", new Config().get(DiffConfig.KEY)));
+		assertWalksEqual(expected, actual);
+		assertEquals(3, actual.size());
+		assertEquals(root, actual.get(2));
+	}
+
+	@Test
+	public void testNoChangedPathFiltersUnlessEnabled() throws Exception {
+		RevCommit root = commitBuilder().add("f", "1").create();
+		RevCommit tip = commitBuilder().parent(root).add("f", "2").create();
+		writeCommitGraph(tip);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			assertNull(walk.parseCommit(tip).getChangedPathFilter(walk));
+		}
+	}
+
+	@Test
+	public void testIsMergedIntoStopsAtGeneration() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		// Clock skew: b claims to be much older than its parent.
+		RevCommit b = commit(-10000, a);
+		RevCommit c = commit(b);
+		RevCommit side = commit(a);
+		RevCommit tip = commit(c);
+		writeCommitGraph(tip);
+		RevCommit next = commit(tip, side);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			RevCommit base = walk.parseCommit(b);
+			assertTrue(walk.isMergedInto(base, walk.parseCommit(tip)));
+			assertTrue(walk.isMergedInto(base, walk.parseCommit(next)));
+			assertFalse(walk.isMergedInto(base, walk.parseCommit(side)));
+			assertFalse(walk.isMergedInto(walk.parseCommit(tip), base));
+			assertTrue(walk.isMergedInto(base, base));
+
+			// Nothing below the generation of base has to be parsed.
+			assertEquals(0,
+					walk.lookupCommit(root).flags & RevWalk.PARSED);
+		}
+	}
+
+	@Test
+	public void testMergeBaseWithSkewedClocks() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(-10000, a);
+		RevCommit c = commit(b);
+		RevCommit d = commit(a);
+		RevCommit e = commit(-20000, d);
+		RevCommit merge = commit(c, e);
+		writeCommitGraph(merge);
+
+		assertEquals(Arrays.asList(a), mergeBases(false, c, e));
+		assertEquals(Arrays.asList(a), mergeBases(true, c, e));
+		assertEquals(Arrays.asList(e), mergeBases(true, merge, e));
+	}
+
+	@Test
+	public void testReachabilityCheckerStopsAtGeneration() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(-10000, a);
+		RevCommit c = commit(b);
+		RevCommit side = commit(a);
+		writeCommitGraph(commit(c, side));
+
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			ReachabilityChecker checker = new PedestrianReachabilityChecker(
+					true, walk);
+			RevCommit target = walk.parseCommit(b);
+			RevCommit other = walk.parseCommit(side);
+			assertEquals(Optional.empty(),
+					checker.areAllReachable(Arrays.asList(target),
+							Stream.of(walk.parseCommit(side),
+									walk.parseCommit(c))));
+			assertEquals(Optional.of(other),
+					checker.areAllReachable(Arrays.asList(target, other),
+							Stream.of(walk.parseCommit(c))));
+			assertEquals(0,
+					walk.lookupCommit(root).flags & RevWalk.PARSED);
+		}
+	}
+
+	@Test
+	public void testWalkMatchesWithoutGraph() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit merge = commit(a, b);
+		RevCommit tip = commit(merge);
+		writeCommitGraph(tip);
+
+		// Commits created after the graph was written are parsed from the
+		// object database and still reach commits in the graph.
+		RevCommit next = commit(tip);
+
+		List<RevCommit> expected = walkAll(false, next);
+		List<RevCommit> actual = walkAll(true, next);
+		assertWalksEqual(expected, actual);
+	}
+
+	@Test
+	public void testRetainBodyIgnoresGraphHeaders() throws Exception {
+		RevCommit root = commit();
+		RevCommit tip = commit(root);
+		writeCommitGraph(tip);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			RevCommit c = walk.parseCommit(tip);
+			assertNotNull(c.getRawBuffer());
+			assertEquals(2, c.getGeneration());
+			assertCommitEquals(tip, c);
+		}
+	}
+
+	@Test
+	public void testGraphDisabled() throws Exception {
+		RevCommit root = commit();
+		RevCommit tip = commit(root);
+		writeCommitGraph(tip);
+		enableCommitGraph(false);
+
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			RevCommit c = walk.parseCommit(tip);
+			assertEquals(-1, c.graphPosition);
+			assertEquals(COMMIT_GENERATION_UNKNOWN, c.getGeneration());
+			assertCommitEquals(tip, c);
+		}
+	}
+
+	@Test
+	public void testDepthWalkFromGraph() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit merge = commit(a, b);
+		RevCommit tip = commit(merge);
+		writeCommitGraph(tip);
+
+		try (DepthWalk.RevWalk walk = new DepthWalk.RevWalk(db, 2)) {
+			walk.setRetainBody(false);
+			RevCommit c = walk.parseCommit(tip);
+			assertTrue(c.graphPosition >= 0);
+			walk.markRoot(c);
+			walk.markStart(c);
+			List<RevCommit> commits = new ArrayList<>();
+			for (RevCommit next : walk) {
+				assertTrue(next instanceof DepthWalk.Commit);
+				for (RevCommit p : next.getParents()) {
+					assertTrue(p instanceof DepthWalk.Commit);
+				}
+				commits.add(next);
+			}
+			assertEquals(Arrays.asList(tip, merge, a, b), commits);
+			assertEquals(2, ((DepthWalk.Commit) walk.lookupCommit(a))
+					.getDepth());
+		}
+
+		try (ObjectWalk walk = new DepthWalk.ObjectWalk(db, 1)) {
+			walk.setRetainBody(false);
+			RevCommit c = walk.parseCommit(tip);
+			assertTrue(c instanceof DepthWalk.Commit);
+			assertTrue(c.getParent(0) instanceof DepthWalk.Commit);
+		}
+	}
+
+	@Test
+	public void testPlotWalkFromGraph() throws Exception {
+		RevCommit root = commit();
+		RevCommit a = commit(root);
+		RevCommit b = commit(root);
+		RevCommit merge = commit(a, b);
+		writeCommitGraph(merge);
+
+		try (PlotWalk walk = new PlotWalk(db)) {
+			walk.setRetainBody(false);
+			walk.markStart(walk.parseCommit(merge));
+			PlotCommitList<PlotLane> list = new PlotCommitList<>();
+			list.source(walk);
+			list.fillTo(Integer.MAX_VALUE);
+			assertEquals(4, list.size());
+			for (PlotCommit<PlotLane> c : list) {
+				assertTrue(((RevCommit) c).graphPosition >= 0);
+				assertNotNull(c.getLane());
+			}
+		}
+	}
+
+	private List<RevCommit> walkAll(boolean useGraph, RevCommit start)
+			throws Exception {
+		return walk(useGraph, start, TreeFilter.ALL);
+	}
+
+	private List<RevCommit> walk(boolean useGraph, RevCommit start,
+			TreeFilter filter) throws Exception {
+		enableCommitGraph(useGraph);
+		List<RevCommit> commits = new ArrayList<>();
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			walk.sort(RevSort.TOPO);
+			walk.setTreeFilter(filter);
+			walk.markStart(walk.parseCommit(start));
+			for (RevCommit c : walk) {
+				commits.add(c);
+			}
+		}
+		return commits;
+	}
+
+	private List<RevCommit> mergeBases(boolean useGraph, RevCommit... commits)
+			throws Exception {
+		enableCommitGraph(useGraph);
+		List<RevCommit> bases = new ArrayList<>();
+		try (RevWalk walk = new RevWalk(db)) {
+			walk.setRetainBody(false);
+			walk.setRevFilter(RevFilter.MERGE_BASE);
+			for (RevCommit c : commits) {
+				walk.markStart(walk.parseCommit(c));
+			}
+			for (RevCommit c : walk) {
+				bases.add(c);
+			}
+		}
+		return bases;
+	}
+
+	private void assertWalksEqual(List<RevCommit> expected,
+			List<RevCommit> actual) throws Exception {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertCommitEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private void assertCommitEquals(RevCommit expected, RevCommit actual)
+			throws Exception {
+		rw.parseHeaders(expected);
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTree().getId(), actual.getTree().getId());
+		assertEquals(expected.getCommitTime(), actual.getCommitTime());
+		assertEquals(expected.getParentCount(), actual.getParentCount());
+		assertArrayEquals(expected.getParents(), actual.getParents());
+	}
+
+	private void writeCommitGraph(RevCommit tip) throws Exception {
+		writeCommitGraph(tip, false);
+	}
+
+	private void writeCommitGraph(RevCommit tip, boolean changedPaths)
+			throws Exception {
+		enableCommitGraph(true);
+		StoredConfig config = db.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_GC_SECTION, null,
+				ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS, changedPaths);
+		config.save();
+		new GC((FileRepository) db)
+				.writeCommitGraph(Collections.singleton(tip));
+	}
+
+	private void enableCommitGraph(boolean enable) throws Exception {
+		StoredConfig config = db.getConfig();
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+				ConfigConstants.CONFIG_COMMIT_GRAPH, enable);
+		config.save();
+	}
+}
@@ -10,11 +10,25 @@
 
 package org.eclipse.jgit.transport;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Test;
 
 /**
@@ -60,4 +74,148 @@ public void testDaemonRestart() throws Exception {
 		Thread.sleep(1000);
 		d.stopAndWait();
 	}
+
+	@Test
+	public void testUploadPackAdmission() throws Exception {
+		Daemon d = new Daemon();
+		d.setMaxUploadPacks(1);
+		d.setMaxUploadPacksWaiting(0);
+		d.start();
+		try {
+			Semaphore running = d.admitUploadPack();
+			assertNotNull(running);
+			assertThrows(ServiceMayNotContinueException.class,
+					() -> d.admitUploadPack());
+			running.release();
+			d.admitUploadPack().release();
+		} finally {
+			d.stopAndWait();
+		}
+	}
+
+	@Test
+	public void testUploadPackQueueTimeout() throws Exception {
+		Daemon d = new Daemon();
+		d.setMaxUploadPacks(1);
+		d.setUploadPackQueueTimeout(1);
+		d.start();
+		try {
+			Semaphore running = d.admitUploadPack();
+			assertThrows(ServiceMayNotContinueException.class,
+					() -> d.admitUploadPack());
+			running.release();
+		} finally {
+			d.stopAndWait();
+		}
+	}
+
+	@Test
+	public void testUploadPackRefusedWithError() throws Exception {
+		AtomicInteger threads = new AtomicInteger();
+		Daemon d = new Daemon();
+		d.setThreadFactory(r -> {
+			threads.incrementAndGet();
+			return new Thread(r);
+		});
+		d.setRepositoryResolver((client, name) -> new InMemoryRepository(
+				new DfsRepositoryDescription(name)));
+		d.setMaxUploadPacks(1);
+		d.setMaxUploadPacksWaiting(0);
+		d.start();
+		Semaphore running = d.admitUploadPack();
+		try (Socket s = new Socket(InetAddress.getLoopbackAddress(),
+				d.getAddress().getPort())) {
+			OutputStream out = s.getOutputStream();
+			new PacketLineOut(out)
+					.writeString("git-upload-pack /repo\0host=localhost\0");
+			out.flush();
+			InputStream in = s.getInputStream();
+			assertEquals(
+					"ERR " + JGitText.get().daemonTooManyUploadPacks + "\n",
+					new PacketLineIn(in).readStringRaw());
+		} finally {
+			running.release();
+			d.stopAndWait();
+		}
+		assertEquals(1, threads.get());
+	}
+
+	@Test
+	public void testNonBlockingHandshake() throws Exception {
+		AtomicInteger threads = new AtomicInteger();
+		Daemon d = new Daemon();
+		d.setThreadFactory(r -> {
+			threads.incrementAndGet();
+			return new Thread(r);
+		});
+		d.setRepositoryResolver((client, name) -> new InMemoryRepository(
+				new DfsRepositoryDescription(name)));
+		d.setNonBlockingHandshake(true);
+		d.setTimeout(1);
+		d.start();
+		try (Socket idle = new Socket(InetAddress.getLoopbackAddress(),
+				d.getAddress().getPort());
+				Socket s = new Socket(InetAddress.getLoopbackAddress(),
+						d.getAddress().getPort())) {
+			// A partial request does not hold a thread.
+			idle.getOutputStream().write("003".getBytes(UTF_8));
+			idle.getOutputStream().flush();
+
+			OutputStream out = s.getOutputStream();
+			new PacketLineOut(out)
+					.writeString("git-upload-pack /repo\0host=localhost\0");
+			out.flush();
+			String adv = new PacketLineIn(s.getInputStream()).readStringRaw();
+			assertTrue(adv, adv.startsWith(ObjectId.zeroId().name()));
+			assertEquals(1, threads.get());
+
+			// The idle client is disconnected after the timeout.
+			idle.setSoTimeout(30000);
+			assertEquals(-1, idle.getInputStream().read());
+			assertEquals(1, threads.get());
+		} finally {
+			d.stopAndWait();
+		}
+	}
+
+	@Test
+	public void testHandshakeTimeoutWithoutIoTimeout() throws Exception {
+		Daemon d = new Daemon();
+		d.setNonBlockingHandshake(true);
+		d.setHandshakeTimeout(1);
+		d.start();
+		try (Socket idle = new Socket(InetAddress.getLoopbackAddress(),
+				d.getAddress().getPort())) {
+			assertEquals(0, d.getTimeout());
+			idle.setSoTimeout(30000);
+			assertEquals(-1, idle.getInputStream().read());
+		} finally {
+			d.stopAndWait();
+		}
+	}
+
+	@Test
+	public void testMaxHandshakes() throws Exception {
+		Daemon d = new Daemon();
+		d.setNonBlockingHandshake(true);
+		d.setMaxHandshakes(1);
+		d.start();
+		try (Socket idle = new Socket(InetAddress.getLoopbackAddress(),
+				d.getAddress().getPort())) {
+			idle.getOutputStream().write("003".getBytes(UTF_8));
+			idle.getOutputStream().flush();
+			try (Socket refused = new Socket(InetAddress.getLoopbackAddress(),
+					d.getAddress().getPort())) {
+				refused.setSoTimeout(30000);
+				assertEquals(-1, refused.getInputStream().read());
+			}
+
+			// The pending handshake is kept.
+			idle.setSoTimeout(500);
+			assertThrows(SocketTimeoutException.class,
+					() -> idle.getInputStream().read());
+		} finally {
+			d.stopAndWait();
+		}
+	}
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilePackResponseCacheTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private FilePackResponseCache cache;
+
+	@Before
+	public void setUp() throws IOException {
+		cache = new FilePackResponseCache(tmp.newFolder(), 100);
+	}
+
+	@Test
+	public void testStoreAndSend() throws IOException {
+		ObjectId key = id(1);
+		assertNull(cache.open(key));
+		store(key, 40);
+		assertArrayEquals(data(40), read(key));
+	}
+
+	@Test
+	public void testNotCommitted() throws IOException {
+		ObjectId key = id(1);
+		try (PackResponseCache.Insertion ins = cache.insert(key)) {
+			ins.write(data(40));
+		}
+		assertNull(cache.open(key));
+	}
+
+	@Test
+	public void testTooLarge() throws IOException {
+		ObjectId key = id(1);
+		store(key, 101);
+		assertNull(cache.open(key));
+	}
+
+	@Test
+	public void testEvictLeastRecentlySent() throws Exception {
+		store(id(1), 40);
+		store(id(2), 40);
+		// Sending a pack makes it the most recently used.
+		Thread.sleep(1000);
+		read(id(1));
+		store(id(3), 40);
+		assertNotNull(read(id(1)));
+		assertNull(cache.open(id(2)));
+		assertNotNull(read(id(3)));
+	}
+
+	private void store(ObjectId key, int size) throws IOException {
+		try (PackResponseCache.Insertion ins = cache.insert(key)) {
+			ins.write(data(size));
+			ins.commit();
+		}
+	}
+
+	private byte[] read(ObjectId key) throws IOException {
+		try (PackResponseCache.Response r = cache.open(key)) {
+			if (r == null) {
+				return null;
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			r.writeTo(out);
+			return out.toByteArray();
+		}
+	}
+
+	private static byte[] data(int size) {
+		byte[] b = new byte[size];
+		for (int i = 0; i < size; i++) {
+			b[i] = (byte) i;
+		}
+		return b;
+	}
+
+	private static ObjectId id(int n) {
+		return ObjectId.fromString(String.format("%040x", n));
+	}
+}
@@ -13,26 +13,36 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.Deflater;
 
 import org.eclipse.jgit.errors.TooLargeObjectInPackException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.file.ObjectDirectoryPackParser;
 import org.eclipse.jgit.internal.storage.file.Pack;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.junit.JGitTestUtil;
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.junit.TestRepository;
@@ -42,6 +52,7 @@
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.TemporaryBuffer;
 import org.eclipse.jgit.util.io.UnionInputStream;
@@ -555,6 +566,133 @@ public void testDataAfterPackFooterSplitHeaderRead() throws Exception {
 		assertEquals(0x7e, in.read());
 	}
 
+	@Test
+	public void testParallelDeltaResolution() throws Exception {
+		for (boolean ofsDelta : new boolean[] { true, false }) {
+			byte[] pack = packWithDeltaChains(ofsDelta);
+
+			PackParser seq = index(new ByteArrayInputStream(pack));
+			seq.parse(NullProgressMonitor.INSTANCE);
+			ReceivedPackStatistics stats = seq.getReceivedPackStatistics();
+			assertTrue(0 < stats.getNumOfsDelta() + stats.getNumRefDelta());
+
+			PackParser par = index(new ByteArrayInputStream(pack));
+			par.setThreads(4);
+			par.setNeedNewObjectIds(true);
+			par.parse(NullProgressMonitor.INSTANCE);
+
+			List<PackedObjectInfo> expected = seq.getSortedObjectList(null);
+			List<PackedObjectInfo> actual = par.getSortedObjectList(null);
+			assertEquals(expected.size(), actual.size());
+			assertEquals(expected.size(), par.getNewObjectIds().size());
+			for (int i = 0; i < expected.size(); i++) {
+				PackedObjectInfo e = expected.get(i);
+				PackedObjectInfo a = actual.get(i);
+				assertEquals(e.name(), a.name());
+				assertEquals(e.getCRC(), a.getCRC());
+				assertEquals(e.getOffset(), a.getOffset());
+				assertEquals(e.getType(), a.getType());
+				assertEquals(e.getFullSize(), a.getFullSize());
+				assertTrue(par.getNewObjectIds().contains(a));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelDeltaResolutionRejected() throws Exception {
+		byte[] pack = packWithDeltaChains(true);
+		List<Future<?>> started = new ArrayList<>();
+		Executor executor = task -> {
+			if (!started.isEmpty()) {
+				throw new RejectedExecutionException();
+			}
+			started.add((Future<?>) task);
+			new Thread(() -> {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					// Run the task anyway.
+				}
+				task.run();
+			}).start();
+		};
+
+		PackParser p = index(new ByteArrayInputStream(pack));
+		p.setThreads(2);
+		p.setExecutor(executor);
+		try {
+			p.parse(NullProgressMonitor.INSTANCE);
+			fail("Should have thrown RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// Expected.
+		}
+		assertEquals(1, started.size());
+		assertTrue(started.get(0).isDone());
+	}
+
+	@Test
+	public void testIndexSortedOnDisk() throws Exception {
+		byte[] pack = packWithDeltaChains(true);
+		for (int version : new int[] { 1, 2 }) {
+			// Resolved deltas are sorted by the resolving threads.
+			for (int threads : new int[] { 1, 4 }) {
+				Repository inCore = createBareRepository();
+				Repository onDisk = createBareRepository();
+				onDisk.getConfig().setInt("pack", null, "indexspillthreshold",
+						7);
+				onDisk.getConfig().setInt("pack", null, "indexthreads",
+						threads);
+
+				byte[] expected = indexFile(inCore, pack, version);
+				byte[] actual = indexFile(onDisk, pack, version);
+				assertArrayEquals(expected, actual);
+
+				File objects = new File(onDisk.getDirectory(), "objects");
+				assertArrayEquals(new String[0],
+						objects.list((dir, name) -> name.endsWith(".sort")));
+			}
+		}
+	}
+
+	private static byte[] indexFile(Repository repo, byte[] pack, int version)
+			throws IOException {
+		try (ObjectInserter ins = repo.newObjectInserter()) {
+			ObjectDirectoryPackParser p = (ObjectDirectoryPackParser) ins
+					.newPackParser(new ByteArrayInputStream(pack));
+			p.setIndexVersion(version);
+			p.parse(NullProgressMonitor.INSTANCE);
+			ins.flush();
+			return Files.readAllBytes(
+					p.getPack().getPackFile().create(PackExt.INDEX).toPath());
+		}
+	}
+
+	private byte[] packWithDeltaChains(boolean ofsDelta) throws Exception {
+		Repository src = createBareRepository();
+		RevCommit tip = null;
+		try (TestRepository<Repository> d = new TestRepository<>(src)) {
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 200; i++) {
+				text.append("line ").append(i).append('\n');
+			}
+			for (int i = 0; i < 40; i++) {
+				text.append("change ").append(i).append('\n');
+				tip = d.branch("master").commit()
+						.add("file" + (i % 5), text.toString()).create();
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PackWriter pw = new PackWriter(src)) {
+			pw.setDeltaBaseAsOffset(ofsDelta);
+			pw.preparePack(NullProgressMonitor.INSTANCE,
+					Collections.singleton(tip), Collections.emptySet());
+			pw.writePack(NullProgressMonitor.INSTANCE,
+					NullProgressMonitor.INSTANCE, out);
+		}
+		return out.toByteArray();
+	}
+
 	private static void packHeader(TemporaryBuffer.Heap tinyPack, int cnt)
 			throws IOException {
 		final byte[] hdr = new byte[8];
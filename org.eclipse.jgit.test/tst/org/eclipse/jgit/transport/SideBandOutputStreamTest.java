@@ -19,14 +19,22 @@
 import static org.eclipse.jgit.transport.SideBandOutputStream.MAX_BUF;
 import static org.eclipse.jgit.transport.SideBandOutputStream.SMALL_BUF;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.io.ChannelBufferedOutputStream;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -170,6 +178,36 @@ private void createSideBandOutputStream(int chan, int sz, OutputStream os)
 		}
 	}
 
+	@Test
+	public void testTransferFrom() throws IOException {
+		Path file = Files.createTempFile("sideband", null);
+		try {
+			Files.write(file, "xabcdefg".getBytes(UTF_8));
+			try (FileChannel ch = FileChannel.open(file,
+					StandardOpenOption.READ);
+					SideBandOutputStream out = new SideBandOutputStream(
+							CH_DATA, 8, new ChannelBufferedOutputStream(rawOut,
+									Channels.newChannel(rawOut)))) {
+				assertTrue(out.canTransferFrom());
+				out.write('a');
+				out.transferFrom(ch, 1, 7);
+				out.write('h');
+				out.flush();
+			}
+			assertBuffer("0006\001a0008\001abc0008\001def0006\001g0006\001h");
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testTransferFrom_NotSupported() throws IOException {
+		try (SideBandOutputStream out = new SideBandOutputStream(CH_DATA,
+				SMALL_BUF, rawOut)) {
+			assertFalse(out.canTransferFrom());
+		}
+	}
+
 	@Test
 	public void testConstructor_RejectsBadChannel() throws Exception {
 		try {
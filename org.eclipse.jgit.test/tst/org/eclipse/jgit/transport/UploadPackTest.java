@@ -9,11 +9,13 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
@@ -57,7 +59,9 @@
 import org.eclipse.jgit.util.io.NullOutputStream;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Tests for server upload-pack utilities.
@@ -71,6 +75,9 @@ public class UploadPackTest {
 
 	private InMemoryRepository server;
 
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
 	private InMemoryRepository client;
 
 	private TestRepository<InMemoryRepository> remote;
@@ -734,6 +741,50 @@ public void testV2LsRefsRefPrefixNoSlash() throws Exception {
 		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
 	}
 
+	@Test
+	public void testV2LsRefsRefPrefixSymrefs() throws Exception {
+		RevCommit tip = remote.commit().message("message").create();
+		remote.update("master", tip);
+		remote.update("other", tip);
+		server.updateRef("HEAD").link("refs/heads/master");
+		RevTag tag = remote.tag("tag", tip);
+		remote.update("refs/tags/tag", tag);
+
+		ByteArrayInputStream recvStream = uploadPackV2(
+			"command=ls-refs\n",
+			PacketLineIn.delimiter(),
+			"symrefs",
+			"ref-prefix refs/heads/",
+			"ref-prefix HEAD",
+			"ref-prefix refs/heads/other",
+				PacketLineIn.end());
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+
+		assertThat(pckIn.readString(), is(tip.toObjectId().getName() + " HEAD symref-target:refs/heads/master"));
+		assertThat(pckIn.readString(), is(tip.toObjectId().getName() + " refs/heads/master"));
+		assertThat(pckIn.readString(), is(tip.toObjectId().getName() + " refs/heads/other"));
+		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
+	}
+
+	@Test
+	public void testV2LsRefsRefPrefixHiddenRefs() throws Exception {
+		RevCommit tip = remote.commit().message("message").create();
+		remote.update("master", tip);
+		remote.update("other", tip);
+		server.getConfig().setString("uploadpack", null, "hiderefs",
+				"refs/heads/other");
+
+		ByteArrayInputStream recvStream = uploadPackV2(
+			"command=ls-refs\n",
+			PacketLineIn.delimiter(),
+			"ref-prefix refs/heads/",
+				PacketLineIn.end());
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+
+		assertThat(pckIn.readString(), is(tip.toObjectId().getName() + " refs/heads/master"));
+		assertTrue(PacketLineIn.isEnd(pckIn.readString()));
+	}
+
 	@Test
 	public void testV2LsRefsUnrecognizedArgument() throws Exception {
 		UploadPackInternalServerErrorException e = assertThrows(
@@ -1357,6 +1408,72 @@ public void testV2FetchOfsDelta() throws Exception {
 		assertTrue(receivedStats.getNumOfsDelta() != 0);
 	}
 
+	@Test
+	public void testV2FetchPackResponseCache() throws Exception {
+		RevCommit parent = remote.commit().message("parent").create();
+		RevCommit child = remote.commit().message("child").parent(parent)
+				.create();
+		remote.update("branch1", child);
+		PackResponseCache cache = new FilePackResponseCache(tmp.newFolder(),
+				1 << 20);
+		String[] fetch = { "command=fetch\n", PacketLineIn.delimiter(),
+				"want " + child.toObjectId().getName() + "\n",
+				"have " + parent.toObjectId().getName() + "\n",
+				"no-progress\n", "done\n", PacketLineIn.end() };
+
+		uploadPackV2(up -> up.setPackResponseCache(cache), fetch);
+		assertNotNull(stats);
+
+		// The same request is answered by the stored pack.
+		ByteArrayInputStream recvStream = uploadPackV2(
+				up -> up.setPackResponseCache(cache), fetch);
+		assertNull(stats);
+		PacketLineIn pckIn = new PacketLineIn(recvStream);
+		assertThat(pckIn.readString(), is("packfile"));
+		parsePack(recvStream);
+		assertTrue(client.getObjectDatabase().has(child.toObjectId()));
+
+		// A request for a different pack is not.
+		uploadPackV2(up -> up.setPackResponseCache(cache), "command=fetch\n",
+				PacketLineIn.delimiter(),
+				"want " + child.toObjectId().getName() + "\n", "done\n",
+				PacketLineIn.end());
+		assertNotNull(stats);
+	}
+
+	@Test
+	public void testV2FetchPackResponseCacheUnwritable() throws Exception {
+		RevCommit commit = remote.commit().message("x").create();
+		remote.update("branch1", commit);
+		// Directories cannot be created below a regular file.
+		File dir = new File(tmp.newFile(), "cache");
+		PackResponseCache unwritable = new FilePackResponseCache(dir, 1 << 20);
+		PackResponseCache failing = new PackResponseCache() {
+			@Override
+			public Response open(ObjectId key) throws IOException {
+				throw new IOException("open");
+			}
+
+			@Override
+			public Insertion insert(ObjectId key) throws IOException {
+				throw new IOException("insert");
+			}
+		};
+
+		for (PackResponseCache cache : Arrays.asList(unwritable, failing)) {
+			ByteArrayInputStream recvStream = uploadPackV2(
+					up -> up.setPackResponseCache(cache), "command=fetch\n",
+					PacketLineIn.delimiter(),
+					"want " + commit.toObjectId().getName() + "\n",
+					"no-progress\n", "done\n", PacketLineIn.end());
+			assertNotNull(stats);
+			PacketLineIn pckIn = new PacketLineIn(recvStream);
+			assertThat(pckIn.readString(), is("packfile"));
+			parsePack(recvStream);
+			assertTrue(client.getObjectDatabase().has(commit.toObjectId()));
+		}
+	}
+
 	@Test
 	public void testV2FetchShallow() throws Exception {
 		RevCommit commonParent = remote.commit().message("parent").create();
@@ -22,6 +22,7 @@
 import java.nio.file.InvalidPathException;
 import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
@@ -48,6 +49,7 @@
 import org.eclipse.jgit.treewalk.WorkingTreeIterator.MetadataDiff;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.FS_POSIX;
 import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.RawParseUtils;
 import org.junit.Before;
@@ -799,6 +801,83 @@ public void apply(DirCacheEntry ent) {
 		}
 	}
 
+	@Test
+	public void testPreload() throws Exception {
+		try (Git git = new Git(db)) {
+			for (int i = 0; i < 1100; i++) {
+				writeTrashFile("p/d" + (i % 10) + "/f" + i, "x" + i);
+			}
+			git.add().addFilepattern("p").call();
+		}
+
+		FileTreeIterator preloaded = new FileTreeIterator(db);
+		preloaded.preload(db.readDirCache(), 4);
+		// Changed after the attributes were preloaded.
+		writeTrashFile("p/d0/f0", "changed");
+
+		try (TreeWalk tw = new TreeWalk(db)) {
+			tw.setRecursive(true);
+			tw.addTree(preloaded);
+			tw.addTree(new FileTreeIterator(db));
+			int files = 0;
+			while (tw.next()) {
+				FileTreeIterator a = tw.getTree(0, FileTreeIterator.class);
+				FileTreeIterator b = tw.getTree(1, FileTreeIterator.class);
+				if (tw.getPathString().equals("p/d0/f0")) {
+					assertEquals(2, a.getEntryLength());
+					assertEquals(7, b.getEntryLength());
+				} else {
+					assertEquals(b.getEntryLength(), a.getEntryLength());
+					assertEquals(b.getEntryLastModifiedInstant(),
+							a.getEntryLastModifiedInstant());
+				}
+				assertEquals(b.getEntryFileMode(), a.getEntryFileMode());
+				files++;
+			}
+			assertTrue(files > 1100);
+		}
+	}
+
+	@Test
+	public void testPreloadKeepsOverriddenList() throws Exception {
+		try (Git git = new Git(db)) {
+			for (int i = 0; i < 1100; i++) {
+				writeTrashFile("p/d" + (i % 10) + "/f" + i, "x" + i);
+			}
+			git.add().addFilepattern("p").call();
+		}
+
+		AtomicInteger listed = new AtomicInteger();
+		FS fs = new FS_POSIX() {
+			@Override
+			public WorkingTreeIterator.Entry[] list(File directory,
+					FileTreeIterator.FileModeStrategy fileModeStrategy) {
+				listed.incrementAndGet();
+				return super.list(directory, fileModeStrategy);
+			}
+		};
+		WorkingTreeOptions options = db.getConfig().get(WorkingTreeOptions.KEY);
+		walk(new FileTreeIterator(db.getWorkTree(), fs, options));
+		int directories = listed.getAndSet(0);
+		assertTrue(directories > 10);
+
+		FileTreeIterator preloaded = new FileTreeIterator(db.getWorkTree(), fs,
+				options);
+		preloaded.preload(db.readDirCache(), 4);
+		walk(preloaded);
+		assertEquals(directories, listed.get());
+	}
+
+	private void walk(FileTreeIterator iterator) throws IOException {
+		try (TreeWalk tw = new TreeWalk(db)) {
+			tw.setRecursive(true);
+			tw.addTree(iterator);
+			while (tw.next()) {
+				// Enter all directories.
+			}
+		}
+	}
+
 	private static void assertEntry(String sha1string, String path, TreeWalk tw)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			CorruptObjectException, IOException {
@@ -10,10 +10,17 @@
 
 package org.eclipse.jgit.treewalk.filter;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -63,4 +70,45 @@ public void testANY_DIFF_ShouldNotBeRecursive() throws Exception {
 	public void testANY_DIFF_IdentityClone() throws Exception {
 		assertSame(TreeFilter.ANY_DIFF, TreeFilter.ANY_DIFF.clone());
 	}
+
+	@Test
+	public void testGetPathsBestEffort() throws Exception {
+		TreeFilter a = PathFilter.create("a");
+		TreeFilter group = PathFilterGroup.createFromStrings("b", "c/d");
+
+		// Path filters alone also include unchanged entries.
+		assertFalse(TreeFilter.ALL.getPathsBestEffort().isPresent());
+		assertFalse(TreeFilter.ANY_DIFF.getPathsBestEffort().isPresent());
+		assertFalse(a.getPathsBestEffort().isPresent());
+		assertFalse(group.getPathsBestEffort().isPresent());
+
+		assertPaths(AndTreeFilter.create(a, TreeFilter.ANY_DIFF), "a");
+		assertPaths(AndTreeFilter.create(TreeFilter.ANY_DIFF, group), "b",
+				"c/d");
+		assertPaths(AndTreeFilter.create(new TreeFilter[] { a,
+				TreeFilter.ANY_DIFF, PathSuffixFilter.create(".txt") }), "a");
+		assertFalse(AndTreeFilter.create(a, PathSuffixFilter.create(".txt"))
+				.getPathsBestEffort().isPresent());
+
+		TreeFilter aDiff = AndTreeFilter.create(a, TreeFilter.ANY_DIFF);
+		TreeFilter groupDiff = AndTreeFilter.create(group,
+				TreeFilter.ANY_DIFF);
+		assertPaths(OrTreeFilter.create(aDiff, groupDiff), "a", "b", "c/d");
+		assertFalse(OrTreeFilter.create(aDiff, TreeFilter.ANY_DIFF)
+				.getPathsBestEffort().isPresent());
+		assertPaths(AndTreeFilter.create(OrTreeFilter.create(a, group),
+				TreeFilter.ANY_DIFF), "a", "b", "c/d");
+
+		assertFalse(aDiff.negate().getPathsBestEffort().isPresent());
+	}
+
+	private static void assertPaths(TreeFilter f, String... expected) {
+		Optional<Set<byte[]>> paths = f.getPathsBestEffort();
+		assertTrue(f.toString(), paths.isPresent());
+		Set<String> actual = new TreeSet<>();
+		for (byte[] p : paths.get()) {
+			actual.add(new String(p, UTF_8));
+		}
+		assertEquals(new TreeSet<>(Arrays.asList(expected)), actual);
+	}
 }
@@ -42,6 +42,7 @@
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.diff.FilteredRenameDetector;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.MutableObjectId;
@@ -701,6 +702,9 @@ private boolean processOne(Candidate n) throws IOException {
 			return split(n.getNextCandidate(0), n);
 		revPool.parseHeaders(parent);
 
+		if (isUnchangedInFirstParent(n, parent))
+			return blameEntireRegionOnParent(n, parent);
+
 		if (find(parent, n.sourcePath)) {
 			if (idBuf.equals(n.sourceBlob))
 				return blameEntireRegionOnParent(n, parent);
@@ -731,6 +735,21 @@ private boolean processOne(Candidate n) throws IOException {
 		return split(next, n);
 	}
 
+	/**
+	 * Check the changed-path filter of the candidate's commit.
+	 *
+	 * @return true if the commit-graph proves the file is identical in the
+	 *         first parent, so no tree has to be read to pass the blame on.
+	 */
+	private boolean isUnchangedInFirstParent(Candidate n, RevCommit parent) {
+		RevCommit c = n.sourceCommit;
+		if (c == null || c.getParentCount() == 0 || c.getParent(0) != parent)
+			return false;
+		ChangedPathFilter cpf = c.getChangedPathFilter(revPool);
+		return cpf != null
+				&& !cpf.maybeContains(Constants.encode(n.sourcePath.getPath()));
+	}
+
 	private boolean blameEntireRegionOnParent(Candidate n, RevCommit parent) {
 		// File was not modified, blame parent.
 		n.sourceCommit = parent;
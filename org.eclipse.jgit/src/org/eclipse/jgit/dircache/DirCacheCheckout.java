@@ -33,6 +33,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jgit.api.errors.CanceledException;
 import org.eclipse.jgit.api.errors.FilterFailedException;
@@ -58,6 +64,7 @@
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
@@ -86,6 +93,12 @@ public class DirCacheCheckout {
 
 	private static final int MAX_EXCEPTION_TEXT_SIZE = 10 * 1024;
 
+	/**
+	 * Minimum number of updated entries to check out in parallel, if
+	 * {@code checkout.thresholdForParallelism} is not set.
+	 */
+	private static final int DEFAULT_THRESHOLD_FOR_PARALLELISM = 100;
+
 	/**
 	 * Metadata used in checkout process
 	 *
@@ -554,41 +567,49 @@ private boolean doCheckout() throws CorruptObjectException, IOException,
 			}
 			removed = filterOut(removed, nonDeleted);
 			nonDeleted = null;
-			Iterator<Map.Entry<String, CheckoutMetadata>> toUpdate = updated
-					.entrySet().iterator();
-			Map.Entry<String, CheckoutMetadata> e = null;
-			try {
-				while (toUpdate.hasNext()) {
-					e = toUpdate.next();
-					String path = e.getKey();
-					CheckoutMetadata meta = e.getValue();
-					DirCacheEntry entry = dc.getEntry(path);
-					if (FileMode.GITLINK.equals(entry.getRawMode())) {
-						checkoutGitlink(path, entry);
-					} else {
-						checkoutEntry(repo, entry, objectReader, false, meta,
-								options);
-					}
-					e = null;
+			int workers = getCheckoutWorkers();
+			if (workers > 1 && updated.size() >= repo.getConfig().getInt(
+					ConfigConstants.CONFIG_CHECKOUT_SECTION,
+					ConfigConstants.CONFIG_KEY_THRESHOLD_FOR_PARALLELISM,
+					DEFAULT_THRESHOLD_FOR_PARALLELISM)) {
+				checkoutInParallel(workers);
+			} else {
+				Iterator<Map.Entry<String, CheckoutMetadata>> toUpdate = updated
+						.entrySet().iterator();
+				Map.Entry<String, CheckoutMetadata> e = null;
+				try {
+					while (toUpdate.hasNext()) {
+						e = toUpdate.next();
+						String path = e.getKey();
+						CheckoutMetadata meta = e.getValue();
+						DirCacheEntry entry = dc.getEntry(path);
+						if (FileMode.GITLINK.equals(entry.getRawMode())) {
+							checkoutGitlink(path, entry);
+						} else {
+							checkoutEntry(repo, entry, objectReader, false, meta,
+									options);
+						}
+						e = null;
 
-					monitor.update(1);
-					if (monitor.isCancelled()) {
-						throw new CanceledException(MessageFormat.format(
-								JGitText.get().operationCanceled,
-								JGitText.get().checkingOutFiles));
+						monitor.update(1);
+						if (monitor.isCancelled()) {
+							throw new CanceledException(MessageFormat.format(
+									JGitText.get().operationCanceled,
+									JGitText.get().checkingOutFiles));
+						}
 					}
+				} catch (Exception ex) {
+					// We didn't actually modify the current entry nor any that
+					// might follow.
+					if (e != null) {
+						toUpdate.remove();
+					}
+					while (toUpdate.hasNext()) {
+						e = toUpdate.next();
+						toUpdate.remove();
+					}
+					throw ex;
 				}
-			} catch (Exception ex) {
-				// We didn't actually modify the current entry nor any that
-				// might follow.
-				if (e != null) {
-					toUpdate.remove();
-				}
-				while (toUpdate.hasNext()) {
-					e = toUpdate.next();
-					toUpdate.remove();
-				}
-				throw ex;
 			}
 			for (String conflict : conflicts) {
 				// the conflicts are likely to have multiple entries in the
@@ -634,6 +655,173 @@ private void checkoutGitlink(String path, DirCacheEntry entry)
 		entry.setLastModified(fs.lastModifiedInstant(gitlinkDir));
 	}
 
+	private int getCheckoutWorkers() {
+		int workers = repo.getConfig().getInt(
+				ConfigConstants.CONFIG_CHECKOUT_SECTION,
+				ConfigConstants.CONFIG_KEY_WORKERS, 1);
+		return workers < 1 ? Runtime.getRuntime().availableProcessors()
+				: workers;
+	}
+
+	/**
+	 * Check out the updated entries with several threads.
+	 * <p>
+	 * Gitlinks and the parent directories of files are created in order by
+	 * the calling thread. The workers then inflate, filter and write the
+	 * files, each with its own object reader. Entries not checked out because
+	 * of an error are removed from {@link #updated}; the error of the first
+	 * such entry is thrown.
+	 *
+	 * @param workers
+	 *            maximum number of threads writing files.
+	 */
+	private void checkoutInParallel(int workers)
+			throws IOException, CanceledException {
+		List<Map.Entry<String, CheckoutMetadata>> todo = new ArrayList<>(
+				updated.entrySet());
+		int n = todo.size();
+		DirCacheEntry[] entries = new DirCacheEntry[n];
+		boolean[] done = new boolean[n];
+		Exception[] failures = new Exception[n];
+		try {
+			IntList files = new IntList(n);
+			File lastDir = null;
+			for (int i = 0; i < n; i++) {
+				String path = todo.get(i).getKey();
+				DirCacheEntry entry = dc.getEntry(path);
+				entries[i] = entry;
+				if (FileMode.GITLINK.equals(entry.getRawMode())) {
+					checkoutGitlink(path, entry);
+					done[i] = true;
+					monitor.update(1);
+					continue;
+				}
+				File dir = new File(repo.getWorkTree(), path).getParentFile();
+				if (!dir.equals(lastDir)) {
+					if (dir.isFile()) {
+						FileUtils.delete(dir);
+					}
+					FileUtils.mkdirs(dir, true);
+					lastDir = dir;
+				}
+				files.add(i);
+			}
+			if (files.size() > 0) {
+				writeFiles(Math.min(workers, files.size()), files, todo,
+						entries, done, failures);
+			}
+		} finally {
+			for (int i = 0; i < n; i++) {
+				if (!done[i]) {
+					updated.remove(todo.get(i).getKey());
+				}
+			}
+		}
+		for (Exception failure : failures) {
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			} else if (failure != null) {
+				throw (RuntimeException) failure;
+			}
+		}
+		if (monitor.isCancelled()) {
+			throw new CanceledException(MessageFormat.format(
+					JGitText.get().operationCanceled,
+					JGitText.get().checkingOutFiles));
+		}
+	}
+
+	private void writeFiles(int threads, IntList files,
+			List<Map.Entry<String, CheckoutMetadata>> todo,
+			DirCacheEntry[] entries, boolean[] done, Exception[] failures)
+			throws IOException, CanceledException {
+		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(monitor);
+		AtomicInteger next = new AtomicInteger();
+		AtomicBoolean stop = new AtomicBoolean();
+		List<FutureTask<Void>> tasks = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			tasks.add(new FutureTask<>(() -> {
+				try (ObjectReader reader = repo.newObjectReader()) {
+					int k;
+					while (!stop.get() && (k = next.getAndIncrement()) < files
+							.size()) {
+						int i = files.get(k);
+						try {
+							checkoutEntry(repo, entries[i], reader, false,
+									todo.get(i).getValue(), options);
+							done[i] = true;
+						} catch (IOException | RuntimeException e) {
+							failures[i] = e;
+							stop.set(true);
+						}
+						pm.update(1);
+						if (pm.isCancelled()) {
+							stop.set(true);
+						}
+					}
+				} catch (Throwable err) {
+					stop.set(true);
+					throw err;
+				} finally {
+					pm.endWorker();
+				}
+				return null;
+			}));
+		}
+
+		pm.startWorkers(threads);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		boolean interrupted = false;
+		try {
+			for (FutureTask<Void> t : tasks) {
+				pool.execute(t);
+			}
+			pm.waitForCompletion();
+		} catch (InterruptedException ie) {
+			stop.set(true);
+			interrupted = true;
+		} finally {
+			pool.shutdown();
+		}
+
+		// Wait for all workers, also when interrupted: the caller reads
+		// done[] to learn which entries were checked out, and no file may
+		// be written into the work tree after this method returns.
+		Throwable err = null;
+		for (FutureTask<Void> t : tasks) {
+			for (;;) {
+				try {
+					t.get();
+					break;
+				} catch (InterruptedException ie) {
+					stop.set(true);
+					interrupted = true;
+				} catch (ExecutionException failed) {
+					if (err == null) {
+						err = failed.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+			throw new CanceledException(MessageFormat.format(
+					JGitText.get().operationCanceled,
+					JGitText.get().checkingOutFiles));
+		}
+
+		if (err instanceof Error) {
+			throw (Error) err;
+		} else if (err instanceof RuntimeException) {
+			throw (RuntimeException) err;
+		} else if (err instanceof IOException) {
+			throw (IOException) err;
+		} else if (err != null) {
+			throw new IOException(err.getMessage(), err);
+		}
+	}
+
 	private static ArrayList<String> filterOut(ArrayList<String> strings,
 			IntList indicesToRemove) {
 		int n = indicesToRemove.size();
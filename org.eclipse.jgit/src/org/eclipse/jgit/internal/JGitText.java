@@ -140,11 +140,15 @@ public static JGitText get() {
 	/***/ public String cannotReadBackDelta;
 	/***/ public String cannotReadBlob;
 	/***/ public String cannotReadCommit;
+	/***/ public String cannotReadCommitGraph;
 	/***/ public String cannotReadFile;
 	/***/ public String cannotReadHEAD;
 	/***/ public String cannotReadIndex;
+	/***/ public String cannotReadMultiPackIndex;
+	/***/ public String cannotReadMultiPackIndexBitmap;
 	/***/ public String cannotReadObject;
 	/***/ public String cannotReadObjectsPath;
+	/***/ public String cannotReadPackReverseIndex;
 	/***/ public String cannotReadTree;
 	/***/ public String cannotRebaseWithoutCurrentHead;
 	/***/ public String cannotSaveConfig;
@@ -171,12 +175,17 @@ public static JGitText get() {
 	/***/ public String commandClosedStderrButDidntExit;
 	/***/ public String commandRejectedByHook;
 	/***/ public String commandWasCalledInTheWrongState;
+	/***/ public String commitGraphChunkNeeded;
+	/***/ public String commitGraphChunkRepeated;
+	/***/ public String commitGraphChunkSizeInvalid;
+	/***/ public String commitGraphFileIsTooLargeForJgit;
 	/***/ public String commitGraphWritingCancelled;
 	/***/ public String commitMessageNotSpecified;
 	/***/ public String commitOnRepoWithoutHEADCurrentlyNotSupported;
 	/***/ public String commitAmendOnInitialNotPossible;
 	/***/ public String commitsHaveAlreadyBeenMarkedAsStart;
 	/***/ public String compressingObjects;
+	/***/ public String computingChangedPathFilters;
 	/***/ public String computingCommitGeneration;
 	/***/ public String configSubsectionContainsNewline;
 	/***/ public String configSubsectionContainsNullByte;
@@ -261,6 +270,7 @@ public static JGitText get() {
 	/***/ public String credentialPassphrase;
 	/***/ public String credentialUsername;
 	/***/ public String daemonAlreadyRunning;
+	/***/ public String daemonTooManyUploadPacks;
 	/***/ public String daysAgo;
 	/***/ public String deepenNotWithDeepen;
 	/***/ public String deepenSinceWithDeepen;
@@ -522,6 +532,11 @@ public static JGitText get() {
 	/***/ public String month;
 	/***/ public String months;
 	/***/ public String monthsAgo;
+	/***/ public String multiPackIndexBitmapChecksumMismatch;
+	/***/ public String multiPackIndexChunkNeeded;
+	/***/ public String multiPackIndexChunkSizeInvalid;
+	/***/ public String multiPackIndexFileIsTooLargeForJgit;
+	/***/ public String multiPackIndexWritingCancelled;
 	/***/ public String multipleMergeBasesFor;
 	/***/ public String nameMustNotBeNullOrEmpty;
 	/***/ public String need2Arguments;
@@ -543,8 +558,10 @@ public static JGitText get() {
 	/***/ public String noSuchSubmodule;
 	/***/ public String notABoolean;
 	/***/ public String notABundle;
+	/***/ public String notACommitGraph;
 	/***/ public String notADIRCFile;
 	/***/ public String notAGitDirectory;
+	/***/ public String notAMultiPackIndex;
 	/***/ public String notAPACKFile;
 	/***/ public String notARef;
 	/***/ public String notASCIIString;
@@ -685,6 +702,7 @@ public static JGitText get() {
 	/***/ public String resettingHead;
 	/***/ public String resolvingDeltas;
 	/***/ public String resultLengthIncorrect;
+	/***/ public String reverseIndexChecksumMismatch;
 	/***/ public String rewinding;
 	/***/ public String s3ActionDeletion;
 	/***/ public String s3ActionReading;
@@ -832,12 +850,17 @@ public static JGitText get() {
 	/***/ public String unsupportedAlternates;
 	/***/ public String unsupportedArchiveFormat;
 	/***/ public String unsupportedCommand0;
+	/***/ public String unsupportedCommitGraphHashVersion;
+	/***/ public String unsupportedCommitGraphVersion;
 	/***/ public String unsupportedEncryptionAlgorithm;
 	/***/ public String unsupportedEncryptionVersion;
 	/***/ public String unsupportedGC;
 	/***/ public String unsupportedMark;
+	/***/ public String unsupportedMultiPackIndexHashVersion;
+	/***/ public String unsupportedMultiPackIndexVersion;
 	/***/ public String unsupportedOperationNotAddAtEnd;
 	/***/ public String unsupportedPackIndexVersion;
+	/***/ public String unsupportedPackReverseIndexVersion;
 	/***/ public String unsupportedPackVersion;
 	/***/ public String unsupportedReftableVersion;
 	/***/ public String unsupportedRepositoryDescription;
@@ -872,6 +895,7 @@ public static JGitText get() {
 	/***/ public String writingNotSupported;
 	/***/ public String writingOutCommitGraph;
 	/***/ public String writingObjects;
+	/***/ public String writingOutMultiPackIndex;
 	/***/ public String wrongDecompressedLength;
 	/***/ public String wrongRepositoryState;
 	/***/ public String year;
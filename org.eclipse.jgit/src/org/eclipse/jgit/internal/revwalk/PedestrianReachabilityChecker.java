@@ -9,7 +9,11 @@
  */
 package org.eclipse.jgit.internal.revwalk;
 
+import static org.eclipse.jgit.lib.Constants.COMMIT_GENERATION_NOT_COMPUTED;
+import static org.eclipse.jgit.lib.Constants.COMMIT_GENERATION_UNKNOWN;
+
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Optional;
@@ -17,6 +21,7 @@
 
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectIdSubclassMap;
 import org.eclipse.jgit.revwalk.ReachabilityChecker;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevSort;
@@ -25,6 +30,10 @@
 /**
  * Checks the reachability walking the graph from the starters towards the
  * target.
+ * <p>
+ * If all targets have a generation number from the commit-graph, the walk
+ * does not descend below the smallest generation number of the targets, as no
+ * commit there can reach any of them.
  */
 public class PedestrianReachabilityChecker implements ReachabilityChecker {
 
@@ -52,6 +61,11 @@ public Optional<RevCommit> areAllReachable(Collection<RevCommit> targets,
 					throws MissingObjectException, IncorrectObjectTypeException,
 					IOException {
 		walk.reset();
+		int minGeneration = minGeneration(targets);
+		if (minGeneration != COMMIT_GENERATION_UNKNOWN) {
+			return findUnreachable(targets, starters, minGeneration);
+		}
+
 		if (topoSort) {
 			walk.sort(RevSort.TOPO);
 		}
@@ -67,4 +81,69 @@ public Optional<RevCommit> areAllReachable(Collection<RevCommit> targets,
 
 		return Optional.ofNullable(walk.next());
 	}
+
+	private int minGeneration(Collection<RevCommit> targets)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException {
+		int minGeneration = COMMIT_GENERATION_UNKNOWN;
+		for (RevCommit target : targets) {
+			walk.parseHeaders(target);
+			int generation = target.getGeneration();
+			if (generation == COMMIT_GENERATION_UNKNOWN
+					|| generation == COMMIT_GENERATION_NOT_COMPUTED) {
+				return COMMIT_GENERATION_UNKNOWN;
+			}
+			minGeneration = Math.min(minGeneration, generation);
+		}
+		return minGeneration;
+	}
+
+	private Optional<RevCommit> findUnreachable(Collection<RevCommit> targets,
+			Stream<RevCommit> starters, int minGeneration)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException {
+		ObjectIdSubclassMap<RevCommit> remaining = new ObjectIdSubclassMap<>();
+		for (RevCommit target : targets) {
+			remaining.addIfAbsent(target);
+		}
+		int unreached = remaining.size();
+
+		ObjectIdSubclassMap<RevCommit> seen = new ObjectIdSubclassMap<>();
+		ArrayDeque<RevCommit> stack = new ArrayDeque<>();
+		Iterator<RevCommit> iterator = starters.iterator();
+		while (iterator.hasNext()) {
+			RevCommit starter = iterator.next();
+			if (seen.contains(starter)) {
+				continue;
+			}
+			seen.add(starter);
+			walk.parseHeaders(starter);
+			stack.push(starter);
+			while (!stack.isEmpty()) {
+				RevCommit c = stack.pop();
+				if (remaining.contains(c) && --unreached == 0) {
+					return Optional.empty();
+				}
+				// Only commits with a larger generation number can reach
+				// one of the targets.
+				if (c.getGeneration() <= minGeneration) {
+					continue;
+				}
+				for (RevCommit p : c.getParents()) {
+					if (!seen.contains(p)) {
+						seen.add(p);
+						walk.parseHeaders(p);
+						stack.push(p);
+					}
+				}
+			}
+		}
+
+		for (RevCommit target : targets) {
+			if (!seen.contains(target)) {
+				return Optional.of(target);
+			}
+		}
+		return Optional.empty();
+	}
 }
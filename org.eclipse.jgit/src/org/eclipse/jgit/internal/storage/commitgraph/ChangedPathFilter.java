@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.commitgraph;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * A changed-path Bloom filter of a commit.
+ * <p>
+ * The filter holds the paths (and their leading directories) that differ
+ * between a commit and its first parent, or the empty tree for a root commit.
+ * It never gives false negatives: if {@link #maybeContains(byte[])} returns
+ * {@code false} the path was certainly not changed by the commit.
+ * <p>
+ * Keys are hashed with the same seeded murmur3 scheme as the
+ * {@code BDAT} chunk of C git (hash version 1), so filters written by either
+ * implementation can be read by the other.
+ *
+ * @since 6.5
+ */
+public class ChangedPathFilter {
+
+	/** Hash version of the filters written by JGit. */
+	static final int HASH_VERSION = 1;
+
+	/** Number of hash functions applied to each path. */
+	static final int PATH_HASH_COUNT = 7;
+
+	/** Minimum number of bits used per path in a filter. */
+	static final int BITS_PER_ENTRY = 10;
+
+	/**
+	 * Commits changing more paths than this get a filter with all bits set,
+	 * which matches every path.
+	 */
+	static final int MAX_CHANGED_PATHS = 512;
+
+	private static final int SEED0 = 0x293ae76f;
+
+	private static final int SEED1 = 0x7e646e2c;
+
+	private final ByteBuffer buf;
+
+	private final int offset;
+
+	private final int length;
+
+	private final int hashCount;
+
+	private ChangedPathFilter(ByteBuffer buf, int offset, int length,
+			int hashCount) {
+		this.buf = buf;
+		this.offset = offset;
+		this.length = length;
+		this.hashCount = hashCount;
+	}
+
+	/**
+	 * Wrap a filter stored in a commit-graph file.
+	 *
+	 * @param buf
+	 *            contents of the commit-graph file.
+	 * @param offset
+	 *            position of the first byte of the filter in {@code buf}.
+	 * @param length
+	 *            length of the filter in bytes. Must be positive.
+	 * @param hashCount
+	 *            number of hash functions used by the writer.
+	 * @return the filter; it reads {@code buf} on demand.
+	 */
+	static ChangedPathFilter fromFile(ByteBuffer buf, int offset, int length,
+			int hashCount) {
+		return new ChangedPathFilter(buf, offset, length, hashCount);
+	}
+
+	/**
+	 * Build the filter for a set of changed paths.
+	 *
+	 * @param paths
+	 *            the changed paths, including their leading directories, or
+	 *            {@code null} if too many paths changed to be worth tracking.
+	 * @return the new filter.
+	 */
+	static ChangedPathFilter fromPaths(Set<ByteBuffer> paths) {
+		byte[] data;
+		if (paths == null) {
+			data = new byte[] { (byte) 0xff };
+		} else {
+			data = new byte[Math.max(1,
+					(paths.size() * BITS_PER_ENTRY + 7) / 8)];
+			int bits = data.length * 8;
+			for (ByteBuffer path : paths) {
+				int h0 = murmur3(path, SEED0);
+				int h1 = murmur3(path, SEED1);
+				for (int i = 0; i < PATH_HASH_COUNT; i++) {
+					int pos = Integer.remainderUnsigned(h0 + i * h1, bits);
+					data[pos >>> 3] |= (byte) (1 << (pos & 7));
+				}
+			}
+		}
+		return new ChangedPathFilter(ByteBuffer.wrap(data), 0, data.length,
+				PATH_HASH_COUNT);
+	}
+
+	/**
+	 * Check whether the commit may have changed a path.
+	 *
+	 * @param path
+	 *            the path, encoded in UTF-8, without a trailing '/'. A
+	 *            directory matches if any path beneath it changed.
+	 * @return {@code false} if the path was certainly not changed by the
+	 *         commit; {@code true} if it may have been.
+	 */
+	public boolean maybeContains(byte[] path) {
+		ByteBuffer key = ByteBuffer.wrap(path);
+		int h0 = murmur3(key, SEED0);
+		int h1 = murmur3(key, SEED1);
+		int bits = length * 8;
+		for (int i = 0; i < hashCount; i++) {
+			int pos = Integer.remainderUnsigned(h0 + i * h1, bits);
+			if ((buf.get(offset + (pos >>> 3)) & (1 << (pos & 7))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of hash functions applied to each path.
+	 *
+	 * @return the number of hash functions applied to each path.
+	 */
+	int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Get the size of the filter in bytes.
+	 *
+	 * @return the size of the filter in bytes.
+	 */
+	int size() {
+		return length;
+	}
+
+	/**
+	 * Copy the filter into an array.
+	 *
+	 * @param dst
+	 *            destination array, with at least {@link #size()} bytes
+	 *            available at {@code dstOffset}.
+	 * @param dstOffset
+	 *            position in {@code dst} to copy the first byte to.
+	 */
+	void copyTo(byte[] dst, int dstOffset) {
+		for (int i = 0; i < length; i++) {
+			dst[dstOffset + i] = buf.get(offset + i);
+		}
+	}
+
+	/**
+	 * Seeded 32-bit murmur3 as implemented by C git for hash version 1.
+	 * <p>
+	 * Version 1 treats input bytes as signed, which only differs from the
+	 * reference murmur3 for paths containing non-ASCII characters.
+	 *
+	 * @param data
+	 *            the bytes between position and limit are hashed.
+	 * @param seed
+	 *            the hash seed.
+	 * @return the 32-bit hash.
+	 */
+	static int murmur3(ByteBuffer data, int seed) {
+		final int c1 = 0xcc9e2d51;
+		final int c2 = 0x1b873593;
+		int len = data.remaining();
+		int base = data.position();
+		int h = seed;
+
+		int nblocks = len / 4;
+		for (int i = 0; i < nblocks; i++) {
+			int p = base + 4 * i;
+			int k = data.get(p) | (data.get(p + 1) << 8)
+					| (data.get(p + 2) << 16) | (data.get(p + 3) << 24);
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			h ^= k;
+			h = Integer.rotateLeft(h, 13);
+			h = h * 5 + 0xe6546b64;
+		}
+
+		int tail = base + nblocks * 4;
+		int rem = len & 3;
+		if (rem > 0) {
+			int k = data.get(tail);
+			if (rem > 1) {
+				k ^= data.get(tail + 1) << 8;
+			}
+			if (rem > 2) {
+				k ^= data.get(tail + 2) << 16;
+			}
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			h ^= k;
+		}
+
+		h ^= len;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -25,6 +25,16 @@ class CommitGraphConstants {
 
 	static final int CHUNK_ID_EXTRA_EDGE_LIST = 0x45444745; /* "EDGE" */
 
+	static final int CHUNK_ID_BLOOM_FILTER_INDEX = 0x42494458; /* "BIDX" */
+
+	static final int CHUNK_ID_BLOOM_FILTER_DATA = 0x42444154; /* "BDAT" */
+
+	/**
+	 * The BDAT chunk starts with the hash version, the number of hashes per
+	 * path and the minimum number of bits per path, each a 4 byte integer.
+	 */
+	static final int BLOOM_FILTER_DATA_HEADER_SIZE = 12;
+
 	/**
 	 * First 4 bytes describe the chunk id. Value 0 is a terminating label.
 	 * Other 8 bytes provide the byte-offset in current file for chunk to start.
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2022, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.commitgraph;
+
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.BLOOM_FILTER_DATA_HEADER_SIZE;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_DATA;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_INDEX;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_COMMIT_DATA;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_EXTRA_EDGE_LIST;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_LOOKUP_WIDTH;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.COMMIT_DATA_WIDTH;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.COMMIT_GRAPH_MAGIC;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.SystemReader;
+
+/**
+ * The loader returns the representation of the commit-graph file content.
+ *
+ * @since 6.5
+ */
+public class CommitGraphLoader {
+
+	private static final int GRAPH_FANOUT_SIZE = 4 * 256;
+
+	private static final int COMMIT_GRAPH_VERSION_GENERATED = 1;
+
+	private static final int OID_HASH_VERSION = 1;
+
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * Open an existing commit-graph file for reading.
+	 * <p>
+	 * The file is memory-mapped, so opening it costs no more than parsing its
+	 * chunk table no matter how many commits it describes. On Windows, where a
+	 * mapped file cannot be replaced until the mapping is garbage collected,
+	 * the file is read into the heap instead.
+	 *
+	 * @param graphFile
+	 *            existing commit-graph to read.
+	 * @return object representation of the commit-graph file.
+	 * @throws FileNotFoundException
+	 *             the file does not exist.
+	 * @throws CommitGraphFormatException
+	 *             commit-graph file's format is different from we expected.
+	 * @throws java.io.IOException
+	 *             the file exists but could not be read due to security errors
+	 *             or unexpected data corruption.
+	 */
+	public static CommitGraph open(File graphFile) throws FileNotFoundException,
+			CommitGraphFormatException, IOException {
+		if (!graphFile.isFile()) {
+			throw new FileNotFoundException(graphFile.getAbsolutePath());
+		}
+		try (FileChannel fc = FileChannel.open(graphFile.toPath(),
+				StandardOpenOption.READ)) {
+			long size = fc.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new CommitGraphFormatException(
+						JGitText.get().commitGraphFileIsTooLargeForJgit);
+			}
+			ByteBuffer buf;
+			if (SystemReader.getInstance().isWindows()) {
+				buf = ByteBuffer.allocate((int) size);
+				while (buf.hasRemaining()) {
+					if (fc.read(buf) < 0) {
+						throw new CommitGraphFormatException(
+								JGitText.get().notACommitGraph);
+					}
+				}
+				buf.flip();
+			} else {
+				buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			return read(buf);
+		}
+	}
+
+	/**
+	 * Read an existing commit-graph file from a buffered stream.
+	 *
+	 * @param fd
+	 *            stream to read the commit-graph file from. The stream must be
+	 *            buffered as some small IOs are performed against the stream.
+	 *            The caller is responsible for closing the stream.
+	 * @return object representation of the commit-graph file.
+	 * @throws CommitGraphFormatException
+	 *             commit-graph file's format is different from we expected.
+	 * @throws java.io.IOException
+	 *             the stream cannot be read.
+	 */
+	public static CommitGraph read(InputStream fd)
+			throws CommitGraphFormatException, IOException {
+		return read(IO.readWholeStream(fd, HEADER_SIZE).slice());
+	}
+
+	/**
+	 * Parse the commit-graph held in {@code buf}.
+	 * <p>
+	 * Only the header and the chunk table are validated here; the returned
+	 * graph reads commits directly from {@code buf} on demand.
+	 *
+	 * @param buf
+	 *            the whole commit-graph file, positioned at its first byte.
+	 * @return object representation of the commit-graph file.
+	 * @throws CommitGraphFormatException
+	 *             commit-graph file's format is different from we expected.
+	 */
+	static CommitGraph read(ByteBuffer buf) throws CommitGraphFormatException {
+		int size = buf.remaining();
+		if (size < HEADER_SIZE + CHUNK_LOOKUP_WIDTH
+				|| buf.getInt(0) != COMMIT_GRAPH_MAGIC) {
+			throw new CommitGraphFormatException(
+					JGitText.get().notACommitGraph);
+		}
+
+		int v = buf.get(4) & 0xff;
+		if (v != COMMIT_GRAPH_VERSION_GENERATED) {
+			throw new CommitGraphFormatException(MessageFormat.format(
+					JGitText.get().unsupportedCommitGraphVersion,
+					Integer.valueOf(v)));
+		}
+
+		int hashVersion = buf.get(5) & 0xff;
+		if (hashVersion != OID_HASH_VERSION) {
+			throw new CommitGraphFormatException(MessageFormat.format(
+					JGitText.get().unsupportedCommitGraphHashVersion,
+					Integer.valueOf(hashVersion)));
+		}
+
+		int numberOfChunks = buf.get(6) & 0xff;
+		int lookupEnd = HEADER_SIZE + (numberOfChunks + 1) * CHUNK_LOOKUP_WIDTH;
+		if (lookupEnd > size) {
+			throw new CommitGraphFormatException(
+					JGitText.get().notACommitGraph);
+		}
+
+		int[] chunkIds = new int[numberOfChunks + 1];
+		long[] chunkOffsets = new long[numberOfChunks + 1];
+		for (int i = 0; i <= numberOfChunks; i++) {
+			int p = HEADER_SIZE + i * CHUNK_LOOKUP_WIDTH;
+			chunkIds[i] = buf.getInt(p);
+			chunkOffsets[i] = buf.getLong(p + 4);
+		}
+
+		CommitGraphV1.Builder builder = new CommitGraphV1.Builder(buf);
+		for (int i = 0; i < numberOfChunks; i++) {
+			long chunkOffset = chunkOffsets[i];
+			long len = chunkOffsets[i + 1] - chunkOffset;
+			int chunkId = chunkIds[i];
+			if (chunkOffset < lookupEnd || len < 0
+					|| chunkOffset + len > size) {
+				throw invalidSize(chunkId);
+			}
+
+			switch (chunkId) {
+			case CHUNK_ID_OID_FANOUT:
+				if (len != GRAPH_FANOUT_SIZE) {
+					throw invalidSize(chunkId);
+				}
+				builder.addOidFanout((int) chunkOffset);
+				break;
+			case CHUNK_ID_OID_LOOKUP:
+				if (len % OBJECT_ID_LENGTH != 0) {
+					throw invalidSize(chunkId);
+				}
+				builder.addOidLookUp((int) chunkOffset,
+						(int) (len / OBJECT_ID_LENGTH));
+				break;
+			case CHUNK_ID_COMMIT_DATA:
+				if (len % (OBJECT_ID_LENGTH + COMMIT_DATA_WIDTH) != 0) {
+					throw invalidSize(chunkId);
+				}
+				builder.addCommitData((int) chunkOffset,
+						(int) (len / (OBJECT_ID_LENGTH + COMMIT_DATA_WIDTH)));
+				break;
+			case CHUNK_ID_EXTRA_EDGE_LIST:
+				if (len % 4 != 0) {
+					throw invalidSize(chunkId);
+				}
+				builder.addExtraList((int) chunkOffset, (int) (len / 4));
+				break;
+			case CHUNK_ID_BLOOM_FILTER_INDEX:
+				if (len % 4 != 0) {
+					throw invalidSize(chunkId);
+				}
+				builder.addBloomFilterIndex((int) chunkOffset,
+						(int) (len / 4));
+				break;
+			case CHUNK_ID_BLOOM_FILTER_DATA:
+				if (len < BLOOM_FILTER_DATA_HEADER_SIZE) {
+					throw invalidSize(chunkId);
+				}
+				builder.addBloomFilterData((int) chunkOffset, (int) len);
+				break;
+			default:
+				// Unknown chunks are optional extensions; skip them.
+				break;
+			}
+		}
+		return builder.build();
+	}
+
+	private static CommitGraphFormatException invalidSize(int chunkId) {
+		return new CommitGraphFormatException(MessageFormat.format(
+				JGitText.get().commitGraphChunkSizeInvalid,
+				Integer.toHexString(chunkId)));
+	}
+}
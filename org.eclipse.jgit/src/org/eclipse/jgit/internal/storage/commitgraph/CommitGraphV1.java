@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2022, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.commitgraph;
+
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.BLOOM_FILTER_DATA_HEADER_SIZE;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_DATA;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_INDEX;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_COMMIT_DATA;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_EXTRA_EDGE_LIST;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.COMMIT_DATA_WIDTH;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.GRAPH_EDGE_LAST_MASK;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.GRAPH_EXTRA_EDGES_NEEDED;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.GRAPH_LAST_EDGE;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.GRAPH_NO_PARENT;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Support for the commit-graph v1 format, reading directly from the (usually
+ * memory-mapped) file contents.
+ * <p>
+ * All reads use absolute {@link ByteBuffer} accessors, so a single instance
+ * can be shared by concurrent readers.
+ *
+ * @see CommitGraph
+ */
+class CommitGraphV1 implements CommitGraph {
+
+	private static final int[] NO_PARENTS = {};
+
+	private final ByteBuffer buf;
+
+	private final int fanoutOffset;
+
+	private final int oidLookupOffset;
+
+	private final int commitDataOffset;
+
+	private final int extraListOffset;
+
+	private final int extraListCnt;
+
+	private final int commitCnt;
+
+	private final int bloomIndexOffset;
+
+	private final int bloomDataOffset;
+
+	private final int bloomDataLength;
+
+	private final int bloomHashCount;
+
+	private CommitGraphV1(Builder b) {
+		buf = b.buf;
+		fanoutOffset = b.fanoutOffset;
+		oidLookupOffset = b.oidLookupOffset;
+		commitDataOffset = b.commitDataOffset;
+		extraListOffset = b.extraListOffset;
+		extraListCnt = b.extraListCnt;
+		commitCnt = b.commitCnt;
+		if (b.hasUsableBloomFilters()) {
+			bloomIndexOffset = b.bloomIndexOffset;
+			bloomDataOffset = b.bloomDataOffset + BLOOM_FILTER_DATA_HEADER_SIZE;
+			bloomDataLength = b.bloomDataLength - BLOOM_FILTER_DATA_HEADER_SIZE;
+			bloomHashCount = buf.getInt(b.bloomDataOffset + 4);
+		} else {
+			bloomIndexOffset = -1;
+			bloomDataOffset = -1;
+			bloomDataLength = 0;
+			bloomHashCount = 0;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int findGraphPosition(AnyObjectId commit) {
+		int levelOne = commit.getFirstByte();
+		int high = fanout(levelOne);
+		int low = levelOne == 0 ? 0 : fanout(levelOne - 1);
+		if (low >= high) {
+			return -1;
+		}
+
+		byte[] raw = new byte[OBJECT_ID_LENGTH];
+		commit.copyRawTo(raw, 0);
+		do {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(raw, oidLookupOffset + mid * OBJECT_ID_LENGTH);
+			if (cmp < 0) {
+				high = mid;
+			} else if (cmp == 0) {
+				return mid;
+			} else {
+				low = mid + 1;
+			}
+		} while (low < high);
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ObjectId getObjectId(int graphPos) {
+		if (graphPos < 0 || graphPos >= commitCnt) {
+			return null;
+		}
+		return readObjectId(oidLookupOffset + graphPos * OBJECT_ID_LENGTH);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public CommitData getCommitData(int graphPos) {
+		if (graphPos < 0 || graphPos >= commitCnt) {
+			return null;
+		}
+
+		int p = commitDataOffset
+				+ graphPos * (OBJECT_ID_LENGTH + COMMIT_DATA_WIDTH);
+		ObjectId tree = readObjectId(p);
+		p += OBJECT_ID_LENGTH;
+
+		int[] parents;
+		int edgeValue1 = buf.getInt(p);
+		int edgeValue2 = buf.getInt(p + 4);
+		if (edgeValue1 == GRAPH_NO_PARENT) {
+			parents = NO_PARENTS;
+		} else if (edgeValue2 == GRAPH_NO_PARENT) {
+			parents = new int[] { edgeValue1 };
+		} else if ((edgeValue2 & GRAPH_EXTRA_EDGES_NEEDED) == 0) {
+			parents = new int[] { edgeValue1, edgeValue2 };
+		} else {
+			parents = readOctopusParents(edgeValue1,
+					edgeValue2 & GRAPH_EDGE_LAST_MASK);
+		}
+
+		// The top 30 bits of the first word hold the generation number, the
+		// low 2 bits extend the 32-bit commit time in the second word.
+		int word1 = buf.getInt(p + 8);
+		long word2 = buf.getInt(p + 12) & 0xffffffffL;
+		int generation = word1 >>> 2;
+		long commitTime = ((word1 & 0x3L) << 32) | word2;
+
+		return new GraphCommitData(tree, parents, commitTime, generation);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ChangedPathFilter getChangedPathFilter(int graphPos) {
+		if (bloomIndexOffset < 0 || graphPos < 0 || graphPos >= commitCnt) {
+			return null;
+		}
+		// BIDX holds the cumulative end offset of each filter within BDAT.
+		long end = buf.getInt(bloomIndexOffset + graphPos * 4) & 0xffffffffL;
+		long start = graphPos == 0 ? 0
+				: buf.getInt(bloomIndexOffset + (graphPos - 1) * 4)
+						& 0xffffffffL;
+		if (start >= end || end > bloomDataLength) {
+			return null;
+		}
+		return ChangedPathFilter.fromFile(buf, bloomDataOffset + (int) start,
+				(int) (end - start), bloomHashCount);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getCommitCnt() {
+		return commitCnt;
+	}
+
+	private int[] readOctopusParents(int firstParent, int extraIndex) {
+		int[] parents = new int[8];
+		parents[0] = firstParent;
+		int cnt = 1;
+		for (int i = extraIndex; i < extraListCnt; i++) {
+			int edgeValue = buf.getInt(extraListOffset + i * 4);
+			if (cnt == parents.length) {
+				parents = Arrays.copyOf(parents, cnt * 2);
+			}
+			parents[cnt++] = edgeValue & GRAPH_EDGE_LAST_MASK;
+			if ((edgeValue & GRAPH_LAST_EDGE) != 0) {
+				break;
+			}
+		}
+		return Arrays.copyOf(parents, cnt);
+	}
+
+	private int fanout(int levelOne) {
+		return buf.getInt(fanoutOffset + levelOne * 4);
+	}
+
+	private int compare(byte[] raw, int p) {
+		for (int i = 0; i < OBJECT_ID_LENGTH; i += 4) {
+			int cmp = Integer.compareUnsigned(NB.decodeInt32(raw, i),
+					buf.getInt(p + i));
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	private ObjectId readObjectId(int p) {
+		return new ObjectId(buf.getInt(p), buf.getInt(p + 4),
+				buf.getInt(p + 8), buf.getInt(p + 12), buf.getInt(p + 16));
+	}
+
+	private static class GraphCommitData implements CommitData {
+
+		private final ObjectId tree;
+
+		private final int[] parents;
+
+		private final long commitTime;
+
+		private final int generation;
+
+		GraphCommitData(ObjectId tree, int[] parents, long commitTime,
+				int generation) {
+			this.tree = tree;
+			this.parents = parents;
+			this.commitTime = commitTime;
+			this.generation = generation;
+		}
+
+		@Override
+		public ObjectId getTree() {
+			return tree;
+		}
+
+		@Override
+		public int[] getParents() {
+			return parents;
+		}
+
+		@Override
+		public long getCommitTime() {
+			return commitTime;
+		}
+
+		@Override
+		public int getGeneration() {
+			return generation;
+		}
+	}
+
+	/**
+	 * Collects the chunk locations found by {@link CommitGraphLoader} and
+	 * checks that they describe a consistent graph.
+	 */
+	static class Builder {
+
+		final ByteBuffer buf;
+
+		int fanoutOffset = -1;
+
+		int oidLookupOffset = -1;
+
+		int commitDataOffset = -1;
+
+		int extraListOffset = -1;
+
+		int extraListCnt;
+
+		int commitCnt = -1;
+
+		int bloomIndexOffset = -1;
+
+		int bloomIndexCnt;
+
+		int bloomDataOffset = -1;
+
+		int bloomDataLength;
+
+		Builder(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		void addOidFanout(int offset) throws CommitGraphFormatException {
+			assertChunkNotSeenYet(fanoutOffset, CHUNK_ID_OID_FANOUT);
+			fanoutOffset = offset;
+		}
+
+		void addOidLookUp(int offset, int cnt)
+				throws CommitGraphFormatException {
+			assertChunkNotSeenYet(oidLookupOffset, CHUNK_ID_OID_LOOKUP);
+			oidLookupOffset = offset;
+			setCommitCnt(cnt, CHUNK_ID_OID_LOOKUP);
+		}
+
+		void addCommitData(int offset, int cnt)
+				throws CommitGraphFormatException {
+			assertChunkNotSeenYet(commitDataOffset, CHUNK_ID_COMMIT_DATA);
+			commitDataOffset = offset;
+			setCommitCnt(cnt, CHUNK_ID_COMMIT_DATA);
+		}
+
+		void addExtraList(int offset, int cnt)
+				throws CommitGraphFormatException {
+			assertChunkNotSeenYet(extraListOffset, CHUNK_ID_EXTRA_EDGE_LIST);
+			extraListOffset = offset;
+			extraListCnt = cnt;
+		}
+
+		void addBloomFilterIndex(int offset, int cnt)
+				throws CommitGraphFormatException {
+			assertChunkNotSeenYet(bloomIndexOffset,
+					CHUNK_ID_BLOOM_FILTER_INDEX);
+			bloomIndexOffset = offset;
+			bloomIndexCnt = cnt;
+		}
+
+		void addBloomFilterData(int offset, int length)
+				throws CommitGraphFormatException {
+			assertChunkNotSeenYet(bloomDataOffset, CHUNK_ID_BLOOM_FILTER_DATA);
+			bloomDataOffset = offset;
+			bloomDataLength = length;
+		}
+
+		/**
+		 * Changed-path filters are optional, so filters written with an
+		 * unknown hash version or an inconsistent index are ignored instead
+		 * of failing the whole graph.
+		 */
+		boolean hasUsableBloomFilters() {
+			return bloomIndexOffset >= 0 && bloomDataOffset >= 0
+					&& bloomIndexCnt == commitCnt
+					&& buf.getInt(bloomDataOffset) == ChangedPathFilter.HASH_VERSION
+					&& buf.getInt(bloomDataOffset + 4) > 0;
+		}
+
+		CommitGraph build() throws CommitGraphFormatException {
+			assertChunkNotNull(fanoutOffset, CHUNK_ID_OID_FANOUT);
+			assertChunkNotNull(oidLookupOffset, CHUNK_ID_OID_LOOKUP);
+			assertChunkNotNull(commitDataOffset, CHUNK_ID_COMMIT_DATA);
+			if (buf.getInt(fanoutOffset + 255 * 4) != commitCnt) {
+				throw new CommitGraphFormatException(MessageFormat.format(
+						JGitText.get().commitGraphChunkSizeInvalid,
+						Integer.toHexString(CHUNK_ID_OID_FANOUT)));
+			}
+			return new CommitGraphV1(this);
+		}
+
+		private void setCommitCnt(int cnt, int chunkId)
+				throws CommitGraphFormatException {
+			if (commitCnt >= 0 && commitCnt != cnt) {
+				throw new CommitGraphFormatException(MessageFormat.format(
+						JGitText.get().commitGraphChunkSizeInvalid,
+						Integer.toHexString(chunkId)));
+			}
+			commitCnt = cnt;
+		}
+
+		private static void assertChunkNotNull(int offset, int chunkId)
+				throws CommitGraphFormatException {
+			if (offset < 0) {
+				throw new CommitGraphFormatException(MessageFormat.format(
+						JGitText.get().commitGraphChunkNeeded,
+						Integer.toHexString(chunkId)));
+			}
+		}
+
+		private static void assertChunkNotSeenYet(int offset, int chunkId)
+				throws CommitGraphFormatException {
+			if (offset >= 0) {
+				throw new CommitGraphFormatException(MessageFormat.format(
+						JGitText.get().commitGraphChunkRepeated,
+						Integer.toHexString(chunkId)));
+			}
+		}
+	}
+}
@@ -10,6 +10,9 @@
 
 package org.eclipse.jgit.internal.storage.commitgraph;
 
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.BLOOM_FILTER_DATA_HEADER_SIZE;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_DATA;
+import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_BLOOM_FILTER_INDEX;
 import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_COMMIT_DATA;
 import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_EXTRA_EDGE_LIST;
 import static org.eclipse.jgit.internal.storage.commitgraph.CommitGraphConstants.CHUNK_ID_OID_FANOUT;
@@ -27,9 +30,13 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 
 import org.eclipse.jgit.annotations.NonNull;
@@ -39,6 +46,10 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.NB;
 
 /**
@@ -60,6 +71,8 @@ public class CommitGraphWriter {
 
 	private final GraphCommits graphCommits;
 
+	private final boolean generateChangedPathFilters;
+
 	/**
 	 * Create commit-graph writer for these commits.
 	 *
@@ -67,8 +80,25 @@ public class CommitGraphWriter {
 	 *            the commits which will be writen to the commit-graph.
 	 */
 	public CommitGraphWriter(@NonNull GraphCommits graphCommits) {
+		this(graphCommits, false);
+	}
+
+	/**
+	 * Create commit-graph writer for these commits.
+	 *
+	 * @param graphCommits
+	 *            the commits which will be writen to the commit-graph.
+	 * @param generateChangedPathFilters
+	 *            whether changed-path Bloom filters should be written. Filters
+	 *            found in the commit-graph the commits were parsed from are
+	 *            reused, others are computed by diffing each commit against
+	 *            its first parent.
+	 */
+	public CommitGraphWriter(@NonNull GraphCommits graphCommits,
+			boolean generateChangedPathFilters) {
 		this.graphCommits = graphCommits;
 		this.hashsz = OBJECT_ID_LENGTH;
+		this.generateChangedPathFilters = generateChangedPathFilters;
 	}
 
 	/**
@@ -88,9 +118,16 @@ public void write(@NonNull ProgressMonitor monitor,
 			return;
 		}
 
-		List<ChunkHeader> chunks = createChunks();
+		ChangedPathFilter[] filters = null;
+		if (generateChangedPathFilters) {
+			filters = computeChangedPathFilters(monitor);
+		}
+		List<ChunkHeader> chunks = createChunks(filters);
 		long writeCount = 256 + 2 * graphCommits.size()
 				+ graphCommits.getExtraEdgeCnt();
+		if (filters != null) {
+			writeCount += 2 * graphCommits.size();
+		}
 		monitor.beginTask(
 				MessageFormat.format(JGitText.get().writingOutCommitGraph,
 						Integer.valueOf(chunks.size())),
@@ -100,7 +137,7 @@ public void write(@NonNull ProgressMonitor monitor,
 				monitor, commitGraphStream)) {
 			writeHeader(out, chunks.size());
 			writeChunkLookup(out, chunks);
-			writeChunks(monitor, out, chunks);
+			writeChunks(monitor, out, chunks, filters);
 			writeCheckSum(out);
 		} catch (InterruptedIOException e) {
 			throw new IOException(JGitText.get().commitGraphWritingCancelled);
@@ -109,7 +146,7 @@ public void write(@NonNull ProgressMonitor monitor,
 		}
 	}
 
-	private List<ChunkHeader> createChunks() {
+	private List<ChunkHeader> createChunks(ChangedPathFilter[] filters) {
 		List<ChunkHeader> chunks = new ArrayList<>();
 		chunks.add(new ChunkHeader(CHUNK_ID_OID_FANOUT, GRAPH_FANOUT_SIZE));
 		chunks.add(new ChunkHeader(CHUNK_ID_OID_LOOKUP,
@@ -120,6 +157,15 @@ private List<ChunkHeader> createChunks() {
 			chunks.add(new ChunkHeader(CHUNK_ID_EXTRA_EDGE_LIST,
 					graphCommits.getExtraEdgeCnt() * 4));
 		}
+		if (filters != null) {
+			long dataSize = BLOOM_FILTER_DATA_HEADER_SIZE;
+			for (ChangedPathFilter f : filters) {
+				dataSize += f.size();
+			}
+			chunks.add(new ChunkHeader(CHUNK_ID_BLOOM_FILTER_INDEX,
+					4 * graphCommits.size()));
+			chunks.add(new ChunkHeader(CHUNK_ID_BLOOM_FILTER_DATA, dataSize));
+		}
 		return chunks;
 	}
 
@@ -151,8 +197,8 @@ private void writeChunkLookup(CancellableDigestOutputStream out,
 	}
 
 	private void writeChunks(ProgressMonitor monitor,
-			CancellableDigestOutputStream out, List<ChunkHeader> chunks)
-			throws IOException {
+			CancellableDigestOutputStream out, List<ChunkHeader> chunks,
+			ChangedPathFilter[] filters) throws IOException {
 		for (ChunkHeader chunk : chunks) {
 			int chunkId = chunk.id;
 
@@ -169,6 +215,12 @@ private void writeChunks(ProgressMonitor monitor,
 			case CHUNK_ID_EXTRA_EDGE_LIST:
 				writeExtraEdges(out);
 				break;
+			case CHUNK_ID_BLOOM_FILTER_INDEX:
+				writeBloomFilterIndex(out, filters);
+				break;
+			case CHUNK_ID_BLOOM_FILTER_DATA:
+				writeBloomFilterData(out, filters);
+				break;
 			}
 		}
 	}
@@ -324,6 +376,107 @@ private void writeExtraEdges(CancellableDigestOutputStream out)
 		}
 	}
 
+	private ChangedPathFilter[] computeChangedPathFilters(
+			ProgressMonitor monitor) throws IOException {
+		RevWalk walk = graphCommits.getRevWalk();
+		ChangedPathFilter[] filters = new ChangedPathFilter[graphCommits
+				.size()];
+		long dataSize = 0;
+		monitor.beginTask(JGitText.get().computingChangedPathFilters,
+				graphCommits.size());
+		try (TreeWalk tw = new TreeWalk(walk.getObjectReader())) {
+			tw.setRecursive(true);
+			tw.setFilter(TreeFilter.ANY_DIFF);
+			int i = 0;
+			for (RevCommit commit : graphCommits) {
+				ChangedPathFilter filter = commit.getChangedPathFilter(walk);
+				if (filter == null || filter
+						.getHashCount() != ChangedPathFilter.PATH_HASH_COUNT) {
+					filter = ChangedPathFilter
+							.fromPaths(changedPaths(walk, tw, commit));
+				}
+				filters[i++] = filter;
+				dataSize += filter.size();
+				monitor.update(1);
+			}
+		} finally {
+			monitor.endTask();
+		}
+		if (dataSize > 0xffffffffL) {
+			// The index cannot address this much data; omit the filters.
+			return null;
+		}
+		return filters;
+	}
+
+	/**
+	 * Collect the paths changed by a commit relative to its first parent,
+	 * along with all of their leading directories.
+	 *
+	 * @return the paths, or {@code null} if the commit changed more than
+	 *         {@link ChangedPathFilter#MAX_CHANGED_PATHS} paths.
+	 */
+	private static Set<ByteBuffer> changedPaths(RevWalk walk, TreeWalk tw,
+			RevCommit commit) throws IOException {
+		tw.reset();
+		if (commit.getParentCount() == 0) {
+			tw.addTree(new EmptyTreeIterator());
+		} else {
+			RevCommit parent = commit.getParent(0);
+			walk.parseHeaders(parent);
+			tw.addTree(parent.getTree());
+		}
+		tw.addTree(commit.getTree());
+
+		Set<ByteBuffer> paths = new HashSet<>();
+		int changes = 0;
+		while (tw.next()) {
+			if (++changes > ChangedPathFilter.MAX_CHANGED_PATHS) {
+				return null;
+			}
+			byte[] path = tw.getRawPath();
+			paths.add(ByteBuffer.wrap(path));
+			for (int n = path.length - 1; n > 0; n--) {
+				if (path[n] == '/' && !paths
+						.add(ByteBuffer.wrap(Arrays.copyOf(path, n)))) {
+					// The remaining parents were added with this directory.
+					break;
+				}
+			}
+		}
+		return paths;
+	}
+
+	private void writeBloomFilterIndex(CancellableDigestOutputStream out,
+			ChangedPathFilter[] filters) throws IOException {
+		byte[] tmp = new byte[4];
+		long end = 0;
+		for (ChangedPathFilter filter : filters) {
+			end += filter.size();
+			NB.encodeInt32(tmp, 0, (int) end);
+			out.write(tmp);
+			out.getWriteMonitor().update(1);
+		}
+	}
+
+	private void writeBloomFilterData(CancellableDigestOutputStream out,
+			ChangedPathFilter[] filters) throws IOException {
+		byte[] header = new byte[BLOOM_FILTER_DATA_HEADER_SIZE];
+		NB.encodeInt32(header, 0, ChangedPathFilter.HASH_VERSION);
+		NB.encodeInt32(header, 4, ChangedPathFilter.PATH_HASH_COUNT);
+		NB.encodeInt32(header, 8, ChangedPathFilter.BITS_PER_ENTRY);
+		out.write(header);
+		byte[] tmp = new byte[64];
+		for (ChangedPathFilter filter : filters) {
+			if (tmp.length < filter.size()) {
+				tmp = new byte[filter.size()];
+			}
+			filter.copyTo(tmp, 0);
+			out.write(tmp, 0, filter.size());
+			out.getWriteMonitor().update(1);
+		}
+	}
+
 	private static class ChunkHeader {
 		final int id;
 
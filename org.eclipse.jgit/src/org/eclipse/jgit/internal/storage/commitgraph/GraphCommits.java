@@ -78,7 +78,7 @@ public static GraphCommits fromWalk(ProgressMonitor pm,
 			commits.add(c);
 		}
 		pm.endTask();
-		return new GraphCommits(commits);
+		return new GraphCommits(commits, walk);
 	}
 
 	private final List<RevCommit> sortedCommits;
@@ -87,13 +87,17 @@ public static GraphCommits fromWalk(ProgressMonitor pm,
 
 	private final int extraEdgeCnt;
 
+	private final RevWalk walk;
+
 	/**
 	 * Initialize the GraphCommits.
 	 *
 	 * @param commits
 	 *            list of commits with their headers already parsed.
+	 * @param walk
+	 *            the walk that parsed the commits.
 	 */
-	private GraphCommits(List<RevCommit> commits) {
+	private GraphCommits(List<RevCommit> commits, RevWalk walk) {
 		Collections.sort(commits); // sorted by name
 		sortedCommits = commits;
 		commitPosMap = new ObjectIdOwnerMap<>();
@@ -106,6 +110,7 @@ private GraphCommits(List<RevCommit> commits) {
 			commitPosMap.add(new CommitWithPosition(c, i));
 		}
 		this.extraEdgeCnt = cnt;
+		this.walk = walk;
 	}
 
 	int getOidPosition(RevCommit c) throws MissingObjectException {
@@ -123,6 +128,10 @@ RevCommit getCommit(int oidPos) {
 		return sortedCommits.get(oidPos);
 	}
 
+	RevWalk getRevWalk() {
+		return walk;
+	}
+
 	int getExtraEdgeCnt() {
 		return extraEdgeCnt;
 	}
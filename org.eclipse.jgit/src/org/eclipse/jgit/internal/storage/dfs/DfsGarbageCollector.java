@@ -616,6 +616,7 @@ private PackWriter newPackWriter() {
 		PackWriter pw = new PackWriter(packConfig, ctx);
 		pw.setDeltaBaseAsOffset(true);
 		pw.setReuseDeltaCommits(false);
+		pw.setDeltaIslandRefs(refsBefore);
 		return pw;
 	}
 
@@ -28,6 +28,7 @@
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.util.RefList;
@@ -176,6 +177,12 @@ public List<Ref> getRefsByPrefix(String prefix) throws IOException {
 		return reftableDatabase.getRefsByPrefix(prefix);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public RefScanner scanRefsByPrefix(String prefix) throws IOException {
+		return reftableDatabase.scanRefsByPrefix(prefix);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public List<Ref> getRefsByPrefixWithExclusions(String include, Set<String> excludes)
@@ -117,4 +117,26 @@ final int setInput(long pos, Inflater inf) throws DataFormatException {
 	 */
 	protected abstract int setInput(int pos, Inflater inf)
 			throws DataFormatException;
+
+	/**
+	 * Acquire another reference to the storage of this window.
+	 * <p>
+	 * Windows on the heap or in mapped memory live as long as they are
+	 * reachable, and always succeed. Pooled windows must be released once for
+	 * every successful call.
+	 *
+	 * @return {@code false} if the storage was already released and the
+	 *         window must not be read.
+	 */
+	boolean retain() {
+		return true;
+	}
+
+	/**
+	 * Release a reference acquired by {@link #retain()}, or the initial
+	 * reference held by the creator of the window.
+	 */
+	void release() {
+		// Storage is reclaimed by the garbage collector.
+	}
 }
@@ -15,8 +15,10 @@
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.internal.storage.file.ObjectDirectory.AlternateHandle;
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
@@ -259,6 +261,16 @@ Collection<Pack> getPacks() {
 		return wrapped.getPacks();
 	}
 
+	@Override
+	Optional<CommitGraph> getCommitGraph() {
+		return wrapped.getCommitGraph();
+	}
+
+	@Override
+	PackBitmapIndex getMultiPackBitmapIndex() {
+		return wrapped.getMultiPackBitmapIndex();
+	}
+
 	private static class UnpackedObjectId extends ObjectIdOwnerMap.Entry {
 		UnpackedObjectId(AnyObjectId id) {
 			super(id);
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of equally sized direct buffers backing off-heap
+ * {@link DirectByteWindow}s.
+ * <p>
+ * Buffers are carved out of larger direct memory chunks, so that the number
+ * of direct allocations, which are expensive and freed only by the garbage
+ * collector, stays small. Released buffers are kept for reuse; memory is
+ * returned to the operating system only once the pool itself is garbage
+ * collected, e.g. after the {@link WindowCache} was reconfigured.
+ */
+class DirectBufferPool {
+	private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+	private final int bufferSize;
+
+	private final int buffersPerChunk;
+
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param bufferSize
+	 *            size of each buffer handed out by the pool.
+	 * @param limit
+	 *            expected maximum number of bytes allocated at a time; the
+	 *            pool does not allocate more than this at once.
+	 */
+	DirectBufferPool(int bufferSize, long limit) {
+		this.bufferSize = bufferSize;
+		long chunk = Math.max(bufferSize, Math.min(CHUNK_SIZE, limit));
+		buffersPerChunk = (int) (chunk / bufferSize);
+	}
+
+	/**
+	 * Take a buffer from the pool, allocating more direct memory if no
+	 * released buffer is available.
+	 *
+	 * @param size
+	 *            number of bytes needed, at most the buffer size of the pool.
+	 * @return a buffer with position 0 and limit {@code size}.
+	 */
+	ByteBuffer allocate(int size) {
+		ByteBuffer b = free.poll();
+		if (b == null) {
+			b = grow();
+		}
+		b.clear().limit(size);
+		return b;
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #allocate(int)} to the pool.
+	 *
+	 * @param b
+	 *            the buffer; it must not be used anymore by the caller.
+	 */
+	void release(ByteBuffer b) {
+		free.add(b);
+	}
+
+	private ByteBuffer grow() {
+		ByteBuffer chunk = ByteBuffer
+				.allocateDirect(buffersPerChunk * bufferSize);
+		ByteBuffer first = null;
+		for (int i = 0; i < buffersPerChunk; i++) {
+			chunk.limit((i + 1) * bufferSize).position(i * bufferSize);
+			ByteBuffer b = chunk.slice();
+			if (first == null) {
+				first = b;
+			} else {
+				free.add(b);
+			}
+		}
+		return first;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
+
+/**
+ * A window for accessing git packs using a pooled direct buffer outside of
+ * the Java heap for storage.
+ * <p>
+ * The buffer is reference counted: the {@link WindowCache} holds one
+ * reference while the window is cached, and every {@link WindowCursor}
+ * reading the window holds another one. The buffer returns to its
+ * {@link DirectBufferPool} when the last reference is released.
+ *
+ * @see ByteWindow
+ */
+final class DirectByteWindow extends ByteWindow {
+	private final DirectBufferPool pool;
+
+	private final ByteBuffer buffer;
+
+	private final AtomicInteger refs = new AtomicInteger(1);
+
+	DirectByteWindow(Pack pack, long o, ByteBuffer b, DirectBufferPool pool) {
+		super(pack, o, b.limit());
+		this.buffer = b;
+		this.pool = pool;
+	}
+
+	@Override
+	boolean retain() {
+		for (;;) {
+			int n = refs.get();
+			if (n == 0) {
+				return false;
+			}
+			if (refs.compareAndSet(n, n + 1)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	void release() {
+		if (refs.decrementAndGet() == 0) {
+			pool.release(buffer);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected int copy(int p, byte[] b, int o, int n) {
+		final ByteBuffer s = buffer.duplicate();
+		s.position(p);
+		n = Math.min(s.remaining(), n);
+		s.get(b, o, n);
+		return n;
+	}
+
+	@Override
+	void write(PackOutputStream out, long pos, int cnt)
+			throws IOException {
+		final ByteBuffer s = buffer.duplicate();
+		s.position((int) (pos - start));
+
+		while (0 < cnt) {
+			byte[] buf = out.getCopyBuffer();
+			int n = Math.min(cnt, buf.length);
+			s.get(buf, 0, n);
+			out.write(buf, 0, n);
+			cnt -= n;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected int setInput(int pos, Inflater inf)
+			throws DataFormatException {
+		// The inflater reads the direct buffer in place, the caller keeps
+		// this window retained until the input was consumed.
+		final ByteBuffer s = buffer.duplicate();
+		s.position(pos);
+		final int n = s.remaining();
+		inf.setInput(s);
+		return n;
+	}
+}
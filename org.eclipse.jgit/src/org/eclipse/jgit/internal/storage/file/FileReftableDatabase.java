@@ -42,6 +42,7 @@
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.RefRename;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.ReflogEntry;
 import org.eclipse.jgit.lib.ReflogReader;
@@ -181,6 +182,12 @@ public Map<String, Ref> getRefs(String prefix) throws IOException {
 				RefList.emptyList());
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public RefScanner scanRefsByPrefix(String prefix) throws IOException {
+		return reftableDatabase.scanRefsByPrefix(prefix);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public List<Ref> getRefsByPrefixWithExclusions(String include, Set<String> excludes)
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates how often items were accessed recently, as used by the TinyLFU
+ * cache admission policy.
+ * <p>
+ * This is a count-min sketch with four 4-bit counters per item, packed
+ * sixteen to a {@code long}. Counters saturate at 15, which is plenty to tell
+ * hot items from items seen once or twice. Once the number of recorded
+ * accesses reaches ten times the expected number of cached items all
+ * counters are halved, so that items which were popular long ago age out.
+ * <p>
+ * Updates are lock free and may be lost under contention. Like the access
+ * clock of {@link WindowCache} the estimate does not need to be exact.
+ */
+class FrequencySketch {
+	private static final long[] SEED = { 0xc3a5c85c97cb3127L,
+			0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final int MAX_COUNT = 15;
+
+	private final AtomicLongArray table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private final AtomicInteger additions = new AtomicInteger();
+
+	/**
+	 * Create a sketch.
+	 *
+	 * @param maximumSize
+	 *            expected maximum number of items held by the cache.
+	 */
+	FrequencySketch(int maximumSize) {
+		int size = Math.max(maximumSize, 16);
+		int n = Integer.highestOneBit(Math.min(size, 1 << 30) - 1) << 1;
+		table = new AtomicLongArray(n);
+		tableMask = n - 1;
+		sampleSize = size <= Integer.MAX_VALUE / 10 ? 10 * size
+				: Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Get the estimated number of recent accesses of an item.
+	 *
+	 * @param hash
+	 *            hash code of the item.
+	 * @return the estimate, between 0 and 15.
+	 */
+	int frequency(int hash) {
+		int h = spread(hash);
+		int start = (h & 3) << 2;
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < 4; i++) {
+			long word = table.get(indexOf(h, i));
+			int count = (int) ((word >>> ((start + i) << 2)) & 0xf);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Record an access of an item.
+	 *
+	 * @param hash
+	 *            hash code of the item.
+	 */
+	void increment(int hash) {
+		int h = spread(hash);
+		int start = (h & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(h, i);
+			int offset = (start + i) << 2;
+			long word = table.get(index);
+			if (((word >>> offset) & 0xf) < MAX_COUNT) {
+				// Give up if another thread changed the word in between,
+				// losing an update is harmless.
+				added |= table.compareAndSet(index, word,
+						word + (1L << offset));
+			}
+		}
+		if (added && additions.incrementAndGet() == sampleSize) {
+			reset();
+		}
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length(); i++) {
+			long word = table.get(i);
+			table.compareAndSet(i, word, (word >>> 1) & RESET_MASK);
+		}
+		additions.addAndGet(-sampleSize / 2);
+	}
+
+	private int indexOf(int item, int i) {
+		long hash = (item + SEED[i]) * SEED[i];
+		hash += hash >>> 32;
+		return ((int) hash) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
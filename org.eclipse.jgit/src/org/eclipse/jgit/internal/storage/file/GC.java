@@ -14,10 +14,13 @@
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.KEEP;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.PACK;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.REVERSE_INDEX;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -40,6 +43,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +58,7 @@
 import java.util.stream.Stream;
 
 import org.eclipse.jgit.annotations.NonNull;
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.CancelledException;
 import org.eclipse.jgit.errors.CorruptObjectException;
@@ -61,10 +66,18 @@
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
+import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndexLoader;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndexWriter;
+import org.eclipse.jgit.internal.storage.pack.MultiPackBitmapIndexWriter;
+import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
@@ -84,6 +97,7 @@
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.BlockList;
 import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.GitDateParser;
 import org.eclipse.jgit.util.SystemReader;
@@ -119,6 +133,9 @@ public class GC {
 
 	private static final String KEEP_EXT = "." + PackExt.KEEP.getExtension(); //$NON-NLS-1$
 
+	private static final String REVERSE_INDEX_EXT = "." //$NON-NLS-1$
+			+ PackExt.REVERSE_INDEX.getExtension();
+
 	private static final int DEFAULT_AUTOPACKLIMIT = 50;
 
 	private static final int DEFAULT_AUTOLIMIT = 6700;
@@ -196,6 +213,11 @@ public GC(FileRepository repo) {
 	 * <li>repack all reachable objects into new pack files and delete the old
 	 * pack files</li>
 	 * <li>prune all loose objects which are now reachable by packs</li>
+	 * <li>write a commit-graph if {@code gc.writeCommitGraph} and
+	 * {@code core.commitGraph} are enabled</li>
+	 * <li>write a multi-pack-index if {@code gc.writeMultiPackIndex} and
+	 * {@code core.multiPackIndex} are enabled, with bitmaps if
+	 * {@code pack.buildBitmaps} is enabled</li>
 	 * </ul>
 	 *
 	 * If {@link #setAuto(boolean)} was set to {@code true} {@code gc} will
@@ -838,7 +860,7 @@ public Collection<Pack> repack() throws IOException {
 		Pack heads = null;
 		if (!allHeadsAndTags.isEmpty()) {
 			heads = writePack(allHeadsAndTags, PackWriter.NONE, allTags,
-					tagTargets, excluded);
+					tagTargets, excluded, refsBefore);
 			if (heads != null) {
 				ret.add(heads);
 				excluded.add(0, heads.getIndex());
@@ -846,13 +868,13 @@ public Collection<Pack> repack() throws IOException {
 		}
 		if (!nonHeads.isEmpty()) {
 			Pack rest = writePack(nonHeads, allHeadsAndTags, PackWriter.NONE,
-					tagTargets, excluded);
+					tagTargets, excluded, refsBefore);
 			if (rest != null)
 				ret.add(rest);
 		}
 		if (!txnHeads.isEmpty()) {
 			Pack txn = writePack(txnHeads, PackWriter.NONE, PackWriter.NONE,
-					null, excluded);
+					null, excluded, refsBefore);
 			if (txn != null)
 				ret.add(txn);
 		}
@@ -872,11 +894,261 @@ public Collection<Pack> repack() throws IOException {
 		deleteOrphans();
 		deleteTempPacksIdx();
 
+		if (shouldWriteMultiPackIndexWhenGc()) {
+			writeMultiPackIndex();
+		} else {
+			// An existing multi-pack-index lists the packs deleted above.
+			deleteMultiPackIndex();
+		}
+
+		if (shouldWriteCommitGraphWhenGc()) {
+			writeCommitGraph(refsToObjectIds(refsBefore));
+		}
+
 		lastPackedRefs = refsBefore;
 		lastRepackTime = time;
 		return ret;
 	}
 
+	private static Set<ObjectId> refsToObjectIds(Collection<Ref> refs) {
+		Set<ObjectId> objectIds = new HashSet<>();
+		for (Ref ref : refs) {
+			if (ref.getPeeledObjectId() != null) {
+				objectIds.add(ref.getPeeledObjectId());
+				continue;
+			}
+
+			if (ref.getObjectId() != null) {
+				objectIds.add(ref.getObjectId());
+			}
+		}
+		return objectIds;
+	}
+
+	/**
+	 * Generate a new commit-graph file when
+	 * {@link ConfigConstants#CONFIG_KEY_WRITE_COMMIT_GRAPH} is enabled.
+	 * <p>
+	 * The commit-graph lists all commits reachable from {@code wants} and
+	 * replaces any existing {@code objects/info/commit-graph} file. If
+	 * {@link ConfigConstants#CONFIG_KEY_WRITE_CHANGED_PATHS} is enabled it
+	 * also holds changed-path Bloom filters for path-limited walks.
+	 *
+	 * @param wants
+	 *            the list of wanted objects, writer walks commits starting at
+	 *            these. Must not be {@code null}.
+	 * @throws IOException
+	 *             if the commit-graph cannot be written.
+	 * @since 6.5
+	 */
+	public void writeCommitGraph(@NonNull Set<? extends ObjectId> wants)
+			throws IOException {
+		checkCancelled();
+		if (wants.isEmpty()) {
+			return;
+		}
+		File tmpCommitGraphFile = null;
+		try (RevWalk walk = new RevWalk(repo)) {
+			CommitGraphWriter writer = new CommitGraphWriter(
+					GraphCommits.fromWalk(pm, wants, walk),
+					repo.getConfig().getBoolean(
+							ConfigConstants.CONFIG_GC_SECTION,
+							ConfigConstants.CONFIG_KEY_WRITE_CHANGED_PATHS,
+							false));
+			checkCancelled();
+			// write the commit-graph file
+			File commitGraphFile = new File(repo.getObjectsDirectory(),
+					Constants.INFO_COMMIT_GRAPH);
+			FileUtils.mkdirs(commitGraphFile.getParentFile(), true);
+			tmpCommitGraphFile = File.createTempFile("gc_", //$NON-NLS-1$
+					".commit-graph_tmp", commitGraphFile.getParentFile()); //$NON-NLS-1$
+			try (FileOutputStream fos = new FileOutputStream(
+					tmpCommitGraphFile);
+					FileChannel channel = fos.getChannel();
+					OutputStream channelStream = Channels
+							.newOutputStream(channel)) {
+				writer.write(pm, channelStream);
+				channel.force(true);
+			}
+			if (tmpCommitGraphFile.length() == 0) {
+				// none of the wanted objects lead to a commit
+				return;
+			}
+
+			// rename the temporary file to real file
+			tmpCommitGraphFile.setReadOnly();
+			FileUtils.rename(tmpCommitGraphFile, commitGraphFile,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			if (tmpCommitGraphFile != null && tmpCommitGraphFile.exists()) {
+				tmpCommitGraphFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Generate a new multi-pack-index covering all packs of the repository.
+	 * <p>
+	 * The multi-pack-index replaces any existing
+	 * {@code objects/pack/multi-pack-index} file. Packs added later, e.g. by a
+	 * fetch, are not covered until this method is called again, which is much
+	 * cheaper than repacking as no object is copied. If there are no packs an
+	 * existing multi-pack-index is deleted.
+	 * <p>
+	 * If bitmaps are enabled in the pack configuration, bitmaps of the commits
+	 * reachable from refs are written to
+	 * {@code objects/pack/multi-pack-index.bitmap}, so that bitmaps still
+	 * speed up counting objects when they are spread over several packs.
+	 *
+	 * @throws IOException
+	 *             if the multi-pack-index cannot be written.
+	 * @since 6.5
+	 */
+	public void writeMultiPackIndex() throws IOException {
+		checkCancelled();
+		Map<String, PackIndex> indexes = new LinkedHashMap<>();
+		Map<String, Pack> packs = new HashMap<>();
+		// Packs are sorted newest first, prefer them for duplicate objects.
+		for (Pack p : repo.getObjectDatabase().getPacks()) {
+			String name = p.getPackFile().create(INDEX).getName();
+			indexes.put(name, p.getIndex());
+			packs.put(name, p);
+		}
+		if (indexes.isEmpty()) {
+			deleteMultiPackIndex();
+			return;
+		}
+
+		File packDir = repo.getObjectDatabase().getPackDirectory();
+		File midxFile = new File(packDir, Constants.MULTI_PACK_INDEX);
+		File bitmapFile = new File(packDir,
+				Constants.MULTI_PACK_INDEX_BITMAP);
+		File tmpMidxFile = null;
+		File tmpBitmapFile = null;
+		try {
+			MultiPackIndexWriter writer = new MultiPackIndexWriter(indexes);
+			tmpMidxFile = File.createTempFile("gc_", ".midx_tmp", packDir); //$NON-NLS-1$ //$NON-NLS-2$
+			try (FileOutputStream fos = new FileOutputStream(tmpMidxFile);
+					FileChannel channel = fos.getChannel();
+					OutputStream channelStream = Channels
+							.newOutputStream(channel)) {
+				writer.write(pm, channelStream);
+				channel.force(true);
+			}
+
+			if (pconfig.isBuildBitmaps()) {
+				MultiPackIndex midx;
+				// Read into the heap, a mapped file cannot be renamed on
+				// Windows.
+				try (InputStream in = new FileInputStream(tmpMidxFile)) {
+					midx = MultiPackIndexLoader.read(in);
+				}
+				MultiPackBitmapIndexWriter bitmapWriter = prepareMultiPackBitmap(
+						midx, packs);
+				if (bitmapWriter != null) {
+					tmpBitmapFile = File.createTempFile("gc_", //$NON-NLS-1$
+							".midx_bitmap_tmp", packDir); //$NON-NLS-1$
+					try (FileOutputStream fos = new FileOutputStream(
+							tmpBitmapFile);
+							FileChannel channel = fos.getChannel();
+							OutputStream channelStream = Channels
+									.newOutputStream(channel)) {
+						bitmapWriter.writeBitmapIndex(channelStream,
+								midx.getChecksum());
+						channel.force(true);
+					}
+				}
+			}
+
+			// Install the bitmaps first, readers ignore them until the
+			// multi-pack-index they were written for is in place.
+			if (tmpBitmapFile != null) {
+				tmpBitmapFile.setReadOnly();
+				FileUtils.rename(tmpBitmapFile, bitmapFile,
+						StandardCopyOption.ATOMIC_MOVE);
+			} else {
+				FileUtils.delete(bitmapFile,
+						FileUtils.RETRY | FileUtils.SKIP_MISSING);
+			}
+			tmpMidxFile.setReadOnly();
+			FileUtils.rename(tmpMidxFile, midxFile,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			if (tmpMidxFile != null && tmpMidxFile.exists()) {
+				tmpMidxFile.delete();
+			}
+			if (tmpBitmapFile != null && tmpBitmapFile.exists()) {
+				tmpBitmapFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Compute the bitmaps of a multi-pack-index.
+	 *
+	 * @param midx
+	 *            the multi-pack-index.
+	 * @param packs
+	 *            the packs covered by {@code midx}, by index file name.
+	 * @return the writer holding the bitmaps, or null if no ref points into
+	 *         {@code midx} or some objects reachable from refs are not
+	 *         covered by it.
+	 * @throws IOException
+	 *             if the packs cannot be read.
+	 */
+	@Nullable
+	private MultiPackBitmapIndexWriter prepareMultiPackBitmap(
+			MultiPackIndex midx, Map<String, Pack> packs) throws IOException {
+		MultiPackReverseIndex reverseIndex = new MultiPackReverseIndex(midx);
+		String[] names = midx.getPackNames();
+		int cnt = midx.getObjectCount();
+		List<ObjectToPack> objects = new BlockList<>(cnt);
+		try (WindowCursor curs = new WindowCursor(repo.getObjectDatabase())) {
+			for (int i = 0; i < cnt; i++) {
+				Pack pack = packs.get(names[midx.getPackId(i)]);
+				ObjectToPack otp = new ObjectToPack(midx.getObjectId(i),
+						pack.getObjectType(curs, midx.getOffset(i)));
+				otp.setOffset(reverseIndex.getBitPosition(i));
+				objects.add(otp);
+			}
+			checkCancelled();
+
+			Set<ObjectId> want = new HashSet<>();
+			for (ObjectId id : refsToObjectIds(getAllRefs())) {
+				if (midx.findPosition(id) >= 0) {
+					want.add(id);
+				}
+			}
+			if (want.isEmpty()) {
+				return null;
+			}
+			MultiPackBitmapIndexWriter writer = new MultiPackBitmapIndexWriter(
+					curs, pconfig);
+			return writer.prepareBitmapIndex(pm, objects, want) ? writer
+					: null;
+		}
+	}
+
+	private void deleteMultiPackIndex() throws IOException {
+		File packDir = repo.getObjectDatabase().getPackDirectory();
+		FileUtils.delete(new File(packDir, Constants.MULTI_PACK_INDEX),
+				FileUtils.RETRY | FileUtils.SKIP_MISSING);
+		FileUtils.delete(new File(packDir, Constants.MULTI_PACK_INDEX_BITMAP),
+				FileUtils.RETRY | FileUtils.SKIP_MISSING);
+	}
+
+	private boolean shouldWriteMultiPackIndexWhenGc() {
+		return repo.getConfig().getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_WRITE_MULTI_PACK_INDEX, false)
+				&& repo.getConfig().get(CoreConfig.KEY).enableMultiPackIndex();
+	}
+
+	private boolean shouldWriteCommitGraphWhenGc() {
+		return repo.getConfig().getBoolean(ConfigConstants.CONFIG_GC_SECTION,
+				ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, false)
+				&& repo.getConfig().get(CoreConfig.KEY).enableCommitGraph();
+	}
+
 	private static boolean isHead(Ref ref) {
 		return ref.getName().startsWith(Constants.R_HEADS);
 	}
@@ -940,8 +1212,9 @@ private void delete(Path d) {
 	/**
 	 * Deletes orphans
 	 * <p>
-	 * A file is considered an orphan if it is either a "bitmap" or an index
-	 * file, and its corresponding pack file is missing in the list.
+	 * A file is considered an orphan if it is either a "bitmap", a reverse
+	 * index or an index file, and its corresponding pack file is missing in
+	 * the list.
 	 * </p>
 	 */
 	private void deleteOrphans() {
@@ -952,10 +1225,15 @@ private void deleteOrphans() {
 					.filter(name -> (name.endsWith(PACK_EXT)
 							|| name.endsWith(BITMAP_EXT)
 							|| name.endsWith(INDEX_EXT)
+							|| name.endsWith(REVERSE_INDEX_EXT)
 							|| name.endsWith(KEEP_EXT)))
-					// sort files with same base name in the order:
-					// .pack, .keep, .index, .bitmap to avoid look ahead
-					.sorted(Collections.reverseOrder())
+					// sort files with same base name so that .pack and .keep
+					// come first, to avoid look ahead
+					.sorted(Comparator
+							.comparing((String name) -> name.substring(0,
+									name.lastIndexOf('.')))
+							.thenComparing(name -> !name.endsWith(PACK_EXT)
+									&& !name.endsWith(KEEP_EXT)))
 					.collect(Collectors.toList());
 		} catch (IOException e) {
 			LOG.error(e.getMessage(), e);
@@ -1124,8 +1402,8 @@ private Set<ObjectId> listNonHEADIndexObjects()
 
 	private Pack writePack(@NonNull Set<? extends ObjectId> want,
 			@NonNull Set<? extends ObjectId> have, @NonNull Set<ObjectId> tags,
-			Set<ObjectId> tagTargets, List<ObjectIdSet> excludeObjects)
-			throws IOException {
+			Set<ObjectId> tagTargets, List<ObjectIdSet> excludeObjects,
+			Collection<Ref> refs) throws IOException {
 		checkCancelled();
 		File tmpPack = null;
 		Map<PackExt, File> tmpExts = new TreeMap<>((o1, o2) -> {
@@ -1152,6 +1430,7 @@ private Pack writePack(@NonNull Set<? extends ObjectId> want,
 			if (tagTargets != null) {
 				pw.setTagTargets(tagTargets);
 			}
+			pw.setDeltaIslandRefs(refs);
 			if (excludeObjects != null)
 				for (ObjectIdSet idx : excludeObjects)
 					pw.excludeObjects(idx);
@@ -1192,6 +1471,24 @@ private Pack writePack(@NonNull Set<? extends ObjectId> want,
 				idxChannel.force(true);
 			}
 
+			if (pconfig.isWriteReverseIndex()) {
+				File tmpReverseIdx = new File(packdir, tmpBase + ".rev_tmp"); //$NON-NLS-1$
+				tmpExts.put(REVERSE_INDEX, tmpReverseIdx);
+
+				if (!tmpReverseIdx.createNewFile())
+					throw new IOException(MessageFormat.format(
+							JGitText.get().cannotCreateIndexfile,
+							tmpReverseIdx.getPath()));
+
+				try (FileOutputStream fos = new FileOutputStream(tmpReverseIdx);
+						FileChannel idxChannel = fos.getChannel();
+						OutputStream idxStream = Channels
+								.newOutputStream(idxChannel)) {
+					pw.writeReverseIndex(idxStream);
+					idxChannel.force(true);
+				}
+			}
+
 			if (pw.prepareBitmapIndex(pm)) {
 				File tmpBitmapIdx = new File(packdir, tmpBase + ".bitmap_tmp"); //$NON-NLS-1$
 				tmpExts.put(BITMAP_INDEX, tmpBitmapIdx);
@@ -13,6 +13,8 @@
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jgit.internal.storage.pack.CachedPack;
@@ -21,7 +23,16 @@
 import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 import org.eclipse.jgit.internal.storage.pack.StoredObjectRepresentation;
 
-class LocalCachedPack extends CachedPack {
+/**
+ * Cached pack of a {@link FileRepository}, made of whole pack files.
+ * <p>
+ * A {@link org.eclipse.jgit.internal.storage.pack.CachedPackUriProvider} can
+ * use {@link #getPacks()} to offer the pack files to clients for download,
+ * for example by {@link LocalCachedPackUriProvider}.
+ *
+ * @since 6.5
+ */
+public class LocalCachedPack extends CachedPack {
 	private final ObjectDirectory odb;
 
 	private final String[] packNames;
@@ -69,14 +80,21 @@ public boolean hasObject(ObjectToPack obj, StoredObjectRepresentation rep) {
 		}
 	}
 
-	private Pack[] getPacks() throws FileNotFoundException {
+	/**
+	 * Get the pack files of this cached pack.
+	 *
+	 * @return the pack files, in the order they are sent to clients.
+	 * @throws java.io.FileNotFoundException
+	 *             a pack file was removed from the repository.
+	 */
+	public List<Pack> getPacks() throws FileNotFoundException {
 		if (packs == null) {
 			Pack[] p = new Pack[packNames.length];
 			for (int i = 0; i < packNames.length; i++)
 				p[i] = getPackFile(packNames[i]);
 			packs = p;
 		}
-		return packs;
+		return Collections.unmodifiableList(Arrays.asList(packs));
 	}
 
 	private Pack getPackFile(String packName) throws FileNotFoundException {
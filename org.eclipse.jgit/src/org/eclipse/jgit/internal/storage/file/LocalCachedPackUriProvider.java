@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.internal.storage.pack.CachedPack;
+import org.eclipse.jgit.internal.storage.pack.CachedPackUriProvider;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Offers the pack files of a {@link FileRepository} for download from a
+ * static file server.
+ * <p>
+ * The pack directory of the repository ({@code objects/pack}) must be served
+ * at a base URI, for example by a CDN or a plain HTTP server mirroring it. A
+ * cached pack made of a single pack file is then offered to clients as the
+ * URI of that file, so clones download the bulk of the repository from the
+ * file server instead of receiving it from
+ * {@link org.eclipse.jgit.transport.UploadPack}.
+ * <p>
+ * Offered pack files must remain available at their URI for as long as
+ * clients may download them, also after they are removed from the
+ * repository by a repack.
+ *
+ * @since 6.5
+ */
+public class LocalCachedPackUriProvider implements CachedPackUriProvider {
+	private final String baseUri;
+
+	private final String protocol;
+
+	/**
+	 * Create a provider for pack files served at a base URI.
+	 *
+	 * @param baseUri
+	 *            URI the pack directory is served at, e.g.
+	 *            {@code https://cdn.example.com/repo.git/objects/pack/}. The
+	 *            name of a pack file is appended to it.
+	 */
+	public LocalCachedPackUriProvider(String baseUri) {
+		this.baseUri = baseUri.endsWith("/") ? baseUri : baseUri + '/'; //$NON-NLS-1$
+		int colon = baseUri.indexOf(':');
+		this.protocol = colon > 0 ? baseUri.substring(0, colon) : baseUri;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@Nullable
+	public PackInfo getInfo(CachedPack pack,
+			Collection<String> protocolsSupported) throws IOException {
+		if (!(pack instanceof LocalCachedPack)
+				|| !protocolsSupported.contains(protocol)) {
+			return null;
+		}
+		List<Pack> packs = ((LocalCachedPack) pack).getPacks();
+		if (packs.size() != 1) {
+			// A URI stands for exactly one pack file.
+			return null;
+		}
+		Pack p = packs.get(0);
+		PackFile file = p.getPackFile();
+		String hash = ObjectId.fromRaw(p.getIndex().getChecksum()).name();
+		return new PackInfo(hash, baseUri + file.getName(), file.length());
+	}
+}
@@ -16,7 +16,8 @@
 import org.eclipse.jgit.lib.ObjectId;
 
 class LocalObjectRepresentation extends StoredObjectRepresentation {
-	static LocalObjectRepresentation newWhole(Pack pack, long offset, long length) {
+	static LocalObjectRepresentation newWhole(Pack pack, long offset, long length,
+			long end) {
 		LocalObjectRepresentation r = new LocalObjectRepresentation() {
 			@Override
 			public int getFormat() {
@@ -26,25 +27,28 @@ public int getFormat() {
 		r.pack = pack;
 		r.offset = offset;
 		r.length = length;
+		r.end = end;
 		return r;
 	}
 
 	static LocalObjectRepresentation newDelta(Pack pack, long offset, long length,
-			ObjectId base) {
+			long end, ObjectId base) {
 		LocalObjectRepresentation r = new Delta();
 		r.pack = pack;
 		r.offset = offset;
 		r.length = length;
+		r.end = end;
 		r.baseId = base;
 		return r;
 	}
 
 	static LocalObjectRepresentation newDelta(Pack pack, long offset, long length,
-			long base) {
+			long end, long base) {
 		LocalObjectRepresentation r = new Delta();
 		r.pack = pack;
 		r.offset = offset;
 		r.length = length;
+		r.end = end;
 		r.baseOffset = base;
 		return r;
 	}
@@ -55,7 +59,9 @@ static LocalObjectRepresentation newDelta(Pack pack, long offset, long length,
 
 	long length;
 
-	private long baseOffset;
+	long end;
+
+	long baseOffset;
 
 	private ObjectId baseId;
 
@@ -25,6 +25,12 @@ class LocalObjectToPack extends ObjectToPack {
 	/** Length of the data section of the object. */
 	long length;
 
+	/** Offset just past the end of the object in {@link #pack}. */
+	long end;
+
+	/** Offset of the delta base in {@link #pack} if stored by offset, else 0. */
+	long baseOffset;
+
 	LocalObjectToPack(AnyObjectId src, int type) {
 		super(src, type);
 	}
@@ -43,5 +49,7 @@ public void select(StoredObjectRepresentation ref) {
 		this.pack = ptr.pack;
 		this.offset = ptr.offset;
 		this.length = ptr.length;
+		this.end = ptr.end;
+		this.baseOffset = ptr.baseOffset;
 	}
 }
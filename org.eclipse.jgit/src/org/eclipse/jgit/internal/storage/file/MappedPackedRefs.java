@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_STRING_LENGTH;
+import static org.eclipse.jgit.lib.Ref.Storage.PACKED;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.errors.InvalidObjectIdException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.eclipse.jgit.util.RefList;
+import org.eclipse.jgit.util.SystemReader;
+
+/**
+ * Read-only view of a sorted {@code packed-refs} file, searched in place.
+ * <p>
+ * Opening the file only checks its header. References are located by binary
+ * search over the raw bytes and {@link Ref} objects are created on demand, so
+ * looking up one reference costs a few dozen line reads no matter how many
+ * references the file holds.
+ * <p>
+ * Only files whose header declares the {@code sorted} trait can be searched;
+ * for other files {@link #isSearchable()} is false and the caller has to
+ * parse them completely. Like {@link PackReverseIndexFactory} the file is
+ * memory-mapped except on Windows, where it is read into the heap so it can
+ * still be replaced while this view is in use.
+ */
+class MappedPackedRefs {
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private static final MappedPackedRefs MISSING = new MappedPackedRefs(
+			null, FileSnapshot.MISSING_FILE, EMPTY, 0, false, true);
+
+	private final File file;
+
+	private final FileSnapshot snapshot;
+
+	private final ByteBuffer buf;
+
+	/** Offset of the first reference, after the header. */
+	private final int start;
+
+	private final int end;
+
+	private final boolean peeled;
+
+	private final boolean searchable;
+
+	private MappedPackedRefs(File file, FileSnapshot snapshot, ByteBuffer buf,
+			int start, boolean peeled, boolean searchable) {
+		this.file = file;
+		this.snapshot = snapshot;
+		this.buf = buf;
+		this.start = start;
+		this.end = buf.limit();
+		this.peeled = peeled;
+		this.searchable = searchable;
+	}
+
+	/**
+	 * Open a {@code packed-refs} file.
+	 *
+	 * @param packedRefsFile
+	 *            the file to open.
+	 * @return the view of the file, or an empty view if the file does not
+	 *         exist.
+	 * @throws IOException
+	 *             the file could not be read.
+	 */
+	static MappedPackedRefs open(File packedRefsFile) throws IOException {
+		try {
+			MappedPackedRefs result = FileUtils.readWithRetries(packedRefsFile,
+					MappedPackedRefs::read);
+			return result != null ? result : MISSING;
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(MessageFormat
+					.format(JGitText.get().cannotReadFile, packedRefsFile), e);
+		}
+	}
+
+	private static MappedPackedRefs read(File f) throws IOException {
+		FileSnapshot snapshot = FileSnapshot.save(f);
+		ByteBuffer buf;
+		try (FileInputStream in = new FileInputStream(f)) {
+			FileChannel fc = in.getChannel();
+			long size = fc.size();
+			if (size > Integer.MAX_VALUE) {
+				return new MappedPackedRefs(f, snapshot, EMPTY, 0, false,
+						false);
+			}
+			if (SystemReader.getInstance().isWindows()) {
+				buf = ByteBuffer.allocate((int) size);
+				while (buf.hasRemaining()) {
+					if (fc.read(buf) < 0) {
+						break;
+					}
+				}
+				buf.flip();
+			} else {
+				buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+		}
+
+		boolean peeled = false;
+		boolean sorted = false;
+		int ptr = 0;
+		while (ptr < buf.limit() && buf.get(ptr) == '#') {
+			int eol = endOfLine(buf, ptr);
+			String line = RawParseUtils.decode(copy(buf, ptr, eol));
+			if (line.startsWith(RefDirectory.PACKED_REFS_HEADER)) {
+				line = line.substring(RefDirectory.PACKED_REFS_HEADER.length());
+				peeled = line.contains(RefDirectory.PACKED_REFS_PEELED);
+				sorted = line.contains(RefDirectory.PACKED_REFS_SORTED);
+			}
+			ptr = eol + 1;
+		}
+		if (!sorted) {
+			return new MappedPackedRefs(f, snapshot, EMPTY, 0, false, false);
+		}
+		return new MappedPackedRefs(f, snapshot, buf,
+				Math.min(ptr, buf.limit()), peeled, true);
+	}
+
+	/**
+	 * Get the snapshot of the file taken before it was read.
+	 *
+	 * @return the snapshot of the file taken before it was read.
+	 */
+	FileSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Whether references can be looked up in this view.
+	 *
+	 * @return true if the file is sorted and could be mapped; false if the
+	 *         caller has to parse the file completely instead.
+	 */
+	boolean isSearchable() {
+		return searchable;
+	}
+
+	/**
+	 * Look up a reference.
+	 *
+	 * @param name
+	 *            name of the reference.
+	 * @return the reference, or null if the file does not contain it.
+	 * @throws IOException
+	 *             the file is corrupt.
+	 */
+	@Nullable
+	Ref get(String name) throws IOException {
+		int rec = lowerBound(name);
+		if (rec < end && name.equals(nameAt(rec))) {
+			return parse(rec);
+		}
+		return null;
+	}
+
+	/**
+	 * Get all references starting with a prefix.
+	 *
+	 * @param prefix
+	 *            prefix of the reference names.
+	 * @return the references, sorted by name.
+	 * @throws IOException
+	 *             the file is corrupt.
+	 */
+	RefList<Ref> getRefs(String prefix) throws IOException {
+		RefList.Builder<Ref> refs = new RefList.Builder<>();
+		for (int rec = lowerBound(prefix); rec < end; rec = nextRecord(rec)) {
+			if (!nameAt(rec).startsWith(prefix)) {
+				break;
+			}
+			refs.add(parse(rec));
+		}
+		return refs.toRefList();
+	}
+
+	/**
+	 * Find the first record whose name is not less than {@code name}.
+	 *
+	 * @return offset of the record, or {@link #end} if there is none.
+	 */
+	private int lowerBound(String name) throws IOException {
+		int low = start;
+		int high = end;
+		while (low < high) {
+			int rec = recordStart((low + high) >>> 1);
+			if (nameAt(rec).compareTo(name) < 0) {
+				low = nextRecord(rec);
+			} else {
+				high = rec;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Find the record containing a byte. Records start at a line which is
+	 * not a peeled line; {@link #start} is always a record start.
+	 */
+	private int recordStart(int ptr) {
+		int line = lineStart(ptr);
+		if (line > start && buf.get(line) == '^') {
+			line = lineStart(line - 1);
+		}
+		return line;
+	}
+
+	private int lineStart(int ptr) {
+		while (ptr > start && buf.get(ptr - 1) != '\n') {
+			ptr--;
+		}
+		return ptr;
+	}
+
+	private int nextRecord(int rec) {
+		int next = endOfLine(buf, rec) + 1;
+		if (next < end && buf.get(next) == '^') {
+			next = endOfLine(buf, next) + 1;
+		}
+		return Math.min(next, end);
+	}
+
+	private String nameAt(int rec) throws IOException {
+		int eol = endOfLine(buf, rec);
+		int nameStart = rec + OBJECT_ID_STRING_LENGTH + 1;
+		if (eol < nameStart || buf.get(nameStart - 1) != ' ') {
+			throw corrupt();
+		}
+		return RawParseUtils.decode(copy(buf, nameStart, eol));
+	}
+
+	private Ref parse(int rec) throws IOException {
+		String name = nameAt(rec);
+		try {
+			ObjectId id = ObjectId.fromString(
+					copy(buf, rec, rec + OBJECT_ID_STRING_LENGTH), 0);
+			int next = endOfLine(buf, rec) + 1;
+			if (next < end && buf.get(next) == '^') {
+				if (endOfLine(buf, next) < next + 1 + OBJECT_ID_STRING_LENGTH) {
+					throw corrupt();
+				}
+				ObjectId peeledId = ObjectId.fromString(
+						copy(buf, next + 1, next + 1 + OBJECT_ID_STRING_LENGTH),
+						0);
+				return new ObjectIdRef.PeeledTag(PACKED, name, id, peeledId);
+			}
+			if (peeled) {
+				return new ObjectIdRef.PeeledNonTag(PACKED, name, id);
+			}
+			return new ObjectIdRef.Unpeeled(PACKED, name, id);
+		} catch (InvalidObjectIdException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	private IOException corrupt() {
+		return new IOException(MessageFormat.format(
+				JGitText.get().packedRefsCorruptionDetected,
+				file.getAbsolutePath()));
+	}
+
+	private static int endOfLine(ByteBuffer buf, int ptr) {
+		int limit = buf.limit();
+		while (ptr < limit && buf.get(ptr) != '\n') {
+			ptr++;
+		}
+		return ptr;
+	}
+
+	private static byte[] copy(ByteBuffer buf, int from, int to) {
+		byte[] b = new byte[to - from];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = buf.get(from + i);
+		}
+		return b;
+	}
+}
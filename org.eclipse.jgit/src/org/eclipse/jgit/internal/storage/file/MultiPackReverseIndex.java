@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Orders the objects of a multi-pack-index as if all covered packs were
+ * concatenated, by pack id and then by offset within the pack.
+ * <p>
+ * Bitmaps of a multi-pack-index use this order rather than the lexicographic
+ * order of the index itself: objects written close together in a pack tend
+ * to be reachable from the same commits, so the bitmaps compress about as
+ * well as the bitmaps of a single pack.
+ */
+class MultiPackReverseIndex implements PackBitmapIndexV1.ObjectPositions {
+	private final MultiPackIndex midx;
+
+	/** Position in {@link #midx} of the object at each bit position. */
+	private final int[] midxPositions;
+
+	/** Bit position of the object at each position in {@link #midx}. */
+	private final int[] bitPositions;
+
+	MultiPackReverseIndex(MultiPackIndex midx) {
+		this.midx = midx;
+		int cnt = midx.getObjectCount();
+		int[] start = new int[midx.getPackNames().length + 1];
+		for (int i = 0; i < cnt; i++) {
+			start[midx.getPackId(i) + 1]++;
+		}
+		for (int p = 1; p < start.length; p++) {
+			start[p] += start[p - 1];
+		}
+
+		// Objects sorted by name are already grouped by pack here, but still
+		// need to be sorted by offset within each pack.
+		midxPositions = new int[cnt];
+		int[] next = start.clone();
+		for (int i = 0; i < cnt; i++) {
+			midxPositions[next[midx.getPackId(i)]++] = i;
+		}
+		for (int p = 0; p + 1 < start.length; p++) {
+			sortByOffset(start[p], start[p + 1]);
+		}
+
+		bitPositions = new int[cnt];
+		for (int bit = 0; bit < cnt; bit++) {
+			bitPositions[midxPositions[bit]] = bit;
+		}
+	}
+
+	private void sortByOffset(int from, int to) {
+		int n = to - from;
+		long[] offsets = new long[n];
+		int[] positions = new int[n];
+		for (int i = 0; i < n; i++) {
+			positions[i] = midxPositions[from + i];
+			offsets[i] = midx.getOffset(positions[i]);
+		}
+
+		// Offsets are unique within a pack, so each one's rank in sorted
+		// order is the position of the object in the pack.
+		long[] sorted = offsets.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < n; i++) {
+			int rank = Arrays.binarySearch(sorted, offsets[i]);
+			midxPositions[from + rank] = positions[i];
+		}
+	}
+
+	/**
+	 * Get the bit position of the object at a position in the
+	 * multi-pack-index.
+	 *
+	 * @param midxPosition
+	 *            position of the object in the multi-pack-index.
+	 * @return the bit position of the object.
+	 */
+	int getBitPosition(int midxPosition) {
+		return bitPositions[midxPosition];
+	}
+
+	@Override
+	public int findPosition(AnyObjectId objectId) {
+		int p = midx.findPosition(objectId);
+		return p < 0 ? -1 : bitPositions[p];
+	}
+
+	@Override
+	public ObjectId getObject(int position) {
+		if (position < 0 || position >= midxPositions.length) {
+			return null;
+		}
+		return midx.getObjectId(midxPositions[position]);
+	}
+
+	@Override
+	public int getObjectCount() {
+		return midxPositions.length;
+	}
+}
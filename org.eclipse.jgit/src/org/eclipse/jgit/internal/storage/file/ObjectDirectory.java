@@ -28,10 +28,12 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
@@ -39,6 +41,7 @@
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -83,6 +86,8 @@ public class ObjectDirectory extends FileObjectDatabase {
 
 	private final PackDirectory preserved;
 
+	private final FileCommitGraph fileCommitGraph;
+
 	private final File alternatesFile;
 
 	private final FS fs;
@@ -124,6 +129,7 @@ public ObjectDirectory(final Config cfg, final File dir,
 		loose = new LooseObjects(objects);
 		packed = new PackDirectory(config, packDirectory);
 		preserved = new PackDirectory(config, preservedDirectory);
+		fileCommitGraph = new FileCommitGraph(objects);
 		this.fs = fs;
 		this.shallowFile = shallowFile;
 
@@ -227,6 +233,32 @@ public long getApproximateObjectCount() {
 		return count;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The commit-graph is only consulted if {@code core.commitGraph} is
+	 * enabled. It is re-read whenever the file on disk has been modified.
+	 */
+	@Override
+	Optional<CommitGraph> getCommitGraph() {
+		if (config.get(CoreConfig.KEY).enableCommitGraph()) {
+			return Optional.ofNullable(fileCommitGraph.get());
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The bitmaps are only used while the multi-pack-index covers more than
+	 * one pack and all of its packs are still present, otherwise the bitmap
+	 * of a single pack is preferred.
+	 */
+	@Override
+	PackBitmapIndex getMultiPackBitmapIndex() {
+		return packed.getMultiPackBitmapIndex();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -94,11 +94,18 @@ public class ObjectDirectoryPackParser extends PackParser {
 
 	private PackConfig pconfig;
 
+	/** Sorts the objects for the index on disk, if the pack is large. */
+	private SpillingObjectSorter sorter;
+
+	/** Whether all objects of the incoming stream were read. */
+	private boolean endOfInput;
+
 	ObjectDirectoryPackParser(FileObjectDatabase odb, InputStream src) {
 		super(odb, src);
 		this.db = odb;
 		this.pconfig = new PackConfig(odb.getConfig());
 		this.crc = new CRC32();
+		setThreads(pconfig.getIndexThreads());
 		this.tailDigest = Constants.newMessageDigest();
 
 		indexVersion = db.getConfig().get(CoreConfig.KEY).getPackIndexVersion();
@@ -196,7 +203,10 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 	/** {@inheritDoc} */
 	@Override
 	protected void onPackHeader(long objectCount) throws IOException {
-		// Ignored, the count is not required.
+		int threshold = pconfig.getIndexSpillThreshold();
+		if (0 < threshold && threshold < objectCount) {
+			sorter = new SpillingObjectSorter(db.getDirectory(), threshold);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -210,6 +220,9 @@ protected void onBeginWholeObject(long streamPosition, int type,
 	@Override
 	protected void onEndWholeObject(PackedObjectInfo info) throws IOException {
 		info.setCRC((int) crc.getValue());
+		if (sorter != null) {
+			sorter.add(info);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -238,7 +251,11 @@ protected UnresolvedDelta onEndDelta() throws IOException {
 	@Override
 	protected void onInflatedObjectData(PackedObjectInfo obj, int typeCode,
 			byte[] data) throws IOException {
-		// ObjectDirectory ignores this event.
+		// Whole objects were added by onEndWholeObject, after the input
+		// this event only reports resolved deltas.
+		if (sorter != null && endOfInput) {
+			sorter.add(obj);
+		}
 	}
 
 	/** {@inheritDoc} */
@@ -265,6 +282,7 @@ protected void onStoreStream(byte[] raw, int pos, int len)
 	/** {@inheritDoc} */
 	@Override
 	protected void onPackFooter(byte[] hash) throws IOException {
+		endOfInput = true;
 		packEnd = out.getFilePointer();
 		origEnd = packEnd;
 		origHash = hash;
@@ -295,6 +313,30 @@ protected int readDatabase(byte[] dst, int pos, int cnt) throws IOException {
 		return out.read(dst, pos, cnt);
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	protected DatabaseReader newDatabaseReader() throws IOException {
+		// Data is written through the unbuffered out, so another handle
+		// sees everything stored so far.
+		RandomAccessFile file = new RandomAccessFile(tmpPack, "r"); //$NON-NLS-1$
+		return new DatabaseReader() {
+			@Override
+			public void seek(long position) throws IOException {
+				file.seek(position);
+			}
+
+			@Override
+			public int read(byte[] dst, int pos, int cnt) throws IOException {
+				return file.read(dst, pos, cnt);
+			}
+
+			@Override
+			public void close() throws IOException {
+				file.close();
+			}
+		};
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected boolean checkCRC(int oldCRC) {
@@ -307,6 +349,8 @@ private static String baseName(File tmpPack) {
 	}
 
 	private void cleanupTemporaryFiles() {
+		if (sorter != null)
+			sorter.close();
 		if (tmpIdx != null && !tmpIdx.delete() && tmpIdx.exists())
 			tmpIdx.deleteOnExit();
 		if (tmpPack != null && !tmpPack.delete() && tmpPack.exists())
@@ -353,6 +397,9 @@ protected boolean onAppendBase(final int typeCode, final byte[] data,
 		}
 
 		info.setCRC((int) crc.getValue());
+		if (sorter != null) {
+			sorter.add(info);
+		}
 		return true;
 	}
 
@@ -401,7 +448,11 @@ protected void onEndThinPack() throws IOException {
 	}
 
 	private void writeIdx() throws IOException {
-		List<PackedObjectInfo> list = getSortedObjectList(null /* by ObjectId */);
+		List<PackedObjectInfo> list;
+		if (sorter != null)
+			list = sorter.sort();
+		else
+			list = getSortedObjectList(null /* by ObjectId */);
 		try (FileOutputStream os = new FileOutputStream(tmpIdx)) {
 			final PackIndexWriter iw;
 			if (indexVersion <= 0)
@@ -14,6 +14,7 @@
 
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.KEEP;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.REVERSE_INDEX;
 
 import java.io.EOFException;
 import java.io.File;
@@ -21,10 +22,13 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.Arrays;
@@ -273,6 +277,50 @@ ObjectLoader get(WindowCursor curs, AnyObjectId id)
 		return 0 < offset && !isCorrupt(offset) ? load(curs, offset) : null;
 	}
 
+	/**
+	 * Find the offset of an object in this pack.
+	 *
+	 * @param id
+	 *            the object to look for. Must not be null.
+	 * @return offset of the object in this pack; -1 if the object is not in
+	 *         this pack or is known to be corrupt.
+	 * @throws IOException
+	 *             the index file cannot be loaded into memory.
+	 */
+	long findOffset(AnyObjectId id) throws IOException {
+		final long offset = idx().findOffset(id);
+		return hasObject(offset) ? offset : -1;
+	}
+
+	/**
+	 * Determine if an object is contained within the pack file, given its
+	 * offset from an index covering several packs.
+	 *
+	 * @param offset
+	 *            offset of the object in this pack.
+	 * @return true if the object is in this pack; false otherwise.
+	 */
+	boolean hasObject(long offset) {
+		return 0 < offset && !isCorrupt(offset);
+	}
+
+	/**
+	 * Get an object from this pack, given its offset from an index covering
+	 * several packs.
+	 *
+	 * @param curs
+	 *            temporary working space associated with the calling thread.
+	 * @param offset
+	 *            offset of the object in this pack.
+	 * @return the object loader for the requested object, or null if the
+	 *         object is known to be corrupt.
+	 * @throws IOException
+	 *             the pack file could not be read.
+	 */
+	ObjectLoader get(WindowCursor curs, long offset) throws IOException {
+		return hasObject(offset) ? load(curs, offset) : null;
+	}
+
 	void resolve(Set<ObjectId> matches, AbbreviatedObjectId id, int matchLimit)
 			throws IOException {
 		idx().resolve(matches, id, matchLimit);
@@ -380,6 +428,38 @@ void copyPackAsIs(PackOutputStream out, WindowCursor curs)
 		curs.copyPackAsIs(this, length, out);
 	}
 
+	/**
+	 * Open a channel to send regions of this pack with transferTo.
+	 * <p>
+	 * The channel is separate from the one used for reading, as interrupting
+	 * a thread blocked in a transfer closes the channel.
+	 *
+	 * @return the channel; must be closed by the caller.
+	 * @throws IOException
+	 *             the pack cannot be opened, or was replaced.
+	 */
+	FileChannel openTransferChannel() throws IOException {
+		FileChannel ch = FileChannel.open(packFile.toPath(),
+				StandardOpenOption.READ);
+		if (ch.size() != length) {
+			ch.close();
+			throw new PackMismatchException(MessageFormat.format(
+					JGitText.get().packfileIsTruncated, getPackFile()));
+		}
+		return ch;
+	}
+
+	void copyRunAsIs(PackOutputStream out, long begin, long end,
+			WindowCursor curs) throws IOException,
+			StoredObjectRepresentationNotAvailableException {
+		beginCopyAsIs();
+		try {
+			curs.copyAsIs(this, begin, end, out);
+		} finally {
+			endCopyAsIs();
+		}
+	}
+
 	final void copyAsIs(PackOutputStream out, LocalObjectToPack src,
 			boolean validate, WindowCursor curs) throws IOException,
 			StoredObjectRepresentationNotAvailableException {
@@ -556,6 +636,10 @@ private void copyAsIs2(PackOutputStream out, LocalObjectToPack src,
 			// the verification we did above, and us actually outputting it.
 			//
 			out.writeHeader(src, inflatedLength);
+			if (!validate) {
+				curs.copyAsIs(this, dataOffset, dataOffset + dataLength, out);
+				return;
+			}
 			long pos = dataOffset;
 			long cnt = dataLength;
 			while (cnt > 0) {
@@ -715,6 +799,35 @@ ByteArrayWindow read(long pos, int size) throws IOException {
 		}
 	}
 
+	DirectByteWindow readDirect(long pos, int size, DirectBufferPool pool)
+			throws IOException {
+		synchronized (readLock) {
+			if (invalid || fd == null) {
+				throw new PackInvalidException(packFile, invalidatingCause);
+			}
+			if (length < pos + size)
+				size = (int) (length - pos);
+			final ByteBuffer buf = pool.allocate(size);
+			try {
+				// Reading through the FileChannel would close the shared file
+				// descriptor if this thread gets interrupted, so stage short
+				// lived chunks through the RandomAccessFile instead.
+				final byte[] tmp = new byte[Math.min(size, 8192)];
+				fd.seek(pos);
+				while (buf.hasRemaining()) {
+					int n = Math.min(buf.remaining(), tmp.length);
+					fd.readFully(tmp, 0, n);
+					buf.put(tmp, 0, n);
+				}
+			} catch (IOException | RuntimeException e) {
+				pool.release(buf);
+				throw e;
+			}
+			buf.flip();
+			return new DirectByteWindow(this, pos, buf, pool);
+		}
+	}
+
 	ByteWindow mmap(long pos, int size) throws IOException {
 		synchronized (readLock) {
 			if (length < pos + size)
@@ -1077,13 +1190,14 @@ LocalObjectRepresentation representation(final WindowCursor curs,
 		while ((c & 0x80) != 0)
 			c = ib[p++] & 0xff;
 
-		long len = (findEndOffset(pos) - pos);
+		final long end = findEndOffset(pos);
+		long len = end - pos;
 		switch (typeCode) {
 		case Constants.OBJ_COMMIT:
 		case Constants.OBJ_TREE:
 		case Constants.OBJ_BLOB:
 		case Constants.OBJ_TAG:
-			return LocalObjectRepresentation.newWhole(this, pos, len - p);
+			return LocalObjectRepresentation.newWhole(this, pos, len - p, end);
 
 		case Constants.OBJ_OFS_DELTA: {
 			c = ib[p++] & 0xff;
@@ -1095,7 +1209,8 @@ LocalObjectRepresentation representation(final WindowCursor curs,
 				ofs += (c & 127);
 			}
 			ofs = pos - ofs;
-			return LocalObjectRepresentation.newDelta(this, pos, len - p, ofs);
+			return LocalObjectRepresentation.newDelta(this, pos, len - p, end,
+					ofs);
 		}
 
 		case Constants.OBJ_REF_DELTA: {
@@ -1103,7 +1218,7 @@ LocalObjectRepresentation representation(final WindowCursor curs,
 			len -= Constants.OBJECT_ID_LENGTH;
 			readFully(pos + p, ib, 0, 20, curs);
 			ObjectId id = ObjectId.fromRaw(ib);
-			return LocalObjectRepresentation.newDelta(this, pos, len, id);
+			return LocalObjectRepresentation.newDelta(this, pos, len, end, id);
 		}
 
 		default:
@@ -1147,8 +1262,20 @@ synchronized PackBitmapIndex getBitmapIndex() throws IOException {
 	}
 
 	private synchronized PackReverseIndex getReverseIdx() throws IOException {
-		if (reverseIdx == null)
-			reverseIdx = new PackReverseIndex(idx());
+		if (reverseIdx == null) {
+			PackIndex idx = idx();
+			PackFile reverseIdxFile = packFile.create(REVERSE_INDEX);
+			try {
+				reverseIdx = PackReverseIndexFactory.open(reverseIdxFile, idx);
+			} catch (FileNotFoundException e) {
+				reverseIdx = PackReverseIndexFactory.computeFromIndex(idx);
+			} catch (IOException e) {
+				LOG.warn(MessageFormat.format(
+						JGitText.get().cannotReadPackReverseIndex,
+						reverseIdxFile), e);
+				reverseIdx = PackReverseIndexFactory.computeFromIndex(idx);
+			}
+		}
 		return reverseIdx;
 	}
 
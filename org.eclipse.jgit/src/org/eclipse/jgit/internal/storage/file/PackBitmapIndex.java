@@ -14,9 +14,11 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
+import java.util.Arrays;
 
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.util.io.SilentFileInputStream;
@@ -131,6 +133,67 @@ public static PackBitmapIndex read(InputStream fd,
 				reverseIndexSupplier, loadParallelRevIndex);
 	}
 
+	/**
+	 * Read an existing bitmap index file of a multi-pack-index.
+	 * <p>
+	 * Bit positions follow the order of the objects in the covered packs,
+	 * taking the packs in the order of the multi-pack-index, so that bitmaps
+	 * compress as well as those of a single pack.
+	 *
+	 * @param bitmapFile
+	 *            existing {@code multi-pack-index.bitmap} to read.
+	 * @param midx
+	 *            the multi-pack-index the bitmaps were written for.
+	 * @return a copy of the index in-memory.
+	 * @throws java.io.IOException
+	 *             the file cannot be read, or was written for a different
+	 *             multi-pack-index.
+	 * @since 6.5
+	 */
+	public static PackBitmapIndex open(File bitmapFile, MultiPackIndex midx)
+			throws IOException {
+		try (SilentFileInputStream fd = new SilentFileInputStream(
+				bitmapFile)) {
+			try {
+				return read(fd, midx);
+			} catch (IOException ioe) {
+				throw new IOException(
+						MessageFormat.format(JGitText.get().unreadablePackIndex,
+								bitmapFile.getAbsolutePath()),
+						ioe);
+			}
+		}
+	}
+
+	/**
+	 * Read an existing bitmap index file of a multi-pack-index from a
+	 * buffered stream.
+	 *
+	 * @param fd
+	 *            stream to read the bitmap index file from. The stream must be
+	 *            buffered as some small IOs are performed against the stream.
+	 *            The caller is responsible for closing the stream.
+	 * @param midx
+	 *            the multi-pack-index the bitmaps were written for.
+	 * @return a copy of the index in-memory.
+	 * @throws java.io.IOException
+	 *             the stream cannot be read, or the bitmaps were written for a
+	 *             different multi-pack-index.
+	 * @since 6.5
+	 */
+	public static PackBitmapIndex read(InputStream fd, MultiPackIndex midx)
+			throws IOException {
+		PackBitmapIndexV1 index = new PackBitmapIndexV1(fd, midx,
+				new MultiPackReverseIndex(midx));
+		if (!Arrays.equals(index.packChecksum, midx.getChecksum())) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().multiPackIndexBitmapChecksumMismatch,
+					ObjectId.fromRaw(midx.getChecksum()).name(),
+					ObjectId.fromRaw(index.packChecksum).name()));
+		}
+		return index;
+	}
+
 	/** Footer checksum applied on the bottom of the pack file. */
 	byte[] packChecksum;
 
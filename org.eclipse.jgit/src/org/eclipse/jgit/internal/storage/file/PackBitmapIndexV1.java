@@ -23,9 +23,11 @@
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -63,8 +65,7 @@ public Thread newThread(Runnable runnable) {
 				}
 			});
 
-	private final PackIndex packIndex;
-	private final PackReverseIndex reverseIndex;
+	private final ObjectPositions positions;
 	private final EWAHCompressedBitmap commits;
 	private final EWAHCompressedBitmap trees;
 	private final EWAHCompressedBitmap blobs;
@@ -82,8 +83,6 @@ public Thread newThread(Runnable runnable) {
 			SupplierWithIOException<PackReverseIndex> reverseIndexSupplier,
 			boolean loadParallelRevIndex)
 			throws IOException {
-		// An entry is object id, xor offset, flag byte, and a length encoded
-		// bitmap. The object id is an int32 of the nth position sorted by name.
 		super(new ObjectIdOwnerMap<StoredBitmap>());
 		this.bitmaps = getBitmaps();
 
@@ -94,102 +93,77 @@ public Thread newThread(Runnable runnable) {
 			reverseIndexFuture = executor.submit(reverseIndexSupplier::get);
 		}
 
-		final byte[] scratch = new byte[32];
-		IO.readFully(fd, scratch, 0, scratch.length);
+		BitmapFile file = new BitmapFile(fd);
+		this.packChecksum = file.checksum;
+		this.commits = file.commits;
+		this.trees = file.trees;
+		this.blobs = file.blobs;
+		this.tags = file.tags;
 
-		// Check the magic bytes
-		for (int i = 0; i < MAGIC.length; i++) {
-			if (scratch[i] != MAGIC[i]) {
-				byte[] actual = new byte[MAGIC.length];
-				System.arraycopy(scratch, 0, actual, 0, MAGIC.length);
-				throw new IOException(MessageFormat.format(
-						JGitText.get().expectedGot, Arrays.toString(MAGIC),
-						Arrays.toString(actual)));
-			}
-		}
+		PackIndex packIndex = packIndexSupplier.get();
+		addBitmaps(file.entries, packIndex::getObjectId);
 
-		// Read the version (2 bytes)
-		final int version = NB.decodeUInt16(scratch, 4);
-		if (version != 1)
-			throw new IOException(MessageFormat.format(
-					JGitText.get().unsupportedPackIndexVersion,
-					Integer.valueOf(version)));
-
-		// Read the options (2 bytes)
-		final int opts = NB.decodeUInt16(scratch, 6);
-		if ((opts & OPT_FULL) == 0)
-			throw new IOException(MessageFormat.format(
-					JGitText.get().expectedGot, Integer.valueOf(OPT_FULL),
-					Integer.valueOf(opts)));
-
-		// Read the number of entries (1 int32)
-		long numEntries = NB.decodeUInt32(scratch, 8);
-		if (numEntries > Integer.MAX_VALUE)
-			throw new IOException(JGitText.get().indexFileIsTooLargeForJgit);
-
-		// Checksum applied on the bottom of the corresponding pack file.
-		this.packChecksum = new byte[20];
-		System.arraycopy(scratch, 12, packChecksum, 0, packChecksum.length);
-
-		// Read the bitmaps for the Git types
-		SimpleDataInput dataInput = new SimpleDataInput(fd);
-		this.commits = readBitmap(dataInput);
-		this.trees = readBitmap(dataInput);
-		this.blobs = readBitmap(dataInput);
-		this.tags = readBitmap(dataInput);
-
-		// Read full bitmap from storage first.
-		List<IdxPositionBitmap> idxPositionBitmapList = new ArrayList<>();
-		// The xor offset is a single byte offset back in the list of entries.
-		IdxPositionBitmap[] recentBitmaps = new IdxPositionBitmap[MAX_XOR_OFFSET];
-		for (int i = 0; i < (int) numEntries; i++) {
-			IO.readFully(fd, scratch, 0, 6);
-			int nthObjectId = NB.decodeInt32(scratch, 0);
-			int xorOffset = scratch[4];
-			int flags = scratch[5];
-			EWAHCompressedBitmap bitmap = readBitmap(dataInput);
-
-			if (nthObjectId < 0) {
-				throw new IOException(MessageFormat.format(
-						JGitText.get().invalidId, String.valueOf(nthObjectId)));
-			}
-			if (xorOffset < 0) {
-				throw new IOException(MessageFormat.format(
-						JGitText.get().invalidId, String.valueOf(xorOffset)));
-			}
-			if (xorOffset > MAX_XOR_OFFSET) {
-				throw new IOException(MessageFormat.format(
-						JGitText.get().expectedLessThanGot,
-						String.valueOf(MAX_XOR_OFFSET),
-						String.valueOf(xorOffset)));
-			}
-			if (xorOffset > i) {
-				throw new IOException(MessageFormat.format(
-						JGitText.get().expectedLessThanGot, String.valueOf(i),
-						String.valueOf(xorOffset)));
-			}
-			IdxPositionBitmap xorIdxPositionBitmap = null;
-			if (xorOffset > 0) {
-				int index = (i - xorOffset);
-				xorIdxPositionBitmap = recentBitmaps[index
-						% recentBitmaps.length];
-				if (xorIdxPositionBitmap == null) {
-					throw new IOException(MessageFormat.format(
-							JGitText.get().invalidId,
-							String.valueOf(xorOffset)));
-				}
+		PackReverseIndex computedReverseIndex;
+		if (loadParallelRevIndex && reverseIndexFuture != null) {
+			try {
+				computedReverseIndex = reverseIndexFuture.get();
+			} catch (InterruptedException | ExecutionException e) {
+				// Fallback to loading reverse index through a supplier.
+				computedReverseIndex = reverseIndexSupplier.get();
 			}
-			IdxPositionBitmap idxPositionBitmap = new IdxPositionBitmap(
-					nthObjectId, xorIdxPositionBitmap, bitmap, flags);
-			idxPositionBitmapList.add(idxPositionBitmap);
-			recentBitmaps[i % recentBitmaps.length] = idxPositionBitmap;
+		} else {
+			computedReverseIndex = reverseIndexSupplier.get();
 		}
+		this.positions = new PackObjectPositions(packIndex,
+				computedReverseIndex);
+	}
 
-		this.packIndex = packIndexSupplier.get();
+	/**
+	 * Read the bitmaps of the objects listed in a multi-pack-index.
+	 * <p>
+	 * The header of the file holds the checksum of the multi-pack-index
+	 * instead of the checksum of a pack, and entries refer to commits by
+	 * their position in the multi-pack-index.
+	 *
+	 * @param fd
+	 *            stream to read the bitmap index file from.
+	 * @param midx
+	 *            the multi-pack-index the bitmaps were written for.
+	 * @param reverseIndex
+	 *            bit positions of the objects of {@code midx}.
+	 * @throws IOException
+	 *             the stream cannot be read or does not contain a valid
+	 *             bitmap index.
+	 */
+	PackBitmapIndexV1(InputStream fd, MultiPackIndex midx,
+			MultiPackReverseIndex reverseIndex) throws IOException {
+		super(new ObjectIdOwnerMap<StoredBitmap>());
+		this.bitmaps = getBitmaps();
+
+		BitmapFile file = new BitmapFile(fd);
+		this.packChecksum = file.checksum;
+		this.commits = file.commits;
+		this.trees = file.trees;
+		this.blobs = file.blobs;
+		this.tags = file.tags;
+
+		addBitmaps(file.entries, nth -> nth < midx.getObjectCount()
+				? midx.getObjectId(nth)
+				: null);
+		this.positions = reverseIndex;
+	}
+
+	private void addBitmaps(List<IdxPositionBitmap> idxPositionBitmapList,
+			IntFunction<ObjectId> objectIdByName) throws IOException {
 		for (int i = 0; i < idxPositionBitmapList.size(); ++i) {
 			IdxPositionBitmap idxPositionBitmap = idxPositionBitmapList.get(i);
-			ObjectId objectId = packIndex
-					.getObjectId(idxPositionBitmap.nthObjectId);
+			ObjectId objectId = objectIdByName
+					.apply(idxPositionBitmap.nthObjectId);
+			if (objectId == null) {
+				throw new IOException(MessageFormat.format(
+						JGitText.get().invalidId,
+						String.valueOf(idxPositionBitmap.nthObjectId)));
+			}
 			StoredBitmap sb = new StoredBitmap(objectId,
 					idxPositionBitmap.bitmap,
 					idxPositionBitmap.getXorStoredBitmap(),
@@ -199,34 +173,18 @@ public Thread newThread(Runnable runnable) {
 			idxPositionBitmap.sb = sb;
 			bitmaps.add(sb);
 		}
-
-		PackReverseIndex computedReverseIndex;
-		if (loadParallelRevIndex && reverseIndexFuture != null) {
-			try {
-				computedReverseIndex = reverseIndexFuture.get();
-			} catch (InterruptedException | ExecutionException e) {
-				// Fallback to loading reverse index through a supplier.
-				computedReverseIndex = reverseIndexSupplier.get();
-			}
-		} else {
-			computedReverseIndex = reverseIndexSupplier.get();
-		}
-		this.reverseIndex = computedReverseIndex;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int findPosition(AnyObjectId objectId) {
-		long offset = packIndex.findOffset(objectId);
-		if (offset == -1)
-			return -1;
-		return reverseIndex.findPostion(offset);
+		return positions.findPosition(objectId);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public ObjectId getObject(int position) throws IllegalArgumentException {
-		ObjectId objectId = reverseIndex.findObjectByPosition(position);
+		ObjectId objectId = positions.getObject(position);
 		if (objectId == null)
 			throw new IllegalArgumentException();
 		return objectId;
@@ -235,7 +193,7 @@ public ObjectId getObject(int position) throws IllegalArgumentException {
 	/** {@inheritDoc} */
 	@Override
 	public int getObjectCount() {
-		return (int) packIndex.getObjectCount();
+		return positions.getObjectCount();
 	}
 
 	/** {@inheritDoc} */
@@ -266,18 +224,14 @@ public int getBitmapCount() {
 	public boolean equals(Object o) {
 		// TODO(cranger): compare the pack checksum?
 		if (o instanceof PackBitmapIndexV1)
-			return getPackIndex() == ((PackBitmapIndexV1) o).getPackIndex();
+			return positions.equals(((PackBitmapIndexV1) o).positions);
 		return false;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public int hashCode() {
-		return getPackIndex().hashCode();
-	}
-
-	PackIndex getPackIndex() {
-		return packIndex;
+		return positions.hashCode();
 	}
 
 	private static EWAHCompressedBitmap readBitmap(DataInput dataInput)
@@ -287,6 +241,198 @@ private static EWAHCompressedBitmap readBitmap(DataInput dataInput)
 		return bitmap;
 	}
 
+	/**
+	 * Maps objects to and from their bit position in the bitmaps.
+	 */
+	interface ObjectPositions {
+		/**
+		 * Find the bit position of an object.
+		 *
+		 * @param objectId
+		 *            the object to look for.
+		 * @return the bit position of the object, or -1 if it is not indexed.
+		 */
+		int findPosition(AnyObjectId objectId);
+
+		/**
+		 * Get the object at a bit position.
+		 *
+		 * @param position
+		 *            the bit position.
+		 * @return the object, or null if the position is out of range.
+		 */
+		ObjectId getObject(int position);
+
+		/**
+		 * Get the number of indexed objects.
+		 *
+		 * @return the number of indexed objects.
+		 */
+		int getObjectCount();
+	}
+
+	/**
+	 * Bit positions of a single pack, which are the positions of its objects
+	 * in pack order.
+	 */
+	private static final class PackObjectPositions implements ObjectPositions {
+		private final PackIndex packIndex;
+
+		private final PackReverseIndex reverseIndex;
+
+		PackObjectPositions(PackIndex packIndex,
+				PackReverseIndex reverseIndex) {
+			this.packIndex = packIndex;
+			this.reverseIndex = reverseIndex;
+		}
+
+		@Override
+		public int findPosition(AnyObjectId objectId) {
+			long offset = packIndex.findOffset(objectId);
+			if (offset == -1)
+				return -1;
+			return reverseIndex.findPosition(offset);
+		}
+
+		@Override
+		public ObjectId getObject(int position) {
+			return reverseIndex.findObjectByPosition(position);
+		}
+
+		@Override
+		public int getObjectCount() {
+			return (int) packIndex.getObjectCount();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof PackObjectPositions
+					&& packIndex == ((PackObjectPositions) o).packIndex;
+		}
+
+		@Override
+		public int hashCode() {
+			return packIndex.hashCode();
+		}
+	}
+
+	/**
+	 * Header, type bitmaps and commit entries of a bitmap index file.
+	 */
+	private static final class BitmapFile {
+		final byte[] checksum;
+
+		final EWAHCompressedBitmap commits;
+
+		final EWAHCompressedBitmap trees;
+
+		final EWAHCompressedBitmap blobs;
+
+		final EWAHCompressedBitmap tags;
+
+		final List<IdxPositionBitmap> entries;
+
+		BitmapFile(InputStream fd) throws IOException {
+			// An entry is object id, xor offset, flag byte, and a length
+			// encoded bitmap. The object id is an int32 of the nth position
+			// sorted by name.
+			final byte[] scratch = new byte[32];
+			IO.readFully(fd, scratch, 0, scratch.length);
+
+			// Check the magic bytes
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (scratch[i] != MAGIC[i]) {
+					byte[] actual = new byte[MAGIC.length];
+					System.arraycopy(scratch, 0, actual, 0, MAGIC.length);
+					throw new IOException(MessageFormat.format(
+							JGitText.get().expectedGot, Arrays.toString(MAGIC),
+							Arrays.toString(actual)));
+				}
+			}
+
+			// Read the version (2 bytes)
+			final int version = NB.decodeUInt16(scratch, 4);
+			if (version != 1)
+				throw new IOException(MessageFormat.format(
+						JGitText.get().unsupportedPackIndexVersion,
+						Integer.valueOf(version)));
+
+			// Read the options (2 bytes)
+			final int opts = NB.decodeUInt16(scratch, 6);
+			if ((opts & OPT_FULL) == 0)
+				throw new IOException(MessageFormat.format(
+						JGitText.get().expectedGot, Integer.valueOf(OPT_FULL),
+						Integer.valueOf(opts)));
+
+			// Read the number of entries (1 int32)
+			long numEntries = NB.decodeUInt32(scratch, 8);
+			if (numEntries > Integer.MAX_VALUE)
+				throw new IOException(
+						JGitText.get().indexFileIsTooLargeForJgit);
+
+			// Checksum applied on the bottom of the corresponding pack file.
+			checksum = new byte[20];
+			System.arraycopy(scratch, 12, checksum, 0, checksum.length);
+
+			// Read the bitmaps for the Git types
+			SimpleDataInput dataInput = new SimpleDataInput(fd);
+			commits = readBitmap(dataInput);
+			trees = readBitmap(dataInput);
+			blobs = readBitmap(dataInput);
+			tags = readBitmap(dataInput);
+
+			// Read full bitmap from storage first.
+			entries = new ArrayList<>();
+			// The xor offset is a single byte offset back in the list of
+			// entries.
+			IdxPositionBitmap[] recentBitmaps = new IdxPositionBitmap[MAX_XOR_OFFSET];
+			for (int i = 0; i < (int) numEntries; i++) {
+				IO.readFully(fd, scratch, 0, 6);
+				int nthObjectId = NB.decodeInt32(scratch, 0);
+				int xorOffset = scratch[4];
+				int flags = scratch[5];
+				EWAHCompressedBitmap bitmap = readBitmap(dataInput);
+
+				if (nthObjectId < 0) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().invalidId,
+							String.valueOf(nthObjectId)));
+				}
+				if (xorOffset < 0) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().invalidId,
+							String.valueOf(xorOffset)));
+				}
+				if (xorOffset > MAX_XOR_OFFSET) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().expectedLessThanGot,
+							String.valueOf(MAX_XOR_OFFSET),
+							String.valueOf(xorOffset)));
+				}
+				if (xorOffset > i) {
+					throw new IOException(MessageFormat.format(
+							JGitText.get().expectedLessThanGot,
+							String.valueOf(i), String.valueOf(xorOffset)));
+				}
+				IdxPositionBitmap xorIdxPositionBitmap = null;
+				if (xorOffset > 0) {
+					int index = (i - xorOffset);
+					xorIdxPositionBitmap = recentBitmaps[index
+							% recentBitmaps.length];
+					if (xorIdxPositionBitmap == null) {
+						throw new IOException(MessageFormat.format(
+								JGitText.get().invalidId,
+								String.valueOf(xorOffset)));
+					}
+				}
+				IdxPositionBitmap idxPositionBitmap = new IdxPositionBitmap(
+						nthObjectId, xorIdxPositionBitmap, bitmap, flags);
+				entries.add(idxPositionBitmap);
+				recentBitmaps[i % recentBitmaps.length] = idxPositionBitmap;
+			}
+		}
+	}
+
 	/**
 	 * Temporary holder of object position in pack index and other metadata for
 	 * {@code StoredBitmap}.
@@ -35,6 +35,8 @@
 import org.eclipse.jgit.errors.PackMismatchException;
 import org.eclipse.jgit.errors.SearchForReuseTimeout;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndex;
+import org.eclipse.jgit.internal.storage.midx.MultiPackIndexLoader;
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
 import org.eclipse.jgit.internal.storage.pack.PackExt;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
@@ -42,6 +44,8 @@
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.util.FileUtils;
@@ -55,11 +59,17 @@
  * representation for a Git object database, where objects are stored in
  * compressed containers known as
  * {@link org.eclipse.jgit.internal.storage.file.Pack}s.
+ * <p>
+ * If the directory holds a {@code multi-pack-index}, objects are first looked
+ * up there with a single binary search, and only the packs it does not cover
+ * are searched one by one.
  */
 class PackDirectory {
 	private final static Logger LOG = LoggerFactory
 			.getLogger(PackDirectory.class);
 
+	private static final Pack[] NO_PACKS_COVERED = {};
+
 	private static final PackList NO_PACKS = new PackList(FileSnapshot.DIRTY,
 			new Pack[0]);
 
@@ -69,6 +79,9 @@ class PackDirectory {
 
 	private final AtomicReference<PackList> packList;
 
+	/** Bitmaps of the multi-pack-index in {@link #packList}. */
+	private final AtomicReference<MultiPackBitmap> midxBitmap;
+
 	/**
 	 * Initialize a reference to an on-disk 'pack' directory.
 	 *
@@ -81,6 +94,7 @@ class PackDirectory {
 		this.config = config;
 		this.directory = directory;
 		packList = new AtomicReference<>(NO_PACKS);
+		midxBitmap = new AtomicReference<>();
 	}
 
 	/**
@@ -114,6 +128,40 @@ Collection<Pack> getPacks() {
 		return Collections.unmodifiableCollection(Arrays.asList(packs));
 	}
 
+	/**
+	 * Get the bitmaps of the multi-pack-index.
+	 * <p>
+	 * The bitmaps are read on first use and kept until the multi-pack-index
+	 * changes. As bitmaps are usually requested once per request to count
+	 * objects, a modified multi-pack-index is picked up here without waiting
+	 * for an object lookup to miss.
+	 *
+	 * @return the bitmaps, or null if there is no multi-pack-index covering
+	 *         more than one pack, if one of its packs is gone, or if it has
+	 *         no bitmaps.
+	 */
+	@Nullable
+	PackBitmapIndex getMultiPackBitmapIndex() {
+		PackList list = packList.get();
+		if (list == NO_PACKS || isMultiPackIndexModified(list,
+				new File(directory, Constants.MULTI_PACK_INDEX))) {
+			list = scanPacks(list);
+		}
+		MultiPackIndex midx = list.midx;
+		if (midx == null || midx.getPackNames().length < 2
+				|| !list.hasAllCoveredPacks()) {
+			return null;
+		}
+		MultiPackBitmap bitmap = midxBitmap.get();
+		if (bitmap == null || bitmap.midx != midx) {
+			MultiPackBitmap n = new MultiPackBitmap(midx,
+					new File(directory, Constants.MULTI_PACK_INDEX_BITMAP));
+			midxBitmap.compareAndSet(bitmap, n);
+			bitmap = n;
+		}
+		return bitmap.get();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
@@ -146,7 +194,20 @@ Pack getPack(AnyObjectId objectId) {
 		PackList pList;
 		do {
 			pList = packList.get();
-			for (Pack p : pList.packs) {
+			Pack[] packs = pList.packs;
+			MultiPackIndex midx = pList.midx;
+			if (midx != null) {
+				int pos = midx.findPosition(objectId);
+				if (pos < 0) {
+					packs = pList.uncoveredPacks;
+				} else {
+					Pack p = pList.getCoveringPack(pos);
+					if (p != null && p.hasObject(midx.getOffset(pos))) {
+						return p;
+					}
+				}
+			}
+			for (Pack p : packs) {
 				try {
 					if (p.hasObject(objectId)) {
 						return p;
@@ -207,7 +268,35 @@ ObjectLoader open(WindowCursor curs, AnyObjectId objectId) {
 		do {
 			SEARCH: for (;;) {
 				pList = packList.get();
-				for (Pack p : pList.packs) {
+				Pack[] packs = pList.packs;
+				MultiPackIndex midx = pList.midx;
+				if (midx != null) {
+					int pos = midx.findPosition(objectId);
+					if (pos < 0) {
+						packs = pList.uncoveredPacks;
+					} else {
+						Pack p = pList.getCoveringPack(pos);
+						if (p != null) {
+							try {
+								ObjectLoader ldr = p.get(curs,
+										midx.getOffset(pos));
+								p.resetTransientErrorCount();
+								if (ldr != null) {
+									return ldr;
+								}
+							} catch (PackMismatchException e) {
+								// Pack was modified; refresh the entire pack
+								// list.
+								if (searchPacksAgain(pList)) {
+									continue SEARCH;
+								}
+							} catch (IOException e) {
+								handlePackError(e, p);
+							}
+						}
+					}
+				}
+				for (Pack p : packs) {
 					try {
 						ObjectLoader ldr = p.get(curs, objectId);
 						p.resetTransientErrorCount();
@@ -233,7 +322,33 @@ long getSize(WindowCursor curs, AnyObjectId id) {
 		do {
 			SEARCH: for (;;) {
 				pList = packList.get();
-				for (Pack p : pList.packs) {
+				Pack[] packs = pList.packs;
+				MultiPackIndex midx = pList.midx;
+				if (midx != null) {
+					int pos = midx.findPosition(id);
+					if (pos < 0) {
+						packs = pList.uncoveredPacks;
+					} else {
+						Pack p = pList.getCoveringPack(pos);
+						long offset = midx.getOffset(pos);
+						if (p != null && p.hasObject(offset)) {
+							try {
+								long len = p.getObjectSize(curs, offset);
+								p.resetTransientErrorCount();
+								return len;
+							} catch (PackMismatchException e) {
+								// Pack was modified; refresh the entire pack
+								// list.
+								if (searchPacksAgain(pList)) {
+									continue SEARCH;
+								}
+							} catch (IOException e) {
+								handlePackError(e, p);
+							}
+						}
+					}
+				}
+				for (Pack p : packs) {
 					try {
 						long len = p.getObjectSize(curs, id);
 						p.resetTransientErrorCount();
@@ -365,7 +480,7 @@ void insert(Pack pack) {
 			final Pack[] newList = new Pack[1 + oldList.length];
 			newList[0] = pack;
 			System.arraycopy(oldList, 0, newList, 1, oldList.length);
-			n = new PackList(o.snapshot, newList);
+			n = new PackList(o.snapshot, newList, o.midx, o.midxSnapshot);
 		} while (!packList.compareAndSet(o, n));
 	}
 
@@ -383,7 +498,7 @@ private void remove(Pack deadPack) {
 			final Pack[] newList = new Pack[oldList.length - 1];
 			System.arraycopy(oldList, 0, newList, 0, j);
 			System.arraycopy(oldList, j + 1, newList, j, newList.length - j);
-			n = new PackList(o.snapshot, newList);
+			n = new PackList(o.snapshot, newList, o.midx, o.midxSnapshot);
 		} while (!packList.compareAndSet(o, n));
 		deadPack.close();
 	}
@@ -420,6 +535,8 @@ private PackList scanPacks(PackList original) {
 	private PackList scanPacksImpl(PackList old) {
 		final Map<String, Pack> forReuse = reuseMap(old);
 		final FileSnapshot snapshot = FileSnapshot.save(directory);
+		final File midxFile = new File(directory, Constants.MULTI_PACK_INDEX);
+		boolean midxModified = isMultiPackIndexModified(old, midxFile);
 		Map<String, Map<PackExt, PackFile>> packFilesByExtById = getPackFilesByExtById();
 		List<Pack> list = new ArrayList<>(packFilesByExtById.size());
 		boolean foundNew = false;
@@ -451,7 +568,8 @@ private PackList scanPacksImpl(PackList old) {
 		// the same as the set we were given. Instead of building a new object
 		// return the same collection.
 		//
-		if (!foundNew && forReuse.isEmpty() && snapshot.equals(old.snapshot)) {
+		if (!foundNew && !midxModified && forReuse.isEmpty()
+				&& snapshot.equals(old.snapshot)) {
 			old.snapshot.setClean(snapshot);
 			return old;
 		}
@@ -466,7 +584,39 @@ private PackList scanPacksImpl(PackList old) {
 
 		final Pack[] r = list.toArray(new Pack[0]);
 		Arrays.sort(r, Pack.SORT);
-		return new PackList(snapshot, r);
+		if (!midxModified) {
+			return new PackList(snapshot, r, old.midx, old.midxSnapshot);
+		}
+		FileSnapshot midxSnapshot = FileSnapshot.save(midxFile);
+		return new PackList(snapshot, r, openMultiPackIndex(midxFile),
+				midxSnapshot);
+	}
+
+	private boolean isMultiPackIndexModified(PackList old, File midxFile) {
+		if (!config.get(CoreConfig.KEY).enableMultiPackIndex()) {
+			return old.midx != null;
+		}
+		if (old.midxSnapshot == null) {
+			return midxFile.exists();
+		}
+		return old.midxSnapshot.isModified(midxFile);
+	}
+
+	@Nullable
+	private MultiPackIndex openMultiPackIndex(File midxFile) {
+		if (!config.get(CoreConfig.KEY).enableMultiPackIndex()) {
+			return null;
+		}
+		try {
+			return MultiPackIndexLoader.open(midxFile);
+		} catch (FileNotFoundException e) {
+			// ignore if file do not exist
+			return null;
+		} catch (IOException e) {
+			LOG.warn(MessageFormat.format(
+					JGitText.get().cannotReadMultiPackIndex, midxFile), e);
+			return null;
+		}
 	}
 
 	private static Map<String, Pack> reuseMap(PackList old) {
@@ -540,9 +690,124 @@ static final class PackList {
 		/** All known packs, sorted by {@link Pack#SORT}. */
 		final Pack[] packs;
 
+		/** Multi-pack-index of the directory, or null if there is none. */
+		@Nullable
+		final MultiPackIndex midx;
+
+		/** State just before reading {@link #midx}, or null if not read. */
+		@Nullable
+		final FileSnapshot midxSnapshot;
+
+		/**
+		 * The known pack for each pack id of {@link #midx}. The entry is null
+		 * if the pack is gone since the multi-pack-index was written.
+		 */
+		private final Pack[] coveredPacks;
+
+		/** Known packs not covered by {@link #midx}, sorted like packs. */
+		final Pack[] uncoveredPacks;
+
 		PackList(FileSnapshot monitor, Pack[] packs) {
+			this(monitor, packs, null, null);
+		}
+
+		PackList(FileSnapshot monitor, Pack[] packs,
+				@Nullable MultiPackIndex midx,
+				@Nullable FileSnapshot midxSnapshot) {
 			this.snapshot = monitor;
 			this.packs = packs;
+			this.midx = midx;
+			this.midxSnapshot = midxSnapshot;
+			if (midx == null) {
+				coveredPacks = NO_PACKS_COVERED;
+				uncoveredPacks = packs;
+				return;
+			}
+
+			String[] names = midx.getPackNames();
+			coveredPacks = new Pack[names.length];
+			List<Pack> uncovered = new ArrayList<>();
+			for (Pack p : packs) {
+				String idxName = p.getPackFile().create(INDEX).getName();
+				int packId = Arrays.binarySearch(names, idxName);
+				if (packId >= 0) {
+					coveredPacks[packId] = p;
+				} else {
+					uncovered.add(p);
+				}
+			}
+			uncoveredPacks = uncovered.toArray(new Pack[0]);
+		}
+
+		/**
+		 * Get the pack holding an object according to {@link #midx}.
+		 *
+		 * @param position
+		 *            position of the object in {@link #midx}.
+		 * @return the pack, or null if it is not known or invalid, in which
+		 *         case all packs must be searched for the object.
+		 */
+		@Nullable
+		Pack getCoveringPack(int position) {
+			int packId = midx.getPackId(position);
+			if (packId < 0 || packId >= coveredPacks.length) {
+				return null;
+			}
+			Pack p = coveredPacks[packId];
+			return p != null && !p.invalid() ? p : null;
+		}
+
+		/**
+		 * Whether all packs of {@link #midx} are known and valid.
+		 *
+		 * @return true if no pack covered by {@link #midx} is missing.
+		 */
+		boolean hasAllCoveredPacks() {
+			for (Pack p : coveredPacks) {
+				if (p == null || p.invalid()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Bitmap index of a multi-pack-index, read on first use.
+	 */
+	private static final class MultiPackBitmap {
+		final MultiPackIndex midx;
+
+		private final File file;
+
+		private boolean loaded;
+
+		private PackBitmapIndex index;
+
+		MultiPackBitmap(MultiPackIndex midx, File file) {
+			this.midx = midx;
+			this.file = file;
+		}
+
+		@Nullable
+		synchronized PackBitmapIndex get() {
+			if (loaded) {
+				return index;
+			}
+			if (!file.isFile()) {
+				// Not written yet, or the multi-pack-index has no bitmaps.
+				// Check again next time.
+				return null;
+			}
+			loaded = true;
+			try {
+				index = PackBitmapIndex.open(file, midx);
+			} catch (IOException e) {
+				LOG.warn(MessageFormat.format(
+						JGitText.get().cannotReadMultiPackIndexBitmap, file),
+						e);
+			}
+			return index;
 		}
 	}
 }
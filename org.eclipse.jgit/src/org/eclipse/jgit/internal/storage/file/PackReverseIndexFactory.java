@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.SystemReader;
+
+/**
+ * Factory for creating instances of {@link PackReverseIndex}.
+ */
+public final class PackReverseIndexFactory {
+	private PackReverseIndexFactory() {
+	}
+
+	/**
+	 * Compute an in-memory pack reverse index from the in-memory pack forward
+	 * index, by sorting the offsets of all objects in the pack.
+	 *
+	 * @param packIndex
+	 *            the forward index to compute from.
+	 * @return the reverse index instance.
+	 */
+	public static PackReverseIndex computeFromIndex(PackIndex packIndex) {
+		return new PackReverseIndexComputed(packIndex);
+	}
+
+	/**
+	 * Open an existing reverse index (.rev) file.
+	 * <p>
+	 * The file is memory-mapped, so opening it costs no more than checking its
+	 * header no matter how many objects the pack holds. On Windows, where a
+	 * mapped file cannot be deleted until the mapping is garbage collected,
+	 * the file is read into the heap instead.
+	 *
+	 * @param reverseIndexFile
+	 *            existing .rev file to read.
+	 * @param packIndex
+	 *            the forward index of the same pack.
+	 * @return the reverse index instance.
+	 * @throws FileNotFoundException
+	 *             the file does not exist.
+	 * @throws IOException
+	 *             the file could not be read, is not a version 1 reverse index
+	 *             or was written for a different pack.
+	 */
+	public static PackReverseIndex open(File reverseIndexFile,
+			PackIndex packIndex) throws FileNotFoundException, IOException {
+		if (!reverseIndexFile.isFile()) {
+			throw new FileNotFoundException(
+					reverseIndexFile.getAbsolutePath());
+		}
+		try (FileChannel fc = FileChannel.open(reverseIndexFile.toPath(),
+				StandardOpenOption.READ)) {
+			long size = fc.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(
+						JGitText.get().hugeIndexesAreNotSupportedByJgitYet);
+			}
+			ByteBuffer buf;
+			if (SystemReader.getInstance().isWindows()) {
+				buf = ByteBuffer.allocate((int) size);
+				while (buf.hasRemaining()) {
+					if (fc.read(buf) < 0) {
+						break;
+					}
+				}
+				buf.flip();
+			} else {
+				buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			return new PackReverseIndexV1(buf, packIndex);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Reverse index read from a version 1 {@code .rev} file.
+ * <p>
+ * The file lists the positions in the pack index of all objects, sorted by
+ * their offset in the pack. Lookups binary search this list directly, so
+ * opening the index costs nothing beyond validating its header, and the list
+ * is never copied into the heap if the file is memory-mapped.
+ *
+ * @see PackReverseIndexWriterV1
+ */
+class PackReverseIndexV1 implements PackReverseIndex {
+	static final byte[] MAGIC = { 'R', 'I', 'D', 'X' };
+
+	static final int VERSION_1 = 1;
+
+	static final int OID_VERSION_SHA1 = 1;
+
+	static final int HEADER_SIZE = 12;
+
+	/** Index we were created for, and that has our ObjectId data. */
+	private final PackIndex index;
+
+	/** Contents of the .rev file, positioned at its first byte. */
+	private final ByteBuffer buf;
+
+	private final int count;
+
+	/**
+	 * Parse the reverse index held in {@code buf}.
+	 *
+	 * @param buf
+	 *            the whole .rev file, positioned at its first byte.
+	 * @param index
+	 *            the pack index the reverse index was written for.
+	 * @throws IOException
+	 *             the file is not a version 1 reverse index, or does not
+	 *             belong to the same pack as {@code index}.
+	 */
+	PackReverseIndexV1(ByteBuffer buf, PackIndex index) throws IOException {
+		this.index = index;
+		this.buf = buf.slice();
+
+		long cnt = index.getObjectCount();
+		if (cnt + 1 > Integer.MAX_VALUE) {
+			throw new IOException(
+					JGitText.get().hugeIndexesAreNotSupportedByJgitYet);
+		}
+		count = (int) cnt;
+
+		long expectedSize = HEADER_SIZE + 4L * count
+				+ 2L * Constants.OBJECT_ID_LENGTH;
+		if (this.buf.remaining() < HEADER_SIZE) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().expectedGot, Long.valueOf(expectedSize),
+					Integer.valueOf(this.buf.remaining())));
+		}
+
+		byte[] magic = read(0, MAGIC.length);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().expectedGot, Arrays.toString(MAGIC),
+					Arrays.toString(magic)));
+		}
+
+		int version = this.buf.getInt(4);
+		if (version != VERSION_1) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedPackReverseIndexVersion,
+					Integer.valueOf(version)));
+		}
+
+		int oidVersion = this.buf.getInt(8);
+		if (oidVersion != OID_VERSION_SHA1) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().expectedGot,
+					Integer.valueOf(OID_VERSION_SHA1),
+					Integer.valueOf(oidVersion)));
+		}
+
+		if (this.buf.remaining() != expectedSize) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().expectedGot, Long.valueOf(expectedSize),
+					Integer.valueOf(this.buf.remaining())));
+		}
+
+		byte[] packChecksum = read(HEADER_SIZE + 4 * count,
+				Constants.OBJECT_ID_LENGTH);
+		if (!Arrays.equals(packChecksum, index.packChecksum)) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().reverseIndexChecksumMismatch,
+					ObjectId.fromRaw(index.packChecksum).name(),
+					ObjectId.fromRaw(packChecksum).name()));
+		}
+	}
+
+	@Override
+	public ObjectId findObject(long offset) {
+		int ith = findPosition(offset);
+		if (ith < 0) {
+			return null;
+		}
+		return index.getObjectId(indexPosition(ith));
+	}
+
+	@Override
+	public long findNextOffset(long offset, long maxOffset)
+			throws CorruptObjectException {
+		int ith = findPosition(offset);
+		if (ith < 0) {
+			throw new CorruptObjectException(MessageFormat.format(
+					JGitText.get().cantFindObjectInReversePackIndexForTheSpecifiedOffset,
+					Long.valueOf(offset)));
+		}
+
+		if (ith + 1 == count) {
+			return maxOffset;
+		}
+		return index.getOffset(indexPosition(ith + 1));
+	}
+
+	@Override
+	public int findPosition(long offset) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			long o = index.getOffset(indexPosition(mid));
+			if (offset < o) {
+				high = mid;
+			} else if (offset == o) {
+				return mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public ObjectId findObjectByPosition(int nthPosition) {
+		return index.getObjectId(indexPosition(nthPosition));
+	}
+
+	private byte[] read(int pos, int len) {
+		byte[] dst = new byte[len];
+		ByteBuffer b = buf.duplicate();
+		b.position(pos);
+		b.get(dst);
+		return dst;
+	}
+
+	private int indexPosition(int nthPosition) {
+		return buf.getInt(HEADER_SIZE + 4 * nthPosition);
+	}
+}
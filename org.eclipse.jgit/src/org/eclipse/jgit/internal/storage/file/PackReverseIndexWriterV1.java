@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+
+/**
+ * Creates the version 1 pack reverse index files.
+ * <p>
+ * The format is the one used by C git: a 12 byte header, the position in the
+ * pack index of every object in pack order, the checksum of the pack and the
+ * checksum of the reverse index itself.
+ *
+ * @see PackReverseIndexV1
+ */
+public class PackReverseIndexWriterV1 {
+	private final DigestOutputStream out;
+
+	private final DataOutput dataOutput;
+
+	/**
+	 * Creates the version 1 pack reverse index files.
+	 *
+	 * @param dst
+	 *            the output stream to which the index will be written.
+	 */
+	public PackReverseIndexWriterV1(OutputStream dst) {
+		out = new DigestOutputStream(dst instanceof BufferedOutputStream ? dst
+				: new BufferedOutputStream(dst),
+				Constants.newMessageDigest());
+		dataOutput = new SimpleDataOutput(out);
+	}
+
+	/**
+	 * Write the reverse index of a pack to the stream.
+	 * <p>
+	 * After writing the stream passed to the factory is flushed but remains
+	 * open. Callers are always responsible for closing the output stream.
+	 *
+	 * @param objectsByName
+	 *            all objects of the pack, sorted by object id like in the pack
+	 *            index, with their offsets already set.
+	 * @param packDataChecksum
+	 *            checksum signature of the entire pack data content. This is
+	 *            traditionally the last 20 bytes of the pack file's own stream.
+	 * @throws java.io.IOException
+	 *             an error occurred while writing to the output stream.
+	 */
+	public void write(List<? extends PackedObjectInfo> objectsByName,
+			byte[] packDataChecksum) throws IOException {
+		if (packDataChecksum.length != Constants.OBJECT_ID_LENGTH) {
+			throw new IllegalStateException();
+		}
+		int cnt = objectsByName.size();
+		if (cnt + 1L > Integer.MAX_VALUE) {
+			throw new IOException(
+					JGitText.get().hugeIndexesAreNotSupportedByJgitYet);
+		}
+
+		out.write(PackReverseIndexV1.MAGIC);
+		dataOutput.writeInt(PackReverseIndexV1.VERSION_1);
+		dataOutput.writeInt(PackReverseIndexV1.OID_VERSION_SHA1);
+
+		for (int position : positionsByOffset(objectsByName)) {
+			dataOutput.writeInt(position);
+		}
+
+		out.write(packDataChecksum);
+		out.on(false);
+		out.write(out.getMessageDigest().digest());
+		out.flush();
+	}
+
+	private static int[] positionsByOffset(
+			List<? extends PackedObjectInfo> objectsByName) {
+		int cnt = objectsByName.size();
+		long[] offsets = new long[cnt];
+		int i = 0;
+		for (PackedObjectInfo oe : objectsByName) {
+			offsets[i++] = oe.getOffset();
+		}
+
+		// Offsets are unique, so each one's rank in sorted order is the
+		// position of the object in the pack.
+		long[] sorted = offsets.clone();
+		Arrays.sort(sorted);
+		int[] positions = new int[cnt];
+		for (i = 0; i < cnt; i++) {
+			positions[Arrays.binarySearch(sorted, offsets[i])] = i;
+		}
+		return positions;
+	}
+}
@@ -41,6 +41,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -57,6 +58,7 @@
 import org.eclipse.jgit.errors.ObjectWritingException;
 import org.eclipse.jgit.events.RefsChangedEvent;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -64,6 +66,7 @@
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefComparator;
 import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.RefWriter;
 import org.eclipse.jgit.lib.Repository;
@@ -108,6 +111,13 @@ public class RefDirectory extends RefDatabase {
 	/** If in the header, denotes the file has peeled data. */
 	public static final String PACKED_REFS_PEELED = " peeled"; //$NON-NLS-1$
 
+	/**
+	 * If in the header, denotes the references in the file are sorted by name.
+	 *
+	 * @since 6.5
+	 */
+	public static final String PACKED_REFS_SORTED = " sorted"; //$NON-NLS-1$
+
 	/** The names of the additional refs supported by this class */
 	private static final String[] additionalRefsNames = new String[] {
 			Constants.MERGE_HEAD, Constants.FETCH_HEAD, Constants.ORIG_HEAD,
@@ -142,6 +152,12 @@ public class RefDirectory extends RefDatabase {
 	/** Immutable sorted list of packed references. */
 	final AtomicReference<PackedRefList> packedRefs = new AtomicReference<>();
 
+	/**
+	 * View of the sorted {@code packed-refs} file searched in place, if
+	 * {@code core.packedRefsMmap} is set.
+	 */
+	private final AtomicReference<MappedPackedRefs> mappedPackedRefs = new AtomicReference<>();
+
 	/**
 	 * Lock for coordinating operations within a single process that may contend
 	 * on the {@code packed-refs} file.
@@ -231,6 +247,7 @@ public void close() {
 	private void clearReferences() {
 		looseRefs.set(RefList.<LooseRef> emptyList());
 		packedRefs.set(NO_PACKED_REFS);
+		mappedPackedRefs.set(null);
 	}
 
 	/** {@inheritDoc} */
@@ -258,7 +275,8 @@ public boolean isNameConflicting(String name) throws IOException {
 	}
 
 	@Nullable
-	private Ref readAndResolve(String name, RefList<Ref> packed) throws IOException {
+	private Ref readAndResolve(String name, PackedRefLookup packed)
+			throws IOException {
 		try {
 			Ref ref = readRef(name, packed);
 			if (ref != null) {
@@ -282,7 +300,7 @@ private Ref readAndResolve(String name, RefList<Ref> packed) throws IOException
 	@Override
 	public Ref exactRef(String name) throws IOException {
 		try {
-			return readAndResolve(name, getPackedRefs());
+			return readAndResolve(name, getPackedRefLookup());
 		} finally {
 			fireRefsChanged();
 		}
@@ -293,7 +311,7 @@ public Ref exactRef(String name) throws IOException {
 	@NonNull
 	public Map<String, Ref> exactRef(String... refs) throws IOException {
 		try {
-			RefList<Ref> packed = getPackedRefs();
+			PackedRefLookup packed = getPackedRefLookup();
 			Map<String, Ref> result = new HashMap<>(refs.length);
 			for (String name : refs) {
 				Ref ref = readAndResolve(name, packed);
@@ -312,7 +330,7 @@ public Map<String, Ref> exactRef(String... refs) throws IOException {
 	@Nullable
 	public Ref firstExactRef(String... refs) throws IOException {
 		try {
-			RefList<Ref> packed = getPackedRefs();
+			PackedRefLookup packed = getPackedRefLookup();
 			for (String name : refs) {
 				Ref ref = readAndResolve(name, packed);
 				if (ref != null) {
@@ -331,7 +349,14 @@ public Map<String, Ref> getRefs(String prefix) throws IOException {
 		final RefList<LooseRef> oldLoose = looseRefs.get();
 		LooseScanner scan = new LooseScanner(oldLoose);
 		scan.scan(prefix);
-		final RefList<Ref> packed = getPackedRefs();
+		// Listing all references needs the whole file anyway, parse and
+		// cache it.
+		MappedPackedRefs mapped = prefix.isEmpty() ? null
+				: getMappedPackedRefs();
+		final RefList<Ref> packed = mapped != null ? mapped.getRefs(prefix)
+				: getPackedRefs();
+		final PackedRefLookup packedLookup = mapped != null ? mapped::get
+				: packed::get;
 
 		RefList<LooseRef> loose;
 		if (scan.newLoose != null) {
@@ -346,7 +371,8 @@ public Map<String, Ref> getRefs(String prefix) throws IOException {
 		RefList.Builder<Ref> symbolic = scan.symbolic;
 		for (int idx = 0; idx < symbolic.size();) {
 			final Ref symbolicRef = symbolic.get(idx);
-			final Ref resolvedRef = resolve(symbolicRef, 0, prefix, loose, packed);
+			final Ref resolvedRef = resolve(symbolicRef, 0, prefix, loose,
+					packedLookup);
 			if (resolvedRef != null && resolvedRef.getObjectId() != null) {
 				symbolic.set(idx, resolvedRef);
 				idx++;
@@ -365,6 +391,46 @@ public Map<String, Ref> getRefs(String prefix) throws IOException {
 		return new RefMap(prefix, packed, upcast(loose), symbolic.toRefList());
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public RefScanner scanRefsByPrefix(String prefix) throws IOException {
+		int lastSlash = prefix.lastIndexOf('/');
+		if (lastSlash == -1 && !prefix.isEmpty() && !R_REFS.startsWith(prefix)) {
+			// Only HEAD is listed outside of refs/, avoid scanning all refs.
+			Ref head = HEAD.startsWith(prefix) ? exactRef(HEAD) : null;
+			return RefScanner.of(head != null && head.getObjectId() != null
+					? Collections.singletonList(head).iterator()
+					: Collections.emptyIterator());
+		}
+
+		// RefMap merges the packed and loose refs lazily while iterating.
+		Iterator<Ref> refs = getRefs(prefix.substring(0, lastSlash + 1))
+				.values().iterator();
+		return new RefScanner() {
+			private Ref ref;
+
+			@Override
+			public boolean next() {
+				while (refs.hasNext()) {
+					ref = refs.next();
+					String name = ref.getName();
+					if (name.startsWith(prefix)) {
+						return true;
+					} else if (name.compareTo(prefix) > 0) {
+						break;
+					}
+				}
+				ref = null;
+				return false;
+			}
+
+			@Override
+			public Ref getRef() {
+				return ref;
+			}
+		};
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public List<Ref> getAdditionalRefs() throws IOException {
@@ -556,7 +622,7 @@ void storedSymbolicRef(RefDirectoryUpdate u, FileSnapshot snapshot,
 	public RefDirectoryUpdate newUpdate(String name, boolean detach)
 			throws IOException {
 		boolean detachingSymbolicRef = false;
-		final RefList<Ref> packed = getPackedRefs();
+		final PackedRefLookup packed = getPackedRefLookup();
 		Ref ref = readRef(name, packed);
 		if (ref != null)
 			ref = resolve(ref, 0, null, null, packed);
@@ -712,7 +778,7 @@ private PackedRefList pack(Collection<String> refs,
 				// Iterate over all refs to be packed
 				boolean dirty = false;
 				for (String refName : refs) {
-					Ref oldRef = readRef(refName, cur);
+					Ref oldRef = readRef(refName, cur::get);
 					if (oldRef == null) {
 						continue; // A non-existent ref is already correctly packed.
 					}
@@ -856,7 +922,8 @@ void log(boolean force, RefUpdate update, String msg, boolean deref)
 	}
 
 	private Ref resolve(final Ref ref, int depth, String prefix,
-			RefList<LooseRef> loose, RefList<Ref> packed) throws IOException {
+			RefList<LooseRef> loose, PackedRefLookup packed)
+			throws IOException {
 		if (ref.isSymbolic()) {
 			Ref dst = ref.getTarget();
 
@@ -867,10 +934,11 @@ private Ref resolve(final Ref ref, int depth, String prefix,
 			// recent scan of the loose directory, use it.
 			if (loose != null && dst.getName().startsWith(prefix)) {
 				int idx;
+				Ref p;
 				if (0 <= (idx = loose.find(dst.getName())))
 					dst = loose.get(idx);
-				else if (0 <= (idx = packed.find(dst.getName())))
-					dst = packed.get(idx);
+				else if ((p = packed.get(dst.getName())) != null)
+					dst = p;
 				else
 					return ref;
 			} else {
@@ -905,6 +973,50 @@ PackedRefList getPackedRefs() throws IOException {
 		return newList;
 	}
 
+	/**
+	 * Get the view of the {@code packed-refs} file searched in place.
+	 *
+	 * @return the view, or null if {@code core.packedRefsMmap} is not set or
+	 *         the file is not sorted; the caller has to use
+	 *         {@link #getPackedRefs()} instead.
+	 * @throws IOException
+	 *             the file could not be read.
+	 */
+	@Nullable
+	private MappedPackedRefs getMappedPackedRefs() throws IOException {
+		Config config = getRepository().getConfig();
+		if (!config.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_PACKED_REFS_MMAP, false)) {
+			return null;
+		}
+		boolean trustFolderStat = config.getBoolean(
+				ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_TRUSTFOLDERSTAT, true);
+
+		final MappedPackedRefs cur = mappedPackedRefs.get();
+		if (cur != null && trustFolderStat
+				&& !cur.getSnapshot().isModified(packedRefsFile)) {
+			return cur.isSearchable() ? cur : null;
+		}
+
+		final MappedPackedRefs next = MappedPackedRefs.open(packedRefsFile);
+		FileSnapshot curSnapshot = cur != null ? cur.getSnapshot()
+				: FileSnapshot.MISSING_FILE;
+		if (mappedPackedRefs.compareAndSet(cur, next)
+				&& !curSnapshot.equals(next.getSnapshot())) {
+			modCnt.incrementAndGet();
+		}
+		return next.isSearchable() ? next : null;
+	}
+
+	private PackedRefLookup getPackedRefLookup() throws IOException {
+		MappedPackedRefs mapped = getMappedPackedRefs();
+		if (mapped != null) {
+			return mapped::get;
+		}
+		return getPackedRefs()::get;
+	}
+
 	private PackedRefList readPackedRefs() throws IOException {
 		try {
 			PackedRefList result = FileUtils.readWithRetries(packedRefsFile,
@@ -1045,7 +1157,8 @@ protected void writeFile(String name, byte[] content)
 		return result.get();
 	}
 
-	private Ref readRef(String name, RefList<Ref> packed) throws IOException {
+	private Ref readRef(String name, PackedRefLookup packed)
+			throws IOException {
 		final RefList<LooseRef> curList = looseRefs.get();
 		final int idx = curList.find(name);
 		if (0 <= idx) {
@@ -1336,6 +1449,13 @@ static void sleep(long ms) throws InterruptedIOException {
 		}
 	}
 
+	/** Looks up packed references by name. */
+	@FunctionalInterface
+	private interface PackedRefLookup {
+		@Nullable
+		Ref get(String name) throws IOException;
+	}
+
 	static class PackedRefList extends RefList<Ref> {
 
 		private final FileSnapshot snapshot;
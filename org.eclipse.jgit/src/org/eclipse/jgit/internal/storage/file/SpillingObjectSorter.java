@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Sorts the objects of a pack by name for its index, holding a bounded number
+ * of objects at once.
+ * <p>
+ * Objects are collected into runs. Each full run is sorted and written to a
+ * temporary file by a background thread while the next run is filled, so
+ * at most two runs are held in memory. {@link #sort()} merges the runs into
+ * one file, which is read back each time the index writer iterates over the
+ * objects.
+ * <p>
+ * This class is not thread-safe. Objects must be added by one thread at a
+ * time.
+ */
+class SpillingObjectSorter implements Closeable {
+	private static final int ID_LENGTH = Constants.OBJECT_ID_LENGTH;
+
+	/** Object name, 64 bit offset and CRC-32 of an object. */
+	private static final int RECORD_SIZE = ID_LENGTH + 8 + 4;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+
+	private PackedObjectInfo[] run;
+
+	/** Run which was spilled last, reused once its spill completed. */
+	private PackedObjectInfo[] spare;
+
+	private int runLength;
+
+	private int count;
+
+	private final List<File> files = new ArrayList<>();
+
+	private final List<Closeable> readers = new ArrayList<>();
+
+	private ExecutorService spiller;
+
+	/** Spill running in the background, if any. */
+	private FutureTask<Void> spilling;
+
+	/**
+	 * Create a sorter.
+	 *
+	 * @param directory
+	 *            directory to create the temporary files in.
+	 * @param runSize
+	 *            number of objects sorted in memory at once.
+	 */
+	SpillingObjectSorter(File directory, int runSize) {
+		this.directory = directory;
+		this.run = new PackedObjectInfo[runSize];
+	}
+
+	/**
+	 * Add an object.
+	 * <p>
+	 * The name, offset and CRC of the object must not change anymore.
+	 *
+	 * @param obj
+	 *            the object.
+	 * @throws IOException
+	 *             a previous run cannot be written.
+	 */
+	void add(PackedObjectInfo obj) throws IOException {
+		run[runLength++] = obj;
+		count++;
+		if (runLength == run.length) {
+			awaitSpill();
+			PackedObjectInfo[] full = run;
+			int n = runLength;
+			File f = newFile();
+			run = spare != null ? spare : new PackedObjectInfo[full.length];
+			spare = full;
+			runLength = 0;
+
+			if (spiller == null) {
+				spiller = Executors.newSingleThreadExecutor();
+			}
+			spilling = new FutureTask<>(() -> {
+				spill(full, n, f);
+				return null;
+			});
+			spiller.execute(spilling);
+		}
+	}
+
+	/**
+	 * Sort the added objects.
+	 *
+	 * @return the objects sorted by name. The list reads the objects from a
+	 *         temporary file, which is valid until the sorter is closed.
+	 * @throws IOException
+	 *             the runs cannot be merged.
+	 */
+	List<PackedObjectInfo> sort() throws IOException {
+		awaitSpill();
+		if (runLength > 0 || files.isEmpty()) {
+			spill(run, runLength, newFile());
+			runLength = 0;
+		}
+		File sorted = files.size() == 1 ? files.get(0) : merge();
+		return new SortedList(sorted, count);
+	}
+
+	private static void spill(PackedObjectInfo[] objs, int n, File f)
+			throws IOException {
+		Arrays.sort(objs, 0, n);
+		try (OutputStream out = new BufferedOutputStream(
+				new FileOutputStream(f), BUFFER_SIZE)) {
+			byte[] rec = new byte[RECORD_SIZE];
+			for (int i = 0; i < n; i++) {
+				PackedObjectInfo obj = objs[i];
+				obj.copyRawTo(rec, 0);
+				NB.encodeInt64(rec, ID_LENGTH, obj.getOffset());
+				NB.encodeInt32(rec, ID_LENGTH + 8, obj.getCRC());
+				out.write(rec);
+			}
+		} finally {
+			Arrays.fill(objs, 0, n, null);
+		}
+	}
+
+	/** Wait for the background spill, reporting its failure. */
+	private void awaitSpill() throws IOException {
+		FutureTask<Void> t = spilling;
+		if (t == null) {
+			return;
+		}
+		spilling = null;
+		try {
+			t.get();
+		} catch (InterruptedException e) {
+			// The spill still owns its run and file.
+			spilling = t;
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
+		}
+	}
+
+	private File merge() throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(files.size(),
+				(a, b) -> Arrays.compareUnsigned(a.rec, 0, ID_LENGTH, b.rec,
+						0, ID_LENGTH));
+		List<RunReader> runs = new ArrayList<>(files.size());
+		try {
+			for (File f : files) {
+				RunReader r = new RunReader(f);
+				runs.add(r);
+				if (r.next()) {
+					queue.add(r);
+				}
+			}
+
+			File merged = newFile();
+			try (OutputStream out = new BufferedOutputStream(
+					new FileOutputStream(merged), BUFFER_SIZE)) {
+				RunReader r;
+				while ((r = queue.poll()) != null) {
+					out.write(r.rec);
+					if (r.next()) {
+						queue.add(r);
+					}
+				}
+			}
+			return merged;
+		} finally {
+			for (RunReader r : runs) {
+				r.close();
+			}
+		}
+	}
+
+	private File newFile() throws IOException {
+		File f = File.createTempFile("incoming_", ".sort", directory); //$NON-NLS-1$ //$NON-NLS-2$
+		files.add(f);
+		return f;
+	}
+
+	/** Delete the temporary files. */
+	@Override
+	public void close() {
+		if (spilling != null) {
+			// The file of the spill must not be written after it is deleted.
+			boolean interrupted = false;
+			for (;;) {
+				try {
+					spilling.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// Ignored. We want to delete the file.
+					break;
+				}
+			}
+			spilling = null;
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (spiller != null) {
+			spiller.shutdown();
+			spiller = null;
+		}
+		for (Closeable r : readers) {
+			try {
+				r.close();
+			} catch (IOException e) {
+				// Ignored. We want to delete the file.
+			}
+		}
+		readers.clear();
+		for (File f : files) {
+			if (!f.delete() && f.exists()) {
+				f.deleteOnExit();
+			}
+		}
+		files.clear();
+	}
+
+	private static class RunReader implements Closeable {
+		final byte[] rec = new byte[RECORD_SIZE];
+
+		private final InputStream in;
+
+		RunReader(File f) throws IOException {
+			in = new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE);
+		}
+
+		boolean next() throws IOException {
+			int n = IO.readFully(in, rec, 0);
+			if (n == 0) {
+				return false;
+			} else if (n != RECORD_SIZE) {
+				throw new EOFException();
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private static PackedObjectInfo decode(byte[] rec, MutableObjectId id) {
+		id.fromRaw(rec, 0);
+		PackedObjectInfo obj = new PackedObjectInfo(id);
+		obj.setOffset(NB.decodeInt64(rec, ID_LENGTH));
+		obj.setCRC(NB.decodeInt32(rec, ID_LENGTH + 8));
+		return obj;
+	}
+
+	/** Objects of the merged file, decoded on access. */
+	private class SortedList extends AbstractList<PackedObjectInfo> {
+		private final File file;
+
+		private final int size;
+
+		SortedList(File file, int size) {
+			this.file = file;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Not supported, the objects are only read sequentially by
+		 * {@link #iterator()}.
+		 */
+		@Override
+		public PackedObjectInfo get(int index) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterator<PackedObjectInfo> iterator() {
+			RunReader r;
+			try {
+				r = new RunReader(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			// Iterations ending early are closed with the sorter.
+			readers.add(r);
+			MutableObjectId id = new MutableObjectId();
+			return new Iterator<>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public PackedObjectInfo next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					try {
+						if (!r.next()) {
+							throw new EOFException();
+						}
+						if (++next == size) {
+							readers.remove(r);
+							r.close();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return decode(r.rec, id);
+				}
+			};
+		}
+	}
+}
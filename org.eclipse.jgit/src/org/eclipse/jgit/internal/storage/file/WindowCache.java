@@ -21,6 +21,7 @@
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
@@ -29,6 +30,7 @@
 import org.eclipse.jgit.annotations.NonNull;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig.EvictionPolicy;
 import org.eclipse.jgit.storage.file.WindowCacheStats;
 import org.eclipse.jgit.util.Monitoring;
 
@@ -58,6 +60,16 @@
  * comprised of roughly 10% of the cache, and evicting the oldest accessed entry
  * within that window.
  * <p>
+ * A single scan over a large pack, e.g. while packing or verifying
+ * connectivity, touches every window once and pushes the frequently used
+ * windows out of an LRU cache. If option {@code core.packedGitEvictionPolicy}
+ * is set to {@code tiny_lfu} (see
+ * {@link WindowCacheConfig#setEvictionPolicy(WindowCacheConfig.EvictionPolicy)})
+ * the cache instead records recent accesses of every window in a small
+ * {@link FrequencySketch}, and evicts the least frequently used entry of the
+ * window, breaking ties by age. Windows read only once are then evicted
+ * before windows read many times.
+ * <p>
  * Entities created by the cache are held under SoftReferences if option
  * {@code core.packedGitUseStrongRefs} is set to {@code false} in the git config
  * (this is the default) or by calling
@@ -69,6 +81,12 @@
  * other hand this provides more predictable performance since the cache isn't
  * flushed when used heap comes close to the maximum heap size.
  * <p>
+ * If option {@code core.packedGitUseOffHeap} is set to {@code true} windows
+ * are read into direct buffers taken from a {@link DirectBufferPool} instead
+ * of the heap. These windows are reference counted: the cache and every
+ * reader hold a reference, and the buffer returns to the pool once the window
+ * was evicted and the last reader released it.
+ * <p>
  * The internal hash table does not expand at runtime, instead it is fixed in
  * size at cache creation time. The internal lock table used to gate load
  * invocations is also fixed in size.
@@ -184,6 +202,7 @@ static interface StatsRecorder {
 
 	static class StatsRecorderImpl
 			implements StatsRecorder, WindowCacheStats {
+		private final EvictionPolicy evictionPolicy;
 		private final LongAdder hitCount;
 		private final LongAdder missCount;
 		private final LongAdder loadSuccessCount;
@@ -198,6 +217,17 @@ static interface StatsRecorder {
 		 * Constructs an instance with all counts initialized to zero.
 		 */
 		public StatsRecorderImpl() {
+			this(EvictionPolicy.LRU);
+		}
+
+		/**
+		 * Constructs an instance with all counts initialized to zero.
+		 *
+		 * @param evictionPolicy
+		 *            eviction policy of the cache recording the statistics.
+		 */
+		StatsRecorderImpl(EvictionPolicy evictionPolicy) {
+			this.evictionPolicy = evictionPolicy;
 			hitCount = new LongAdder();
 			missCount = new LongAdder();
 			loadSuccessCount = new LongAdder();
@@ -305,6 +335,11 @@ public long getOpenByteCount() {
 			return openByteCount.sum();
 		}
 
+		@Override
+		public EvictionPolicy getEvictionPolicy() {
+			return evictionPolicy;
+		}
+
 		@Override
 		public void resetCounters() {
 			hitCount.reset();
@@ -379,6 +414,18 @@ public static WindowCache getInstance() {
 		return cache.publishMBeanIfNeeded();
 	}
 
+	/**
+	 * Get the window containing a position of a pack, loading it if needed.
+	 *
+	 * @param pack
+	 *            the pack to read.
+	 * @param offset
+	 *            position within the pack.
+	 * @return the window, retained for the caller, who must
+	 *         {@link ByteWindow#release()} it when done reading.
+	 * @throws IOException
+	 *             the window could not be read.
+	 */
 	static final ByteWindow get(Pack pack, long offset)
 			throws IOException {
 		final WindowCache c = cache;
@@ -394,6 +441,14 @@ static final ByteWindow get(Pack pack, long offset)
 		return r;
 	}
 
+	static int getWindowSize() {
+		return cache.windowSize;
+	}
+
+	static long getMaxBytes() {
+		return cache.maxBytes;
+	}
+
 	static final void purge(Pack pack) {
 		cache.removeAll(pack);
 	}
@@ -419,12 +474,18 @@ static final void purge(Pack pack) {
 	/** Number of {@link #table} buckets to scan for an eviction window. */
 	private final int evictBatch;
 
+	/** Chooses the window to evict among {@link #evictBatch} buckets. */
+	private final Evictor evictor;
+
 	private final int maxFiles;
 
 	private final long maxBytes;
 
 	private final boolean mmap;
 
+	/** Pool of off-heap windows; null if windows are on the heap. */
+	private final DirectBufferPool directPool;
+
 	private final int windowSizeShift;
 
 	private final int windowSize;
@@ -466,11 +527,16 @@ else if (eb < 4)
 		mmap = cfg.isPackedGitMMAP();
 		windowSizeShift = bits(cfg.getPackedGitWindowSize());
 		windowSize = 1 << windowSizeShift;
-		useStrongRefs = cfg.isPackedGitUseStrongRefs();
+		directPool = cfg.isPackedGitUseOffHeap() && !mmap
+				? new DirectBufferPool(windowSize, maxBytes)
+				: null;
+		useStrongRefs = cfg.isPackedGitUseStrongRefs() || directPool != null;
 		queue = useStrongRefs ? new StrongCleanupQueue(this)
 				: new SoftCleanupQueue(this);
+		evictor = newEvictor(cfg.getEvictionPolicy(),
+				(int) Math.min(maxBytes / windowSize, tableSize));
 
-		mbean = new StatsRecorderImpl();
+		mbean = new StatsRecorderImpl(cfg.getEvictionPolicy());
 		statsRecorder = mbean;
 		publishMBean.set(cfg.getExposeStatsViaJmx());
 
@@ -512,7 +578,9 @@ private ByteWindow load(Pack pack, long offset) throws IOException {
 		try {
 			if (mmap)
 				return pack.mmap(offset, windowSize);
-			ByteArrayWindow w = pack.read(offset, windowSize);
+			ByteWindow w = directPool != null
+					? pack.readDirect(offset, windowSize, directPool)
+					: pack.read(offset, windowSize);
 			statsRecorder.recordLoadSuccess(System.nanoTime() - startTime);
 			return w;
 		} catch (IOException | RuntimeException | Error e) {
@@ -601,6 +669,7 @@ private ByteWindow getOrLoad(Pack pack, long position)
 
 			v = load(pack, position);
 			final PageRef<ByteWindow> ref = createRef(pack, position, v);
+			v.retain();
 			hit(ref);
 			for (;;) {
 				final Entry n = new Entry(clean(e2), ref);
@@ -627,7 +696,7 @@ private ByteWindow scan(Entry n, Pack pack, long position) {
 			final PageRef<ByteWindow> r = n.ref;
 			if (r.getPack() == pack && r.getPosition() == position) {
 				final ByteWindow v = r.get();
-				if (v != null) {
+				if (v != null && v.retain()) {
 					hit(r);
 					return v;
 				}
@@ -638,7 +707,7 @@ private ByteWindow scan(Entry n, Pack pack, long position) {
 		return null;
 	}
 
-	private void hit(PageRef r) {
+	private void hit(PageRef<ByteWindow> r) {
 		// We don't need to be 100% accurate here. Its sufficient that at least
 		// one thread performs the increment. Any other concurrent access at
 		// exactly the same time can simply use the same clock value.
@@ -649,6 +718,7 @@ private void hit(PageRef r) {
 		final long c = clock.get();
 		clock.compareAndSet(c, c + 1);
 		r.setLastAccess(c);
+		evictor.recordAccess(r);
 	}
 
 	private void evict() {
@@ -662,8 +732,7 @@ private void evict() {
 				for (Entry e = table.get(ptr); e != null; e = e.next) {
 					if (e.dead)
 						continue;
-					if (old == null || e.ref.getLastAccess() < old.ref
-							.getLastAccess()) {
+					if (old == null || evictor.prefer(e.ref, old.ref)) {
 						old = e;
 						slot = ptr;
 					}
@@ -678,6 +747,16 @@ private void evict() {
 		}
 	}
 
+	private Evictor newEvictor(EvictionPolicy policy, int maximumSize) {
+		switch (policy) {
+		case TINY_LFU:
+			return new TinyLfuEvictor(maximumSize);
+		case LRU:
+		default:
+			return new LruEvictor();
+		}
+	}
+
 	/**
 	 * Clear every entry from the cache.
 	 * <p>
@@ -751,6 +830,65 @@ private static Entry clean(Entry top) {
 		return n == top.next ? top : new Entry(n, top.ref);
 	}
 
+	/**
+	 * Strategy to choose the window to evict from a sample of the cache.
+	 */
+	private interface Evictor {
+		/**
+		 * Record an access of a window, either a hit or a load.
+		 *
+		 * @param ref
+		 *            the accessed window.
+		 */
+		void recordAccess(PageRef<ByteWindow> ref);
+
+		/**
+		 * Compare two eviction candidates.
+		 *
+		 * @param a
+		 *            a window.
+		 * @param b
+		 *            another window.
+		 * @return true if {@code a} should be evicted rather than {@code b}.
+		 */
+		boolean prefer(PageRef<ByteWindow> a, PageRef<ByteWindow> b);
+	}
+
+	private static class LruEvictor implements Evictor {
+		@Override
+		public void recordAccess(PageRef<ByteWindow> ref) {
+			// The access clock is all we need.
+		}
+
+		@Override
+		public boolean prefer(PageRef<ByteWindow> a, PageRef<ByteWindow> b) {
+			return a.getLastAccess() < b.getLastAccess();
+		}
+	}
+
+	private class TinyLfuEvictor implements Evictor {
+		private final FrequencySketch sketch;
+
+		TinyLfuEvictor(int maximumSize) {
+			sketch = new FrequencySketch(maximumSize);
+		}
+
+		@Override
+		public void recordAccess(PageRef<ByteWindow> ref) {
+			sketch.increment(hash(ref.getPack().hash, ref.getPosition()));
+		}
+
+		@Override
+		public boolean prefer(PageRef<ByteWindow> a, PageRef<ByteWindow> b) {
+			int fa = sketch.frequency(hash(a.getPack().hash, a.getPosition()));
+			int fb = sketch.frequency(hash(b.getPack().hash, b.getPosition()));
+			if (fa != fb) {
+				return fa < fb;
+			}
+			return a.getLastAccess() < b.getLastAccess();
+		}
+	}
+
 	private static class Entry {
 		/** Next entry in the hash table's chain list. */
 		final Entry next;
@@ -901,7 +1039,7 @@ public boolean isStrongRef() {
 
 	/** A strong reference wrapped around a cached object. */
 	private static class StrongRef implements PageRef<ByteWindow> {
-		private ByteWindow referent;
+		private final AtomicReference<ByteWindow> referent;
 
 		private final Pack pack;
 
@@ -917,7 +1055,7 @@ protected StrongRef(final Pack pack, final long position,
 				final ByteWindow v, final CleanupQueue queue) {
 			this.pack = pack;
 			this.position = position;
-			this.referent = v;
+			this.referent = new AtomicReference<>(v);
 			this.size = v.size();
 			this.queue = queue;
 		}
@@ -949,15 +1087,17 @@ public void setLastAccess(long time) {
 
 		@Override
 		public ByteWindow get() {
-			return referent;
+			return referent.get();
 		}
 
 		@Override
 		public boolean kill() {
-			if (referent == null) {
+			ByteWindow w = referent.getAndSet(null);
+			if (w == null) {
 				return false;
 			}
-			referent = null;
+			// Readers still using the window hold their own reference.
+			w.release();
 			return queue.enqueue(this);
 		}
 
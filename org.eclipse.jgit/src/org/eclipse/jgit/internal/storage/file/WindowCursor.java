@@ -12,10 +12,12 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
@@ -25,6 +27,7 @@
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.StoredObjectRepresentationNotAvailableException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.internal.storage.pack.CachedPack;
 import org.eclipse.jgit.internal.storage.pack.ObjectReuseAsIs;
 import org.eclipse.jgit.internal.storage.pack.ObjectToPack;
@@ -32,6 +35,8 @@
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
 import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.Constants;
@@ -44,6 +49,9 @@
 
 /** Active handle to a ByteWindow. */
 final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
+	/** Smallest region of a pack worth sending with transferTo. */
+	private static final int TRANSFER_THRESHOLD = 64 << 10;
+
 	/** Temporary buffer large enough for at least one raw object id. */
 	final byte[] tempId = new byte[Constants.OBJECT_ID_LENGTH];
 
@@ -53,6 +61,10 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 
 	private DeltaBaseCache baseCache;
 
+	private Pack transferPack;
+
+	private FileChannel transferChannel;
+
 	@Nullable
 	private final ObjectInserter createdFromInserter;
 
@@ -86,6 +98,9 @@ public ObjectReader newReader() {
 	/** {@inheritDoc} */
 	@Override
 	public BitmapIndex getBitmapIndex() throws IOException {
+		PackBitmapIndex midxBitmap = db.getMultiPackBitmapIndex();
+		if (midxBitmap != null)
+			return new BitmapIndexImpl(midxBitmap);
 		for (Pack pack : db.getPacks()) {
 			PackBitmapIndex index = pack.getBitmapIndex();
 			if (index != null)
@@ -94,6 +109,12 @@ public BitmapIndex getBitmapIndex() throws IOException {
 		return null;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public Optional<CommitGraph> getCommitGraph() {
+		return db.getCommitGraph();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Collection<CachedPack> getCachedPacksAndUpdate(
@@ -141,6 +162,134 @@ public ObjectLoader open(AnyObjectId objectId, int typeHint)
 		return ldr;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Objects are returned sorted by pack and offset, while the windows
+	 * holding them are read into the {@link WindowCache} in the background.
+	 */
+	@Override
+	public <T extends ObjectId> AsyncObjectLoaderQueue<T> open(
+			Iterable<T> objectIds, boolean reportMissing) {
+		WindowPrefetcher<T> prefetcher = new WindowPrefetcher<>(
+				db.getPacks(), objectIds);
+		prefetcher.start();
+		return new AsyncObjectLoaderQueue<>() {
+			private WindowPrefetcher.Found<T> cur;
+
+			@Override
+			public boolean next() throws MissingObjectException, IOException {
+				WindowPrefetcher.Found<T> f = prefetcher.next();
+				if (f != null) {
+					cur = f;
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectLoader open() throws IOException {
+				if (cur.pack != null) {
+					try {
+						return cur.pack.load(WindowCursor.this, cur.offset);
+					} catch (IOException e) {
+						// Let the object database search again, it handles
+						// packs which were replaced or are corrupt.
+					}
+				}
+				return WindowCursor.this.open(cur.id, OBJ_ANY);
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				prefetcher.cancel();
+				return true;
+			}
+
+			@Override
+			public void release() {
+				prefetcher.cancel();
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Sizes are returned sorted by pack and offset, while the windows holding
+	 * the objects are read into the {@link WindowCache} in the background.
+	 */
+	@Override
+	public <T extends ObjectId> AsyncObjectSizeQueue<T> getObjectSize(
+			Iterable<T> objectIds, boolean reportMissing) {
+		WindowPrefetcher<T> prefetcher = new WindowPrefetcher<>(
+				db.getPacks(), objectIds);
+		prefetcher.start();
+		return new AsyncObjectSizeQueue<>() {
+			private WindowPrefetcher.Found<T> cur;
+
+			private long sz;
+
+			@Override
+			public boolean next() throws MissingObjectException, IOException {
+				WindowPrefetcher.Found<T> f = prefetcher.next();
+				if (f == null) {
+					return false;
+				}
+				cur = f;
+				sz = -1;
+				if (cur.pack != null) {
+					try {
+						sz = cur.pack.getObjectSize(WindowCursor.this,
+								cur.offset);
+					} catch (IOException e) {
+						// Let the object database search again below.
+					}
+				}
+				if (sz < 0) {
+					sz = WindowCursor.this.getObjectSize(cur.id, OBJ_ANY);
+				}
+				return true;
+			}
+
+			@Override
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			@Override
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			@Override
+			public long getSize() {
+				return sz;
+			}
+
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				prefetcher.cancel();
+				return true;
+			}
+
+			@Override
+			public void release() {
+				prefetcher.cancel();
+			}
+		};
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public Set<ObjectId> getShallowCommits() throws IOException {
@@ -192,8 +341,84 @@ public void copyObjectAsIs(PackOutputStream out, ObjectToPack otp,
 	@Override
 	public void writeObjects(PackOutputStream out, List<ObjectToPack> list)
 			throws IOException {
-		for (ObjectToPack otp : list)
-			out.writeObject(otp);
+		if (!out.canCopyObjectRuns()) {
+			for (ObjectToPack otp : list)
+				out.writeObject(otp);
+			return;
+		}
+
+		// Objects reused from the same pack in the order they are stored
+		// there, typically when most of a pack is sent to a client, are
+		// copied as a single run. Deltas whose base is missing from the run
+		// fall back to copying a single object with a rewritten header.
+		for (int i = 0; i < list.size();) {
+			int n = objectRunLength(list, i, out.length());
+			if (n < 2 || !copyObjectRun(out, list.subList(i, i + n))) {
+				out.writeObject(list.get(i++));
+			} else {
+				i += n;
+			}
+		}
+	}
+
+	private static int objectRunLength(List<ObjectToPack> list, int first,
+			long position) {
+		if (!(list.get(first) instanceof LocalObjectToPack))
+			return 0;
+		LocalObjectToPack head = (LocalObjectToPack) list.get(first);
+		Pack pack = head.pack;
+		long begin = head.offset;
+		long end = begin;
+		int i = first;
+		for (; i < list.size(); i++) {
+			ObjectToPack otp = list.get(i);
+			if (!(otp instanceof LocalObjectToPack))
+				break;
+			LocalObjectToPack obj = (LocalObjectToPack) otp;
+			if (pack == null || obj.pack != pack || obj.offset != end
+					|| !obj.isReuseAsIs() || obj.isWritten())
+				break;
+			if (obj.isDeltaRepresentation()
+					&& !hasRunBase(obj, begin, position - begin))
+				break;
+			end = obj.end;
+		}
+		return i - first;
+	}
+
+	private static boolean hasRunBase(LocalObjectToPack obj, long begin,
+			long shift) {
+		if (obj.baseOffset == 0
+				|| !(obj.getDeltaBase() instanceof LocalObjectToPack))
+			return false;
+		LocalObjectToPack base = (LocalObjectToPack) obj.getDeltaBase();
+		if (base.pack != obj.pack || base.offset != obj.baseOffset)
+			return false;
+		if (base.isWritten())
+			return base.getOffset() - base.offset == shift;
+		// The run is contiguous, so an unwritten base after its start is in
+		// the run.
+		return begin <= base.offset;
+	}
+
+	private boolean copyObjectRun(PackOutputStream out,
+			List<ObjectToPack> run) throws IOException {
+		LocalObjectToPack head = (LocalObjectToPack) run.get(0);
+		long begin = head.offset;
+		long[] starts = new long[run.size() + 1];
+		for (int i = 0; i < run.size(); i++)
+			starts[i] = ((LocalObjectToPack) run.get(i)).offset - begin;
+		long end = ((LocalObjectToPack) run.get(run.size() - 1)).end;
+		starts[run.size()] = end - begin;
+
+		try {
+			head.pack.copyRunAsIs(out, begin, end, this);
+		} catch (StoredObjectRepresentationNotAvailableException gone) {
+			// The pack could not be opened, nothing was written.
+			return false;
+		}
+		out.endObjectRun(run, starts);
+		return true;
 	}
 
 	/**
@@ -241,8 +466,20 @@ public void copyPackAsIs(PackOutputStream out, CachedPack pack)
 
 	void copyPackAsIs(final Pack pack, final long length,
 			final PackOutputStream out) throws IOException {
-		long position = 12;
-		long remaining = length - (12 + 20);
+		copyAsIs(pack, 12, length - 20, out);
+	}
+
+	void copyAsIs(Pack pack, long position, long end, PackOutputStream out)
+			throws IOException {
+		if (TRANSFER_THRESHOLD <= end - position && out.canTransferFrom()) {
+			FileChannel ch = transferChannel(pack);
+			if (ch != null) {
+				out.transferFrom(ch, position, end - position);
+				return;
+			}
+		}
+
+		long remaining = end - position;
 		while (0 < remaining) {
 			pin(pack, position);
 
@@ -324,6 +561,9 @@ void pin(Pack pack, long position)
 			// it again.
 			//
 			window = null;
+			if (w != null) {
+				w.release();
+			}
 			window = WindowCache.get(pack, position);
 		}
 	}
@@ -335,6 +575,32 @@ public ObjectInserter getCreatedFromInserter() {
 		return createdFromInserter;
 	}
 
+	private FileChannel transferChannel(Pack pack) {
+		if (transferPack != pack) {
+			closeTransferChannel();
+			try {
+				transferChannel = pack.openTransferChannel();
+				transferPack = pack;
+			} catch (IOException e) {
+				// Copy through the windows, which report the error if any.
+				return null;
+			}
+		}
+		return transferChannel;
+	}
+
+	private void closeTransferChannel() {
+		if (transferChannel != null) {
+			try {
+				transferChannel.close();
+			} catch (IOException e) {
+				// Nothing was written through the channel.
+			}
+			transferChannel = null;
+			transferPack = null;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
@@ -342,7 +608,11 @@ public ObjectInserter getCreatedFromInserter() {
 	 */
 	@Override
 	public void close() {
-		window = null;
+		if (window != null) {
+			window.release();
+			window = null;
+		}
+		closeTransferChannel();
 		baseCache = null;
 		try {
 			InflaterCache.release(inf);
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Loads the windows holding a batch of objects into the {@link WindowCache}
+ * in the background, ahead of the reader opening the objects one by one.
+ * <p>
+ * The objects are located in the packs and sorted by pack and offset, so the
+ * reader visits each pack front to back. Windows next to each other are
+ * coalesced into runs which are read sequentially by one task, and runs are
+ * read in parallel by a small shared pool of daemon threads. A run only warms
+ * the cache: any error is left for the reader to run into and report when it
+ * opens the object.
+ * <p>
+ * Only a few runs, holding a small fraction of the cache, are read ahead of
+ * the reader. Further runs are scheduled as {@link #next()} advances, so a
+ * large batch does not stream through the cache and evict the windows it
+ * read before the reader got to them.
+ *
+ * @param <T>
+ *            type of the object identities.
+ */
+class WindowPrefetcher<T extends ObjectId> {
+	/** Maximum number of threads reading windows for all prefetchers. */
+	private static final int THREADS = 4;
+
+	/** Maximum number of windows read by a single task. */
+	private static final int MAX_RUN = 16;
+
+	/** Maximum number of runs read ahead of the reader. */
+	private static final int MAX_AHEAD_RUNS = 2 * THREADS;
+
+	/** Fraction of the cache's byte limit which may be read ahead. */
+	private static final int AHEAD_LIMIT_DIVISOR = 16;
+
+	private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 30L,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				runnable -> {
+					Thread t = new Thread(runnable,
+							"JGit-WindowPrefetcher-" //$NON-NLS-1$
+									+ threadNumber.getAndIncrement());
+					// Make sure these threads don't prevent application/JVM
+					// shutdown.
+					t.setDaemon(true);
+					return t;
+				});
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	/** An object to open, with its location if it is in a pack. */
+	static final class Found<T> {
+		final T id;
+
+		/** Pack holding the object; null if it is not in a pack. */
+		final Pack pack;
+
+		final long offset;
+
+		Found(T id, Pack pack, long offset) {
+			this.id = id;
+			this.pack = pack;
+			this.offset = offset;
+		}
+	}
+
+	/** Windows of one pack read by one task. */
+	private static final class Run {
+		final Pack pack;
+
+		final long start;
+
+		final long end;
+
+		/** Index after the last object located in this run. */
+		final int endObject;
+
+		Future<?> task;
+
+		Run(Pack pack, long start, long end, int endObject) {
+			this.pack = pack;
+			this.start = start;
+			this.end = end;
+			this.endObject = endObject;
+		}
+	}
+
+	private final List<Found<T>> objects;
+
+	private final List<Run> runs = new ArrayList<>();
+
+	/** Scheduled runs whose objects were not all returned yet. */
+	private final Deque<Run> ahead = new ArrayDeque<>();
+
+	private long aheadBytes;
+
+	private long aheadLimit;
+
+	/** Index of the next run to schedule. */
+	private int nextRun;
+
+	/** Index of the next object returned by {@link #next()}. */
+	private int nextObject;
+
+	/**
+	 * Locate objects in packs.
+	 *
+	 * @param packs
+	 *            packs to search, in the order they should be searched.
+	 * @param objectIds
+	 *            objects to open.
+	 */
+	WindowPrefetcher(Collection<Pack> packs, Iterable<T> objectIds) {
+		Pack[] search = packs.toArray(new Pack[0]);
+		Map<Pack, Integer> order = new IdentityHashMap<>();
+		for (int i = 0; i < search.length; i++) {
+			order.put(search[i], Integer.valueOf(i));
+		}
+
+		List<Found<T>> packed = new ArrayList<>();
+		List<Found<T>> other = new ArrayList<>();
+		Pack last = null;
+		for (T id : objectIds) {
+			Found<T> f = find(search, last, id);
+			if (f.pack != null) {
+				packed.add(f);
+				last = f.pack;
+			} else {
+				other.add(f);
+			}
+		}
+		packed.sort(Comparator
+				.<Found<T>> comparingInt(f -> order.get(f.pack).intValue())
+				.thenComparingLong(f -> f.offset));
+		packed.addAll(other);
+		objects = packed;
+	}
+
+	private Found<T> find(Pack[] search, Pack last, T id) {
+		if (last != null) {
+			long offset = findOffset(last, id);
+			if (0 < offset) {
+				return new Found<>(id, last, offset);
+			}
+		}
+		for (Pack p : search) {
+			if (p == last) {
+				continue;
+			}
+			long offset = findOffset(p, id);
+			if (0 < offset) {
+				return new Found<>(id, p, offset);
+			}
+		}
+		return new Found<>(id, null, -1);
+	}
+
+	private static long findOffset(Pack p, ObjectId id) {
+		try {
+			return p.findOffset(id);
+		} catch (IOException e) {
+			// The reader will find out when opening the object.
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the objects to open.
+	 *
+	 * @return the objects in pack and offset order, followed by the objects
+	 *         which are not in any pack in their original order.
+	 */
+	List<Found<T>> getObjects() {
+		return objects;
+	}
+
+	/**
+	 * Start reading the windows of the first objects located in a pack.
+	 */
+	void start() {
+		int windowSize = WindowCache.getWindowSize();
+		aheadLimit = WindowCache.getMaxBytes() / AHEAD_LIMIT_DIVISOR;
+		Pack runPack = null;
+		long runStart = 0;
+		long runEnd = 0;
+		int i = 0;
+		for (; i < objects.size(); i++) {
+			Found<T> f = objects.get(i);
+			if (f.pack == null) {
+				break;
+			}
+			long pos = f.offset - f.offset % windowSize;
+			if (f.pack == runPack && pos <= runEnd
+					&& runEnd - runStart < (long) MAX_RUN * windowSize) {
+				runEnd = Math.max(runEnd, pos + windowSize);
+				continue;
+			}
+			addRun(runPack, runStart, runEnd, i);
+			runPack = f.pack;
+			runStart = pos;
+			runEnd = pos + windowSize;
+		}
+		addRun(runPack, runStart, runEnd, i);
+		schedule();
+	}
+
+	private void addRun(Pack pack, long start, long end, int endObject) {
+		if (pack != null) {
+			runs.add(new Run(pack, start, end, endObject));
+		}
+	}
+
+	/**
+	 * Get the next object to open, reading further windows ahead.
+	 *
+	 * @return the next object in the order of {@link #getObjects()}, or null
+	 *         if all objects were returned.
+	 */
+	Found<T> next() {
+		if (nextObject == objects.size()) {
+			return null;
+		}
+		Found<T> f = objects.get(nextObject++);
+		schedule();
+		return f;
+	}
+
+	private void schedule() {
+		while (!ahead.isEmpty() && ahead.peek().endObject < nextObject) {
+			Run r = ahead.poll();
+			aheadBytes -= r.end - r.start;
+		}
+		while (nextRun < runs.size() && ahead.size() < MAX_AHEAD_RUNS) {
+			Run r = runs.get(nextRun);
+			if (r.endObject <= nextObject) {
+				// The reader got there first.
+				nextRun++;
+				continue;
+			}
+			long size = r.end - r.start;
+			if (!ahead.isEmpty() && aheadLimit < aheadBytes + size) {
+				break;
+			}
+			nextRun++;
+			r.task = submit(r.pack, r.start, r.end);
+			ahead.add(r);
+			aheadBytes += size;
+		}
+	}
+
+	/** @return number of runs scheduled ahead of the reader. */
+	int getRunsAhead() {
+		return ahead.size();
+	}
+
+	private static Future<?> submit(Pack pack, long start, long end) {
+		int windowSize = WindowCache.getWindowSize();
+		return EXECUTOR.submit(() -> {
+			try {
+				for (long pos = start; pos < end && pos < pack.length;
+						pos += windowSize) {
+					WindowCache.get(pack, pos).release();
+				}
+			} catch (IOException | RuntimeException e) {
+				// Only warming the cache, the reader reports the error.
+			}
+		});
+	}
+
+	/**
+	 * Cancel reading windows which were not read yet, and stop reading ahead.
+	 * <p>
+	 * Tasks already reading are never interrupted: an interrupt during a read
+	 * through a FileChannel would close the pack's file descriptor shared by
+	 * all readers.
+	 */
+	void cancel() {
+		for (Run r : ahead) {
+			r.task.cancel(false);
+		}
+		ahead.clear();
+		aheadBytes = 0;
+		nextRun = runs.size();
+	}
+}
@@ -12,21 +12,27 @@
 
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.util.io.FileRegionOutput;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 
 /**
  * An OutputStream that keeps a digest and checks every N bytes for
  * cancellation.
  */
-public class CancellableDigestOutputStream extends OutputStream {
+public class CancellableDigestOutputStream extends OutputStream
+		implements FileRegionOutput {
 
 	/** The OutputStream checks every this value for cancellation **/
 	public static final int BYTES_TO_WRITE_BEFORE_CANCEL_CHECK = 128 * 1024;
 
+	/** Bytes of a file region to map at once to update the digest. */
+	private static final int TRANSFER_CHUNK = 8 << 20;
+
 	private final ProgressMonitor writeMonitor;
 
 	private final OutputStream out;
@@ -116,6 +122,39 @@ public final void write(byte[] b, int off, int len) throws IOException {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public final boolean canTransferFrom() {
+		return out instanceof FileRegionOutput
+				&& ((FileRegionOutput) out).canTransferFrom();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The digest is updated by mapping the region, so its bytes are only read
+	 * from the file system cache and not copied to the output by the caller.
+	 */
+	@Override
+	public final void transferFrom(FileChannel src, long position, long len)
+			throws IOException {
+		FileRegionOutput dst = (FileRegionOutput) out;
+		while (0 < len) {
+			if (writeMonitor.isCancelled()) {
+				throw new InterruptedIOException();
+			}
+
+			long n = Math.min(len, TRANSFER_CHUNK);
+			md.update(src.map(FileChannel.MapMode.READ_ONLY, position, n));
+			dst.transferFrom(src, position, n);
+			count += n;
+
+			position += n;
+			len -= n;
+		}
+		checkCancelAt = count + BYTES_TO_WRITE_BEFORE_CANCEL_CHECK;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void flush() throws IOException {
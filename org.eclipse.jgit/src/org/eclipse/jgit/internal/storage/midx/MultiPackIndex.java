@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * The multi-pack-index is a supplemental data structure that indexes the
+ * objects of several packs at once.
+ * <p>
+ * Without it, finding an object means searching the index of each pack in
+ * turn, which gets slower with every pack added by an incremental fetch or
+ * push. The multi-pack-index lists the objects of all packs it covers in
+ * lexicographic order, together with the pack holding each object and the
+ * object's offset in that pack, so a single binary search locates any object.
+ * <p>
+ * Objects stored in more than one pack are listed only once.
+ *
+ * @since 6.5
+ */
+public interface MultiPackIndex {
+
+	/**
+	 * Get the names of the packs covered by this multi-pack-index.
+	 * <p>
+	 * The names are those of the pack index files, e.g.
+	 * {@code pack-1234...abcd.idx}, in lexicographic order. The position of a
+	 * name in the array is the pack id returned by {@link #getPackId(int)}.
+	 *
+	 * @return the names of the covered packs. Callers must not modify the
+	 *         array.
+	 */
+	String[] getPackNames();
+
+	/**
+	 * Find the position of an object in the multi-pack-index.
+	 * <p>
+	 * The position can only be used with the instance it was obtained from.
+	 *
+	 * @param objectId
+	 *            the object to look for.
+	 * @return the position of the object or -1 if no covered pack has it.
+	 */
+	int findPosition(AnyObjectId objectId);
+
+	/**
+	 * Get the object at a position.
+	 *
+	 * @param position
+	 *            position of the object, as returned by
+	 *            {@link #findPosition(AnyObjectId)}.
+	 * @return the object id at this position.
+	 */
+	ObjectId getObjectId(int position);
+
+	/**
+	 * Get the pack holding the object at a position.
+	 *
+	 * @param position
+	 *            position of the object, as returned by
+	 *            {@link #findPosition(AnyObjectId)}.
+	 * @return index into {@link #getPackNames()} of the pack holding the
+	 *         object.
+	 */
+	int getPackId(int position);
+
+	/**
+	 * Get the offset of the object at a position within its pack.
+	 *
+	 * @param position
+	 *            position of the object, as returned by
+	 *            {@link #findPosition(AnyObjectId)}.
+	 * @return offset of the object in the pack returned by
+	 *         {@link #getPackId(int)}.
+	 */
+	long getOffset(int position);
+
+	/**
+	 * Get the number of objects in this multi-pack-index.
+	 *
+	 * @return the number of distinct objects in the covered packs.
+	 */
+	int getObjectCount();
+
+	/**
+	 * Get the checksum of the multi-pack-index file.
+	 * <p>
+	 * Files derived from the multi-pack-index, such as its reachability
+	 * bitmaps, record this checksum to detect that they are stale.
+	 *
+	 * @return the trailing checksum of the file. Callers must not modify the
+	 *         array.
+	 */
+	byte[] getChecksum();
+}
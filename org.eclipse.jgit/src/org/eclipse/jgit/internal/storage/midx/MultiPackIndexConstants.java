@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+/**
+ * Constants relating to the multi-pack-index.
+ */
+class MultiPackIndexConstants {
+
+	static final int MIDX_MAGIC = 0x4d494458; /* "MIDX" */
+
+	static final int MIDX_VERSION = 1;
+
+	static final int OID_HASH_VERSION = 1;
+
+	static final int CHUNK_ID_PACK_NAMES = 0x504e414d; /* "PNAM" */
+
+	static final int CHUNK_ID_OID_FANOUT = 0x4f494446; /* "OIDF" */
+
+	static final int CHUNK_ID_OID_LOOKUP = 0x4f49444c; /* "OIDL" */
+
+	static final int CHUNK_ID_OBJECT_OFFSETS = 0x4f4f4646; /* "OOFF" */
+
+	static final int CHUNK_ID_LARGE_OFFSETS = 0x4c4f4646; /* "LOFF" */
+
+	/**
+	 * The header holds the magic, the version, the hash version, the number
+	 * of chunks, the number of base multi-pack-index files (always 0) and the
+	 * number of packs.
+	 */
+	static final int HEADER_SIZE = 12;
+
+	/**
+	 * First 4 bytes describe the chunk id. Value 0 is a terminating label.
+	 * Other 8 bytes provide the byte-offset in current file for chunk to start.
+	 */
+	static final int CHUNK_LOOKUP_WIDTH = 12;
+
+	static final int FANOUT_SIZE = 4 * 256;
+
+	/**
+	 * Each object has the position of its pack in the pack name list and its
+	 * offset within that pack, each a 4 byte integer.
+	 */
+	static final int OBJECT_OFFSETS_WIDTH = 8;
+
+	/**
+	 * Offset & OFFSET_IS_LARGE != 0 means the other bits are a position in
+	 * the large offsets chunk.
+	 */
+	static final int OFFSET_IS_LARGE = 0x80000000;
+
+	/** Pack names are padded with NUL bytes to a multiple of this size. */
+	static final int PACK_NAMES_ALIGNMENT = 4;
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_LARGE_OFFSETS;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OBJECT_OFFSETS;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_PACK_NAMES;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_LOOKUP_WIDTH;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.FANOUT_SIZE;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.HEADER_SIZE;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.MIDX_MAGIC;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.MIDX_VERSION;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OBJECT_OFFSETS_WIDTH;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OID_HASH_VERSION;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.SystemReader;
+
+/**
+ * The loader returns the representation of the multi-pack-index file content.
+ *
+ * @since 6.5
+ */
+public class MultiPackIndexLoader {
+
+	private MultiPackIndexLoader() {
+	}
+
+	/**
+	 * Open an existing multi-pack-index file for reading.
+	 * <p>
+	 * The file is memory-mapped, so opening it costs no more than parsing its
+	 * chunk table and pack names no matter how many objects it indexes. On
+	 * Windows, where a mapped file cannot be replaced until the mapping is
+	 * garbage collected, the file is read into the heap instead.
+	 *
+	 * @param midxFile
+	 *            existing multi-pack-index to read.
+	 * @return object representation of the multi-pack-index file.
+	 * @throws FileNotFoundException
+	 *             the file does not exist.
+	 * @throws IOException
+	 *             the file exists but could not be read, or is not a valid
+	 *             version 1 multi-pack-index.
+	 */
+	public static MultiPackIndex open(File midxFile)
+			throws FileNotFoundException, IOException {
+		if (!midxFile.isFile()) {
+			throw new FileNotFoundException(midxFile.getAbsolutePath());
+		}
+		try (FileChannel fc = FileChannel.open(midxFile.toPath(),
+				StandardOpenOption.READ)) {
+			long size = fc.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(
+						JGitText.get().multiPackIndexFileIsTooLargeForJgit);
+			}
+			ByteBuffer buf;
+			if (SystemReader.getInstance().isWindows()) {
+				buf = ByteBuffer.allocate((int) size);
+				while (buf.hasRemaining()) {
+					if (fc.read(buf) < 0) {
+						throw new IOException(
+								JGitText.get().notAMultiPackIndex);
+					}
+				}
+				buf.flip();
+			} else {
+				buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			return read(buf);
+		}
+	}
+
+	/**
+	 * Read an existing multi-pack-index file from a buffered stream.
+	 *
+	 * @param fd
+	 *            stream to read the multi-pack-index file from. The stream
+	 *            must be buffered as some small IOs are performed against the
+	 *            stream. The caller is responsible for closing the stream.
+	 * @return object representation of the multi-pack-index file.
+	 * @throws IOException
+	 *             the stream cannot be read, or does not hold a valid version
+	 *             1 multi-pack-index.
+	 */
+	public static MultiPackIndex read(InputStream fd) throws IOException {
+		return read(IO.readWholeStream(fd, HEADER_SIZE).slice());
+	}
+
+	/**
+	 * Parse the multi-pack-index held in {@code buf}.
+	 * <p>
+	 * Only the header, the chunk table and the pack names are read here; the
+	 * returned index reads objects directly from {@code buf} on demand.
+	 *
+	 * @param buf
+	 *            the whole multi-pack-index file, positioned at its first
+	 *            byte.
+	 * @return object representation of the multi-pack-index file.
+	 * @throws IOException
+	 *             the buffer does not hold a valid version 1
+	 *             multi-pack-index.
+	 */
+	static MultiPackIndex read(ByteBuffer buf) throws IOException {
+		int size = buf.remaining();
+		if (size < HEADER_SIZE + CHUNK_LOOKUP_WIDTH
+				|| buf.getInt(0) != MIDX_MAGIC) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+
+		int v = buf.get(4) & 0xff;
+		if (v != MIDX_VERSION) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedMultiPackIndexVersion,
+					Integer.valueOf(v)));
+		}
+
+		int hashVersion = buf.get(5) & 0xff;
+		if (hashVersion != OID_HASH_VERSION) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unsupportedMultiPackIndexHashVersion,
+					Integer.valueOf(hashVersion)));
+		}
+
+		int numberOfChunks = buf.get(6) & 0xff;
+		int numberOfBaseFiles = buf.get(7) & 0xff;
+		int numberOfPacks = buf.getInt(8);
+		int lookupEnd = HEADER_SIZE + (numberOfChunks + 1) * CHUNK_LOOKUP_WIDTH;
+		if (numberOfBaseFiles != 0 || numberOfPacks < 0 || lookupEnd > size) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+
+		int packNamesOffset = -1;
+		int packNamesLength = 0;
+		int fanoutOffset = -1;
+		int oidLookupOffset = -1;
+		int objectCnt = -1;
+		int objectOffsetsOffset = -1;
+		int largeOffsetsOffset = -1;
+		int largeOffsetCnt = 0;
+		for (int i = 0; i < numberOfChunks; i++) {
+			int p = HEADER_SIZE + i * CHUNK_LOOKUP_WIDTH;
+			int chunkId = buf.getInt(p);
+			long chunkOffset = buf.getLong(p + 4);
+			long len = buf.getLong(p + 4 + CHUNK_LOOKUP_WIDTH) - chunkOffset;
+			if (chunkOffset < lookupEnd || len < 0
+					|| chunkOffset + len > size) {
+				throw invalidSize(chunkId);
+			}
+
+			switch (chunkId) {
+			case CHUNK_ID_PACK_NAMES:
+				packNamesOffset = (int) chunkOffset;
+				packNamesLength = (int) len;
+				break;
+			case CHUNK_ID_OID_FANOUT:
+				if (len != FANOUT_SIZE) {
+					throw invalidSize(chunkId);
+				}
+				fanoutOffset = (int) chunkOffset;
+				break;
+			case CHUNK_ID_OID_LOOKUP:
+				if (len % OBJECT_ID_LENGTH != 0) {
+					throw invalidSize(chunkId);
+				}
+				oidLookupOffset = (int) chunkOffset;
+				objectCnt = (int) (len / OBJECT_ID_LENGTH);
+				break;
+			case CHUNK_ID_OBJECT_OFFSETS:
+				objectOffsetsOffset = (int) chunkOffset;
+				if (len % OBJECT_OFFSETS_WIDTH != 0) {
+					throw invalidSize(chunkId);
+				}
+				break;
+			case CHUNK_ID_LARGE_OFFSETS:
+				if (len % 8 != 0) {
+					throw invalidSize(chunkId);
+				}
+				largeOffsetsOffset = (int) chunkOffset;
+				largeOffsetCnt = (int) (len / 8);
+				break;
+			default:
+				// Unknown chunks are optional extensions; skip them.
+				break;
+			}
+		}
+
+		assertChunkFound(packNamesOffset, CHUNK_ID_PACK_NAMES);
+		assertChunkFound(fanoutOffset, CHUNK_ID_OID_FANOUT);
+		assertChunkFound(oidLookupOffset, CHUNK_ID_OID_LOOKUP);
+		assertChunkFound(objectOffsetsOffset, CHUNK_ID_OBJECT_OFFSETS);
+		if (buf.getInt(fanoutOffset + 255 * 4) != objectCnt) {
+			throw invalidSize(CHUNK_ID_OID_FANOUT);
+		}
+		long objectOffsetsEnd = objectOffsetsOffset
+				+ (long) objectCnt * OBJECT_OFFSETS_WIDTH;
+		if (objectOffsetsEnd > size) {
+			throw invalidSize(CHUNK_ID_OBJECT_OFFSETS);
+		}
+
+		String[] packNames = readPackNames(buf, packNamesOffset,
+				packNamesLength, numberOfPacks);
+		if (size < lookupEnd + OBJECT_ID_LENGTH) {
+			throw new IOException(JGitText.get().notAMultiPackIndex);
+		}
+		byte[] checksum = new byte[OBJECT_ID_LENGTH];
+		ByteBuffer b = buf.duplicate();
+		b.position(size - OBJECT_ID_LENGTH);
+		b.get(checksum);
+		return new MultiPackIndexV1(buf, packNames, fanoutOffset,
+				oidLookupOffset, objectOffsetsOffset, largeOffsetsOffset,
+				largeOffsetCnt, objectCnt, checksum);
+	}
+
+	private static String[] readPackNames(ByteBuffer buf, int offset,
+			int length, int numberOfPacks) throws IOException {
+		String[] names = new String[numberOfPacks];
+		int p = offset;
+		int end = offset + length;
+		for (int i = 0; i < numberOfPacks; i++) {
+			int start = p;
+			while (p < end && buf.get(p) != 0) {
+				p++;
+			}
+			if (p == end || p == start) {
+				throw invalidSize(CHUNK_ID_PACK_NAMES);
+			}
+			byte[] name = new byte[p - start];
+			ByteBuffer b = buf.duplicate();
+			b.position(start);
+			b.get(name);
+			names[i] = new String(name, UTF_8);
+			p++;
+		}
+		return names;
+	}
+
+	private static void assertChunkFound(int offset, int chunkId)
+			throws IOException {
+		if (offset < 0) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().multiPackIndexChunkNeeded,
+					Integer.toHexString(chunkId)));
+		}
+	}
+
+	private static IOException invalidSize(int chunkId) {
+		return new IOException(MessageFormat.format(
+				JGitText.get().multiPackIndexChunkSizeInvalid,
+				Integer.toHexString(chunkId)));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OBJECT_OFFSETS_WIDTH;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OFFSET_IS_LARGE;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Support for the multi-pack-index v1 format, reading directly from the
+ * (usually memory-mapped) file contents.
+ * <p>
+ * All reads use absolute {@link ByteBuffer} accessors, so a single instance
+ * can be shared by concurrent readers.
+ *
+ * @see MultiPackIndex
+ */
+class MultiPackIndexV1 implements MultiPackIndex {
+
+	private final ByteBuffer buf;
+
+	private final String[] packNames;
+
+	private final int fanoutOffset;
+
+	private final int oidLookupOffset;
+
+	private final int objectOffsetsOffset;
+
+	private final int largeOffsetsOffset;
+
+	private final int largeOffsetCnt;
+
+	private final int objectCnt;
+
+	private final byte[] checksum;
+
+	MultiPackIndexV1(ByteBuffer buf, String[] packNames, int fanoutOffset,
+			int oidLookupOffset, int objectOffsetsOffset,
+			int largeOffsetsOffset, int largeOffsetCnt, int objectCnt,
+			byte[] checksum) {
+		this.buf = buf;
+		this.packNames = packNames;
+		this.fanoutOffset = fanoutOffset;
+		this.oidLookupOffset = oidLookupOffset;
+		this.objectOffsetsOffset = objectOffsetsOffset;
+		this.largeOffsetsOffset = largeOffsetsOffset;
+		this.largeOffsetCnt = largeOffsetCnt;
+		this.objectCnt = objectCnt;
+		this.checksum = checksum;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String[] getPackNames() {
+		return packNames;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int findPosition(AnyObjectId objectId) {
+		int levelOne = objectId.getFirstByte();
+		int high = fanout(levelOne);
+		int low = levelOne == 0 ? 0 : fanout(levelOne - 1);
+		if (low >= high) {
+			return -1;
+		}
+
+		byte[] raw = new byte[OBJECT_ID_LENGTH];
+		objectId.copyRawTo(raw, 0);
+		do {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(raw, oidLookupOffset + mid * OBJECT_ID_LENGTH);
+			if (cmp < 0) {
+				high = mid;
+			} else if (cmp == 0) {
+				return mid;
+			} else {
+				low = mid + 1;
+			}
+		} while (low < high);
+		return -1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public ObjectId getObjectId(int position) {
+		int p = oidLookupOffset + position * OBJECT_ID_LENGTH;
+		return new ObjectId(buf.getInt(p), buf.getInt(p + 4),
+				buf.getInt(p + 8), buf.getInt(p + 12), buf.getInt(p + 16));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getPackId(int position) {
+		return buf.getInt(objectOffsetsOffset
+				+ position * OBJECT_OFFSETS_WIDTH);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long getOffset(int position) {
+		int offset = buf.getInt(objectOffsetsOffset
+				+ position * OBJECT_OFFSETS_WIDTH + 4);
+		if ((offset & OFFSET_IS_LARGE) == 0) {
+			return offset;
+		}
+		int large = offset & ~OFFSET_IS_LARGE;
+		if (large >= largeOffsetCnt) {
+			return -1;
+		}
+		return buf.getLong(largeOffsetsOffset + large * 8);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getObjectCount() {
+		return objectCnt;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public byte[] getChecksum() {
+		return checksum;
+	}
+
+	private int fanout(int levelOne) {
+		return buf.getInt(fanoutOffset + levelOne * 4);
+	}
+
+	private int compare(byte[] raw, int p) {
+		for (int i = 0; i < OBJECT_ID_LENGTH; i += 4) {
+			int cmp = Integer.compareUnsigned(NB.decodeInt32(raw, i),
+					buf.getInt(p + i));
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+}
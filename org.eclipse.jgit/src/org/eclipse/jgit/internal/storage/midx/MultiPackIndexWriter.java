@@ -0,0 +1,383 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.midx;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_LARGE_OFFSETS;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OBJECT_OFFSETS;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OID_FANOUT;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_OID_LOOKUP;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_ID_PACK_NAMES;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.CHUNK_LOOKUP_WIDTH;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.FANOUT_SIZE;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.HEADER_SIZE;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.MIDX_MAGIC;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.MIDX_VERSION;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OBJECT_OFFSETS_WIDTH;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OFFSET_IS_LARGE;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.OID_HASH_VERSION;
+import static org.eclipse.jgit.internal.storage.midx.MultiPackIndexConstants.PACK_NAMES_ALIGNMENT;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.annotations.NonNull;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.internal.storage.file.PackIndex.MutableEntry;
+import org.eclipse.jgit.internal.storage.io.CancellableDigestOutputStream;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Writes a multi-pack-index formatted file.
+ * <p>
+ * The pack indexes are merged rather than copied into memory: every chunk
+ * listing objects is produced by a fresh k-way merge of the sorted pack
+ * indexes, so writing needs memory proportional to the number of packs, not
+ * to the number of objects.
+ *
+ * @since 6.5
+ */
+public class MultiPackIndexWriter {
+
+	private final String[] packNames;
+
+	private final PackIndex[] indexes;
+
+	/** Pack ids ordered from the most to the least preferred pack. */
+	private final int[] preference;
+
+	private int objectCnt;
+
+	private int largeOffsetCnt;
+
+	private int[] fanout;
+
+	/**
+	 * Create a multi-pack-index writer for these packs.
+	 *
+	 * @param indexesByPackName
+	 *            the index of each pack to cover, keyed by the name of the
+	 *            pack index file (e.g. {@code pack-1234...abcd.idx}). If an
+	 *            object is stored in several packs, the pack which comes first
+	 *            in the map's iteration order is recorded for it, so callers
+	 *            should list the packs they prefer to read from first.
+	 */
+	public MultiPackIndexWriter(
+			@NonNull Map<String, PackIndex> indexesByPackName) {
+		int cnt = indexesByPackName.size();
+		packNames = indexesByPackName.keySet().toArray(new String[0]);
+		Arrays.sort(packNames);
+		indexes = new PackIndex[cnt];
+		for (int i = 0; i < cnt; i++) {
+			indexes[i] = indexesByPackName.get(packNames[i]);
+		}
+		preference = new int[cnt];
+		int i = 0;
+		for (String name : indexesByPackName.keySet()) {
+			preference[i++] = Arrays.binarySearch(packNames, name);
+		}
+	}
+
+	/**
+	 * Write the multi-pack-index to the supplied stream.
+	 *
+	 * @param monitor
+	 *            progress monitor to report the number of objects written.
+	 * @param midxStream
+	 *            output stream of multi-pack-index data. The stream should be
+	 *            buffered by the caller. The caller is responsible for closing
+	 *            the stream.
+	 * @throws IOException
+	 *             the stream cannot be written, or the packs hold more
+	 *             objects than the format can describe.
+	 */
+	public void write(@NonNull ProgressMonitor monitor,
+			@NonNull OutputStream midxStream) throws IOException {
+		countObjects();
+		List<ChunkHeader> chunks = createChunks();
+		monitor.beginTask(JGitText.get().writingOutMultiPackIndex,
+				2 * objectCnt + largeOffsetCnt);
+		try (CancellableDigestOutputStream out = new CancellableDigestOutputStream(
+				monitor, midxStream)) {
+			writeHeader(out, chunks.size());
+			writeChunkLookup(out, chunks);
+			for (ChunkHeader chunk : chunks) {
+				switch (chunk.id) {
+				case CHUNK_ID_PACK_NAMES:
+					writePackNames(out, chunk.size);
+					break;
+				case CHUNK_ID_OID_FANOUT:
+					writeFanout(out);
+					break;
+				case CHUNK_ID_OID_LOOKUP:
+					writeOidLookup(out);
+					break;
+				case CHUNK_ID_OBJECT_OFFSETS:
+					writeObjectOffsets(out);
+					break;
+				case CHUNK_ID_LARGE_OFFSETS:
+					writeLargeOffsets(out);
+					break;
+				}
+			}
+			out.write(out.getDigest());
+			out.flush();
+		} catch (InterruptedIOException e) {
+			throw new IOException(
+					JGitText.get().multiPackIndexWritingCancelled);
+		} finally {
+			monitor.endTask();
+		}
+	}
+
+	private void countObjects() throws IOException {
+		long cnt = 0;
+		int large = 0;
+		fanout = new int[256];
+		for (Merge m = new Merge(); m.next();) {
+			fanout[m.id.getFirstByte()]++;
+			if (isLarge(m.offset)) {
+				large++;
+			}
+			cnt++;
+		}
+		if (cnt > Integer.MAX_VALUE / OBJECT_OFFSETS_WIDTH) {
+			throw new IOException(
+					JGitText.get().multiPackIndexFileIsTooLargeForJgit);
+		}
+		for (int i = 1; i < fanout.length; i++) {
+			fanout[i] += fanout[i - 1];
+		}
+		objectCnt = (int) cnt;
+		largeOffsetCnt = large;
+	}
+
+	private List<ChunkHeader> createChunks() {
+		long namesSize = 0;
+		for (String name : packNames) {
+			namesSize += name.getBytes(UTF_8).length + 1;
+		}
+		namesSize = (namesSize + PACK_NAMES_ALIGNMENT - 1)
+				/ PACK_NAMES_ALIGNMENT * PACK_NAMES_ALIGNMENT;
+
+		List<ChunkHeader> chunks = new ArrayList<>();
+		chunks.add(new ChunkHeader(CHUNK_ID_PACK_NAMES, namesSize));
+		chunks.add(new ChunkHeader(CHUNK_ID_OID_FANOUT, FANOUT_SIZE));
+		chunks.add(new ChunkHeader(CHUNK_ID_OID_LOOKUP,
+				(long) OBJECT_ID_LENGTH * objectCnt));
+		chunks.add(new ChunkHeader(CHUNK_ID_OBJECT_OFFSETS,
+				(long) OBJECT_OFFSETS_WIDTH * objectCnt));
+		if (largeOffsetCnt > 0) {
+			chunks.add(new ChunkHeader(CHUNK_ID_LARGE_OFFSETS,
+					8L * largeOffsetCnt));
+		}
+		return chunks;
+	}
+
+	private void writeHeader(CancellableDigestOutputStream out, int numChunks)
+			throws IOException {
+		byte[] header = new byte[HEADER_SIZE];
+		NB.encodeInt32(header, 0, MIDX_MAGIC);
+		header[4] = (byte) MIDX_VERSION;
+		header[5] = (byte) OID_HASH_VERSION;
+		header[6] = (byte) numChunks;
+		header[7] = 0; // no base multi-pack-index files
+		NB.encodeInt32(header, 8, packNames.length);
+		out.write(header);
+	}
+
+	private void writeChunkLookup(CancellableDigestOutputStream out,
+			List<ChunkHeader> chunks) throws IOException {
+		long chunkOffset = HEADER_SIZE
+				+ (chunks.size() + 1) * CHUNK_LOOKUP_WIDTH;
+		byte[] buffer = new byte[CHUNK_LOOKUP_WIDTH];
+		for (ChunkHeader chunk : chunks) {
+			NB.encodeInt32(buffer, 0, chunk.id);
+			NB.encodeInt64(buffer, 4, chunkOffset);
+			out.write(buffer);
+			chunkOffset += chunk.size;
+		}
+		NB.encodeInt32(buffer, 0, 0);
+		NB.encodeInt64(buffer, 4, chunkOffset);
+		out.write(buffer);
+	}
+
+	private void writePackNames(CancellableDigestOutputStream out, long size)
+			throws IOException {
+		long written = 0;
+		for (String name : packNames) {
+			byte[] raw = name.getBytes(UTF_8);
+			out.write(raw);
+			out.write(0);
+			written += raw.length + 1;
+		}
+		for (; written < size; written++) {
+			out.write(0);
+		}
+	}
+
+	private void writeFanout(CancellableDigestOutputStream out)
+			throws IOException {
+		byte[] tmp = new byte[4];
+		for (int n : fanout) {
+			NB.encodeInt32(tmp, 0, n);
+			out.write(tmp);
+		}
+	}
+
+	private void writeOidLookup(CancellableDigestOutputStream out)
+			throws IOException {
+		byte[] tmp = new byte[OBJECT_ID_LENGTH];
+		for (Merge m = new Merge(); m.next();) {
+			m.id.copyRawTo(tmp, 0);
+			out.write(tmp);
+			out.getWriteMonitor().update(1);
+		}
+	}
+
+	private void writeObjectOffsets(CancellableDigestOutputStream out)
+			throws IOException {
+		byte[] tmp = new byte[OBJECT_OFFSETS_WIDTH];
+		int large = 0;
+		for (Merge m = new Merge(); m.next();) {
+			NB.encodeInt32(tmp, 0, m.packId);
+			if (isLarge(m.offset)) {
+				NB.encodeInt32(tmp, 4, OFFSET_IS_LARGE | large++);
+			} else {
+				NB.encodeInt32(tmp, 4, (int) m.offset);
+			}
+			out.write(tmp);
+			out.getWriteMonitor().update(1);
+		}
+	}
+
+	private void writeLargeOffsets(CancellableDigestOutputStream out)
+			throws IOException {
+		byte[] tmp = new byte[8];
+		for (Merge m = new Merge(); m.next();) {
+			if (isLarge(m.offset)) {
+				NB.encodeInt64(tmp, 0, m.offset);
+				out.write(tmp);
+				out.getWriteMonitor().update(1);
+			}
+		}
+	}
+
+	private static boolean isLarge(long offset) {
+		return (offset & ~0x7fffffffL) != 0;
+	}
+
+	private static int compare(Source a, Source b) {
+		int cmp = a.id.compareTo(b.id);
+		if (cmp == 0) {
+			cmp = Integer.compare(a.rank, b.rank);
+		}
+		return cmp;
+	}
+
+	/**
+	 * Merges the pack indexes into a single sorted list of objects, keeping
+	 * only the copy in the most preferred pack of an object found in several
+	 * packs.
+	 */
+	private class Merge {
+		private final PriorityQueue<Source> queue;
+
+		ObjectId id;
+
+		int packId;
+
+		long offset;
+
+		Merge() {
+			queue = new PriorityQueue<>(Math.max(1, indexes.length),
+					MultiPackIndexWriter::compare);
+			for (int rank = 0; rank < preference.length; rank++) {
+				int pack = preference[rank];
+				Source s = new Source(pack, rank, indexes[pack].iterator());
+				if (s.advance()) {
+					queue.add(s);
+				}
+			}
+		}
+
+		boolean next() {
+			Source s = queue.poll();
+			if (s == null) {
+				return false;
+			}
+			id = s.id;
+			packId = s.packId;
+			offset = s.offset;
+			if (s.advance()) {
+				queue.add(s);
+			}
+			// Drop the copies of this object in less preferred packs.
+			while (!queue.isEmpty() && queue.peek().id.equals(id)) {
+				Source dup = queue.poll();
+				if (dup.advance()) {
+					queue.add(dup);
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Source {
+		final int packId;
+
+		final int rank;
+
+		private final Iterator<MutableEntry> entries;
+
+		ObjectId id;
+
+		long offset;
+
+		Source(int packId, int rank, Iterator<MutableEntry> entries) {
+			this.packId = packId;
+			this.rank = rank;
+			this.entries = entries;
+		}
+
+		boolean advance() {
+			if (!entries.hasNext()) {
+				return false;
+			}
+			MutableEntry e = entries.next();
+			id = e.toObjectId();
+			offset = e.getOffset();
+			return true;
+		}
+	}
+
+	private static class ChunkHeader {
+		final int id;
+
+		final long size;
+
+		ChunkHeader(int id, long size) {
+			this.id = id;
+			this.size = size;
+		}
+	}
+}
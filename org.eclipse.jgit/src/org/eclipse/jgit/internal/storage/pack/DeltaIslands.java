@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.eclipse.jgit.lib.Constants.OBJ_TREE;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * Delta islands of the objects in a pack.
+ * <p>
+ * Islands are defined by regular expressions matched against ref names, like
+ * git's {@code pack.island}. Refs matching a pattern belong to the island
+ * named by the pattern's capture groups joined with {@code '-'}, so the
+ * pattern {@code refs/virtual/([0-9]+)/} puts the refs of each fork of a fork
+ * network into its own island. An object belongs to every island with a ref
+ * it is reachable from.
+ * <p>
+ * An object may only be stored as a delta against a base which belongs to all
+ * islands the object belongs to. A pack for any single island then contains
+ * the bases of all deltas, so it can be served by reusing the deltas as is.
+ * <p>
+ * Islands are computed once for the objects of a pack, in a single pass over
+ * their commits and trees. Objects with equal membership share one set.
+ */
+final class DeltaIslands {
+	/**
+	 * Compute the islands of the objects of a pack.
+	 *
+	 * @param reader
+	 *            reader to parse commits and trees with.
+	 * @param patterns
+	 *            regular expressions defining the islands.
+	 * @param refs
+	 *            refs of the repository.
+	 * @param objects
+	 *            objects of the pack. Trees outside of this map are not
+	 *            traversed.
+	 * @return the islands, or null if no ref matches any pattern.
+	 * @throws IOException
+	 *             commits or trees cannot be read.
+	 */
+	static DeltaIslands compute(ObjectReader reader, List<String> patterns,
+			Collection<Ref> refs, ObjectIdOwnerMap<ObjectToPack> objects)
+			throws IOException {
+		List<Pattern> compiled = new ArrayList<>(patterns.size());
+		for (String p : patterns) {
+			compiled.add(Pattern.compile(p));
+		}
+
+		Map<String, Integer> names = new HashMap<>();
+		DeltaIslands islands = new DeltaIslands();
+		try (RevWalk rw = new RevWalk(reader)) {
+			rw.sort(RevSort.TOPO);
+			for (Ref ref : refs) {
+				String name = islandName(compiled, ref.getName());
+				if (name == null || ref.isSymbolic()
+						|| ref.getObjectId() == null) {
+					continue;
+				}
+				Integer island = names.get(name);
+				if (island == null) {
+					island = Integer.valueOf(names.size());
+					names.put(name, island);
+				}
+				BitSet set = new BitSet();
+				set.set(island.intValue());
+				islands.seed(rw, ref.getObjectId(), set);
+			}
+			if (names.isEmpty()) {
+				return null;
+			}
+
+			// Topological order visits all children of a commit before the
+			// commit, so its set is complete when passed on to its parents.
+			for (RevCommit c; (c = rw.next()) != null;) {
+				BitSet set = islands.get(c);
+				for (RevCommit p : c.getParents()) {
+					islands.add(p, set);
+				}
+				islands.add(c.getTree(), set);
+			}
+			List<ObjectId> trees = new ArrayList<>();
+			for (Marks m : islands.marks) {
+				if (m.type == OBJ_TREE) {
+					trees.add(m);
+				}
+			}
+			islands.propagateToTrees(reader, trees, objects);
+		}
+		return islands;
+	}
+
+	private static String islandName(List<Pattern> patterns, String refName) {
+		for (Pattern p : patterns) {
+			Matcher m = p.matcher(refName);
+			if (m.find()) {
+				StringBuilder name = new StringBuilder();
+				for (int g = 1; g <= m.groupCount(); g++) {
+					if (g > 1) {
+						name.append('-');
+					}
+					name.append(m.group(g));
+				}
+				return name.toString();
+			}
+		}
+		return null;
+	}
+
+	private static final class Marks extends ObjectIdOwnerMap.Entry {
+		final int type;
+
+		BitSet islands;
+
+		Marks(AnyObjectId id, int type) {
+			super(id);
+			this.type = type;
+		}
+	}
+
+	private final ObjectIdOwnerMap<Marks> marks = new ObjectIdOwnerMap<>();
+
+	private DeltaIslands() {
+	}
+
+	/**
+	 * Whether an object may be stored as a delta against a base.
+	 *
+	 * @param res
+	 *            the object to store as a delta.
+	 * @param base
+	 *            the delta base.
+	 * @return true if the base belongs to all islands {@code res} belongs
+	 *         to.
+	 */
+	boolean canDelta(AnyObjectId res, AnyObjectId base) {
+		BitSet r = get(res);
+		if (r == null) {
+			return true;
+		}
+		BitSet b = get(base);
+		return b != null && contains(b, r);
+	}
+
+	private void seed(RevWalk rw, ObjectId id, BitSet set) throws IOException {
+		RevObject o;
+		try {
+			o = rw.parseAny(id);
+			while (o instanceof RevTag) {
+				add(o, set);
+				o = ((RevTag) o).getObject();
+				rw.parseHeaders(o);
+			}
+		} catch (MissingObjectException e) {
+			return;
+		}
+		if (o instanceof RevCommit) {
+			rw.markStart((RevCommit) o);
+		}
+		add(o, set);
+	}
+
+	private BitSet get(AnyObjectId id) {
+		Marks m = marks.get(id);
+		return m != null ? m.islands : null;
+	}
+
+	private void add(RevObject o, BitSet set) {
+		add(o, o.getType(), set);
+	}
+
+	private void add(AnyObjectId id, int type, BitSet set) {
+		if (set == null) {
+			return;
+		}
+		Marks m = marks.get(id);
+		if (m == null) {
+			m = new Marks(id, type);
+			marks.add(m);
+		}
+		m.islands = union(m.islands, set);
+	}
+
+	private void propagateToTrees(ObjectReader reader, List<ObjectId> roots,
+			ObjectIdOwnerMap<ObjectToPack> objects) throws IOException {
+		// Order the trees so every tree comes before the trees it contains,
+		// by reversing the order in which a depth first search leaves them.
+		ObjectIdOwnerMap<Marks> done = new ObjectIdOwnerMap<>();
+		List<Marks> order = new ArrayList<>();
+		ArrayDeque<Marks> stack = new ArrayDeque<>();
+		ArrayDeque<CanonicalTreeParser> parsers = new ArrayDeque<>();
+		for (ObjectId root : roots) {
+			if (!enter(reader, root, objects, done, stack, parsers)) {
+				continue;
+			}
+			while (!stack.isEmpty()) {
+				CanonicalTreeParser p = parsers.peek();
+				if (p.eof()) {
+					order.add(stack.pop());
+					parsers.pop();
+					continue;
+				}
+				if (FileMode.TREE.equals(p.getEntryRawMode())) {
+					ObjectId child = p.getEntryObjectId();
+					p.next(1);
+					enter(reader, child, objects, done, stack, parsers);
+				} else {
+					p.next(1);
+				}
+			}
+		}
+
+		CanonicalTreeParser p = new CanonicalTreeParser();
+		for (int i = order.size() - 1; i >= 0; i--) {
+			Marks tree = order.get(i);
+			BitSet set = get(tree);
+			if (set == null) {
+				continue;
+			}
+			p.reset(reader.open(tree, OBJ_TREE).getCachedBytes());
+			for (; !p.eof(); p.next(1)) {
+				int mode = p.getEntryRawMode();
+				if (FileMode.TREE.equals(mode)) {
+					add(p.getEntryObjectId(), OBJ_TREE, set);
+				} else if (FileMode.GITLINK.equals(mode)) {
+					continue;
+				} else {
+					add(p.getEntryObjectId(), OBJ_BLOB, set);
+				}
+			}
+		}
+	}
+
+	private static boolean enter(ObjectReader reader, ObjectId tree,
+			ObjectIdOwnerMap<ObjectToPack> objects,
+			ObjectIdOwnerMap<Marks> done, ArrayDeque<Marks> stack,
+			ArrayDeque<CanonicalTreeParser> parsers) throws IOException {
+		ObjectToPack otp = objects.get(tree);
+		if (otp == null || otp.isEdge() || done.contains(tree)) {
+			return false;
+		}
+		Marks m = new Marks(tree, OBJ_TREE);
+		done.add(m);
+		CanonicalTreeParser p = new CanonicalTreeParser();
+		p.reset(reader.open(tree, OBJ_TREE).getCachedBytes());
+		stack.push(m);
+		parsers.push(p);
+		return true;
+	}
+
+	/** Union of two sets, sharing an argument whenever it is the result. */
+	private static BitSet union(BitSet a, BitSet b) {
+		if (a == null || a == b) {
+			return b;
+		}
+		if (b == null || contains(a, b)) {
+			return a;
+		}
+		if (contains(b, a)) {
+			return b;
+		}
+		BitSet u = (BitSet) a.clone();
+		u.or(b);
+		return u;
+	}
+
+	/** Whether {@code sub} is a subset of {@code set}. */
+	private static boolean contains(BitSet set, BitSet sub) {
+		if (set == sub) {
+			return true;
+		}
+		BitSet missing = (BitSet) sub.clone();
+		missing.andNot(set);
+		return missing.isEmpty();
+	}
+}
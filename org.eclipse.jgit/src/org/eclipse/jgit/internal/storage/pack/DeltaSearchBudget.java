@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.storage.pack.PackConfig;
+
+/**
+ * Memory shared by the delta search windows of all threads of one writer.
+ * <p>
+ * Each {@link DeltaWindow} charges the buffers and indexes it loads here, in
+ * addition to its own count checked against
+ * {@link PackConfig#getDeltaSearchMemoryLimit()}. While the windows together
+ * hold more than {@link PackConfig#getTotalDeltaSearchMemoryLimit()} a window
+ * drops its own oldest entries before loading another object. Windows never
+ * wait for each other, so the limit can be exceeded by the objects each
+ * window is comparing.
+ */
+final class DeltaSearchBudget {
+	/**
+	 * Create the budget configured for a writer.
+	 *
+	 * @param config
+	 *            configuration of the writer.
+	 * @return the budget, or null if the total memory is not limited.
+	 */
+	static DeltaSearchBudget create(PackConfig config) {
+		long limit = config.getTotalDeltaSearchMemoryLimit();
+		return limit > 0 ? new DeltaSearchBudget(limit) : null;
+	}
+
+	private final long limit;
+
+	private final AtomicLong loaded = new AtomicLong();
+
+	private DeltaSearchBudget(long limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Whether loading more bytes would exceed the budget.
+	 *
+	 * @param need
+	 *            number of bytes about to be loaded.
+	 * @return true if the windows would hold more than the limit.
+	 */
+	boolean exceeds(long need) {
+		return limit < loaded.get() + need;
+	}
+
+	/**
+	 * Account for bytes loaded or released by a window.
+	 *
+	 * @param bytes
+	 *            number of bytes loaded, negative if released.
+	 */
+	void add(long bytes) {
+		loaded.addAndGet(bytes);
+	}
+}
@@ -33,6 +33,8 @@ static final class Block {
 		final PackConfig config;
 		final ObjectReader templateReader;
 		final DeltaCache dc;
+		final DeltaSearchBudget budget;
+		final DeltaIslands islands;
 		final ThreadSafeProgressMonitor pm;
 		final ObjectToPack[] list;
 		final int beginIndex;
@@ -42,13 +44,16 @@ static final class Block {
 		long bytesPerUnit;
 
 		Block(int threads, PackConfig config, ObjectReader reader,
-				DeltaCache dc, ThreadSafeProgressMonitor pm,
+				DeltaCache dc, DeltaIslands islands,
+				ThreadSafeProgressMonitor pm,
 				ObjectToPack[] list, int begin, int end) {
 			this.tasks = new ArrayList<>(threads);
 			this.threads = threads;
 			this.config = config;
 			this.templateReader = reader;
 			this.dc = dc;
+			this.budget = DeltaSearchBudget.create(config);
+			this.islands = islands;
 			this.pm = pm;
 			this.list = list;
 			this.beginIndex = begin;
@@ -282,8 +287,8 @@ public Object call() throws Exception {
 
 	DeltaWindow initWindow(Slice s) {
 		DeltaWindow w = new DeltaWindow(block.config, block.dc,
-				or, block.pm, block.bytesPerUnit,
-				block.list, s.beginIndex, s.endIndex);
+				or, block.pm, block.bytesPerUnit, block.budget,
+				block.islands, block.list, s.beginIndex, s.endIndex);
 		synchronized (this) {
 			dw = w;
 		}
@@ -37,6 +37,15 @@ final class DeltaWindow {
 	/** Maximum number of bytes to admit to the window at once. */
 	private final long maxMemory;
 
+	/** Memory shared with the windows of other threads, if limited. */
+	private final DeltaSearchBudget budget;
+
+	/** Islands restricting the choice of delta bases, if any. */
+	private final DeltaIslands islands;
+
+	/** Whether {@link #loaded} has to be tracked. */
+	private final boolean limited;
+
 	/** Maximum depth we should create for any delta chain. */
 	private final int maxDepth;
 
@@ -61,8 +70,9 @@ final class DeltaWindow {
 	private Deflater deflater;
 
 	DeltaWindow(PackConfig pc, DeltaCache dc, ObjectReader or,
-			ProgressMonitor pm, long bpu,
-			ObjectToPack[] in, int beginIndex, int endIndex) {
+			ProgressMonitor pm, long bpu, DeltaSearchBudget budget,
+			DeltaIslands islands, ObjectToPack[] in, int beginIndex,
+			int endIndex) {
 		config = pc;
 		deltaCache = dc;
 		reader = or;
@@ -73,6 +83,9 @@ final class DeltaWindow {
 		end = endIndex;
 
 		maxMemory = Math.max(0, config.getDeltaSearchMemoryLimit());
+		this.budget = budget;
+		this.islands = islands;
+		limited = maxMemory != 0 || budget != null;
 		maxDepth = config.getMaxDeltaDepth();
 		res = DeltaWindowEntry.createWindow(config.getDeltaSearchWindowSize());
 	}
@@ -119,11 +132,11 @@ void search() throws IOException {
 						break;
 					next = toSearch[cur++];
 				}
-				if (maxMemory != 0) {
+				if (limited) {
 					clear(res);
 					final long need = estimateSize(next);
 					DeltaWindowEntry n = res.next;
-					for (; maxMemory < loaded + need && n != res; n = n.next)
+					for (; exceedsLimit(need) && n != res; n = n.next)
 						clear(n);
 				}
 				res.set(next);
@@ -147,6 +160,8 @@ void search() throws IOException {
 		} finally {
 			if (deflater != null)
 				deflater.end();
+			if (budget != null)
+				budget.add(-loaded);
 		}
 	}
 
@@ -173,12 +188,27 @@ private void clearWindowOnTypeSwitch() {
 
 	private void clear(DeltaWindowEntry ent) {
 		if (ent.index != null)
-			loaded -= ent.index.getIndexSize();
+			charge(-ent.index.getIndexSize());
 		else if (ent.buffer != null)
-			loaded -= ent.buffer.length;
+			charge(-ent.buffer.length);
 		ent.set(null);
 	}
 
+	private void charge(long bytes) {
+		loaded += bytes;
+		if (budget != null)
+			budget.add(bytes);
+	}
+
+	private boolean exceedsLimit(long need) {
+		return exceedsWindowLimit(need)
+				|| (budget != null && budget.exceeds(need));
+	}
+
+	private boolean exceedsWindowLimit(long need) {
+		return maxMemory != 0 && maxMemory < loaded + need;
+	}
+
 	private void searchInWindow() throws IOException {
 		// Loop through the window backwards, considering every entry.
 		// This lets us look at the bigger objects that came before.
@@ -235,6 +265,12 @@ private void searchInWindow() throws IOException {
 
 	private boolean delta(DeltaWindowEntry src)
 			throws IOException {
+		// Bases outside of the object's islands are not allowed, except for
+		// edges of a thin pack which the receiver already has.
+		if (islands != null && !src.object.isEdge()
+				&& !islands.canDelta(res.object, src.object))
+			return NEXT_SRC;
+
 		// If the sizes are radically different, this is a bad pairing.
 		if (res.size() < src.size() >>> 4)
 			return NEXT_SRC;
@@ -361,8 +397,8 @@ private DeltaIndex index(DeltaWindowEntry ent)
 				e.setObjectId(ent.object);
 				throw e;
 			}
-			if (maxMemory != 0)
-				loaded += idx.getIndexSize() - idx.getSourceSize();
+			if (limited)
+				charge(idx.getIndexSize() - idx.getSourceSize());
 			ent.index = idx;
 		}
 		return idx;
@@ -375,19 +411,24 @@ private byte[] buffer(DeltaWindowEntry ent) throws MissingObjectException,
 			checkLoadable(ent, ent.size());
 
 			buf = PackWriter.buffer(config, reader, ent.object);
-			if (maxMemory != 0)
-				loaded += buf.length;
+			if (limited)
+				charge(buf.length);
 			ent.buffer = buf;
 		}
 		return buf;
 	}
 
 	private void checkLoadable(DeltaWindowEntry ent, long need) {
-		if (maxMemory == 0)
+		if (!limited)
 			return;
 
 		DeltaWindowEntry n = res.next;
-		for (; maxMemory < loaded + need; n = n.next) {
+		for (; exceedsLimit(need); n = n.next) {
+			if (n == ent && !exceedsWindowLimit(need)) {
+				// Only the other windows hold too much, do not wait for
+				// them to release memory.
+				return;
+			}
 			clear(n);
 			if (n == ent)
 				throw new LargeObjectException.ExceedsLimit(
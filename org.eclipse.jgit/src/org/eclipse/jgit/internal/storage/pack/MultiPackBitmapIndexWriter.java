@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_COMMIT;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.PackBitmapIndexBuilder;
+import org.eclipse.jgit.internal.storage.file.PackBitmapIndexWriterV1;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.storage.pack.PackConfig;
+
+/**
+ * Builds the reachability bitmaps of the objects listed in a
+ * multi-pack-index.
+ * <p>
+ * Commits are selected and their bitmaps computed exactly as
+ * {@link PackWriter} does for a single pack, but the objects are not copied:
+ * the caller lists the objects of the multi-pack-index and assigns each one
+ * its bit position.
+ * <p>
+ * Call {@link #prepareBitmapIndex(ProgressMonitor, List, Set)} followed by
+ * {@link #writeBitmapIndex(OutputStream, byte[])}.
+ *
+ * @since 6.5
+ */
+public class MultiPackBitmapIndexWriter {
+	private final ObjectReader reader;
+
+	private final PackConfig config;
+
+	private PackBitmapIndexBuilder writeBitmaps;
+
+	/**
+	 * Create a writer for the bitmaps of a multi-pack-index.
+	 *
+	 * @param reader
+	 *            reader to walk the history of the repository with.
+	 * @param config
+	 *            configuration for selecting the commits to build bitmaps
+	 *            for.
+	 */
+	public MultiPackBitmapIndexWriter(ObjectReader reader, PackConfig config) {
+		this.reader = reader;
+		this.config = config;
+	}
+
+	/**
+	 * Compute the bitmaps of commits reachable from {@code want}.
+	 *
+	 * @param pm
+	 *            progress monitor to report bitmap building work.
+	 * @param objectsByName
+	 *            all objects of the multi-pack-index, sorted by name, with
+	 *            their type set and their offset set to their bit position.
+	 *            The list is resorted in place.
+	 * @param want
+	 *            tips of the history to build bitmaps for, usually the
+	 *            objects referenced by refs.
+	 * @return true if the bitmaps may be written; false if a commit reaches
+	 *         objects which are not listed in {@code objectsByName}, e.g.
+	 *         loose objects.
+	 * @throws IOException
+	 *             on errors reading pack or index files
+	 */
+	public boolean prepareBitmapIndex(ProgressMonitor pm,
+			List<ObjectToPack> objectsByName, Set<? extends ObjectId> want)
+			throws IOException {
+		if (pm == null)
+			pm = NullProgressMonitor.INSTANCE;
+
+		int numCommits = 0;
+		for (ObjectToPack otp : objectsByName) {
+			if (otp.getType() == OBJ_COMMIT) {
+				numCommits++;
+			}
+		}
+		writeBitmaps = new PackBitmapIndexBuilder(objectsByName);
+
+		PackWriterBitmapPreparer bitmapPreparer = new PackWriterBitmapPreparer(
+				reader, writeBitmaps, pm, want, config);
+		Collection<BitmapCommit> selectedCommits = bitmapPreparer
+				.selectCommits(numCommits, PackWriter.NONE);
+
+		pm.beginTask(JGitText.get().buildingBitmaps, selectedCommits.size());
+		boolean complete = bitmapPreparer.buildBitmaps(selectedCommits);
+		pm.endTask();
+		return complete;
+	}
+
+	/**
+	 * Write the bitmaps computed by
+	 * {@link #prepareBitmapIndex(ProgressMonitor, List, Set)}.
+	 *
+	 * @param out
+	 *            stream to write the bitmap index file to. The stream is
+	 *            flushed but not closed.
+	 * @param midxChecksum
+	 *            checksum of the multi-pack-index the bitmaps belong to.
+	 * @throws IOException
+	 *             the bitmaps were not prepared, or the stream cannot be
+	 *             written.
+	 */
+	public void writeBitmapIndex(OutputStream out, byte[] midxChecksum)
+			throws IOException {
+		if (writeBitmaps == null)
+			throw new IOException(JGitText.get().bitmapsMustBePrepared);
+		new PackBitmapIndexWriterV1(out).write(writeBitmaps, midxChecksum);
+	}
+}
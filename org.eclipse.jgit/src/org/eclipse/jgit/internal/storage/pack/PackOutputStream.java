@@ -17,6 +17,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.List;
 
 import org.eclipse.jgit.internal.storage.io.CancellableDigestOutputStream;
 import org.eclipse.jgit.lib.ProgressMonitor;
@@ -146,6 +147,43 @@ private static final int ofsDeltaVarIntLength(long v) {
 		return n;
 	}
 
+	/**
+	 * Whether objects may be written by copying runs of a pack as is.
+	 * <p>
+	 * If true, storage implementations may write objects stored back to back
+	 * in one pack by copying their stored bytes at once, and record them with
+	 * {@link #endObjectRun(List, long[])}. Runs are not allowed if the writer
+	 * has to compute the CRC of every object or validate reused objects, or
+	 * if deltas may not refer to their base by offset.
+	 *
+	 * @return true if objects may be written by copying runs of a pack.
+	 * @since 6.5
+	 */
+	public final boolean canCopyObjectRuns() {
+		return ofsDelta && packWriter.canCopyObjectRuns();
+	}
+
+	/**
+	 * Record objects just written by copying a run of a pack as is.
+	 * <p>
+	 * The objects must have been selected for reuse as is and not have been
+	 * written yet. Any delta must refer to its base by offset, and the base
+	 * must be an earlier object of the run, or have been written before the
+	 * run at the same distance as it is stored.
+	 *
+	 * @param run
+	 *            the objects copied, in the order they are stored.
+	 * @param starts
+	 *            offset of each object of {@code run} from the start of the
+	 *            run, followed by the length of the run.
+	 * @since 6.5
+	 */
+	public final void endObjectRun(List<? extends ObjectToPack> run,
+			long[] starts) {
+		packWriter.endObjectRun(this, run, starts);
+		getWriteMonitor().update(run.size());
+	}
+
 	/**
 	 * Get a temporary buffer writers can use to copy data with.
 	 *
@@ -37,6 +37,7 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -44,6 +45,7 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Deflater;
@@ -61,6 +63,7 @@
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexBuilder;
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexWriterV1;
 import org.eclipse.jgit.internal.storage.file.PackIndexWriter;
+import org.eclipse.jgit.internal.storage.file.PackReverseIndexWriterV1;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
 import org.eclipse.jgit.lib.BatchingProgressMonitor;
@@ -75,6 +78,7 @@
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
@@ -87,6 +91,7 @@
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.filter.ObjectFilter;
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.storage.pack.PackStatistics;
 import org.eclipse.jgit.transport.FilterSpec;
@@ -254,6 +259,10 @@ public static Iterable<PackWriter> getInstances() {
 
 	private boolean useBitmaps;
 
+	private Collection<Ref> deltaIslandRefs;
+
+	private DeltaIslands deltaIslands;
+
 	private boolean ignoreMissingUninteresting = true;
 
 	private boolean pruneCurrentObjectList;
@@ -574,6 +583,24 @@ public void setUseBitmaps(boolean useBitmaps) {
 		this.useBitmaps = useBitmaps;
 	}
 
+	/**
+	 * Set the refs defining the delta islands of the pack.
+	 * <p>
+	 * Refs are assigned to islands by the patterns of
+	 * {@link org.eclipse.jgit.storage.pack.PackConfig#getDeltaIslands()}. If
+	 * set and any ref belongs to an island, deltas are only created or reused
+	 * against bases reachable from all islands the object is reachable from.
+	 * Writers of packs kept by the repository should pass all of its refs, so
+	 * the deltas remain reusable when serving a single island.
+	 *
+	 * @param refs
+	 *            refs of the repository, or null to ignore islands.
+	 * @since 6.5
+	 */
+	public void setDeltaIslandRefs(Collection<Ref> refs) {
+		deltaIslandRefs = refs;
+	}
+
 	/**
 	 * Whether the index file cannot be created by this PackWriter.
 	 *
@@ -1091,6 +1118,36 @@ public void writeIndex(OutputStream indexStream) throws IOException {
 		stats.timeWriting += System.currentTimeMillis() - writeStart;
 	}
 
+	/**
+	 * Create a reverse index file to match the pack file just written.
+	 * <p>
+	 * Called after
+	 * {@link #writePack(ProgressMonitor, ProgressMonitor, OutputStream)}.
+	 * <p>
+	 * Like the index, the reverse index is only useful for local pack
+	 * storage. It lets readers skip sorting the offsets of all objects when
+	 * they open the pack.
+	 *
+	 * @param reverseIndexStream
+	 *            output for the reverse index data. Caller is responsible for
+	 *            closing this stream.
+	 * @throws java.io.IOException
+	 *             the reverse index data could not be written to the supplied
+	 *             stream.
+	 * @since 6.5
+	 */
+	public void writeReverseIndex(OutputStream reverseIndexStream)
+			throws IOException {
+		if (isIndexDisabled())
+			throw new IOException(JGitText.get().cachedPacksPreventsIndexCreation);
+
+		long writeStart = System.currentTimeMillis();
+		PackReverseIndexWriterV1 iw = new PackReverseIndexWriterV1(
+				reverseIndexStream);
+		iw.write(sortByName(), packcsum);
+		stats.timeWriting += System.currentTimeMillis() - writeStart;
+	}
+
 	/**
 	 * Create a bitmap index file to match the pack file just written.
 	 * <p>
@@ -1217,6 +1274,9 @@ public void writePack(ProgressMonitor compressMonitor,
 					TimeUnit.MILLISECONDS);
 		}
 
+		if (deltaIslandRefs != null && !config.getDeltaIslands().isEmpty())
+			deltaIslands = DeltaIslands.compute(reader,
+					config.getDeltaIslands(), deltaIslandRefs, objectsMap);
 		if (needSearchForReuse)
 			searchForReuse(compressMonitor);
 		if (config.isDeltaCompress())
@@ -1574,9 +1634,7 @@ private void searchForDeltas(final ProgressMonitor monitor,
 			final ObjectToPack[] list, final int cnt)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			LargeObjectException, IOException {
-		int threads = config.getThreads();
-		if (threads == 0)
-			threads = Runtime.getRuntime().availableProcessors();
+		int threads = getThreads();
 		if (threads <= 1 || cnt <= config.getDeltaSearchWindowSize())
 			singleThreadDeltaSearch(monitor, list, cnt);
 		else
@@ -1600,36 +1658,43 @@ private void singleThreadDeltaSearch(ProgressMonitor monitor,
 
 		beginPhase(PackingPhase.COMPRESSING, monitor, cost);
 		new DeltaWindow(config, new DeltaCache(config), reader,
-				monitor, bytesPerUnit,
-				list, 0, cnt).search();
+				monitor, bytesPerUnit, DeltaSearchBudget.create(config),
+				deltaIslands, list, 0, cnt).search();
 		endPhase(monitor);
 	}
 
-	@SuppressWarnings("Finally")
 	private void parallelDeltaSearch(ProgressMonitor monitor,
 			ObjectToPack[] list, int cnt, int threads) throws IOException {
 		DeltaCache dc = new ThreadSafeDeltaCache(config);
 		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(monitor);
 		DeltaTask.Block taskBlock = new DeltaTask.Block(threads, config,
-				reader, dc, pm,
+				reader, dc, deltaIslands, pm,
 				list, 0, cnt);
 		taskBlock.partitionTasks();
 		beginPhase(PackingPhase.COMPRESSING, monitor, taskBlock.cost());
 		pm.startWorkers(taskBlock.tasks.size());
 
+		runTasks(pm, taskBlock.tasks, threads);
+		endPhase(monitor);
+	}
+
+	@SuppressWarnings("Finally")
+	private void runTasks(ThreadSafeProgressMonitor pm,
+			List<? extends Callable<?>> tasks, int threads)
+			throws IOException {
 		Executor executor = config.getExecutor();
 		final List<Throwable> errors =
 				Collections.synchronizedList(new ArrayList<>(threads));
 		if (executor instanceof ExecutorService) {
 			// Caller supplied us a service, use it directly.
-			runTasks((ExecutorService) executor, pm, taskBlock, errors);
+			runTasks((ExecutorService) executor, pm, tasks, errors);
 		} else if (executor == null) {
 			// Caller didn't give us a way to run the tasks, spawn up a
 			// temporary thread pool and make sure it tears down cleanly.
 			ExecutorService pool = Executors.newFixedThreadPool(threads);
 			Throwable e1 = null;
 			try {
-				runTasks(pool, pm, taskBlock, errors);
+				runTasks(pool, pm, tasks, errors);
 			} catch (Exception e) {
 				e1 = e;
 			} finally {
@@ -1652,7 +1717,7 @@ private void parallelDeltaSearch(ProgressMonitor monitor,
 			// The caller gave us an executor, but it might not do
 			// asynchronous execution.  Wrap everything and hope it
 			// can schedule these for us.
-			for (DeltaTask task : taskBlock.tasks) {
+			for (Callable<?> task : tasks) {
 				executor.execute(() -> {
 					try {
 						task.call();
@@ -1674,7 +1739,7 @@ private void parallelDeltaSearch(ProgressMonitor monitor,
 		}
 
 		// If any task threw an error, try to report it back as
-		// though we weren't using a threaded search algorithm.
+		// though we weren't using a threaded algorithm.
 		//
 		if (!errors.isEmpty()) {
 			Throwable err = errors.get(0);
@@ -1687,14 +1752,14 @@ private void parallelDeltaSearch(ProgressMonitor monitor,
 
 			throw new IOException(err.getMessage(), err);
 		}
-		endPhase(monitor);
 	}
 
 	private static void runTasks(ExecutorService pool,
 			ThreadSafeProgressMonitor pm,
-			DeltaTask.Block tb, List<Throwable> errors) throws IOException {
-		List<Future<?>> futures = new ArrayList<>(tb.tasks.size());
-		for (DeltaTask task : tb.tasks)
+			List<? extends Callable<?>> tasks, List<Throwable> errors)
+			throws IOException {
+		List<Future<?>> futures = new ArrayList<>(tasks.size());
+		for (Callable<?> task : tasks)
 			futures.add(pool.submit(task));
 
 		try {
@@ -1745,6 +1810,25 @@ void writeObject(PackOutputStream out, ObjectToPack otp) throws IOException {
 			writeObjectImpl(out, otp);
 	}
 
+	boolean canCopyObjectRuns() {
+		// Objects of a run share one CRC, so there is none for an index.
+		return isIndexDisabled() && !reuseValidate;
+	}
+
+	void endObjectRun(PackOutputStream out, List<? extends ObjectToPack> run,
+			long[] starts) {
+		long begin = out.length() - starts[run.size()];
+		for (int i = 0; i < run.size(); i++) {
+			ObjectToPack otp = run.get(i);
+			otp.setOffset(begin + starts[i]);
+			typeStats.reusedObjects++;
+			if (otp.isDeltaRepresentation()) {
+				typeStats.reusedDeltas++;
+				typeStats.deltaBytes += starts[i + 1] - starts[i];
+			}
+		}
+	}
+
 	private void writeObjectImpl(PackOutputStream out, ObjectToPack otp)
 			throws IOException {
 		if (otp.wantWrite()) {
@@ -2021,8 +2105,15 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 		Set<RevTree> baseTrees = new HashSet<>();
 		BlockList<RevCommit> commits = new BlockList<>();
 		Set<ObjectId> roots = new HashSet<>();
+		List<RevTree> commitTrees = useParallelCounting(walker)
+				? new ArrayList<>()
+				: null;
 		RevCommit c;
 		while ((c = walker.next()) != null) {
+			if (commitTrees != null && !c.has(RevFlag.UNINTERESTING)) {
+				// The walk queued the tree even if the commit is excluded.
+				commitTrees.add(c.getTree());
+			}
 			if (exclude(c))
 				continue;
 			if (c.has(RevFlag.UNINTERESTING)) {
@@ -2099,6 +2190,9 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 				}
 				countingMonitor.update(1);
 			}
+		} else if (commitTrees != null) {
+			parallelCounting(countingMonitor, walker, wantObjs, commitTrees,
+					want);
 		} else {
 			RevObject o;
 			while ((o = walker.nextObject()) != null) {
@@ -2121,6 +2215,73 @@ private void findObjectsToPack(@NonNull ProgressMonitor countingMonitor,
 		stats.bitmapIndexMisses = -1;
 	}
 
+	private boolean useParallelCounting(ObjectWalk walker) {
+		// Thin packs need the path of every object to find delta bases, and
+		// depth limits depend on the order objects are reached in, so only
+		// a plain walk of complete trees can be split.
+		return config.isParallelCounting()
+				&& getThreads() > 1
+				&& !thin
+				&& !shallowPack
+				&& !(walker instanceof DepthWalk.ObjectWalk)
+				&& filterSpec.getTreeDepthLimit() < 0
+				&& walker.getObjectFilter() == ObjectFilter.ALL;
+	}
+
+	private int getThreads() {
+		int threads = config.getThreads();
+		if (threads == 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		return threads;
+	}
+
+	private void parallelCounting(ProgressMonitor countingMonitor,
+			ObjectWalk walker, List<RevObject> wantObjs,
+			List<RevTree> commitTrees, Set<? extends ObjectId> want)
+			throws IOException {
+		// Same order as the walk queues them: trees, blobs and tags which
+		// were asked for, then the trees of the commits in walk order.
+		List<RevObject> rootObjs = new ArrayList<>(
+				wantObjs.size() + commitTrees.size());
+		for (RevObject o : wantObjs) {
+			while (o instanceof RevTag) {
+				rootObjs.add(o);
+				o = ((RevTag) o).getObject();
+			}
+			if (!(o instanceof RevCommit))
+				rootObjs.add(o);
+		}
+		rootObjs.addAll(commitTrees);
+
+		int threads = getThreads();
+		int taskCnt = Math.min(rootObjs.size(), threads);
+		if (taskCnt == 0)
+			return;
+		Set<ObjectId> seen = ConcurrentHashMap.newKeySet();
+		ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(
+				countingMonitor);
+		AtomicBoolean failed = new AtomicBoolean();
+		List<TreeEnumerationTask> tasks = new ArrayList<>(taskCnt);
+		for (int i = 0; i < taskCnt; i++) {
+			int from = (int) ((long) rootObjs.size() * i / taskCnt);
+			int to = (int) ((long) rootObjs.size() * (i + 1) / taskCnt);
+			tasks.add(new TreeEnumerationTask(reader, walker, seen,
+					rootObjs.subList(from, to), pm, failed));
+		}
+		pm.startWorkers(taskCnt);
+		runTasks(pm, tasks, threads);
+
+		for (TreeEnumerationTask task : tasks) {
+			for (TreeEnumerationTask.Found f : task.getFound()) {
+				if (exclude(f.id))
+					continue;
+				if (f.type != OBJ_BLOB)
+					stats.treesTraversed++;
+				filterAndAddObject(f.id, f.type, f.pathHash, want);
+			}
+		}
+	}
+
 	private void findObjectsToPackUsingBitmaps(
 			BitmapWalker bitmapWalker, Set<? extends ObjectId> want,
 			Set<? extends ObjectId> have)
@@ -2306,7 +2467,7 @@ public void select(ObjectToPack otp, StoredObjectRepresentation next) {
 		if (nFmt == PACK_DELTA && reuseDeltas && reuseDeltaFor(otp)) {
 			ObjectId baseId = next.getDeltaBase();
 			ObjectToPack ptr = objectsMap.get(baseId);
-			if (ptr != null && !ptr.isEdge()) {
+			if (ptr != null && !ptr.isEdge() && canDelta(otp, ptr)) {
 				otp.setDeltaBase(ptr);
 				otp.setReuseAsIs();
 			} else if (thin && have(ptr, baseId)) {
@@ -2337,6 +2498,12 @@ public void select(ObjectToPack otp, StoredObjectRepresentation next) {
 		otp.select(next);
 	}
 
+	private boolean canDelta(ObjectToPack otp, ObjectToPack base) {
+		// A delta crossing islands is searched for again, to not keep
+		// spreading it across packs.
+		return deltaIslands == null || deltaIslands.canDelta(otp, base);
+	}
+
 	private final boolean have(ObjectToPack ptr, AnyObjectId objectId) {
 		return (ptr != null && ptr.isEdge())
 				|| (haveObjects != null && haveObjects.contains(objectId));
@@ -2385,33 +2552,10 @@ public boolean prepareBitmapIndex(ProgressMonitor pm) throws IOException {
 
 		beginPhase(PackingPhase.BUILDING_BITMAPS, pm, selectedCommits.size());
 
-		BitmapWalker walker = bitmapPreparer.newBitmapWalker();
-		AnyObjectId last = null;
-		for (BitmapCommit cmit : selectedCommits) {
-			if (!cmit.isReuseWalker()) {
-				walker = bitmapPreparer.newBitmapWalker();
-			}
-			BitmapBuilder bitmap = walker.findObjects(
-					Collections.singleton(cmit), null, false);
-
-			if (last != null && cmit.isReuseWalker() && !bitmap.contains(last))
-				throw new IllegalStateException(MessageFormat.format(
-						JGitText.get().bitmapMissingObject, cmit.name(),
-						last.name()));
-			last = BitmapCommit.copyFrom(cmit).build();
-			writeBitmaps.processBitmapForWrite(cmit, bitmap.build(),
-					cmit.getFlags());
-
-			// The bitmap walker should stop when the walk hits the previous
-			// commit, which saves time.
-			walker.setPrevCommit(last);
-			walker.setPrevBitmap(bitmap);
-
-			pm.update(1);
-		}
+		boolean complete = bitmapPreparer.buildBitmaps(selectedCommits);
 
 		endPhase(pm);
-		return true;
+		return complete;
 	}
 
 	private boolean reuseDeltaFor(ObjectToPack otp) {
@@ -14,6 +14,7 @@
 import static org.eclipse.jgit.revwalk.RevFlag.SEEN;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,6 +34,7 @@
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexBuilder;
 import org.eclipse.jgit.internal.storage.file.PackBitmapIndexRemapper;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BitmapIndex.Bitmap;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -49,6 +51,7 @@
 import org.eclipse.jgit.util.SystemReader;
 
 import com.googlecode.javaewah.EWAHCompressedBitmap;
+import com.googlecode.javaewah.IntIterator;
 
 /**
  * Helper class for the {@link PackWriter} to select commits for which to build
@@ -479,6 +482,53 @@ BitmapWalker newBitmapWalker() {
 				new ObjectWalk(reader), bitmapIndex, null);
 	}
 
+	/**
+	 * Computes the bitmap of each selected commit and adds it to the index
+	 * being written.
+	 *
+	 * @param selectedCommits
+	 *            commits returned by {@link #selectCommits(int, Set)}.
+	 * @return false if a commit reaches objects which are not in the index
+	 *         being written, in which case the index is incomplete and must
+	 *         not be written; true otherwise.
+	 * @throws IOException
+	 *             on errors reading pack or index files
+	 */
+	boolean buildBitmaps(Collection<BitmapCommit> selectedCommits)
+			throws IOException {
+		int objectCount = writeBitmaps.getObjectCount();
+		BitmapWalker walker = newBitmapWalker();
+		AnyObjectId last = null;
+		for (BitmapCommit cmit : selectedCommits) {
+			if (!cmit.isReuseWalker()) {
+				walker = newBitmapWalker();
+			}
+			BitmapBuilder bitmap = walker.findObjects(
+					Collections.singleton(cmit), null, false);
+
+			if (last != null && cmit.isReuseWalker() && !bitmap.contains(last))
+				throw new IllegalStateException(MessageFormat.format(
+						JGitText.get().bitmapMissingObject, cmit.name(),
+						last.name()));
+			last = BitmapCommit.copyFrom(cmit).build();
+			Bitmap built = bitmap.build();
+			IntIterator highest = built.retrieveCompressed()
+					.reverseIntIterator();
+			if (highest.hasNext() && highest.next() >= objectCount) {
+				return false;
+			}
+			writeBitmaps.processBitmapForWrite(cmit, built, cmit.getFlags());
+
+			// The bitmap walker should stop when the walk hits the previous
+			// commit, which saves time.
+			walker.setPrevCommit(last);
+			walker.setPrevBitmap(bitmap);
+
+			pm.update(1);
+		}
+		return true;
+	}
+
 	/**
 	 * Container for state used in the first phase of selecting commits, which
 	 * walks all of the reachable commits via the branch tips that are not
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.storage.pack;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.eclipse.jgit.lib.Constants.OBJ_TREE;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Enumerates the objects reachable from a slice of root objects without
+ * following commits, as {@link ObjectWalk#nextObject()} would, so several
+ * slices can be enumerated in parallel while counting objects.
+ * <p>
+ * All tasks share one set of objects already claimed, so each object is
+ * reported by exactly one task, and a subtree claimed by one task is not
+ * descended into by the others. Objects the walk marked
+ * {@link RevFlag#UNINTERESTING} are skipped; the walk must not be modified
+ * while tasks are running.
+ */
+final class TreeEnumerationTask implements Callable<Object> {
+	/** An object found by the enumeration. */
+	static final class Found {
+		final ObjectId id;
+
+		final int type;
+
+		final int pathHash;
+
+		Found(ObjectId id, int type, int pathHash) {
+			this.id = id;
+			this.type = type;
+			this.pathHash = pathHash;
+		}
+	}
+
+	private final ObjectReader templateReader;
+
+	private final ObjectWalk walker;
+
+	private final Set<ObjectId> seen;
+
+	private final List<? extends RevObject> roots;
+
+	private final ThreadSafeProgressMonitor pm;
+
+	private final AtomicBoolean failed;
+
+	private final List<Found> found = new ArrayList<>();
+
+	private final MutableObjectId idBuffer = new MutableObjectId();
+
+	private byte[] pathBuf = new byte[256];
+
+	private ObjectReader or;
+
+	/**
+	 * Create a task.
+	 *
+	 * @param reader
+	 *            reader to create the reader of this task from.
+	 * @param walker
+	 *            walk which marked the objects to skip as uninteresting.
+	 * @param seen
+	 *            concurrent set of objects already claimed by any task.
+	 * @param roots
+	 *            trees, blobs and tags to enumerate, in order. Tags are not
+	 *            peeled.
+	 * @param pm
+	 *            monitor to report every object found to.
+	 * @param failed
+	 *            set by a failing task so the other tasks stop early.
+	 */
+	TreeEnumerationTask(ObjectReader reader, ObjectWalk walker,
+			Set<ObjectId> seen, List<? extends RevObject> roots,
+			ThreadSafeProgressMonitor pm, AtomicBoolean failed) {
+		this.templateReader = reader;
+		this.walker = walker;
+		this.seen = seen;
+		this.roots = roots;
+		this.pm = pm;
+		this.failed = failed;
+	}
+
+	/**
+	 * Get the objects found.
+	 *
+	 * @return the objects found, in the order {@link ObjectWalk} would return
+	 *         them.
+	 */
+	List<Found> getFound() {
+		return found;
+	}
+
+	@Override
+	public Object call() throws Exception {
+		or = templateReader.newReader();
+		try {
+			for (RevObject root : roots) {
+				if (failed.get()) {
+					break;
+				}
+				if (!root.has(RevFlag.UNINTERESTING) && seen.add(root)) {
+					found.add(new Found(root, root.getType(), 0));
+					pm.update(1);
+					if (root.getType() == OBJ_TREE) {
+						enumerate(root, 0);
+					}
+				}
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			failed.set(true);
+			throw e;
+		} finally {
+			pm.endWorker();
+			or.close();
+			or = null;
+		}
+		return null;
+	}
+
+	private void enumerate(ObjectId tree, int pathLen) throws IOException {
+		byte[] raw = or.open(tree, OBJ_TREE).getCachedBytes();
+		for (int ptr = 0; ptr < raw.length;) {
+			int mode = 0;
+			for (byte c; (c = raw[ptr++]) != ' ';) {
+				mode = (mode << 3) + (c - '0');
+			}
+			int nameStart = ptr;
+			while (raw[ptr] != 0) {
+				ptr++;
+			}
+			int nameEnd = ptr++;
+			idBuffer.fromRaw(raw, ptr);
+			ptr += Constants.OBJECT_ID_LENGTH;
+
+			int type;
+			switch (mode & FileMode.TYPE_MASK) {
+			case FileMode.TYPE_FILE:
+			case FileMode.TYPE_SYMLINK:
+				type = OBJ_BLOB;
+				break;
+			case FileMode.TYPE_TREE:
+				type = OBJ_TREE;
+				break;
+			case FileMode.TYPE_GITLINK:
+				continue;
+			default:
+				throw new CorruptObjectException(MessageFormat.format(
+						JGitText.get().corruptObjectInvalidMode3,
+						String.format("%o", Integer.valueOf(mode)), //$NON-NLS-1$
+						idBuffer.name(),
+						RawParseUtils.decode(raw, nameStart, nameEnd), tree));
+			}
+
+			RevObject obj = walker.lookupOrNull(idBuffer);
+			if (obj != null && obj.has(RevFlag.UNINTERESTING)) {
+				continue;
+			}
+			ObjectId id = idBuffer.toObjectId();
+			if (!seen.add(id)) {
+				continue;
+			}
+
+			int len = appendPath(pathLen, raw, nameStart, nameEnd);
+			found.add(new Found(id, type, pathHash(len)));
+			pm.update(1);
+			if (type == OBJ_TREE) {
+				enumerate(id, len);
+			}
+		}
+	}
+
+	private int appendPath(int pathLen, byte[] raw, int nameStart,
+			int nameEnd) {
+		int len = pathLen + (pathLen > 0 ? 1 : 0) + (nameEnd - nameStart);
+		if (pathBuf.length < len) {
+			pathBuf = Arrays.copyOf(pathBuf, Math.max(len, pathBuf.length * 2));
+		}
+		int p = pathLen;
+		if (pathLen > 0) {
+			pathBuf[p++] = '/';
+		}
+		System.arraycopy(raw, nameStart, pathBuf, p, nameEnd - nameStart);
+		return len;
+	}
+
+	// Same as ObjectWalk.getPathHashCode(): hash of the last 16 bytes of the
+	// path, ignoring spaces.
+	private int pathHash(int pathLen) {
+		int hash = 0;
+		for (int ptr = Math.max(0, pathLen - 16); ptr < pathLen; ptr++) {
+			byte c = pathBuf[ptr];
+			if (c != ' ')
+				hash = (hash >>> 2) + (c << 24);
+		}
+		return hash;
+	}
+}
@@ -11,6 +11,7 @@
 package org.eclipse.jgit.internal.storage.reftable;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -25,6 +26,7 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.ReflogReader;
 import org.eclipse.jgit.transport.ReceiveCommand;
 
@@ -35,6 +37,9 @@
  * example.
  */
 public abstract class ReftableDatabase {
+	/** Number of refs read under the lock by {@link PrefixScanner}. */
+	private static final int SCAN_BATCH_SIZE = 512;
+
 	// Protects mergedTables.
 	private final ReentrantLock lock = new ReentrantLock(true);
 
@@ -267,6 +272,26 @@ public List<Ref> getRefsByPrefix(String prefix) throws IOException {
 		return Collections.unmodifiableList(all);
 	}
 
+	/**
+	 * Scans refs whose names start with a given prefix.
+	 * <p>
+	 * The refs are read in batches of {@value #SCAN_BATCH_SIZE}, holding the
+	 * lock only while a batch is read, so a slow consumer does not block
+	 * updates to the database. Each batch is read from the tables current at
+	 * that time.
+	 *
+	 * @param prefix
+	 *            string that names of refs should start with; may be empty (to
+	 *            scan all refs).
+	 * @return scanner over the refs whose names start with {@code prefix},
+	 *         sorted by name.
+	 * @throws java.io.IOException
+	 *             the reference space cannot be accessed.
+	 */
+	public RefScanner scanRefsByPrefix(String prefix) throws IOException {
+		return new PrefixScanner(prefix);
+	}
+
 	/**
 	 * Returns refs whose names start with a given prefix excluding all refs that
 	 * start with one of the given prefixes.
@@ -364,4 +389,64 @@ public void clearCache() {
 			lock.unlock();
 		}
 	}
+
+	private class PrefixScanner extends RefScanner {
+		private final String prefix;
+
+		private final ArrayDeque<Ref> batch = new ArrayDeque<>();
+
+		/** Name of the last ref read, to resume the next batch after. */
+		private String last;
+
+		private boolean done;
+
+		private Ref ref;
+
+		PrefixScanner(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			while (batch.isEmpty() && !done) {
+				readBatch();
+			}
+			ref = batch.poll();
+			return ref != null;
+		}
+
+		private void readBatch() throws IOException {
+			lock.lock();
+			try {
+				Reftable table = reader();
+				try (RefCursor rc = RefDatabase.ALL.equals(prefix)
+						? table.allRefs()
+						: table.seekRefsWithPrefix(prefix)) {
+					if (last != null) {
+						// No ref name contains NUL, so this skips exactly
+						// the refs up to and including last.
+						rc.seekPastPrefix(last + '\0');
+					}
+					for (int n = 0; n < SCAN_BATCH_SIZE; n++) {
+						if (!rc.next()) {
+							done = true;
+							return;
+						}
+						last = rc.getRef().getName();
+						Ref r = table.resolve(rc.getRef());
+						if (r != null && r.getObjectId() != null) {
+							batch.add(r);
+						}
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public Ref getRef() {
+			return ref;
+		}
+	}
 }
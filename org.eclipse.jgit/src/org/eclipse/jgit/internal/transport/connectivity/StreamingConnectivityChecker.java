@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.internal.transport.connectivity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdSubclassMap;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevBlob;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.transport.ConnectivityChecker;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.ReceiveCommand.Result;
+
+/**
+ * Connectivity checker using the links of the received objects collected while
+ * the pack was parsed.
+ * <p>
+ * The parser must have been configured with
+ * {@link PackParser#setNeedNewObjectIds(boolean)},
+ * {@link PackParser#setNeedBaseObjectIds(boolean)} and
+ * {@link PackParser#setNeedReferencedObjectIds(boolean)}. Objects of the pack
+ * are then known to be connected to each other, and only the objects named
+ * by the pack but not contained in it are checked. Like
+ * {@link FullConnectivityChecker}, the objects reachable from them but not
+ * from the haves are walked, but the received objects are not:
+ * <ul>
+ * <li>If info.isCheckObjects() is set, they must be reachable from the
+ * haves.</li>
+ * <li>Otherwise they must exist, together with everything they reach that is
+ * not reachable from the haves. Existing objects no reference reaches may
+ * lack their history.</li>
+ * </ul>
+ * If the links were not collected or the check fails, the delegate checker
+ * is called to perform a full check.
+ */
+public class StreamingConnectivityChecker implements ConnectivityChecker {
+	private final ConnectivityChecker delegate;
+
+	/**
+	 * @param delegate
+	 *            Delegate checker which will be called if the links of the
+	 *            received objects are not sufficient.
+	 */
+	public StreamingConnectivityChecker(ConnectivityChecker delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void checkConnectivity(ConnectivityCheckInfo connectivityCheckInfo,
+			Set<ObjectId> haves, ProgressMonitor pm)
+			throws MissingObjectException, IOException {
+		PackParser parser = connectivityCheckInfo.getParser();
+		if (parser != null && parser.getReferencedObjectIds() != null) {
+			try {
+				List<ObjectId> external = new ArrayList<>();
+				List<ObjectId> linkedHaves = new ArrayList<>();
+				collectExternalObjects(connectivityCheckInfo, haves, external,
+						linkedHaves);
+				checkExternalObjects(connectivityCheckInfo, external, haves,
+						linkedHaves, pm);
+				return;
+			} catch (MissingObjectException e) {
+				// This is fine, retry with a full check.
+			}
+		}
+		delegate.checkConnectivity(connectivityCheckInfo, haves, pm);
+	}
+
+	/**
+	 * @param connectivityCheckInfo
+	 *            Source for connectivity check.
+	 * @param haves
+	 *            Set of references known for client.
+	 * @param external
+	 *            Receives the objects the new references and received objects
+	 *            depend on, which were neither received nor are haves.
+	 * @param linkedHaves
+	 *            Receives the haves named by received objects.
+	 */
+	private static void collectExternalObjects(
+			ConnectivityCheckInfo connectivityCheckInfo, Set<ObjectId> haves,
+			List<ObjectId> external, List<ObjectId> linkedHaves) {
+		PackParser parser = connectivityCheckInfo.getParser();
+		ObjectIdSubclassMap<ObjectId> newObjectIds = parser.getNewObjectIds();
+		for (ReceiveCommand cmd : connectivityCheckInfo.getCommands()) {
+			if (cmd.getResult() != Result.NOT_ATTEMPTED
+					|| cmd.getType() == ReceiveCommand.Type.DELETE) {
+				continue;
+			}
+			ObjectId id = cmd.getNewId();
+			if (!newObjectIds.contains(id) && !haves.contains(id)) {
+				external.add(id);
+			}
+		}
+		for (ObjectId id : parser.getReferencedObjectIds()) {
+			if (haves.contains(id)) {
+				linkedHaves.add(id);
+			} else if (!newObjectIds.contains(id)) {
+				external.add(id);
+			}
+		}
+		if (connectivityCheckInfo.isCheckObjects()) {
+			for (ObjectId id : parser.getBaseObjectIds()) {
+				if (!haves.contains(id)) {
+					external.add(id);
+				}
+			}
+		}
+	}
+
+	private static void checkExternalObjects(
+			ConnectivityCheckInfo connectivityCheckInfo, List<ObjectId> external,
+			Set<ObjectId> haves, List<ObjectId> linkedHaves,
+			ProgressMonitor pm) throws IOException {
+		if (external.isEmpty()) {
+			return;
+		}
+		pm.beginTask(JGitText.get().countingObjects, ProgressMonitor.UNKNOWN);
+		try {
+			walkExternalObjects(connectivityCheckInfo, external, haves,
+					linkedHaves, pm);
+		} finally {
+			pm.endTask();
+		}
+	}
+
+	/**
+	 * Walk the objects reachable from the external objects but not from the
+	 * haves.
+	 * <p>
+	 * Trees and blobs named by received trees usually are unchanged parts of
+	 * the trees of the haves the received commits are based on. Only the
+	 * trees of the haves named by received objects are marked uninteresting,
+	 * not the trees of all haves.
+	 */
+	private static void walkExternalObjects(
+			ConnectivityCheckInfo connectivityCheckInfo, List<ObjectId> external,
+			Set<ObjectId> haves, List<ObjectId> linkedHaves,
+			ProgressMonitor pm) throws IOException {
+		boolean checkObjects = connectivityCheckInfo.isCheckObjects();
+		ObjectIdSubclassMap<ObjectId> newObjectIds = connectivityCheckInfo
+				.getParser().getNewObjectIds();
+		try (ObjectWalk ow = new ObjectWalk(
+				connectivityCheckInfo.getRepository())) {
+			boolean hasStart = false;
+			boolean markTrees = false;
+			for (ObjectId id : external) {
+				// Fails for missing objects.
+				RevObject o = ow.parseAny(id);
+				pm.update(1);
+				if (!checkObjects && o instanceof RevBlob) {
+					continue;
+				}
+				ow.markStart(o);
+				hasStart = true;
+				markTrees |= !(o instanceof RevCommit);
+			}
+			if (!hasStart) {
+				return;
+			}
+			for (ObjectId have : haves) {
+				ow.markUninteresting(ow.parseAny(have));
+				pm.update(1);
+			}
+			if (markTrees) {
+				for (ObjectId have : linkedHaves) {
+					RevObject o = ow.peel(ow.parseAny(have));
+					if (o instanceof RevCommit) {
+						o = ((RevCommit) o).getTree();
+					}
+					if (o instanceof RevTree) {
+						ow.markUninteresting(o);
+					}
+				}
+			}
+
+			RevObject o;
+			while ((o = ow.next()) != null) {
+				pm.update(1);
+				if (checkObjects && !o.has(RevFlag.UNINTERESTING)
+						&& !newObjectIds.contains(o)) {
+					throw new MissingObjectException(o, o.getType());
+				}
+			}
+			while ((o = ow.nextObject()) != null) {
+				pm.update(1);
+				if (o.has(RevFlag.UNINTERESTING)
+						|| newObjectIds.contains(o)) {
+					continue;
+				}
+				if (checkObjects) {
+					throw new MissingObjectException(o, o.getType());
+				}
+				// Commits and trees were parsed by the walk.
+				if (o instanceof RevBlob && !ow.getObjectReader().has(o)) {
+					throw new MissingObjectException(o, Constants.TYPE_BLOB);
+				}
+			}
+		}
+	}
+}
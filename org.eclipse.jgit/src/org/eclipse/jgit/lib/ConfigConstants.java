@@ -338,6 +338,12 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_PACKED_GIT_MMAP = "packedgitmmap";
 
+	/**
+	 * The "packedGitUseOffHeap" key
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_PACKED_GIT_USE_OFFHEAP = "packedgituseoffheap";
+
 	/**
 	 * The "packedGitWindowSize" key
 	 * @since 5.1.13
@@ -362,6 +368,12 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_PACKED_GIT_USE_STRONGREFS = "packedgitusestrongrefs";
 
+	/**
+	 * The "packedGitEvictionPolicy" key
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_PACKED_GIT_EVICTION_POLICY = "packedgitevictionpolicy";
+
 	/** The "remote" key */
 	public static final String CONFIG_KEY_REMOTE = "remote";
 
@@ -448,6 +460,18 @@ public final class ConfigConstants {
 	/** The "indexversion" key */
 	public static final String CONFIG_KEY_INDEXVERSION = "indexversion";
 
+	/**
+	 * The "pack.indexthreads" key
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_INDEX_THREADS = "indexthreads";
+
+	/**
+	 * The "pack.indexspillthreshold" key
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_INDEX_SPILL_THRESHOLD = "indexspillthreshold";
+
 	/**
 	 * The "hidedotfiles" key
 	 * @since 3.5
@@ -460,6 +484,12 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_DIRNOGITLINKS = "dirNoGitLinks";
 
+	/**
+	 * The "preloadindex" key
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_PRELOADINDEX = "preloadindex";
+
 	/** The "precomposeunicode" key */
 	public static final String CONFIG_KEY_PRECOMPOSEUNICODE = "precomposeunicode";
 
@@ -530,6 +560,13 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_TRUSTFOLDERSTAT = "trustfolderstat";
 
+	/**
+	 * The "packedRefsMmap" key in the "core" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_PACKED_REFS_MMAP = "packedrefsmmap";
+
 	/**
 	 * The "supportsAtomicFileCreation" key in the "core" section
 	 *
@@ -816,6 +853,20 @@ public final class ConfigConstants {
 	 */
 	public static final String CONFIG_KEY_WINDOW_MEMORY = "windowmemory";
 
+	/**
+	 * The "pack.totalWindowMemory" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_TOTAL_WINDOW_MEMORY = "totalwindowmemory";
+
+	/**
+	 * The "pack.island" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_ISLAND = "island";
+
 	/**
 	 * The "feature" section
 	 *
@@ -892,4 +943,67 @@ public final class ConfigConstants {
 	 * @since 6.5
 	 */
 	public static final String CONFIG_KEY_WRITE_COMMIT_GRAPH = "writeCommitGraph";
+
+	/**
+	 * The "writeChangedPaths" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_WRITE_CHANGED_PATHS = "writeChangedPaths";
+
+	/**
+	 * The "pack.writeReverseIndex" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_WRITE_REVERSE_INDEX = "writeReverseIndex";
+
+	/**
+	 * The "pack.parallelCounting" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_PARALLEL_COUNTING = "parallelCounting";
+
+	/**
+	 * The "commitGraph" key in the "core" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_COMMIT_GRAPH = "commitGraph";
+
+	/**
+	 * The "multiPackIndex" key in the "core" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_MULTI_PACK_INDEX = "multiPackIndex";
+
+	/**
+	 * The "writeMultiPackIndex" key
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_WRITE_MULTI_PACK_INDEX = "writeMultiPackIndex";
+
+	/**
+	 * The "checkout" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_CHECKOUT_SECTION = "checkout";
+
+	/**
+	 * The "workers" key in the "checkout" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_WORKERS = "workers";
+
+	/**
+	 * The "thresholdForParallelism" key in the "checkout" section
+	 *
+	 * @since 6.5
+	 */
+	public static final String CONFIG_KEY_THRESHOLD_FOR_PARALLELISM = "thresholdForParallelism";
 }
@@ -278,6 +278,27 @@ public final class Constants {
 	 */
 	public static final String INFO_ALTERNATES = "info/alternates";
 
+	/**
+	 * Commit-graph file (goes under OBJECTS)
+	 *
+	 * @since 6.5
+	 */
+	public static final String INFO_COMMIT_GRAPH = "info/commit-graph";
+
+	/**
+	 * Multi-pack-index file (goes under the pack directory)
+	 *
+	 * @since 6.5
+	 */
+	public static final String MULTI_PACK_INDEX = "multi-pack-index";
+
+	/**
+	 * Bitmap index of the multi-pack-index (goes under the pack directory)
+	 *
+	 * @since 6.5
+	 */
+	public static final String MULTI_PACK_INDEX_BITMAP = "multi-pack-index.bitmap";
+
 	/**
 	 * HTTP alternates file (goes under OBJECTS)
 	 * @since 5.5
@@ -26,6 +26,20 @@ public class CoreConfig {
 	/** Key for {@link Config#get(SectionParser)}. */
 	public static final Config.SectionParser<CoreConfig> KEY = CoreConfig::new;
 
+	/**
+	 * Default value of commit graph enable option: {@value}
+	 *
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_COMMIT_GRAPH_ENABLE = false;
+
+	/**
+	 * Default value of multi-pack-index enable option: {@value}
+	 *
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_MULTI_PACK_INDEX_ENABLE = true;
+
 	/** Permissible values for {@code core.autocrlf}. */
 	public enum AutoCRLF {
 		/** Automatic CRLF-&gt;LF conversion is disabled. */
@@ -126,6 +140,10 @@ public enum LogRefUpdates {
 
 	private final String attributesfile;
 
+	private final boolean commitGraph;
+
+	private final boolean multiPackIndex;
+
 	/**
 	 * Options for symlink handling
 	 *
@@ -167,6 +185,11 @@ private CoreConfig(Config rc) {
 				ConfigConstants.CONFIG_KEY_EXCLUDESFILE);
 		attributesfile = rc.getString(ConfigConstants.CONFIG_CORE_SECTION,
 				null, ConfigConstants.CONFIG_KEY_ATTRIBUTESFILE);
+		commitGraph = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_COMMIT_GRAPH, DEFAULT_COMMIT_GRAPH_ENABLE);
+		multiPackIndex = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_MULTI_PACK_INDEX,
+				DEFAULT_MULTI_PACK_INDEX_ENABLE);
 	}
 
 	/**
@@ -219,4 +242,28 @@ public String getExcludesFile() {
 	public String getAttributesFile() {
 		return attributesfile;
 	}
+
+	/**
+	 * Whether to read the commit-graph file (if it exists) to parse the graph
+	 * structure of commits. Default to
+	 * {@value org.eclipse.jgit.lib.CoreConfig#DEFAULT_COMMIT_GRAPH_ENABLE}.
+	 *
+	 * @return whether to read the commit-graph file
+	 * @since 6.5
+	 */
+	public boolean enableCommitGraph() {
+		return commitGraph;
+	}
+
+	/**
+	 * Whether to use the multi-pack-index file (if it exists) to find objects
+	 * in packs. Default to
+	 * {@value org.eclipse.jgit.lib.CoreConfig#DEFAULT_MULTI_PACK_INDEX_ENABLE}.
+	 *
+	 * @return whether to read the multi-pack-index file
+	 * @since 6.5
+	 */
+	public boolean enableMultiPackIndex() {
+		return multiPackIndex;
+	}
 }
@@ -45,6 +45,7 @@
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.TreeWalk.OperationType;
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.WorkingTreeOptions;
 import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
 import org.eclipse.jgit.treewalk.filter.SkipWorkTreeFilter;
@@ -442,6 +443,15 @@ public boolean diff(ProgressMonitor monitor, int estWorkTreeSize,
 			int estIndexSize, String title, RepositoryBuilderFactory factory)
 			throws IOException {
 		dirCache = repository.readDirCache();
+		// Paths restricted by a filter are few; reading all files of the
+		// index ahead would cost more than it saves.
+		if (filter == null
+				&& initialWorkingTreeIterator instanceof FileTreeIterator
+				&& repository.getConfig().get(WorkingTreeOptions.KEY)
+						.isPreloadIndex()) {
+			((FileTreeIterator) initialWorkingTreeIterator).preload(dirCache,
+					Runtime.getRuntime().availableProcessors());
+		}
 
 		try (TreeWalk treeWalk = new TreeWalk(repository)) {
 			treeWalk.setOperationType(OperationType.CHECKIN_OP);
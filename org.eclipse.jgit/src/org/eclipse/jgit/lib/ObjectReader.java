@@ -17,6 +17,7 @@
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.eclipse.jgit.annotations.NonNull;
@@ -27,6 +28,7 @@
 import org.eclipse.jgit.internal.revwalk.BitmappedReachabilityChecker;
 import org.eclipse.jgit.internal.revwalk.PedestrianObjectReachabilityChecker;
 import org.eclipse.jgit.internal.revwalk.PedestrianReachabilityChecker;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.revwalk.ObjectReachabilityChecker;
 import org.eclipse.jgit.revwalk.ObjectWalk;
 import org.eclipse.jgit.revwalk.ReachabilityChecker;
@@ -451,6 +453,23 @@ public BitmapIndex getBitmapIndex() throws IOException {
 		return null;
 	}
 
+	/**
+	 * Get the commit-graph for this repository if available.
+	 * <p>
+	 * The commit graph can be used to speed up commit walks by reading the
+	 * parents, tree, commit time and generation number of a commit without
+	 * loading the commit object itself.
+	 *
+	 * @return the commit-graph or empty if the commit-graph does not exist or
+	 *         is disabled by {@code core.commitGraph}.
+	 * @throws IOException
+	 *             if it cannot open the commit-graph.
+	 * @since 6.5
+	 */
+	public Optional<CommitGraph> getCommitGraph() throws IOException {
+		return Optional.empty();
+	}
+
 	/**
 	 * Create a reachability checker that will use bitmaps if possible.
 	 *
@@ -641,6 +660,11 @@ public BitmapIndex getBitmapIndex() throws IOException {
 			return delegate().getBitmapIndex();
 		}
 
+		@Override
+		public Optional<CommitGraph> getCommitGraph() throws IOException {
+			return delegate().getCommitGraph();
+		}
+
 		@Override
 		@Nullable
 		public ObjectInserter getCreatedFromInserter() {
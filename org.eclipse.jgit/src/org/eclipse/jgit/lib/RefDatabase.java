@@ -466,6 +466,34 @@ public List<Ref> getRefsByPrefix(String... prefixes) throws IOException {
 		return Collections.unmodifiableList(result);
 	}
 
+	/**
+	 * Scans refs whose names start with a given prefix.
+	 * <p>
+	 * Returns the same refs as {@link #getRefsByPrefix(String)}, sorted by
+	 * name. Implementations may read the refs lazily, so a scanner over a
+	 * large reference space does not hold all of it in memory, but may then
+	 * reflect updates made while the scan is in progress.
+	 * <p>
+	 * The default implementation sorts the result of
+	 * {@link #getRefsByPrefix(String)}. Implementors of {@link RefDatabase}
+	 * should override this method directly if a better implementation is
+	 * possible.
+	 *
+	 * @param prefix
+	 *            string that names of refs should start with; may be empty
+	 *            (to scan all refs).
+	 * @return scanner over the refs whose names start with {@code prefix}.
+	 *         The caller must close the scanner.
+	 * @throws java.io.IOException
+	 *             the reference space cannot be accessed.
+	 * @since 6.5
+	 */
+	@NonNull
+	public RefScanner scanRefsByPrefix(String prefix) throws IOException {
+		return RefScanner
+				.of(RefComparator.sort(getRefsByPrefix(prefix)).iterator());
+	}
+
 
 	/**
 	 * Returns all refs that resolve directly to the given {@link ObjectId}.
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.lib;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Iterator over the references of a {@link RefDatabase}, sorted by name.
+ * <p>
+ * Scanners are obtained from {@link RefDatabase#scanRefsByPrefix(String)} and
+ * produce references one at a time, so a caller streaming a large reference
+ * space to a client does not need to hold all of it in memory. Scanners must
+ * be closed.
+ *
+ * @since 6.5
+ */
+public abstract class RefScanner implements AutoCloseable {
+	/**
+	 * Create a scanner over references already held in memory.
+	 *
+	 * @param refs
+	 *            references to return, sorted by name.
+	 * @return a scanner returning {@code refs}.
+	 */
+	public static RefScanner of(Iterator<Ref> refs) {
+		return new RefScanner() {
+			private Ref ref;
+
+			@Override
+			public boolean next() {
+				ref = refs.hasNext() ? refs.next() : null;
+				return ref != null;
+			}
+
+			@Override
+			public Ref getRef() {
+				return ref;
+			}
+		};
+	}
+
+	/**
+	 * Check if another reference is available.
+	 *
+	 * @return {@code true} if there is another result.
+	 * @throws java.io.IOException
+	 *             references cannot be read.
+	 */
+	public abstract boolean next() throws IOException;
+
+	/**
+	 * Get reference at the current position.
+	 *
+	 * @return reference at the current position.
+	 */
+	public abstract Ref getRef();
+
+	/**
+	 * Release the resources held by this scanner.
+	 * <p>
+	 * The default implementation does nothing.
+	 */
+	@Override
+	public void close() {
+		// Nothing to release by default.
+	}
+}
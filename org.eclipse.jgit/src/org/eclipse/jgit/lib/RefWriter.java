@@ -136,11 +136,12 @@ public void writePackedRefs() throws IOException {
 		}
 
 		final StringWriter w = new StringWriter();
+		w.write(RefDirectory.PACKED_REFS_HEADER);
 		if (peeled) {
-			w.write(RefDirectory.PACKED_REFS_HEADER);
 			w.write(RefDirectory.PACKED_REFS_PEELED);
-			w.write('\n');
 		}
+		w.write(RefDirectory.PACKED_REFS_SORTED);
+		w.write('\n');
 
 		final char[] tmp = new char[Constants.OBJECT_ID_STRING_LENGTH];
 		for (Ref r : refs) {
@@ -11,10 +11,14 @@
 package org.eclipse.jgit.revwalk;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.diff.DiffConfig;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
@@ -91,6 +95,13 @@ public boolean shouldBeRecursive() {
 		return path.shouldBeRecursive() || ANY_DIFF.shouldBeRecursive();
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public Optional<Set<byte[]>> getPathsBestEffort() {
+		// Only differences at the followed path are included.
+		return Optional.of(Collections.singleton(Constants.encode(getPath())));
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public TreeFilter clone() {
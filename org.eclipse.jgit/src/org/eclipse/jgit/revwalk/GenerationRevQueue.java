@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.revwalk;
+
+import java.util.PriorityQueue;
+
+/**
+ * A queue of commits sorted by generation number, then commit time.
+ * <p>
+ * A commit listed in the commit-graph always has a larger generation number
+ * than its parents, so unlike {@link DateRevQueue} this queue never returns a
+ * parent before its child, even if the committer clocks were skewed. Commits
+ * without a generation number sort first, by commit time, which is correct as
+ * they cannot be ancestors of commits in the commit-graph. Commits with equal
+ * generation number and commit time are returned in insertion order.
+ */
+class GenerationRevQueue extends AbstractRevQueue {
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+			GenerationRevQueue::compare);
+
+	private long sequence;
+
+	GenerationRevQueue(boolean firstParent) {
+		super(firstParent);
+	}
+
+	@Override
+	public void add(RevCommit c) {
+		queue.add(new Entry(c, sequence++));
+	}
+
+	@Override
+	public RevCommit next() {
+		Entry e = queue.poll();
+		return e != null ? e.commit : null;
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+	}
+
+	@Override
+	boolean everbodyHasFlag(int f) {
+		for (Entry e : queue) {
+			if ((e.commit.flags & f) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	boolean anybodyHasFlag(int f) {
+		for (Entry e : queue) {
+			if ((e.commit.flags & f) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		PriorityQueue<Entry> copy = new PriorityQueue<>(queue);
+		for (Entry e; (e = copy.poll()) != null;) {
+			describe(s, e.commit);
+		}
+		return s.toString();
+	}
+
+	private static int compare(Entry a, Entry b) {
+		int cmp = Integer.compare(b.commit.getGeneration(),
+				a.commit.getGeneration());
+		if (cmp == 0) {
+			cmp = Integer.compare(b.commit.commitTime, a.commit.commitTime);
+		}
+		if (cmp == 0) {
+			cmp = Long.compare(a.sequence, b.sequence);
+		}
+		return cmp;
+	}
+
+	private static class Entry {
+		final RevCommit commit;
+
+		final long sequence;
+
+		Entry(RevCommit commit, long sequence) {
+			this.commit = commit;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -17,6 +17,7 @@
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 
 /**
  * Computes the merge base(s) of the starting commits.
@@ -33,6 +34,11 @@
  * Several internal flags are reused here for a different purpose, but this
  * should not have any impact as this generator should be run alone, and without
  * any other generators wrapped around it.
+ * <p>
+ * If the walk has a commit-graph, commits are visited in generation number
+ * order rather than commit time order. Every child is then visited before its
+ * parents, so skewed committer clocks cannot cause the walk to descend far
+ * into history before all paths to a merge base have been painted.
  */
 class MergeBaseGenerator extends Generator {
 	private static final int PARSED = RevWalk.PARSED;
@@ -41,7 +47,7 @@ class MergeBaseGenerator extends Generator {
 	private static final int MERGE_BASE = RevWalk.REWRITE;
 
 	private final RevWalk walker;
-	private final DateRevQueue pending;
+	private final AbstractRevQueue pending;
 
 	private int branchMask;
 	private int recarryTest;
@@ -54,7 +60,11 @@ class MergeBaseGenerator extends Generator {
 	MergeBaseGenerator(RevWalk w) {
 		super(w.isFirstParent());
 		walker = w;
-		pending = new DateRevQueue(firstParent);
+		if (w.commitGraph() != CommitGraph.EMPTY) {
+			pending = new GenerationRevQueue(firstParent);
+		} else {
+			pending = new DateRevQueue(firstParent);
+		}
 	}
 
 	void init(AbstractRevQueue p) throws IOException {
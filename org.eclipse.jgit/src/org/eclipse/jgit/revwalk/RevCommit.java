@@ -25,6 +25,8 @@
 import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.MutableObjectId;
@@ -122,6 +124,11 @@ public static RevCommit parse(RevWalk rw, byte[] raw) throws IOException {
 
 	private byte[] buffer;
 
+	/** Position in the walk's commit-graph, -1 if not listed there. */
+	int graphPosition = -1;
+
+	private int generation = Constants.COMMIT_GENERATION_UNKNOWN;
+
 	/**
 	 * Create a new commit reference.
 	 *
@@ -135,6 +142,10 @@ protected RevCommit(AnyObjectId id) {
 	@Override
 	void parseHeaders(RevWalk walk) throws MissingObjectException,
 			IncorrectObjectTypeException, IOException {
+		if (graphPosition >= 0 && !walk.isRetainBody()) {
+			parseInGraph(walk);
+			return;
+		}
 		parseCanonical(walk, walk.getCachedBytes(this));
 	}
 
@@ -149,6 +160,61 @@ void parseBody(RevWalk walk) throws MissingObjectException,
 	}
 
 	void parseCanonical(RevWalk walk, byte[] raw) throws IOException {
+		if (graphPosition >= 0) {
+			if (!walk.isRetainBody()) {
+				parseInGraph(walk);
+				return;
+			}
+			CommitGraph.CommitData data = walk.commitGraph()
+					.getCommitData(graphPosition);
+			if (data != null) {
+				generation = data.getGeneration();
+			}
+		}
+		parseRaw(walk, raw);
+	}
+
+	/**
+	 * Parse the headers of this commit from the commit-graph instead of
+	 * loading the commit object.
+	 */
+	private void parseInGraph(RevWalk walk) throws IOException {
+		CommitGraph graph = walk.commitGraph();
+		CommitGraph.CommitData data = graph.getCommitData(graphPosition);
+		if (data == null) {
+			// The position does not belong to this graph, fall back to the
+			// object database.
+			graphPosition = -1;
+			parseRaw(walk, walk.getCachedBytes(this));
+			return;
+		}
+
+		if (!walk.shallowCommitsInitialized) {
+			walk.initializeShallowCommits(this);
+		}
+
+		tree = walk.lookupTree(data.getTree());
+		commitTime = (int) data.getCommitTime();
+		generation = data.getGeneration();
+
+		if (getParents() == null) {
+			int[] pGraphList = data.getParents();
+			if (pGraphList.length == 0) {
+				parents = NO_PARENTS;
+			} else {
+				RevCommit[] pList = new RevCommit[pGraphList.length];
+				for (int i = 0; i < pList.length; i++) {
+					int graphPos = pGraphList[i];
+					pList[i] = walk.lookupCommit(graph.getObjectId(graphPos),
+							graphPos);
+				}
+				parents = pList;
+			}
+		}
+		flags |= PARSED;
+	}
+
+	private void parseRaw(RevWalk walk, byte[] raw) throws IOException {
 		if (!walk.shallowCommitsInitialized) {
 			walk.initializeShallowCommits(this);
 		}
@@ -311,6 +377,44 @@ public final int getCommitTime() {
 		return commitTime;
 	}
 
+	/**
+	 * Get the distance of the commit from the root, as defined in
+	 * {@link org.eclipse.jgit.internal.storage.commitgraph.CommitGraph}
+	 * <p>
+	 * Generation number is
+	 * {@link org.eclipse.jgit.lib.Constants#COMMIT_GENERATION_UNKNOWN} when the
+	 * commit is not in the commit-graph. If a commit-graph file was written by
+	 * a version of Git that did not compute generation numbers, then those
+	 * commits in commit-graph will have generation number represented by
+	 * {@link org.eclipse.jgit.lib.Constants#COMMIT_GENERATION_NOT_COMPUTED}.
+	 *
+	 * @return the generation number
+	 * @since 6.5
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Get the changed-path Bloom filter of this commit from the commit-graph.
+	 * <p>
+	 * The filter describes the paths changed relative to the first parent, so
+	 * it only applies when this commit is compared against that parent.
+	 *
+	 * @param rw
+	 *            the walk that created this commit.
+	 * @return the filter, or null if the commit is not in the commit-graph or
+	 *         the commit-graph has no filter for it.
+	 * @since 6.5
+	 */
+	@Nullable
+	public ChangedPathFilter getChangedPathFilter(RevWalk rw) {
+		if (graphPosition < 0) {
+			return null;
+		}
+		return rw.commitGraph().getChangedPathFilter(graphPosition);
+	}
+
 	/**
 	 * Get a reference to this commit's tree.
 	 *
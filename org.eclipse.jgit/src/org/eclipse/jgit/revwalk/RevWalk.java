@@ -14,6 +14,7 @@
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -28,6 +29,7 @@
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevWalkException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
 import org.eclipse.jgit.lib.Constants;
@@ -35,6 +37,7 @@
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectIdSubclassMap;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ProgressMonitor;
@@ -197,6 +200,8 @@ public class RevWalk implements Iterable<RevCommit>, AutoCloseable {
 
 	boolean shallowCommitsInitialized;
 
+	private CommitGraph commitGraph;
+
 	private enum GetMergedIntoStrategy {
 		RETURN_ON_FIRST_FOUND, RETURN_ON_FIRST_NOT_FOUND, EVALUATE_ALL
 	}
@@ -399,6 +404,10 @@ public void markUninteresting(RevCommit c) throws MissingObjectException,
 	 * commits, and then executes a walk until an answer can be obtained.
 	 * Currently allocated RevFlags that have been added to RevCommit instances
 	 * will be retained through the reset.
+	 * <p>
+	 * If <code>base</code> has a generation number from the commit-graph, only
+	 * commits with a larger generation number than <code>base</code> are
+	 * walked, as no other commit can reach it.
 	 *
 	 * @param base
 	 *            commit the caller thinks is reachable from <code>tip</code>.
@@ -426,6 +435,11 @@ public boolean isMergedInto(RevCommit base, RevCommit tip)
 		try {
 			finishDelayedFreeFlags();
 			reset(~freeFlags & APP_FLAGS);
+			parseHeaders(base);
+			if (!firstParent && hasGeneration(base)) {
+				parseHeaders(tip);
+				return isReachableByGeneration(base, tip);
+			}
 			filter = RevFilter.MERGE_BASE;
 			treeFilter = TreeFilter.ALL;
 			markStart(tip);
@@ -443,6 +457,41 @@ public boolean isMergedInto(RevCommit base, RevCommit tip)
 		}
 	}
 
+	private static boolean hasGeneration(RevCommit c) {
+		int generation = c.getGeneration();
+		return generation != Constants.COMMIT_GENERATION_UNKNOWN
+				&& generation != Constants.COMMIT_GENERATION_NOT_COMPUTED;
+	}
+
+	private boolean isReachableByGeneration(RevCommit base, RevCommit tip)
+			throws MissingObjectException, IncorrectObjectTypeException,
+			IOException {
+		// A commit can only reach base if its generation number is larger,
+		// so the search never descends below the generation of base.
+		int minGeneration = base.getGeneration();
+		ObjectIdSubclassMap<RevCommit> seen = new ObjectIdSubclassMap<>();
+		ArrayDeque<RevCommit> stack = new ArrayDeque<>();
+		seen.add(tip);
+		stack.push(tip);
+		while (!stack.isEmpty()) {
+			RevCommit c = stack.pop();
+			if (References.isSameObject(c, base)) {
+				return true;
+			}
+			if (c.getGeneration() <= minGeneration) {
+				continue;
+			}
+			for (RevCommit p : c.getParents()) {
+				if (!seen.contains(p)) {
+					seen.add(p);
+					parseHeaders(p);
+					stack.push(p);
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Determine the Refs into which a commit is merged.
 	 * <p>
@@ -797,6 +846,10 @@ public boolean isRetainBody() {
 	 * {@link #parseBody(RevObject)} before the body can be safely accessed
 	 * through the type specific access methods.
 	 * <p>
+	 * If bodies are not retained and the repository has a commit-graph, the
+	 * headers of commits listed in the commit-graph are read from it rather
+	 * than from the commit objects.
+	 * <p>
 	 * True by default on {@link org.eclipse.jgit.revwalk.RevWalk} and false by
 	 * default for {@link org.eclipse.jgit.revwalk.ObjectWalk}.
 	 *
@@ -893,7 +946,27 @@ public RevTree lookupTree(AnyObjectId id) {
 	public RevCommit lookupCommit(AnyObjectId id) {
 		RevCommit c = (RevCommit) objects.get(id);
 		if (c == null) {
-			c = createCommit(id);
+			c = newCommit(id);
+			objects.add(c);
+		}
+		return c;
+	}
+
+	/**
+	 * Locate a reference to a commit whose position in the commit-graph is
+	 * already known, without loading it.
+	 *
+	 * @param id
+	 *            name of the commit object.
+	 * @param graphPos
+	 *            the position of the commit in {@link #commitGraph()}.
+	 * @return reference to the commit object. Never null.
+	 */
+	@NonNull
+	RevCommit lookupCommit(AnyObjectId id, int graphPos) {
+		RevCommit c = (RevCommit) objects.get(id);
+		if (c == null) {
+			c = newCommit(id, graphPos);
 			objects.add(c);
 		}
 		return c;
@@ -937,7 +1010,7 @@ public RevObject lookupAny(AnyObjectId id, int type) {
 		if (r == null) {
 			switch (type) {
 			case Constants.OBJ_COMMIT:
-				r = createCommit(id);
+				r = newCommit(id);
 				break;
 			case Constants.OBJ_TREE:
 				r = new RevTree(id);
@@ -1077,9 +1150,16 @@ public RevTag parseTag(AnyObjectId id) throws MissingObjectException,
 	public RevObject parseAny(AnyObjectId id)
 			throws MissingObjectException, IOException {
 		RevObject r = objects.get(id);
-		if (r == null)
-			r = parseNew(id, reader.open(id));
-		else
+		if (r == null) {
+			if (!retainBody && commitGraph().findGraphPosition(id) >= 0) {
+				// Only commits are listed in the commit-graph, skip
+				// opening the object to learn its type.
+				r = lookupCommit(id);
+				parseHeaders(r);
+			} else {
+				r = parseNew(id, reader.open(id));
+			}
+		} else
 			parseHeaders(r);
 		return r;
 	}
@@ -1091,7 +1171,7 @@ private RevObject parseNew(AnyObjectId id, ObjectLoader ldr)
 		int type = ldr.getType();
 		switch (type) {
 		case Constants.OBJ_COMMIT: {
-			final RevCommit c = createCommit(id);
+			final RevCommit c = newCommit(id);
 			c.parseCanonical(this, getCachedBytes(c, ldr));
 			r = c;
 			break;
@@ -1531,6 +1611,7 @@ public void dispose() {
 		queue = new DateRevQueue(firstParent);
 		pending = new StartGenerator(this);
 		shallowCommitsInitialized = false;
+		commitGraph = null;
 	}
 
 	/**
@@ -1639,6 +1720,7 @@ public ObjectWalk toObjectWalkWithSameObjects() {
 		RevWalk rw = ow;
 		rw.objects = objects;
 		rw.freeFlags = freeFlags;
+		rw.commitGraph = commitGraph;
 		return ow;
 	}
 
@@ -1653,6 +1735,48 @@ protected RevCommit createCommit(AnyObjectId id) {
 		return new RevCommit(id);
 	}
 
+	private RevCommit newCommit(AnyObjectId id) {
+		return newCommit(id, commitGraph().findGraphPosition(id));
+	}
+
+	/**
+	 * Create a commit through {@link #createCommit(AnyObjectId)} and record its
+	 * commit-graph position, so commits found in the graph can have their
+	 * headers (tree, parents, commit time and generation number) loaded from
+	 * the graph instead of the object database, see
+	 * {@link #setRetainBody(boolean)}.
+	 */
+	private RevCommit newCommit(AnyObjectId id, int graphPos) {
+		RevCommit c = createCommit(id);
+		c.graphPosition = graphPos;
+		return c;
+	}
+
+	/**
+	 * Get the commit-graph used by this walker.
+	 * <p>
+	 * The commit-graph is obtained from the reader once and then kept until
+	 * {@link #dispose()}, so that the graph positions recorded in this
+	 * walker's commits stay valid even if the commit-graph file is rewritten.
+	 *
+	 * @return the commit-graph. Never null, but may be
+	 *         {@link CommitGraph#EMPTY} if the repository has no commit-graph
+	 *         or it is disabled.
+	 */
+	@NonNull
+	CommitGraph commitGraph() {
+		if (commitGraph == null) {
+			try {
+				commitGraph = reader != null
+						? reader.getCommitGraph().orElse(CommitGraph.EMPTY)
+						: CommitGraph.EMPTY;
+			} catch (IOException e) {
+				commitGraph = CommitGraph.EMPTY;
+			}
+		}
+		return commitGraph;
+	}
+
 	void carryFlagsImpl(RevCommit c) {
 		final int carry = c.flags & carryFlags;
 		if (carry != 0)
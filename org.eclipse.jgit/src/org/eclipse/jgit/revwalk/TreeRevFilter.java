@@ -12,6 +12,8 @@
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.diff.DiffConfig;
 import org.eclipse.jgit.diff.DiffEntry;
@@ -21,6 +23,7 @@
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -47,6 +50,11 @@ public class TreeRevFilter extends RevFilter {
 
 	private final TreeWalk pathFilter;
 
+	/** Filter {@link #filterPaths} was computed for. */
+	private TreeFilter pathsOf;
+
+	private Optional<Set<byte[]>> filterPaths;
+
 	/**
 	 * Create a {@link org.eclipse.jgit.revwalk.filter.RevFilter} from a
 	 * {@link org.eclipse.jgit.treewalk.filter.TreeFilter}.
@@ -108,6 +116,15 @@ public boolean include(RevWalk walker, RevCommit c)
 		//
 		RevCommit[] pList = c.getParents();
 		int nParents = pList.length;
+		if (nParents == 1 && !maybeChangedPaths(walker, c)) {
+			// The commit-graph shows none of the paths we care about
+			// changed relative to the only parent, so the diff below
+			// would find nothing.
+			//
+			c.flags |= rewriteFlag;
+			return false;
+		}
+
 		TreeWalk tw = pathFilter;
 		ObjectId[] trees = new ObjectId[nParents + 1];
 		for (int i = 0; i < nParents; i++) {
@@ -247,6 +264,35 @@ public boolean requiresCommitBody() {
 		return false;
 	}
 
+	/**
+	 * Consult the changed-path Bloom filter of a commit.
+	 *
+	 * @return {@code false} if the commit certainly did not change any path
+	 *         the tree filter is limited to; {@code true} if it may have, or
+	 *         if there is no usable filter.
+	 */
+	private boolean maybeChangedPaths(RevWalk walker, RevCommit c) {
+		ChangedPathFilter cpf = c.getChangedPathFilter(walker);
+		if (cpf == null) {
+			return true;
+		}
+		TreeFilter f = pathFilter.getFilter();
+		if (f != pathsOf) {
+			// The filter is replaced when a FollowFilter crosses a rename.
+			filterPaths = f.getPathsBestEffort();
+			pathsOf = f;
+		}
+		if (filterPaths.isEmpty()) {
+			return true;
+		}
+		for (byte[] path : filterPaths.get()) {
+			if (cpf.maybeContains(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private void updateFollowFilter(ObjectId[] trees, DiffConfig cfg)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			CorruptObjectException, IOException {
@@ -12,9 +12,11 @@
 
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_CORE_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_BASE_CACHE_LIMIT;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_EVICTION_POLICY;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_LIMIT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_MMAP;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_OPENFILES;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_USE_OFFHEAP;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_WINDOWSIZE;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_STREAM_FILE_TRESHOLD;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PACKED_GIT_USE_STRONGREFS;
@@ -33,6 +35,30 @@ public class WindowCacheConfig {
 	/** 1024 {@link #KB} (number of bytes in one mebibyte/megabyte) */
 	public static final int MB = 1024 * KB;
 
+	/**
+	 * Strategy to choose the window to evict when the cache is full.
+	 *
+	 * @since 6.5
+	 */
+	public enum EvictionPolicy {
+		/**
+		 * Evict the least recently used window of a random sample of the
+		 * cache. A single large read, e.g. a clone streaming a whole pack,
+		 * can push out all windows frequently used by smaller requests.
+		 */
+		LRU,
+
+		/**
+		 * Evict the least frequently used window of a random sample of the
+		 * cache, preferring the least recently used one of equally frequently
+		 * used windows. Access frequencies are estimated by a sketch that
+		 * also remembers windows which are no longer cached and that ages
+		 * periodically, as in TinyLFU. Windows read only once by a large
+		 * read are evicted before windows read again and again.
+		 */
+		TINY_LFU
+	}
+
 	private int packedGitOpenFiles;
 
 	private long packedGitLimit;
@@ -43,12 +69,16 @@ public class WindowCacheConfig {
 
 	private boolean packedGitMMAP;
 
+	private boolean packedGitUseOffHeap;
+
 	private int deltaBaseCacheLimit;
 
 	private int streamFileThreshold;
 
 	private boolean exposeStats;
 
+	private EvictionPolicy evictionPolicy;
+
 	/**
 	 * Create a default configuration.
 	 */
@@ -58,9 +88,11 @@ public WindowCacheConfig() {
 		useStrongRefs = false;
 		packedGitWindowSize = 8 * KB;
 		packedGitMMAP = false;
+		packedGitUseOffHeap = false;
 		deltaBaseCacheLimit = 10 * MB;
 		streamFileThreshold = PackConfig.DEFAULT_BIG_FILE_THRESHOLD;
 		exposeStats = true;
+		evictionPolicy = EvictionPolicy.LRU;
 	}
 
 	/**
@@ -132,6 +164,28 @@ public void setPackedGitUseStrongRefs(boolean useStrongRefs) {
 		this.useStrongRefs = useStrongRefs;
 	}
 
+	/**
+	 * Get the strategy to choose the window to evict when the cache is full.
+	 *
+	 * @return the eviction policy. <b>Default is
+	 *         {@link EvictionPolicy#LRU}.</b>
+	 * @since 6.5
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Set the strategy to choose the window to evict when the cache is full.
+	 *
+	 * @param policy
+	 *            the eviction policy.
+	 * @since 6.5
+	 */
+	public void setEvictionPolicy(EvictionPolicy policy) {
+		evictionPolicy = policy;
+	}
+
 	/**
 	 * Get size in bytes of a single window mapped or read in from the pack
 	 * file.
@@ -176,6 +230,39 @@ public void setPackedGitMMAP(boolean usemmap) {
 		packedGitMMAP = usemmap;
 	}
 
+	/**
+	 * Get whether windows are read into direct memory outside of the Java
+	 * heap.
+	 *
+	 * @return {@code true} if windows are read into pooled direct buffers.
+	 *         <b>Default is false.</b>
+	 * @since 6.5
+	 */
+	public boolean isPackedGitUseOffHeap() {
+		return packedGitUseOffHeap;
+	}
+
+	/**
+	 * Set whether windows are read into direct memory outside of the Java
+	 * heap.
+	 * <p>
+	 * Off-heap windows are allocated from a pool of direct buffers and are
+	 * returned to the pool as soon as they are evicted from the cache and no
+	 * longer read, so a large {@link #setPackedGitLimit(long) packedGitLimit}
+	 * does not increase garbage collection pauses. The pool is bounded by the
+	 * JVM's {@code -XX:MaxDirectMemorySize}, not by the heap size. Windows are
+	 * always strongly referenced by the cache, and this option is ignored if
+	 * {@link #setPackedGitMMAP(boolean) packedGitMMAP} is enabled.
+	 *
+	 * @param useOffHeap
+	 *            {@code true} reads windows into pooled direct buffers;
+	 *            {@code false} reads them into a byte[] on the heap.
+	 * @since 6.5
+	 */
+	public void setPackedGitUseOffHeap(boolean useOffHeap) {
+		packedGitUseOffHeap = useOffHeap;
+	}
+
 	/**
 	 * Get maximum number of bytes to cache in delta base cache for inflated,
 	 * recently accessed objects, without delta chains.
@@ -278,8 +365,12 @@ public WindowCacheConfig fromConfig(Config rc) {
 				CONFIG_KEY_PACKED_GIT_WINDOWSIZE, getPackedGitWindowSize()));
 		setPackedGitMMAP(rc.getBoolean(CONFIG_CORE_SECTION, null,
 				CONFIG_KEY_PACKED_GIT_MMAP, isPackedGitMMAP()));
+		setPackedGitUseOffHeap(rc.getBoolean(CONFIG_CORE_SECTION, null,
+				CONFIG_KEY_PACKED_GIT_USE_OFFHEAP, isPackedGitUseOffHeap()));
 		setDeltaBaseCacheLimit(rc.getInt(CONFIG_CORE_SECTION, null,
 				CONFIG_KEY_DELTA_BASE_CACHE_LIMIT, getDeltaBaseCacheLimit()));
+		setEvictionPolicy(rc.getEnum(CONFIG_CORE_SECTION, null,
+				CONFIG_KEY_PACKED_GIT_EVICTION_POLICY, getEvictionPolicy()));
 
 		long maxMem = Runtime.getRuntime().maxMemory();
 		long sft = rc.getLong(CONFIG_CORE_SECTION, null,
@@ -201,6 +201,19 @@ default double getAverageLoadTime() {
 	 */
 	Map<String, Long> getOpenByteCountPerRepository();
 
+	/**
+	 * Eviction policy of the cache.
+	 * <p>
+	 * Counters start from zero whenever the cache is reconfigured, so hit and
+	 * miss counts always belong to the policy returned here.
+	 *
+	 * @return the eviction policy of the cache
+	 * @since 6.5
+	 */
+	default WindowCacheConfig.EvictionPolicy getEvictionPolicy() {
+		return WindowCacheConfig.EvictionPolicy.LRU;
+	}
+
 	/**
 	 * Reset counters. Does not reset open bytes and open files counters.
 	 */
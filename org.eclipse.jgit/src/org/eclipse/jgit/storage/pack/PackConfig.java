@@ -26,18 +26,27 @@
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_COMPRESSION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DEPTH;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_INDEXVERSION;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_INDEX_SPILL_THRESHOLD;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_INDEX_THREADS;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_ISLAND;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_MIN_SIZE_PREVENT_RACYPACK;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_PARALLEL_COUNTING;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_REUSE_DELTAS;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_REUSE_OBJECTS;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_SEARCH_FOR_REUSE_TIMEOUT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_SINGLE_PACK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_THREADS;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_TOTAL_WINDOW_MEMORY;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WAIT_PREVENT_RACYPACK;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WINDOW;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WINDOW_MEMORY;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_WRITE_REVERSE_INDEX;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_PACK_SECTION;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.Deflater;
@@ -165,6 +174,39 @@ public class PackConfig {
 	 */
 	public static final boolean DEFAULT_BUILD_BITMAPS = true;
 
+	/**
+	 * Default value of the write reverse index option: {@value}
+	 *
+	 * @see #setWriteReverseIndex(boolean)
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_WRITE_REVERSE_INDEX = false;
+
+	/**
+	 * Default value of the parallel counting option: {@value}
+	 *
+	 * @see #setParallelCounting(boolean)
+	 * @since 6.5
+	 */
+	public static final boolean DEFAULT_PARALLEL_COUNTING = false;
+
+	/**
+	 * Default number of threads resolving deltas of received packs: {@value}
+	 *
+	 * @see #setIndexThreads(int)
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_INDEX_THREADS = 1;
+
+	/**
+	 * Default number of objects above which the index of a received pack is
+	 * sorted on disk: {@value}
+	 *
+	 * @see #setIndexSpillThreshold(int)
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_INDEX_SPILL_THRESHOLD = 0;
+
 	/**
 	 * Default count of most recent commits to select for bitmaps. Only applies
 	 * when bitmaps are enabled: {@value}
@@ -255,6 +297,10 @@ public class PackConfig {
 
 	private long deltaSearchMemoryLimit;
 
+	private long totalDeltaSearchMemoryLimit;
+
+	private List<String> deltaIslands = Collections.emptyList();
+
 	private long deltaCacheSize = DEFAULT_DELTA_CACHE_SIZE;
 
 	private int deltaCacheLimit = DEFAULT_DELTA_CACHE_LIMIT;
@@ -271,8 +317,16 @@ public class PackConfig {
 
 	private int indexVersion = DEFAULT_INDEX_VERSION;
 
+	private int indexThreads = DEFAULT_INDEX_THREADS;
+
+	private int indexSpillThreshold = DEFAULT_INDEX_SPILL_THRESHOLD;
+
 	private boolean buildBitmaps = DEFAULT_BUILD_BITMAPS;
 
+	private boolean writeReverseIndex = DEFAULT_WRITE_REVERSE_INDEX;
+
+	private boolean parallelCounting = DEFAULT_PARALLEL_COUNTING;
+
 	private int bitmapContiguousCommitCount = DEFAULT_BITMAP_CONTIGUOUS_COMMIT_COUNT;
 
 	private int bitmapRecentCommitCount = DEFAULT_BITMAP_RECENT_COMMIT_COUNT;
@@ -340,6 +394,8 @@ public PackConfig(PackConfig cfg) {
 		this.maxDeltaDepth = cfg.maxDeltaDepth;
 		this.deltaSearchWindowSize = cfg.deltaSearchWindowSize;
 		this.deltaSearchMemoryLimit = cfg.deltaSearchMemoryLimit;
+		this.totalDeltaSearchMemoryLimit = cfg.totalDeltaSearchMemoryLimit;
+		this.deltaIslands = cfg.deltaIslands;
 		this.deltaCacheSize = cfg.deltaCacheSize;
 		this.deltaCacheLimit = cfg.deltaCacheLimit;
 		this.bigFileThreshold = cfg.bigFileThreshold;
@@ -348,7 +404,11 @@ public PackConfig(PackConfig cfg) {
 		this.threads = cfg.threads;
 		this.executor = cfg.executor;
 		this.indexVersion = cfg.indexVersion;
+		this.indexThreads = cfg.indexThreads;
+		this.indexSpillThreshold = cfg.indexSpillThreshold;
 		this.buildBitmaps = cfg.buildBitmaps;
+		this.writeReverseIndex = cfg.writeReverseIndex;
+		this.parallelCounting = cfg.parallelCounting;
 		this.bitmapContiguousCommitCount = cfg.bitmapContiguousCommitCount;
 		this.bitmapRecentCommitCount = cfg.bitmapRecentCommitCount;
 		this.bitmapRecentCommitSpan = cfg.bitmapRecentCommitSpan;
@@ -658,7 +718,8 @@ public void setDeltaSearchWindowSize(int objectCount) {
 	 * space used by at most {@link #getDeltaSearchWindowSize()} objects.
 	 *
 	 * This limit is per thread, if 4 threads are used the actual memory limit
-	 * will be 4 times this value.
+	 * will be 4 times this value. Use
+	 * {@link #getTotalDeltaSearchMemoryLimit()} to limit all threads together.
 	 *
 	 * @return the memory limit.
 	 */
@@ -680,6 +741,77 @@ public void setDeltaSearchMemoryLimit(long memoryLimit) {
 		deltaSearchMemoryLimit = memoryLimit;
 	}
 
+	/**
+	 * Get maximum number of bytes to put into the delta search windows of all
+	 * threads together.
+	 *
+	 * Default setting is 0, for no limit other than
+	 * {@link #getDeltaSearchMemoryLimit()} per thread.
+	 *
+	 * @return the memory limit.
+	 * @since 6.5
+	 */
+	public long getTotalDeltaSearchMemoryLimit() {
+		return totalDeltaSearchMemoryLimit;
+	}
+
+	/**
+	 * Set the maximum number of bytes to put into the delta search windows of
+	 * all threads together.
+	 *
+	 * Default setting is 0, for no limit other than
+	 * {@link #getDeltaSearchMemoryLimit()} per thread. While the windows
+	 * together exceed this limit each thread drops objects from its own
+	 * window, lowering its window size. A thread never waits for memory held
+	 * by other threads, so the limit may be exceeded by the objects each
+	 * thread is comparing at the time.
+	 *
+	 * @param memoryLimit
+	 *            Maximum number of bytes to load at once in all threads, 0
+	 *            for unlimited.
+	 * @since 6.5
+	 */
+	public void setTotalDeltaSearchMemoryLimit(long memoryLimit) {
+		totalDeltaSearchMemoryLimit = memoryLimit;
+	}
+
+	/**
+	 * Get the patterns defining delta islands.
+	 *
+	 * Default setting is empty, for no islands.
+	 *
+	 * @return regular expressions matched against ref names; never null.
+	 * @since 6.5
+	 */
+	public List<String> getDeltaIslands() {
+		return deltaIslands;
+	}
+
+	/**
+	 * Set the patterns defining delta islands.
+	 *
+	 * Each ref whose name matches a pattern belongs to the island named by the
+	 * pattern's capture groups, joined with {@code '-'}. Refs matching the
+	 * same pattern with equal groups share an island. An object is only
+	 * stored as a delta against a base reachable from all islands the object
+	 * is reachable from, so a pack for the refs of one island can reuse all
+	 * deltas as is. Islands are only applied by writers given the refs with
+	 * {@link org.eclipse.jgit.internal.storage.pack.PackWriter#setDeltaIslandRefs(java.util.Collection)}.
+	 *
+	 * Default setting is empty, for no islands.
+	 *
+	 * @param patterns
+	 *            regular expressions matched against ref names, as by
+	 *            {@link java.util.regex.Matcher#find()}.
+	 * @since 6.5
+	 */
+	public void setDeltaIslands(List<String> patterns) {
+		deltaIslands = patterns == null || patterns.isEmpty()
+				? Collections.emptyList()
+				: Collections.unmodifiableList(Arrays.asList(
+						patterns.toArray(new String[0])));
+	}
+
 	/**
 	 * Get the size of the in-memory delta cache.
 	 *
@@ -947,6 +1079,74 @@ public void setIndexVersion(int version) {
 		indexVersion = version;
 	}
 
+	/**
+	 * Get the number of threads resolving the deltas of a received pack.
+	 *
+	 * Default setting: {@value #DEFAULT_INDEX_THREADS}
+	 *
+	 * @return number of threads resolving deltas. 0 will auto-detect the
+	 *         threads to the number of available processors.
+	 * @since 6.5
+	 */
+	public int getIndexThreads() {
+		return indexThreads;
+	}
+
+	/**
+	 * Set the number of threads resolving the deltas of a received pack.
+	 * <p>
+	 * When indexing a pack received into a repository, the delta chains
+	 * rooted at different base objects are resolved concurrently by this
+	 * many threads. Each thread holds the objects of the chain it is
+	 * resolving in memory.
+	 *
+	 * Default setting: {@value #DEFAULT_INDEX_THREADS}
+	 *
+	 * @param threads
+	 *            number of threads to use. If &lt;= 0 the number of available
+	 *            processors for this JVM is used.
+	 * @since 6.5
+	 */
+	public void setIndexThreads(int threads) {
+		indexThreads = threads;
+	}
+
+	/**
+	 * Get the number of objects above which the index of a received pack is
+	 * sorted on disk.
+	 *
+	 * Default setting: {@value #DEFAULT_INDEX_SPILL_THRESHOLD}
+	 *
+	 * @return number of objects sorted in memory at once. 0 sorts all
+	 *         objects in memory.
+	 * @since 6.5
+	 */
+	public int getIndexSpillThreshold() {
+		return indexSpillThreshold;
+	}
+
+	/**
+	 * Set the number of objects above which the index of a received pack is
+	 * sorted on disk.
+	 * <p>
+	 * The index of a pack received into a repository lists its objects
+	 * sorted by name. If the pack contains more objects than this, they are
+	 * sorted in runs of this many objects written to temporary files, which
+	 * are merged when the index is written. Full runs are sorted and written
+	 * by a background thread while the pack is received and its deltas are
+	 * resolved.
+	 *
+	 * Default setting: {@value #DEFAULT_INDEX_SPILL_THRESHOLD}
+	 *
+	 * @param threshold
+	 *            number of objects to sort in memory at once. If &lt;= 0 all
+	 *            objects are sorted in memory.
+	 * @since 6.5
+	 */
+	public void setIndexSpillThreshold(int threshold) {
+		indexSpillThreshold = threshold;
+	}
+
 	/**
 	 * True if writer is allowed to build bitmaps for indexes.
 	 *
@@ -976,6 +1176,69 @@ public void setBuildBitmaps(boolean buildBitmaps) {
 		this.buildBitmaps = buildBitmaps;
 	}
 
+	/**
+	 * True if writer should also write a reverse index (.rev) file.
+	 *
+	 * Default setting: {@value #DEFAULT_WRITE_REVERSE_INDEX}
+	 *
+	 * @return true if a reverse index is written next to the pack index.
+	 * @since 6.5
+	 */
+	public boolean isWriteReverseIndex() {
+		return writeReverseIndex;
+	}
+
+	/**
+	 * Set whether to write a reverse index (.rev) file next to the pack index.
+	 *
+	 * The reverse index maps positions in pack order to positions in the pack
+	 * index. Readers can use it instead of computing the mapping by sorting all
+	 * offsets of the pack index when the pack is opened.
+	 *
+	 * Default setting: {@value #DEFAULT_WRITE_REVERSE_INDEX}
+	 *
+	 * @param writeReverseIndex
+	 *            boolean indicating whether to write a reverse index.
+	 * @since 6.5
+	 */
+	public void setWriteReverseIndex(boolean writeReverseIndex) {
+		this.writeReverseIndex = writeReverseIndex;
+	}
+
+	/**
+	 * True if the writer enumerates trees on several threads while counting
+	 * objects.
+	 *
+	 * Default setting: {@value #DEFAULT_PARALLEL_COUNTING}
+	 *
+	 * @return true if trees are enumerated in parallel.
+	 * @since 6.5
+	 */
+	public boolean isParallelCounting() {
+		return parallelCounting;
+	}
+
+	/**
+	 * Set whether to enumerate trees on several threads while counting
+	 * objects.
+	 *
+	 * After walking the commits, the root trees are split between
+	 * {@link #getThreads()} tasks run on the {@link #getExecutor()}. Packs
+	 * hold the same objects, but trees and blobs reachable from several
+	 * commits may be written in a slightly different order. Thin packs,
+	 * shallow packs and packs filtered by tree depth are always counted on a
+	 * single thread.
+	 *
+	 * Default setting: {@value #DEFAULT_PARALLEL_COUNTING}
+	 *
+	 * @param parallelCounting
+	 *            boolean indicating whether to enumerate trees in parallel.
+	 * @since 6.5
+	 */
+	public void setParallelCounting(boolean parallelCounting) {
+		this.parallelCounting = parallelCounting;
+	}
+
 	/**
 	 * Get the count of most recent commits for which to build bitmaps.
 	 *
@@ -1173,6 +1436,14 @@ public void fromConfig(Config rc) {
 				CONFIG_KEY_WINDOW, getDeltaSearchWindowSize()));
 		setDeltaSearchMemoryLimit(rc.getLong(CONFIG_PACK_SECTION,
 				CONFIG_KEY_WINDOW_MEMORY, getDeltaSearchMemoryLimit()));
+		setTotalDeltaSearchMemoryLimit(rc.getLong(CONFIG_PACK_SECTION,
+				CONFIG_KEY_TOTAL_WINDOW_MEMORY,
+				getTotalDeltaSearchMemoryLimit()));
+		String[] islands = rc.getStringList(CONFIG_PACK_SECTION, null,
+				CONFIG_KEY_ISLAND);
+		if (islands.length > 0) {
+			setDeltaIslands(Arrays.asList(islands));
+		}
 		setDeltaCacheSize(rc.getLong(CONFIG_PACK_SECTION,
 				CONFIG_KEY_DELTA_CACHE_SIZE, getDeltaCacheSize()));
 		setDeltaCacheLimit(rc.getInt(CONFIG_PACK_SECTION,
@@ -1183,6 +1454,10 @@ public void fromConfig(Config rc) {
 		setIndexVersion(rc.getInt(CONFIG_PACK_SECTION,
 				CONFIG_KEY_INDEXVERSION,
 				getIndexVersion()));
+		setIndexThreads(rc.getInt(CONFIG_PACK_SECTION,
+				CONFIG_KEY_INDEX_THREADS, getIndexThreads()));
+		setIndexSpillThreshold(rc.getInt(CONFIG_PACK_SECTION,
+				CONFIG_KEY_INDEX_SPILL_THRESHOLD, getIndexSpillThreshold()));
 		setBigFileThreshold(rc.getInt(CONFIG_CORE_SECTION,
 				CONFIG_KEY_BIGFILE_THRESHOLD, getBigFileThreshold()));
 		setThreads(rc.getInt(CONFIG_PACK_SECTION, CONFIG_KEY_THREADS,
@@ -1202,6 +1477,10 @@ public void fromConfig(Config rc) {
 				getSinglePack()));
 		setBuildBitmaps(rc.getBoolean(CONFIG_PACK_SECTION,
 				CONFIG_KEY_BUILD_BITMAPS, isBuildBitmaps()));
+		setWriteReverseIndex(rc.getBoolean(CONFIG_PACK_SECTION,
+				CONFIG_KEY_WRITE_REVERSE_INDEX, isWriteReverseIndex()));
+		setParallelCounting(rc.getBoolean(CONFIG_PACK_SECTION,
+				CONFIG_KEY_PARALLEL_COUNTING, isParallelCounting()));
 		setBitmapContiguousCommitCount(rc.getInt(CONFIG_PACK_SECTION,
 				CONFIG_KEY_BITMAP_CONTIGUOUS_COMMIT_COUNT,
 				getBitmapContiguousCommitCount()));
@@ -1239,16 +1518,23 @@ public String toString() {
 		b.append(", deltaSearchWindowSize=").append(getDeltaSearchWindowSize()); //$NON-NLS-1$
 		b.append(", deltaSearchMemoryLimit=") //$NON-NLS-1$
 				.append(getDeltaSearchMemoryLimit());
+		b.append(", totalDeltaSearchMemoryLimit=") //$NON-NLS-1$
+				.append(getTotalDeltaSearchMemoryLimit());
+		b.append(", deltaIslands=").append(getDeltaIslands()); //$NON-NLS-1$
 		b.append(", deltaCacheSize=").append(getDeltaCacheSize()); //$NON-NLS-1$
 		b.append(", deltaCacheLimit=").append(getDeltaCacheLimit()); //$NON-NLS-1$
 		b.append(", compressionLevel=").append(getCompressionLevel()); //$NON-NLS-1$
 		b.append(", indexVersion=").append(getIndexVersion()); //$NON-NLS-1$
+		b.append(", indexThreads=").append(getIndexThreads()); //$NON-NLS-1$
+		b.append(", indexSpillThreshold=").append(getIndexSpillThreshold()); //$NON-NLS-1$
 		b.append(", bigFileThreshold=").append(getBigFileThreshold()); //$NON-NLS-1$
 		b.append(", threads=").append(getThreads()); //$NON-NLS-1$
 		b.append(", reuseDeltas=").append(isReuseDeltas()); //$NON-NLS-1$
 		b.append(", reuseObjects=").append(isReuseObjects()); //$NON-NLS-1$
 		b.append(", deltaCompress=").append(isDeltaCompress()); //$NON-NLS-1$
 		b.append(", buildBitmaps=").append(isBuildBitmaps()); //$NON-NLS-1$
+		b.append(", writeReverseIndex=").append(isWriteReverseIndex()); //$NON-NLS-1$
+		b.append(", parallelCounting=").append(isParallelCounting()); //$NON-NLS-1$
 		b.append(", bitmapContiguousCommitCount=") //$NON-NLS-1$
 				.append(getBitmapContiguousCommitCount());
 		b.append(", bitmapRecentCommitCount=") //$NON-NLS-1$
@@ -19,7 +19,19 @@
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Collection;
 
 import org.eclipse.jgit.annotations.Nullable;
@@ -33,6 +45,7 @@
 import org.eclipse.jgit.transport.resolver.ServiceNotAuthorizedException;
 import org.eclipse.jgit.transport.resolver.ServiceNotEnabledException;
 import org.eclipse.jgit.transport.resolver.UploadPackFactory;
+import org.eclipse.jgit.util.RawParseUtils;
 
 /**
  * Basic daemon for the anonymous <code>git://</code> transport protocol.
@@ -41,6 +54,22 @@ public class Daemon {
 	/** 9418: IANA assigned port number for Git. */
 	public static final int DEFAULT_PORT = 9418;
 
+	/**
+	 * Default number of seconds a client may take to send its request with
+	 * a non-blocking handshake: {@value}
+	 *
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_HANDSHAKE_TIMEOUT = 10;
+
+	/**
+	 * Default number of clients whose request is read at the same time with
+	 * a non-blocking handshake: {@value}
+	 *
+	 * @since 6.5
+	 */
+	public static final int DEFAULT_MAX_HANDSHAKES = 1024;
+
 	private static final int BACKLOG = 5;
 
 	private InetSocketAddress myAddress;
@@ -55,6 +84,24 @@ public class Daemon {
 
 	private PackConfig packConfig;
 
+	private volatile ThreadFactory threadFactory;
+
+	private volatile Semaphore uploadPacks;
+
+	private final AtomicInteger uploadPacksWaiting = new AtomicInteger();
+
+	private int maxUploadPacks;
+
+	private int maxUploadPacksWaiting = -1;
+
+	private int uploadPackQueueTimeout;
+
+	private boolean nonBlockingHandshake;
+
+	private int handshakeTimeout = DEFAULT_HANDSHAKE_TIMEOUT;
+
+	private int maxHandshakes = DEFAULT_MAX_HANDSHAKES;
+
 	private volatile RepositoryResolver<DaemonClient> repositoryResolver;
 
 	volatile UploadPackFactory<DaemonClient> uploadPackFactory;
@@ -123,7 +170,14 @@ protected void execute(final DaemonClient dc,
 						if (extraParameters != null) {
 							up.setExtraParameters(extraParameters);
 						}
-						up.upload(in, out, null);
+						Semaphore admission = admitUploadPack();
+						try {
+							up.upload(in, out, null);
+						} finally {
+							if (admission != null) {
+								admission.release();
+							}
+						}
 					}
 				}, new DaemonService("receive-pack", "receivepack") { //$NON-NLS-1$ //$NON-NLS-2$
 					{
@@ -214,6 +268,183 @@ public void setPackConfig(PackConfig pc) {
 		this.packConfig = pc;
 	}
 
+	/**
+	 * Set the factory creating the threads serving connected clients.
+	 * <p>
+	 * Each accepted connection is served by a new thread of this factory. On
+	 * Java 21 and later {@code Thread.ofVirtual().factory()} serves every
+	 * client on a virtual thread, so a large number of concurrent clients do
+	 * not each hold a platform thread.
+	 *
+	 * @param factory
+	 *            the factory. If null each client is served by a new platform
+	 *            thread in the daemon's thread group.
+	 * @since 6.5
+	 */
+	public void setThreadFactory(ThreadFactory factory) {
+		threadFactory = factory;
+	}
+
+	/**
+	 * Get the maximum number of upload-packs served at the same time.
+	 *
+	 * @return the maximum number of concurrent upload-packs; 0 if unlimited.
+	 * @since 6.5
+	 */
+	public int getMaxUploadPacks() {
+		return maxUploadPacks;
+	}
+
+	/**
+	 * Set the maximum number of upload-packs served at the same time.
+	 * <p>
+	 * Further clients wait for a running upload-pack to complete. Takes
+	 * effect when the daemon is started.
+	 *
+	 * @param max
+	 *            the maximum number of concurrent upload-packs; 0 if
+	 *            unlimited.
+	 * @since 6.5
+	 */
+	public void setMaxUploadPacks(int max) {
+		maxUploadPacks = max;
+	}
+
+	/**
+	 * Get the maximum number of clients waiting to start an upload-pack.
+	 *
+	 * @return the maximum number of waiting clients; -1 if unlimited.
+	 * @since 6.5
+	 */
+	public int getMaxUploadPacksWaiting() {
+		return maxUploadPacksWaiting;
+	}
+
+	/**
+	 * Set the maximum number of clients waiting to start an upload-pack.
+	 * <p>
+	 * When {@link #getMaxUploadPacks()} upload-packs are running and this many
+	 * clients are already waiting, further clients are refused at once with an
+	 * error.
+	 *
+	 * @param max
+	 *            the maximum number of waiting clients; 0 to refuse clients
+	 *            instead of waiting, -1 if unlimited.
+	 * @since 6.5
+	 */
+	public void setMaxUploadPacksWaiting(int max) {
+		maxUploadPacksWaiting = max;
+	}
+
+	/**
+	 * Get the time (in seconds) a client waits to start an upload-pack.
+	 *
+	 * @return the time (in seconds) a client waits to start an upload-pack; 0
+	 *         if it waits until a running upload-pack completes.
+	 * @since 6.5
+	 */
+	public int getUploadPackQueueTimeout() {
+		return uploadPackQueueTimeout;
+	}
+
+	/**
+	 * Set the time (in seconds) a client waits to start an upload-pack.
+	 * <p>
+	 * A client still waiting after this time is refused with an error.
+	 *
+	 * @param seconds
+	 *            the time to wait; 0 to wait until a running upload-pack
+	 *            completes.
+	 * @since 6.5
+	 */
+	public void setUploadPackQueueTimeout(int seconds) {
+		uploadPackQueueTimeout = seconds;
+	}
+
+	/**
+	 * Whether the request line of clients is read by the accepting thread.
+	 *
+	 * @return true if request lines are read without blocking.
+	 * @since 6.5
+	 */
+	public boolean isNonBlockingHandshake() {
+		return nonBlockingHandshake;
+	}
+
+	/**
+	 * Set whether the request line of clients is read by the accepting thread.
+	 * <p>
+	 * If true the thread accepting connections also reads the first packet
+	 * of every client, the request naming the service and repository, using
+	 * a {@link java.nio.channels.Selector}. A client is only given its own
+	 * thread once its request is complete, so slow or idle clients do not
+	 * hold a thread. Clients not sending their request within
+	 * {@link #getHandshakeTimeout()} seconds, or {@link #getTimeout()} seconds
+	 * if that is shorter, are disconnected. Takes effect when the daemon is
+	 * started.
+	 *
+	 * @param nonBlocking
+	 *            true to read request lines without blocking.
+	 * @since 6.5
+	 */
+	public void setNonBlockingHandshake(boolean nonBlocking) {
+		nonBlockingHandshake = nonBlocking;
+	}
+
+	/**
+	 * Get the number of seconds a client may take to send its request with
+	 * a non-blocking handshake.
+	 *
+	 * @return timeout (in seconds) for reading the request of a client.
+	 * @since 6.5
+	 */
+	public int getHandshakeTimeout() {
+		return handshakeTimeout;
+	}
+
+	/**
+	 * Set the number of seconds a client may take to send its request with
+	 * a non-blocking handshake.
+	 * <p>
+	 * Unlike {@link #setTimeout(int)} this timeout always applies, so idle
+	 * clients cannot hold connections open without sending a request.
+	 *
+	 * @param seconds
+	 *            timeout (in seconds) for reading the request of a client.
+	 *            If &lt;= 0 {@link #DEFAULT_HANDSHAKE_TIMEOUT} is used.
+	 * @since 6.5
+	 */
+	public void setHandshakeTimeout(int seconds) {
+		handshakeTimeout = 0 < seconds ? seconds : DEFAULT_HANDSHAKE_TIMEOUT;
+	}
+
+	/**
+	 * Get the number of clients whose request is read at the same time with
+	 * a non-blocking handshake.
+	 *
+	 * @return maximum number of pending handshakes.
+	 * @since 6.5
+	 */
+	public int getMaxHandshakes() {
+		return maxHandshakes;
+	}
+
+	/**
+	 * Set the number of clients whose request is read at the same time with
+	 * a non-blocking handshake.
+	 * <p>
+	 * Connections accepted while this many clients have not completed their
+	 * request are closed at once.
+	 *
+	 * @param max
+	 *            maximum number of pending handshakes. If &lt;= 0
+	 *            {@link #DEFAULT_MAX_HANDSHAKES} is used.
+	 * @since 6.5
+	 */
+	public void setMaxHandshakes(int max) {
+		maxHandshakes = 0 < max ? max : DEFAULT_MAX_HANDSHAKES;
+	}
+
 	/**
 	 * Set the resolver used to locate a repository by name.
 	 *
@@ -264,7 +495,7 @@ public void setReceivePackFactory(ReceivePackFactory<DaemonClient> factory) {
 
 	private class Acceptor extends Thread {
 
-		private final ServerSocket listenSocket;
+		final ServerSocket listenSocket;
 
 		private final AtomicBoolean running = new AtomicBoolean(true);
 
@@ -276,17 +507,20 @@ public Acceptor(ThreadGroup group, String name, ServerSocket socket) {
 		@Override
 		public void run() {
 			setUncaughtExceptionHandler((thread, throwable) -> terminate());
+			acceptClients();
+			terminate();
+		}
+
+		void acceptClients() {
 			while (isRunning()) {
 				try {
-					startClient(listenSocket.accept());
+					startClient(listenSocket.accept(), null);
 				} catch (SocketException e) {
 					// Test again to see if we should keep accepting.
 				} catch (IOException e) {
 					break;
 				}
 			}
-
-			terminate();
 		}
 
 		private void terminate() {
@@ -312,6 +546,181 @@ public void shutDown() {
 
 	}
 
+	/**
+	 * Accepts connections and reads their request packet on a selector.
+	 */
+	private class SelectingAcceptor extends Acceptor {
+		private final Selector selector;
+
+		SelectingAcceptor(ThreadGroup group, String name, ServerSocket socket,
+				Selector selector) {
+			super(group, name, socket);
+			this.selector = selector;
+		}
+
+		@Override
+		void acceptClients() {
+			try {
+				ServerSocketChannel server = listenSocket.getChannel();
+				server.configureBlocking(false);
+				server.register(selector, SelectionKey.OP_ACCEPT);
+				List<Handshake> ready = new ArrayList<>();
+				while (isRunning()) {
+					selector.select(1000);
+					Iterator<SelectionKey> keys = selector.selectedKeys()
+							.iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						if (!key.isValid()) {
+							continue;
+						} else if (key.isAcceptable()) {
+							accept(server);
+						} else if (key.isReadable()) {
+							Handshake h = (Handshake) key.attachment();
+							if (h.read()) {
+								key.cancel();
+								ready.add(h);
+							}
+						}
+					}
+					expireHandshakes();
+					if (!ready.isEmpty()) {
+						// Cancelled keys are deregistered by the next
+						// selection, allowing the channels to block again.
+						selector.selectNow();
+						for (Handshake h : ready) {
+							h.dispatch();
+						}
+						ready.clear();
+					}
+				}
+			} catch (IOException e) {
+				// Stop accepting, like a failing blocking accept.
+			} finally {
+				for (SelectionKey key : selector.keys()) {
+					if (key.attachment() instanceof Handshake) {
+						((Handshake) key.attachment()).close();
+					}
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+					// Ignore close exceptions
+				}
+			}
+		}
+
+		private void accept(ServerSocketChannel server) throws IOException {
+			SocketChannel ch = server.accept();
+			if (ch == null) {
+				return;
+			}
+			// The key of the server socket is registered too.
+			if (selector.keys().size() > maxHandshakes) {
+				ch.close();
+				return;
+			}
+			try {
+				ch.configureBlocking(false);
+				ch.register(selector, SelectionKey.OP_READ, new Handshake(ch));
+			} catch (IOException e) {
+				ch.close();
+			}
+		}
+
+		private void expireHandshakes() {
+			int timeout = handshakeTimeout;
+			if (0 < getTimeout()) {
+				timeout = Math.min(timeout, getTimeout());
+			}
+			long expired = System.nanoTime()
+					- TimeUnit.SECONDS.toNanos(timeout);
+			for (SelectionKey key : selector.keys()) {
+				Object h = key.attachment();
+				if (h instanceof Handshake
+						&& ((Handshake) h).started - expired < 0) {
+					((Handshake) h).close();
+				}
+			}
+		}
+
+		@Override
+		public void shutDown() {
+			super.shutDown();
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Client whose request packet is being read.
+	 */
+	private class Handshake {
+		private static final int HEADER_SIZE = 4;
+
+		final long started = System.nanoTime();
+
+		private final SocketChannel channel;
+
+		private ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+
+		Handshake(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Read available bytes of the request packet.
+		 *
+		 * @return true if the packet is complete.
+		 */
+		boolean read() {
+			try {
+				if (channel.read(buf) < 0) {
+					close();
+					return false;
+				}
+				if (buf.hasRemaining()) {
+					return false;
+				}
+				if (buf.capacity() == HEADER_SIZE) {
+					int len = RawParseUtils.parseHexInt16(buf.array(), 0);
+					if (len <= HEADER_SIZE) {
+						// Not a request; a blocking read would find no
+						// service either.
+						close();
+						return false;
+					}
+					ByteBuffer pkt = ByteBuffer.allocate(len);
+					pkt.put(buf.array());
+					buf = pkt;
+					return read();
+				}
+				return true;
+			} catch (IOException | ArrayIndexOutOfBoundsException e) {
+				close();
+				return false;
+			}
+		}
+
+		void dispatch() {
+			try {
+				channel.configureBlocking(true);
+			} catch (IOException e) {
+				close();
+				return;
+			}
+			startClient(channel.socket(), buf.array());
+		}
+
+		void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Ignore close exceptions
+			}
+		}
+	}
+
 	/**
 	 * Start this daemon on a background thread.
 	 *
@@ -324,7 +733,8 @@ public synchronized void start() throws IOException {
 		if (acceptThread != null) {
 			throw new IllegalStateException(JGitText.get().daemonAlreadyRunning);
 		}
-		ServerSocket socket = new ServerSocket();
+		// Sockets accepted from a channel can send files with transferTo.
+		ServerSocket socket = ServerSocketChannel.open().socket();
 		socket.setReuseAddress(true);
 		if (myAddress != null) {
 			socket.bind(myAddress, BACKLOG);
@@ -332,8 +742,16 @@ public synchronized void start() throws IOException {
 			socket.bind(new InetSocketAddress((InetAddress) null, 0), BACKLOG);
 		}
 		myAddress = (InetSocketAddress) socket.getLocalSocketAddress();
+		uploadPacks = 0 < maxUploadPacks ? new Semaphore(maxUploadPacks, true)
+				: null;
 
-		acceptThread = new Acceptor(processors, "Git-Daemon-Accept", socket); //$NON-NLS-1$
+		if (nonBlockingHandshake) {
+			acceptThread = new SelectingAcceptor(processors,
+					"Git-Daemon-Accept", socket, Selector.open()); //$NON-NLS-1$
+		} else {
+			acceptThread = new Acceptor(processors, "Git-Daemon-Accept", //$NON-NLS-1$
+					socket);
+		}
 		acceptThread.start();
 	}
 
@@ -377,38 +795,83 @@ public void stopAndWait() throws InterruptedException {
 		}
 	}
 
-	void startClient(Socket s) {
+	void startClient(Socket s, @Nullable byte[] request) {
 		final DaemonClient dc = new DaemonClient(this);
 
 		final SocketAddress peer = s.getRemoteSocketAddress();
 		if (peer instanceof InetSocketAddress)
 			dc.setRemoteAddress(((InetSocketAddress) peer).getAddress());
 
-		new Thread(processors, "Git-Daemon-Client " + peer.toString()) { //$NON-NLS-1$
-			@Override
-			public void run() {
+		Runnable client = () -> {
+			try {
+				dc.execute(s, request);
+			} catch (ServiceNotEnabledException e) {
+				// Ignored. Client cannot use this repository.
+			} catch (ServiceNotAuthorizedException e) {
+				// Ignored. Client cannot use this repository.
+			} catch (IOException e) {
+				// Ignore unexpected IO exceptions from clients
+			} finally {
 				try {
-					dc.execute(s);
-				} catch (ServiceNotEnabledException e) {
-					// Ignored. Client cannot use this repository.
-				} catch (ServiceNotAuthorizedException e) {
-					// Ignored. Client cannot use this repository.
+					s.getInputStream().close();
 				} catch (IOException e) {
-					// Ignore unexpected IO exceptions from clients
-				} finally {
-					try {
-						s.getInputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
-					try {
-						s.getOutputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
+					// Ignore close exceptions
 				}
+				try {
+					s.getOutputStream().close();
+				} catch (IOException e) {
+					// Ignore close exceptions
+				}
+			}
+		};
+
+		ThreadFactory factory = threadFactory;
+		Thread t;
+		if (factory != null) {
+			t = factory.newThread(client);
+		} else {
+			t = new Thread(processors, client,
+					"Git-Daemon-Client " + peer.toString()); //$NON-NLS-1$
+		}
+		t.start();
+	}
+
+	/**
+	 * Wait for a running upload-pack to complete, if too many are running.
+	 *
+	 * @return the semaphore to release when the upload-pack completes; null
+	 *         if the number of upload-packs is not limited.
+	 * @throws ServiceMayNotContinueException
+	 *             too many clients are waiting, or the client waited too long.
+	 */
+	@Nullable
+	Semaphore admitUploadPack() throws ServiceMayNotContinueException {
+		Semaphore admission = uploadPacks;
+		if (admission == null || admission.tryAcquire()) {
+			return admission;
+		}
+		int max = maxUploadPacksWaiting;
+		int waiting = uploadPacksWaiting.incrementAndGet();
+		try {
+			if (0 <= max && max < waiting) {
+				throw new ServiceMayNotContinueException(
+						JGitText.get().daemonTooManyUploadPacks);
 			}
-		}.start();
+			int seconds = uploadPackQueueTimeout;
+			if (seconds <= 0) {
+				admission.acquire();
+			} else if (!admission.tryAcquire(seconds, TimeUnit.SECONDS)) {
+				throw new ServiceMayNotContinueException(
+						JGitText.get().daemonTooManyUploadPacks);
+			}
+			return admission;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceMayNotContinueException(
+					JGitText.get().daemonTooManyUploadPacks);
+		} finally {
+			uploadPacksWaiting.decrementAndGet();
+		}
 	}
 
 	synchronized DaemonService matchService(String cmd) {
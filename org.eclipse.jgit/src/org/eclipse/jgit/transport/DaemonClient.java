@@ -11,17 +11,21 @@
 package org.eclipse.jgit.transport;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.util.Arrays;
 import java.util.Collection;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.transport.resolver.ServiceNotAuthorizedException;
 import org.eclipse.jgit.transport.resolver.ServiceNotEnabledException;
+import org.eclipse.jgit.util.io.ChannelBufferedOutputStream;
 
 /**
  * Active network client of {@link org.eclipse.jgit.transport.Daemon}.
@@ -79,10 +83,21 @@ public OutputStream getOutputStream() {
 		return rawOut;
 	}
 
-	void execute(Socket sock) throws IOException,
+	void execute(Socket sock, @Nullable byte[] request) throws IOException,
 			ServiceNotEnabledException, ServiceNotAuthorizedException {
-		rawIn = new BufferedInputStream(sock.getInputStream());
-		rawOut = new BufferedOutputStream(sock.getOutputStream());
+		InputStream in = sock.getInputStream();
+		if (request != null) {
+			// The request packet was already read from the socket.
+			in = new SequenceInputStream(new ByteArrayInputStream(request), in);
+		}
+		rawIn = new BufferedInputStream(in);
+		if (sock.getChannel() != null) {
+			// Lets packs be sent from the file system cache to the socket.
+			rawOut = new ChannelBufferedOutputStream(sock.getOutputStream(),
+					sock.getChannel());
+		} else {
+			rawOut = new BufferedOutputStream(sock.getOutputStream());
+		}
 
 		if (0 < daemon.getTimeout())
 			sock.setSoTimeout(daemon.getTimeout() * 1000);
@@ -129,6 +129,7 @@ void execute(DaemonClient client, String commandLine,
 			// advertisement, so use that style of error.
 			PacketLineOut pktOut = new PacketLineOut(client.getOutputStream());
 			pktOut.writeString("ERR " + e.getMessage() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			pktOut.flush();
 		}
 	}
 
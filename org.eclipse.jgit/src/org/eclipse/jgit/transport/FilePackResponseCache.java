@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.io.FileRegionOutput;
+
+/**
+ * {@link org.eclipse.jgit.transport.PackResponseCache} storing packs as files
+ * in a local directory.
+ * <p>
+ * Each pack is stored in its own file. The total size of the files is kept
+ * below a limit by deleting the least recently sent packs whenever a new pack
+ * is stored. Stored packs are sent with
+ * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * when the output supports it.
+ *
+ * @since 6.5
+ */
+public class FilePackResponseCache implements PackResponseCache {
+	private static final String PACK_SUFFIX = ".pack"; //$NON-NLS-1$
+
+	private final Path directory;
+
+	private final long maxSize;
+
+	/**
+	 * Create a cache in a directory.
+	 *
+	 * @param directory
+	 *            directory to store packs in. Created if it does not exist.
+	 * @param maxSize
+	 *            maximum total size in bytes of the stored packs.
+	 */
+	public FilePackResponseCache(File directory, long maxSize) {
+		this.directory = directory.toPath();
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get the maximum total size of the stored packs.
+	 *
+	 * @return the maximum total size in bytes of the stored packs.
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@Nullable
+	public Response open(ObjectId key) throws IOException {
+		Path path = path(key);
+		FileChannel ch;
+		try {
+			ch = FileChannel.open(path, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		try {
+			// Recently sent packs are the last to be evicted.
+			Files.setLastModifiedTime(path,
+					FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// The pack can still be sent.
+		}
+		return new FileResponse(ch);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@Nullable
+	public Insertion insert(ObjectId key) throws IOException {
+		if (maxSize <= 0) {
+			return null;
+		}
+		Files.createDirectories(directory);
+		Path tmp = Files.createTempFile(directory, "insert_", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		return new FileInsertion(tmp, path(key));
+	}
+
+	private Path path(ObjectId key) {
+		return directory.resolve(key.name() + PACK_SUFFIX);
+	}
+
+	/** Delete the least recently sent packs until the limit is met. */
+	private synchronized void evict() throws IOException {
+		List<StoredPack> packs = new ArrayList<>();
+		long total = 0;
+		try (DirectoryStream<Path> dir = Files.newDirectoryStream(directory,
+				"*" + PACK_SUFFIX)) { //$NON-NLS-1$
+			for (Path p : dir) {
+				BasicFileAttributes a;
+				try {
+					a = Files.readAttributes(p, BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				packs.add(new StoredPack(p, a));
+				total += a.size();
+			}
+		}
+		if (total <= maxSize) {
+			return;
+		}
+
+		packs.sort(Comparator.comparing(p -> p.lastSent));
+		for (StoredPack p : packs) {
+			if (total <= maxSize) {
+				break;
+			}
+			Files.deleteIfExists(p.path);
+			total -= p.size;
+		}
+	}
+
+	private static class StoredPack {
+		final Path path;
+
+		final long size;
+
+		final FileTime lastSent;
+
+		StoredPack(Path path, BasicFileAttributes attrs) {
+			this.path = path;
+			this.size = attrs.size();
+			this.lastSent = attrs.lastModifiedTime();
+		}
+	}
+
+	private static class FileResponse implements Response {
+		private final FileChannel channel;
+
+		FileResponse(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			long size = channel.size();
+			if (out instanceof FileRegionOutput
+					&& ((FileRegionOutput) out).canTransferFrom()) {
+				((FileRegionOutput) out).transferFrom(channel, 0, size);
+				return;
+			}
+			ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+			for (long pos = 0; pos < size;) {
+				buf.clear();
+				int n = channel.read(buf, pos);
+				if (n < 0) {
+					break;
+				}
+				out.write(buf.array(), 0, n);
+				pos += n;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private class FileInsertion extends Insertion {
+		private final Path tmp;
+
+		private final Path dst;
+
+		private OutputStream out;
+
+		private long size;
+
+		FileInsertion(Path tmp, Path dst) throws IOException {
+			this.tmp = tmp;
+			this.dst = dst;
+			this.out = new BufferedOutputStream(Files.newOutputStream(tmp));
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (out == null) {
+				return;
+			}
+			size += len;
+			if (maxSize < size) {
+				// The pack alone would exceed the cache.
+				close();
+				return;
+			}
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void commit() throws IOException {
+			if (out == null) {
+				return;
+			}
+			try {
+				out.close();
+				Files.move(tmp, dst, StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				out = null;
+				Files.deleteIfExists(tmp);
+			}
+			evict();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (out != null) {
+				try {
+					out.close();
+				} finally {
+					out = null;
+					Files.deleteIfExists(tmp);
+				}
+			}
+		}
+	}
+}
@@ -12,6 +12,7 @@
 
 package org.eclipse.jgit.transport;
 
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,10 +22,20 @@
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import org.eclipse.jgit.annotations.Nullable;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.TooLargeObjectInPackException;
@@ -34,6 +45,7 @@
 import org.eclipse.jgit.lib.BatchingProgressMonitor;
 import org.eclipse.jgit.lib.BlobObjectChecker;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.InflaterCache;
 import org.eclipse.jgit.lib.MutableObjectId;
 import org.eclipse.jgit.lib.NullProgressMonitor;
@@ -50,6 +62,7 @@
 import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.LongMap;
 import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.RawParseUtils;
 import org.eclipse.jgit.util.sha1.SHA1;
 
 /**
@@ -68,6 +81,12 @@ public abstract class PackParser {
 	/** Size of the internal stream buffer. */
 	private static final int BUFFER_SIZE = 8192;
 
+	private static final byte[] TREE = Constants.encodeASCII("tree "); //$NON-NLS-1$
+
+	private static final byte[] PARENT = Constants.encodeASCII("parent "); //$NON-NLS-1$
+
+	private static final byte[] OBJECT = Constants.encodeASCII("object "); //$NON-NLS-1$
+
 	/** Location data is being obtained from. */
 	public enum Source {
 		/** Data is read from the incoming stream. */
@@ -82,6 +101,8 @@ public enum Source {
 
 	private InflaterStream inflater;
 
+	private DeltaReader deltaReader;
+
 	private byte[] tempBuffer;
 
 	private byte[] hdrBuf;
@@ -140,6 +161,16 @@ public enum Source {
 	 */
 	private ObjectIdSubclassMap<ObjectId> baseObjectIds;
 
+	/**
+	 * Objects named by the commits, trees and tags of this pack.
+	 * <p>
+	 * Null if not tracked, or if an object could not be parsed.
+	 */
+	private ObjectIdSubclassMap<ObjectId> referencedObjectIds;
+
+	/** Scratch id used while tracking {@link #referencedObjectIds}. */
+	private final MutableObjectId referencedId = new MutableObjectId();
+
 	private LongMap<UnresolvedDelta> baseByPos;
 
 	/** Objects need to be double-checked for collision after indexing. */
@@ -158,6 +189,11 @@ public enum Source {
 	private final ReceivedPackStatistics.Builder stats =
 			new ReceivedPackStatistics.Builder();
 
+	/** Number of threads resolving deltas, 0 for available processors. */
+	private int threads = 1;
+
+	private Executor executor;
+
 	/**
 	 * Initialize a pack parser.
 	 *
@@ -171,6 +207,7 @@ protected PackParser(ObjectDatabase odb, InputStream src) {
 		in = src;
 
 		inflater = new InflaterStream();
+		deltaReader = new ParserDeltaReader();
 		readCurs = objectDatabase.newReader();
 		buf = new byte[BUFFER_SIZE];
 		tempBuffer = new byte[BUFFER_SIZE];
@@ -335,6 +372,44 @@ public ObjectIdSubclassMap<ObjectId> getBaseObjectIds() {
 		return new ObjectIdSubclassMap<>();
 	}
 
+	/**
+	 * Configure this index pack instance to keep track of the objects named by
+	 * the received objects.
+	 * <p>
+	 * While the pack is indexed, the trees and parents of received commits,
+	 * the entries of received trees and the objects of received tags are
+	 * collected. Together with {@link #getNewObjectIds()} this describes all
+	 * links leaving the pack, so a connectivity check only needs to look at
+	 * the objects the pack does not contain. Submodule commits named by trees
+	 * are not collected.
+	 *
+	 * @param b
+	 *            {@code true} to enable keeping track of referenced objects.
+	 * @since 6.5
+	 */
+	public void setNeedReferencedObjectIds(boolean b) {
+		if (b)
+			referencedObjectIds = new ObjectIdSubclassMap<>();
+		else
+			referencedObjectIds = null;
+	}
+
+	/**
+	 * Get the objects named by the commits, trees and tags of the pack.
+	 * <p>
+	 * The set includes objects contained in the pack itself.
+	 *
+	 * @return the objects named by the received objects, or null if they were
+	 *         not tracked or a received object could not be parsed to find
+	 *         them.
+	 * @see #setNeedReferencedObjectIds(boolean)
+	 * @since 6.5
+	 */
+	@Nullable
+	public ObjectIdSubclassMap<ObjectId> getReferencedObjectIds() {
+		return referencedObjectIds;
+	}
+
 	/**
 	 * Configure the checker used to validate received objects.
 	 * <p>
@@ -402,6 +477,55 @@ public void setMaxObjectSizeLimit(long limit) {
 		maxObjectSizeLimit = limit;
 	}
 
+	/**
+	 * Get the number of threads resolving deltas.
+	 *
+	 * @return number of threads resolving deltas. 0 uses the number of
+	 *         available processors.
+	 * @since 6.5
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of threads resolving deltas.
+	 * <p>
+	 * With more than one thread the delta chains rooted at different base
+	 * objects of the pack are resolved concurrently. This requires the
+	 * implementation to support {@link #newDatabaseReader()}, otherwise all
+	 * deltas are resolved by the calling thread. Deltas on bases which are
+	 * not in the pack (thin packs) are always resolved by the calling thread.
+	 * <p>
+	 * While resolving deltas concurrently the parser does not invoke
+	 * {@link #onObjectHeader(Source, byte[], int, int)},
+	 * {@link #onObjectData(Source, byte[], int, int)} and
+	 * {@link #checkCRC(int)} for {@link Source#DATABASE}. Objects read back
+	 * from the database are instead verified against the CRC-32 checksums
+	 * recorded while the pack was received. The other events are still
+	 * invoked by one thread at a time.
+	 *
+	 * @param threads
+	 *            number of threads to use. If &lt;= 0 the number of available
+	 *            processors for this JVM is used.
+	 * @since 6.5
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Set the executor running the threads resolving deltas.
+	 *
+	 * @param executor
+	 *            executor to use. Set to null to create a temporary thread
+	 *            pool for each pack.
+	 * @since 6.5
+	 */
+	public void setExecutor(@Nullable Executor executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * Get the number of objects in the stream.
 	 * <p>
@@ -563,8 +687,10 @@ public PackLock parse(ProgressMonitor receiving, ProgressMonitor resolving)
 
 			try {
 				inflater.release();
+				deltaReader.release();
 			} finally {
 				inflater = null;
+				deltaReader = null;
 			}
 		}
 		return null; // By default there is no locking.
@@ -576,7 +702,9 @@ private void processDeltas(ProgressMonitor resolving) throws IOException {
 					TimeUnit.MILLISECONDS);
 		}
 		resolving.beginTask(JGitText.get().resolvingDeltas, deltaCount);
-		resolveDeltas(resolving);
+		if (!resolveDeltasInParallel(resolving)) {
+			resolveDeltas(resolving);
+		}
 		if (entryCount < expectedObjectCount) {
 			if (!isAllowThin()) {
 				throw new IOException(MessageFormat.format(
@@ -599,102 +727,119 @@ private void resolveDeltas(ProgressMonitor progress)
 			throws IOException {
 		final int last = entryCount;
 		for (int i = 0; i < last; i++) {
-			resolveDeltas(entries[i], progress);
-			if (progress.isCancelled())
-				throw new IOException(
-						JGitText.get().downloadCancelledDuringIndexing);
+			deltaReader.resolveDeltas(entries[i], progress);
 		}
 	}
 
-	private void resolveDeltas(final PackedObjectInfo oe,
-			ProgressMonitor progress) throws IOException {
-		UnresolvedDelta children = firstChildOf(oe);
-		if (children == null)
-			return;
-
-		DeltaVisit visit = new DeltaVisit();
-		visit.nextChild = children;
-
-		ObjectTypeAndSize info = openDatabase(oe, new ObjectTypeAndSize());
-		switch (info.type) {
-		case Constants.OBJ_COMMIT:
-		case Constants.OBJ_TREE:
-		case Constants.OBJ_BLOB:
-		case Constants.OBJ_TAG:
-			visit.data = inflateAndReturn(Source.DATABASE, info.size);
-			visit.id = oe;
-			break;
-		default:
-			throw new IOException(MessageFormat.format(
-					JGitText.get().unknownObjectType,
-					Integer.valueOf(info.type)));
+	private boolean resolveDeltasInParallel(ProgressMonitor progress)
+			throws IOException {
+		int n = threads > 0 ? threads
+				: Runtime.getRuntime().availableProcessors();
+		n = Math.min(n, entryCount);
+		if (n <= 1) {
+			return false;
 		}
 
-		if (!checkCRC(oe.getCRC())) {
-			throw new IOException(MessageFormat.format(
-					JGitText.get().corruptionDetectedReReadingAt,
-					Long.valueOf(oe.getOffset())));
+		List<DeltaReader> readers = new ArrayList<>(n);
+		try {
+			for (int i = 0; i < n; i++) {
+				DatabaseReader db = newDatabaseReader();
+				if (db == null) {
+					return false;
+				}
+				readers.add(new ConcurrentDeltaReader(db));
+			}
+			runReaders(readers, progress);
+			return true;
+		} finally {
+			for (DeltaReader r : readers) {
+				r.release();
+			}
 		}
-
-		resolveDeltas(visit.next(), info.type, info, progress);
 	}
 
-	private void resolveDeltas(DeltaVisit visit, final int type,
-			ObjectTypeAndSize info, ProgressMonitor progress)
-			throws IOException {
-		stats.addDeltaObject(type);
-		do {
-			progress.update(1);
-			info = openDatabase(visit.delta, info);
-			switch (info.type) {
-			case Constants.OBJ_OFS_DELTA:
-			case Constants.OBJ_REF_DELTA:
-				break;
+	private void runReaders(List<DeltaReader> readers,
+			ProgressMonitor progress) throws IOException {
+		// Roots are the whole objects of the pack, deltas resolved from
+		// them are appended to entries after last.
+		final int last = entryCount;
+		AtomicInteger next = new AtomicInteger();
+		AtomicBoolean stop = new AtomicBoolean();
+		List<FutureTask<Void>> tasks = new ArrayList<>(readers.size());
+		for (DeltaReader r : readers) {
+			tasks.add(new FutureTask<>(() -> {
+				try {
+					int i;
+					while (!stop.get() && (i = next.getAndIncrement()) < last) {
+						r.resolveDeltas(entries[i], progress);
+					}
+				} catch (Throwable err) {
+					stop.set(true);
+					throw err;
+				}
+				return null;
+			}));
+		}
 
-			default:
-				throw new IOException(MessageFormat.format(
-						JGitText.get().unknownObjectType,
-						Integer.valueOf(info.type)));
+		Executor pool = executor;
+		ExecutorService tmp = null;
+		if (pool == null) {
+			tmp = Executors.newFixedThreadPool(tasks.size());
+			pool = tmp;
+		}
+		Throwable err = null;
+		int started = 0;
+		try {
+			for (FutureTask<Void> t : tasks) {
+				pool.execute(t);
+				started++;
 			}
-
-			byte[] delta = inflateAndReturn(Source.DATABASE, info.size);
-			long finalSz = BinaryDelta.getResultSize(delta);
-			checkIfTooLarge(type, finalSz);
-
-			visit.data = BinaryDelta.apply(visit.parent.data, delta);
-			delta = null;
-
-			if (!checkCRC(visit.delta.crc))
-				throw new IOException(MessageFormat.format(
-						JGitText.get().corruptionDetectedReReadingAt,
-						Long.valueOf(visit.delta.position)));
-
-			SHA1 objectDigest = objectHasher.reset();
-			objectDigest.update(Constants.encodedTypeString(type));
-			objectDigest.update((byte) ' ');
-			objectDigest.update(Constants.encodeASCII(visit.data.length));
-			objectDigest.update((byte) 0);
-			objectDigest.update(visit.data);
-			objectDigest.digest(tempObjectId);
-
-			verifySafeObject(tempObjectId, type, visit.data);
-			if (isCheckObjectCollisions() && readCurs.has(tempObjectId)) {
-				checkObjectCollision(tempObjectId, type, visit.data,
-						visit.delta.sizeBeforeInflating);
+		} catch (RejectedExecutionException rejected) {
+			stop.set(true);
+			err = rejected;
+		} finally {
+			if (tmp != null) {
+				tmp.shutdown();
 			}
+		}
 
-			PackedObjectInfo oe;
-			oe = newInfo(tempObjectId, visit.delta, visit.parent.id);
-			oe.setFullSize(finalSz);
-			oe.setOffset(visit.delta.position);
-			oe.setType(type);
-			onInflatedObjectData(oe, type, visit.data);
-			addObjectAndTrack(oe);
-			visit.id = oe;
+		// Wait for every started task, also when interrupted: the caller
+		// releases the readers, which must not be in use anymore.
+		InterruptedException interrupted = null;
+		for (FutureTask<Void> t : tasks.subList(0, started)) {
+			for (;;) {
+				try {
+					t.get();
+					break;
+				} catch (InterruptedException ie) {
+					stop.set(true);
+					interrupted = ie;
+				} catch (ExecutionException failed) {
+					if (err == null) {
+						err = failed.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted != null) {
+			Thread.currentThread().interrupt();
+			throw new IOException(
+					JGitText.get().downloadCancelledDuringIndexing,
+					interrupted);
+		}
 
-			visit.nextChild = firstChildOf(oe);
-			visit = visit.next();
-		} while (visit != null);
+		// If any thread failed, report it as though deltas were resolved
+		// by the calling thread.
+		if (err instanceof Error) {
+			throw (Error) err;
+		} else if (err instanceof RuntimeException) {
+			throw (RuntimeException) err;
+		} else if (err instanceof IOException) {
+			throw (IOException) err;
+		} else if (err != null) {
+			throw new IOException(err.getMessage(), err);
+		}
 	}
 
 	private final void checkIfTooLarge(int typeCode, long size)
@@ -740,52 +885,7 @@ private final void checkIfTooLarge(int typeCode, long size)
 	 */
 	protected ObjectTypeAndSize readObjectHeader(ObjectTypeAndSize info)
 			throws IOException {
-		int hdrPtr = 0;
-		int c = readFrom(Source.DATABASE);
-		hdrBuf[hdrPtr++] = (byte) c;
-
-		info.type = (c >> 4) & 7;
-		long sz = c & 15;
-		int shift = 4;
-		while ((c & 0x80) != 0) {
-			c = readFrom(Source.DATABASE);
-			hdrBuf[hdrPtr++] = (byte) c;
-			sz += ((long) (c & 0x7f)) << shift;
-			shift += 7;
-		}
-		info.size = sz;
-
-		switch (info.type) {
-		case Constants.OBJ_COMMIT:
-		case Constants.OBJ_TREE:
-		case Constants.OBJ_BLOB:
-		case Constants.OBJ_TAG:
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
-			break;
-
-		case Constants.OBJ_OFS_DELTA:
-			c = readFrom(Source.DATABASE);
-			hdrBuf[hdrPtr++] = (byte) c;
-			while ((c & 128) != 0) {
-				c = readFrom(Source.DATABASE);
-				hdrBuf[hdrPtr++] = (byte) c;
-			}
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
-			break;
-
-		case Constants.OBJ_REF_DELTA:
-			System.arraycopy(buf, fill(Source.DATABASE, 20), hdrBuf, hdrPtr, 20);
-			hdrPtr += 20;
-			use(20);
-			onObjectHeader(Source.DATABASE, hdrBuf, 0, hdrPtr);
-			break;
-
-		default:
-			throw new IOException(MessageFormat.format(
-					JGitText.get().unknownObjectType,
-					Integer.valueOf(info.type)));
-		}
-		return info;
+		return deltaReader.readHeader(info);
 	}
 
 	private UnresolvedDelta removeBaseById(AnyObjectId id) {
@@ -867,8 +967,7 @@ private void resolveDeltasWithExternalBases(ProgressMonitor progress)
 			if (onAppendBase(typeCode, visit.data, oe))
 				entries[entryCount++] = oe;
 			visit.nextChild = firstChildOf(oe);
-			resolveDeltas(visit.next(), typeCode,
-					new ObjectTypeAndSize(), progress);
+			deltaReader.resolveDeltas(visit.next(), typeCode, progress);
 
 			if (progress.isCancelled())
 				throw new IOException(
@@ -998,7 +1097,7 @@ private void indexOneObject() throws IOException {
 			final long base = streamPosition - ofs;
 			onBeginOfsDelta(streamPosition, base, sz);
 			onObjectHeader(Source.INPUT, hdrBuf, 0, hdrPtr);
-			inflateAndSkip(Source.INPUT, sz);
+			inflateAndSkip(sz);
 			UnresolvedDelta n = onEndDelta();
 			n.position = streamPosition;
 			n.next = baseByPos.put(base, n);
@@ -1021,7 +1120,7 @@ private void indexOneObject() throws IOException {
 			}
 			onBeginRefDelta(streamPosition, base, sz);
 			onObjectHeader(Source.INPUT, hdrBuf, 0, hdrPtr);
-			inflateAndSkip(Source.INPUT, sz);
+			inflateAndSkip(sz);
 			UnresolvedDelta n = onEndDelta();
 			n.position = streamPosition;
 			n.sizeBeforeInflating = streamPosition() - streamPosition;
@@ -1056,7 +1155,7 @@ private void whole(long pos, int type, long sz)
 				checker = BlobObjectChecker.NULL_CHECKER;
 			}
 			long cnt = 0;
-			try (InputStream inf = inflate(Source.INPUT, sz)) {
+			try (InputStream inf = inflate(sz)) {
 				while (cnt < sz) {
 					int r = inf.read(readBuffer);
 					if (r <= 0)
@@ -1070,10 +1169,11 @@ private void whole(long pos, int type, long sz)
 			checker.endBlob(tempObjectId);
 			data = null;
 		} else {
-			data = inflateAndReturn(Source.INPUT, sz);
+			data = inflateAndReturn(sz);
 			objectDigest.update(data);
 			objectDigest.digest(tempObjectId);
 			verifySafeObject(tempObjectId, type, data);
+			trackReferencedObjects(type, data);
 		}
 
 		long sizeBeforeInflating = streamPosition() - pos;
@@ -1122,6 +1222,89 @@ protected void verifySafeObject(final AnyObjectId id, final int type,
 		}
 	}
 
+	private void trackReferencedObjects(int type, byte[] data) {
+		if (referencedObjectIds == null) {
+			return;
+		}
+		boolean parsed;
+		switch (type) {
+		case Constants.OBJ_COMMIT:
+			int ptr = trackReferencedId(data, 0, TREE);
+			while (0 <= ptr && RawParseUtils.match(data, ptr, PARENT) >= 0) {
+				ptr = trackReferencedId(data, ptr, PARENT);
+			}
+			parsed = 0 <= ptr;
+			break;
+		case Constants.OBJ_TREE:
+			parsed = trackTreeEntries(data);
+			break;
+		case Constants.OBJ_TAG:
+			parsed = 0 <= trackReferencedId(data, 0, OBJECT);
+			break;
+		default:
+			parsed = true;
+			break;
+		}
+		if (!parsed) {
+			// Without all links of the pack a connectivity check has to
+			// walk the objects.
+			referencedObjectIds = null;
+		}
+	}
+
+	// Track the id of a "header <hex>" line, returning the next line.
+	private int trackReferencedId(byte[] data, int ptr, byte[] header) {
+		int p = RawParseUtils.match(data, ptr, header);
+		if (p < 0 || data.length < p + Constants.OBJECT_ID_STRING_LENGTH) {
+			return -1;
+		}
+		try {
+			referencedId.fromString(data, p);
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		trackReferencedId();
+		return RawParseUtils.nextLF(data, p);
+	}
+
+	private boolean trackTreeEntries(byte[] data) {
+		int p = 0;
+		while (p < data.length) {
+			int mode = 0;
+			for (;;) {
+				if (p == data.length) {
+					return false;
+				}
+				byte c = data[p++];
+				if (c == ' ') {
+					break;
+				} else if (c < '0' || '7' < c) {
+					return false;
+				}
+				mode = (mode << 3) + (c - '0');
+			}
+			while (p < data.length && data[p] != 0) {
+				p++;
+			}
+			p++;
+			if (data.length < p + Constants.OBJECT_ID_LENGTH) {
+				return false;
+			}
+			if (!FileMode.GITLINK.equals(mode)) {
+				referencedId.fromRaw(data, p);
+				trackReferencedId();
+			}
+			p += Constants.OBJECT_ID_LENGTH;
+		}
+		return true;
+	}
+
+	private void trackReferencedId() {
+		if (!referencedObjectIds.contains(referencedId)) {
+			referencedObjectIds.add(referencedId.toObjectId());
+		}
+	}
+
 	private void checkObjectCollision() throws IOException {
 		for (PackedObjectInfo obj : collisionCheckObjs) {
 			if (!readCurs.has(obj)) {
@@ -1133,7 +1316,8 @@ private void checkObjectCollision() throws IOException {
 
 	private void checkObjectCollision(PackedObjectInfo obj)
 			throws IOException {
-		ObjectTypeAndSize info = openDatabase(obj, new ObjectTypeAndSize());
+		ObjectTypeAndSize info = deltaReader.open(obj,
+				new ObjectTypeAndSize());
 		final byte[] readBuffer = buffer();
 		final byte[] curBuffer = new byte[readBuffer.length];
 		long sz = info.size;
@@ -1142,7 +1326,7 @@ private void checkObjectCollision(PackedObjectInfo obj)
 				throw new IOException(MessageFormat.format(
 						JGitText.get().collisionOn, obj.name()));
 			}
-			try (InputStream pck = inflate(Source.DATABASE, sz)) {
+			try (InputStream pck = deltaReader.inflate(sz)) {
 				while (0 < sz) {
 					int n = (int) Math.min(readBuffer.length, sz);
 					IO.readFully(cur, curBuffer, 0, n);
@@ -1188,20 +1372,6 @@ private long streamPosition() {
 		return bBase + bOffset;
 	}
 
-	private ObjectTypeAndSize openDatabase(PackedObjectInfo obj,
-			ObjectTypeAndSize info) throws IOException {
-		bOffset = 0;
-		bAvail = 0;
-		return seekDatabase(obj, info);
-	}
-
-	private ObjectTypeAndSize openDatabase(UnresolvedDelta delta,
-			ObjectTypeAndSize info) throws IOException {
-		bOffset = 0;
-		bAvail = 0;
-		return seekDatabase(delta, info);
-	}
-
 	// Consume exactly one byte from the buffer and return it.
 	private int readFrom(Source src) throws IOException {
 		if (bAvail == 0)
@@ -1508,6 +1678,30 @@ protected abstract ObjectTypeAndSize seekDatabase(UnresolvedDelta delta,
 	protected abstract int readDatabase(byte[] dst, int pos, int cnt)
 			throws IOException;
 
+	/**
+	 * Open an additional reader of the stored pack data.
+	 * <p>
+	 * Invoked when deltas are resolved by several threads, see
+	 * {@link #setThreads(int)}. Each thread reads the objects it needs
+	 * through its own reader, independently of the database position used by
+	 * {@link #seekDatabase(PackedObjectInfo, ObjectTypeAndSize)} and
+	 * {@link #readDatabase(byte[], int, int)}. All data passed to
+	 * {@link #onStoreStream(byte[], int, int)} must be visible to the reader.
+	 * <p>
+	 * The default implementation returns null, resolving all deltas on the
+	 * calling thread.
+	 *
+	 * @return a new reader, or null if the implementation cannot read the
+	 *         stored pack concurrently.
+	 * @throws java.io.IOException
+	 *             the reader cannot be opened.
+	 * @since 6.5
+	 */
+	@Nullable
+	protected DatabaseReader newDatabaseReader() throws IOException {
+		return null;
+	}
+
 	/**
 	 * Check the current CRC matches the expected value.
 	 * <p>
@@ -1615,25 +1809,55 @@ public static class ObjectTypeAndSize {
 		public long size;
 	}
 
-	private void inflateAndSkip(Source src, long inflatedSize)
-			throws IOException {
-		try (InputStream inf = inflate(src, inflatedSize)) {
+	/**
+	 * Reader of the stored pack data used by one thread resolving deltas.
+	 *
+	 * @since 6.5
+	 */
+	public interface DatabaseReader extends Closeable {
+		/**
+		 * Reposition the reader.
+		 *
+		 * @param position
+		 *            offset within the pack stream to read from next.
+		 * @throws java.io.IOException
+		 *             the reader cannot reposition to this location.
+		 */
+		void seek(long position) throws IOException;
+
+		/**
+		 * Read from the current position into the buffer.
+		 *
+		 * @param dst
+		 *            the buffer to copy read data into.
+		 * @param pos
+		 *            position within {@code dst} to start copying data into.
+		 * @param cnt
+		 *            ideal target number of bytes to read. Actual read length
+		 *            may be shorter.
+		 * @return number of bytes stored, 0 or -1 at the end of the data.
+		 * @throws java.io.IOException
+		 *             the data cannot be read.
+		 */
+		int read(byte[] dst, int pos, int cnt) throws IOException;
+	}
+
+	private void inflateAndSkip(long inflatedSize) throws IOException {
+		try (InputStream inf = inflate(inflatedSize)) {
 			IO.skipFully(inf, inflatedSize);
 		}
 	}
 
-	private byte[] inflateAndReturn(Source src, long inflatedSize)
-			throws IOException {
+	private byte[] inflateAndReturn(long inflatedSize) throws IOException {
 		final byte[] dst = new byte[(int) inflatedSize];
-		try (InputStream inf = inflate(src, inflatedSize)) {
+		try (InputStream inf = inflate(inflatedSize)) {
 			IO.readFully(inf, dst, 0, dst.length);
 		}
 		return dst;
 	}
 
-	private InputStream inflate(Source src, long inflatedSize)
-			throws IOException {
-		inflater.open(src, inflatedSize);
+	private InputStream inflate(long inflatedSize) throws IOException {
+		inflater.open(inflatedSize);
 		return inflater;
 	}
 
@@ -1731,18 +1955,402 @@ private void addObjectAndTrack(PackedObjectInfo oe) {
 			newObjectIds.add(oe);
 	}
 
+	/**
+	 * Reads objects back from the database on one thread and resolves the
+	 * delta chains of base objects.
+	 * <p>
+	 * Reading and inflating objects, applying deltas and hashing the results
+	 * may run concurrently on several readers. Updates of the shared parser
+	 * state and the events of the implementation are serialized on the
+	 * parser.
+	 */
+	private abstract class DeltaReader {
+		private final SHA1 hasher = SHA1.newInstance();
+
+		private final MutableObjectId objectId = new MutableObjectId();
+
+		private final ObjectTypeAndSize info = new ObjectTypeAndSize();
+
+		private final byte[] rbuf = new byte[BUFFER_SIZE];
+
+		private final byte[] rhdr = new byte[64];
+
+		private int rOffset;
+
+		private int rAvail;
+
+		private final InflaterStream inflater = new InflaterStream() {
+			@Override
+			int fillInput() throws IOException {
+				if (rAvail == 0)
+					fill();
+				return rOffset;
+			}
+
+			@Override
+			byte[] inputBuffer() {
+				return rbuf;
+			}
+
+			@Override
+			int inputAvailable() {
+				return rAvail;
+			}
+
+			@Override
+			void useInput(int cnt) throws IOException {
+				onData(rbuf, rOffset, cnt);
+				rOffset += cnt;
+				rAvail -= cnt;
+			}
+		};
+
+		/**
+		 * Position the database on an object and read its header.
+		 *
+		 * @param obj
+		 *            the object to read.
+		 * @param objInfo
+		 *            the info object to populate.
+		 * @return {@code objInfo}, after populating.
+		 * @throws IOException
+		 *             the header cannot be read.
+		 */
+		abstract ObjectTypeAndSize open(PackedObjectInfo obj,
+				ObjectTypeAndSize objInfo) throws IOException;
+
+		/**
+		 * Position the database on a delta and read its header.
+		 *
+		 * @param delta
+		 *            the delta to read.
+		 * @param objInfo
+		 *            the info object to populate.
+		 * @return {@code objInfo}, after populating.
+		 * @throws IOException
+		 *             the header cannot be read.
+		 */
+		abstract ObjectTypeAndSize open(UnresolvedDelta delta,
+				ObjectTypeAndSize objInfo) throws IOException;
+
+		/** Read from the current position of the database. */
+		abstract int read(byte[] dst, int pos, int cnt) throws IOException;
+
+		/** Checksum the header bytes of the current object. */
+		abstract void onHeader(byte[] raw, int pos, int len)
+				throws IOException;
+
+		/** Checksum the deflated data of the current object. */
+		abstract void onData(byte[] raw, int pos, int len) throws IOException;
+
+		/** Compare the checksum of the current object to the recorded one. */
+		abstract boolean checkCRC(int oldCRC);
+
+		void release() throws IOException {
+			inflater.release();
+		}
+
+		/** Discard the buffered data after repositioning the database. */
+		void reset() {
+			rOffset = 0;
+			rAvail = 0;
+		}
+
+		ObjectTypeAndSize readHeader(ObjectTypeAndSize objInfo)
+				throws IOException {
+			int hdrPtr = 0;
+			int c = readByte();
+			rhdr[hdrPtr++] = (byte) c;
+
+			objInfo.type = (c >> 4) & 7;
+			long sz = c & 15;
+			int shift = 4;
+			while ((c & 0x80) != 0) {
+				c = readByte();
+				rhdr[hdrPtr++] = (byte) c;
+				sz += ((long) (c & 0x7f)) << shift;
+				shift += 7;
+			}
+			objInfo.size = sz;
+
+			switch (objInfo.type) {
+			case Constants.OBJ_COMMIT:
+			case Constants.OBJ_TREE:
+			case Constants.OBJ_BLOB:
+			case Constants.OBJ_TAG:
+				break;
+
+			case Constants.OBJ_OFS_DELTA:
+				do {
+					c = readByte();
+					rhdr[hdrPtr++] = (byte) c;
+				} while ((c & 128) != 0);
+				break;
+
+			case Constants.OBJ_REF_DELTA:
+				for (int i = 0; i < 20; i++) {
+					rhdr[hdrPtr++] = (byte) readByte();
+				}
+				break;
+
+			default:
+				throw new IOException(MessageFormat.format(
+						JGitText.get().unknownObjectType,
+						Integer.valueOf(objInfo.type)));
+			}
+			onHeader(rhdr, 0, hdrPtr);
+			return objInfo;
+		}
+
+		private int readByte() throws IOException {
+			if (rAvail == 0)
+				fill();
+			rAvail--;
+			return rbuf[rOffset++] & 0xff;
+		}
+
+		// Refill the empty buffer.
+		private void fill() throws IOException {
+			int n = read(rbuf, 0, rbuf.length);
+			if (n <= 0)
+				throw new EOFException(
+						JGitText.get().packfileIsTruncatedNoParam);
+			rOffset = 0;
+			rAvail = n;
+		}
+
+		/** Inflate the data of the object whose header was read last. */
+		InputStream inflate(long inflatedSize) throws IOException {
+			inflater.open(inflatedSize);
+			return inflater;
+		}
+
+		private byte[] inflateAndReturn(long inflatedSize) throws IOException {
+			final byte[] dst = new byte[(int) inflatedSize];
+			try (InputStream inf = inflate(inflatedSize)) {
+				IO.readFully(inf, dst, 0, dst.length);
+			}
+			return dst;
+		}
+
+		void resolveDeltas(PackedObjectInfo oe, ProgressMonitor progress)
+				throws IOException {
+			UnresolvedDelta children;
+			synchronized (PackParser.this) {
+				if (progress.isCancelled())
+					throw new IOException(
+							JGitText.get().downloadCancelledDuringIndexing);
+				children = firstChildOf(oe);
+			}
+			if (children == null)
+				return;
+
+			DeltaVisit visit = new DeltaVisit();
+			visit.nextChild = children;
+
+			open(oe, info);
+			switch (info.type) {
+			case Constants.OBJ_COMMIT:
+			case Constants.OBJ_TREE:
+			case Constants.OBJ_BLOB:
+			case Constants.OBJ_TAG:
+				visit.data = inflateAndReturn(info.size);
+				visit.id = oe;
+				break;
+			default:
+				throw new IOException(MessageFormat.format(
+						JGitText.get().unknownObjectType,
+						Integer.valueOf(info.type)));
+			}
+
+			if (!checkCRC(oe.getCRC())) {
+				throw new IOException(MessageFormat.format(
+						JGitText.get().corruptionDetectedReReadingAt,
+						Long.valueOf(oe.getOffset())));
+			}
+
+			resolveDeltas(visit.next(), info.type, progress);
+		}
+
+		void resolveDeltas(DeltaVisit visit, final int type,
+				ProgressMonitor progress) throws IOException {
+			synchronized (PackParser.this) {
+				stats.addDeltaObject(type);
+			}
+			do {
+				open(visit.delta, info);
+				switch (info.type) {
+				case Constants.OBJ_OFS_DELTA:
+				case Constants.OBJ_REF_DELTA:
+					break;
+
+				default:
+					throw new IOException(MessageFormat.format(
+							JGitText.get().unknownObjectType,
+							Integer.valueOf(info.type)));
+				}
+
+				byte[] delta = inflateAndReturn(info.size);
+				long finalSz = BinaryDelta.getResultSize(delta);
+				checkIfTooLarge(type, finalSz);
+
+				visit.data = BinaryDelta.apply(visit.parent.data, delta);
+				delta = null;
+
+				if (!checkCRC(visit.delta.crc))
+					throw new IOException(MessageFormat.format(
+							JGitText.get().corruptionDetectedReReadingAt,
+							Long.valueOf(visit.delta.position)));
+
+				SHA1 objectDigest = hasher.reset();
+				objectDigest.update(Constants.encodedTypeString(type));
+				objectDigest.update((byte) ' ');
+				objectDigest.update(Constants.encodeASCII(visit.data.length));
+				objectDigest.update((byte) 0);
+				objectDigest.update(visit.data);
+				objectDigest.digest(objectId);
+
+				PackedObjectInfo oe;
+				synchronized (PackParser.this) {
+					progress.update(1);
+					verifySafeObject(objectId, type, visit.data);
+					trackReferencedObjects(type, visit.data);
+					if (isCheckObjectCollisions() && readCurs.has(objectId)) {
+						checkObjectCollision(objectId, type, visit.data,
+								visit.delta.sizeBeforeInflating);
+					}
+
+					oe = newInfo(objectId, visit.delta, visit.parent.id);
+					oe.setFullSize(finalSz);
+					oe.setOffset(visit.delta.position);
+					oe.setType(type);
+					onInflatedObjectData(oe, type, visit.data);
+					addObjectAndTrack(oe);
+					visit.nextChild = firstChildOf(oe);
+				}
+				visit.id = oe;
+				visit = visit.next();
+			} while (visit != null);
+		}
+	}
+
+	/**
+	 * Reads through the database methods of the implementation, which also
+	 * computes the checksums.
+	 */
+	private class ParserDeltaReader extends DeltaReader {
+		@Override
+		ObjectTypeAndSize open(PackedObjectInfo obj, ObjectTypeAndSize objInfo)
+				throws IOException {
+			reset();
+			return seekDatabase(obj, objInfo);
+		}
+
+		@Override
+		ObjectTypeAndSize open(UnresolvedDelta delta,
+				ObjectTypeAndSize objInfo) throws IOException {
+			reset();
+			return seekDatabase(delta, objInfo);
+		}
+
+		@Override
+		int read(byte[] dst, int pos, int cnt) throws IOException {
+			return readDatabase(dst, pos, cnt);
+		}
+
+		@Override
+		void onHeader(byte[] raw, int pos, int len) throws IOException {
+			onObjectHeader(Source.DATABASE, raw, pos, len);
+		}
+
+		@Override
+		void onData(byte[] raw, int pos, int len) throws IOException {
+			onObjectData(Source.DATABASE, raw, pos, len);
+		}
+
+		@Override
+		boolean checkCRC(int oldCRC) {
+			return PackParser.this.checkCRC(oldCRC);
+		}
+	}
+
+	/**
+	 * Reads through a {@link DatabaseReader} of its own, computing the
+	 * checksums itself.
+	 */
+	private class ConcurrentDeltaReader extends DeltaReader {
+		private final DatabaseReader db;
+
+		private final CRC32 crc = new CRC32();
+
+		ConcurrentDeltaReader(DatabaseReader db) {
+			this.db = db;
+		}
+
+		@Override
+		void release() throws IOException {
+			try {
+				super.release();
+			} finally {
+				db.close();
+			}
+		}
+
+		@Override
+		ObjectTypeAndSize open(PackedObjectInfo obj, ObjectTypeAndSize objInfo)
+				throws IOException {
+			return open(obj.getOffset(), objInfo);
+		}
+
+		@Override
+		ObjectTypeAndSize open(UnresolvedDelta delta,
+				ObjectTypeAndSize objInfo) throws IOException {
+			return open(delta.position, objInfo);
+		}
+
+		private ObjectTypeAndSize open(long position,
+				ObjectTypeAndSize objInfo) throws IOException {
+			db.seek(position);
+			reset();
+			crc.reset();
+			return readHeader(objInfo);
+		}
+
+		@Override
+		int read(byte[] dst, int pos, int cnt) throws IOException {
+			return db.read(dst, pos, cnt);
+		}
+
+		@Override
+		void onHeader(byte[] raw, int pos, int len) {
+			crc.update(raw, pos, len);
+		}
+
+		@Override
+		void onData(byte[] raw, int pos, int len) {
+			crc.update(raw, pos, len);
+		}
+
+		@Override
+		boolean checkCRC(int oldCRC) {
+			return oldCRC == (int) crc.getValue();
+		}
+	}
+
+	/**
+	 * Inflates an object from a buffer, by default the buffer of the incoming
+	 * stream.
+	 */
 	private class InflaterStream extends InputStream {
 		private final Inflater inf;
 
 		private final byte[] skipBuffer;
 
-		private Source src;
-
 		private long expectedSize;
 
 		private long actualSize;
 
-		private int p;
+		private int avail;
 
 		InflaterStream() {
 			inf = InflaterCache.get();
@@ -1754,13 +2362,36 @@ void release() {
 			InflaterCache.release(inf);
 		}
 
-		void open(Source source, long inflatedSize) throws IOException {
-			src = source;
+		void open(long inflatedSize) throws IOException {
 			expectedSize = inflatedSize;
 			actualSize = 0;
 
-			p = fill(src, 1);
-			inf.setInput(buf, p, bAvail);
+			setInput();
+		}
+
+		private void setInput() throws IOException {
+			int p = fillInput();
+			avail = inputAvailable();
+			inf.setInput(inputBuffer(), p, avail);
+		}
+
+		/** Ensure data is buffered, returning its position in the buffer. */
+		int fillInput() throws IOException {
+			return fill(Source.INPUT, 1);
+		}
+
+		byte[] inputBuffer() {
+			return buf;
+		}
+
+		int inputAvailable() {
+			return bAvail;
+		}
+
+		/** Consume cnt bytes of the buffer used by the Inflater. */
+		void useInput(int cnt) throws IOException {
+			onObjectData(Source.INPUT, buf, bOffset, cnt);
+			use(cnt);
 		}
 
 		@Override
@@ -1792,11 +2423,8 @@ public int read(byte[] dst, int pos, int cnt) throws IOException {
 					if (inf.finished())
 						break;
 					if (inf.needsInput()) {
-						onObjectData(src, buf, p, bAvail);
-						use(bAvail);
-
-						p = fill(src, 1);
-						inf.setInput(buf, p, bAvail);
+						useInput(avail);
+						setInput();
 					} else if (r == 0) {
 						throw new CorruptObjectException(MessageFormat.format(
 								JGitText.get().packfileCorruptionDetected,
@@ -1823,10 +2451,9 @@ public void close() throws IOException {
 						JGitText.get().wrongDecompressedLength));
 			}
 
-			int used = bAvail - inf.getRemaining();
+			int used = avail - inf.getRemaining();
 			if (0 < used) {
-				onObjectData(src, buf, p, used);
-				use(used);
+				useInput(used);
 			}
 
 			inf.reset();
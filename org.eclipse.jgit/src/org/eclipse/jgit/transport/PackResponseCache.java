@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.jgit.annotations.Nullable;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Cache of packs sent by {@link org.eclipse.jgit.transport.UploadPack}.
+ * <p>
+ * Packs are stored under a digest of the request they answer: the
+ * repository, the wanted and common objects, the shallow and filter options
+ * and the client capabilities changing the pack. A request with the same
+ * digest is answered by copying the stored pack, without running
+ * {@link org.eclipse.jgit.internal.storage.pack.PackWriter}.
+ * <p>
+ * Implementations must be safe for use by multiple threads.
+ *
+ * @since 6.5
+ */
+public interface PackResponseCache {
+	/**
+	 * Open a stored pack.
+	 *
+	 * @param key
+	 *            digest of the request.
+	 * @return the stored pack; null if no pack is stored for {@code key}.
+	 * @throws java.io.IOException
+	 *             the cache cannot be read.
+	 */
+	@Nullable
+	Response open(ObjectId key) throws IOException;
+
+	/**
+	 * Begin storing a pack.
+	 *
+	 * @param key
+	 *            digest of the request.
+	 * @return stream to write the pack to; null if the pack should not be
+	 *         stored.
+	 * @throws java.io.IOException
+	 *             the cache cannot be written.
+	 */
+	@Nullable
+	Insertion insert(ObjectId key) throws IOException;
+
+	/** A stored pack. */
+	interface Response extends Closeable {
+		/**
+		 * Write the pack.
+		 *
+		 * @param out
+		 *            stream to write the pack to.
+		 * @throws java.io.IOException
+		 *             the pack cannot be read, or {@code out} cannot be
+		 *             written.
+		 */
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * A pack being stored.
+	 * <p>
+	 * The pack is only stored if {@link #commit()} is called; closing the
+	 * stream without committing discards it.
+	 */
+	abstract class Insertion extends OutputStream {
+		/**
+		 * Store the pack written to this stream, and close the stream.
+		 *
+		 * @throws java.io.IOException
+		 *             the pack cannot be stored.
+		 */
+		public abstract void commit() throws IOException;
+	}
+}
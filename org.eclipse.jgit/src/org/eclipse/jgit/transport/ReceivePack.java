@@ -55,6 +55,7 @@
 import org.eclipse.jgit.internal.submodule.SubmoduleValidator;
 import org.eclipse.jgit.internal.submodule.SubmoduleValidator.SubmoduleValidationException;
 import org.eclipse.jgit.internal.transport.connectivity.FullConnectivityChecker;
+import org.eclipse.jgit.internal.transport.connectivity.StreamingConnectivityChecker;
 import org.eclipse.jgit.internal.transport.parser.FirstCommand;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.BatchRefUpdate;
@@ -257,6 +258,8 @@ public Set<String> getCapabilities() {
 
 	private boolean checkReferencedAreReachable;
 
+	private boolean streamingConnectivityCheck;
+
 	/** Git object size limit */
 	private long maxObjectSizeLimit;
 
@@ -323,6 +326,7 @@ public ReceivePack(Repository into) {
 		allowPushOptions = rc.allowPushOptions;
 		maxCommandBytes = rc.maxCommandBytes;
 		maxDiscardBytes = rc.maxDiscardBytes;
+		streamingConnectivityCheck = rc.streamingConnectivityCheck;
 		advertiseRefsHook = AdvertiseRefsHook.DEFAULT;
 		refFilter = RefFilter.DEFAULT;
 		advertisedHaves = new HashSet<>();
@@ -348,6 +352,8 @@ private static class ReceiveConfig {
 
 		final long maxDiscardBytes;
 
+		final boolean streamingConnectivityCheck;
+
 		final SignedPushConfig signedPush;
 
 		ReceiveConfig(Config config) {
@@ -365,6 +371,8 @@ private static class ReceiveConfig {
 			maxDiscardBytes = config.getLong("receive", //$NON-NLS-1$
 					"maxCommandDiscardBytes", //$NON-NLS-1$
 					-1);
+			streamingConnectivityCheck = config.getBoolean("receive", //$NON-NLS-1$
+					"streamingConnectivityCheck", false); //$NON-NLS-1$
 			signedPush = SignedPushConfig.KEY.parse(config);
 		}
 	}
@@ -532,6 +540,40 @@ public void setCheckReferencedObjectsAreReachable(boolean b) {
 		this.checkReferencedAreReachable = b;
 	}
 
+	/**
+	 * Whether connectivity is checked with links collected while the pack is
+	 * received.
+	 *
+	 * @return true if the objects named by received objects are collected
+	 *         while the pack is parsed, so that checking connectivity only
+	 *         looks at the objects not contained in the pack.
+	 * @since 6.5
+	 */
+	public boolean isStreamingConnectivityCheck() {
+		return streamingConnectivityCheck;
+	}
+
+	/**
+	 * Check connectivity with links collected while the pack is received.
+	 * <p>
+	 * When connectivity needs to be checked, the parser collects the objects
+	 * named by each received commit, tree and tag while it indexes the pack.
+	 * The received objects then don't have to be read and walked again after
+	 * the pack was stored; only the objects named by the pack but not
+	 * contained in it are checked. If that is not sufficient to prove the
+	 * pack connected, the configured {@link ConnectivityChecker} performs the
+	 * check.
+	 * <p>
+	 * The default is read from {@code receive.streamingConnectivityCheck}.
+	 *
+	 * @param streaming
+	 *            {@code true} to collect links while the pack is received.
+	 * @since 6.5
+	 */
+	public void setStreamingConnectivityCheck(boolean streaming) {
+		this.streamingConnectivityCheck = streaming;
+	}
+
 	/**
 	 * Whether this class expects a bi-directional pipe opened between the
 	 * client and itself.
@@ -1536,8 +1578,12 @@ private void receivePack() throws IOException {
 
 			parser = ins.newPackParser(packInputStream());
 			parser.setAllowThin(true);
-			parser.setNeedNewObjectIds(checkReferencedAreReachable);
+			boolean streaming = streamingConnectivityCheck
+					&& needCheckConnectivity();
+			parser.setNeedNewObjectIds(
+					checkReferencedAreReachable || streaming);
 			parser.setNeedBaseObjectIds(checkReferencedAreReachable);
+			parser.setNeedReferencedObjectIds(streaming);
 			parser.setCheckEofAfterPackFooter(!biDirectionalPipe
 					&& !isExpectDataAfterPackFooter());
 			parser.setExpectDataAfterPackFooter(isExpectDataAfterPackFooter());
@@ -1596,7 +1642,11 @@ private void checkConnectivity() throws IOException {
 			checking = m;
 		}
 
-		connectivityChecker.checkConnectivity(createConnectivityCheckInfo(),
+		ConnectivityChecker checker = connectivityChecker;
+		if (streamingConnectivityCheck) {
+			checker = new StreamingConnectivityChecker(checker);
+		}
+		checker.checkConnectivity(createConnectivityCheckInfo(),
 				advertisedHaves, checking);
 	}
 
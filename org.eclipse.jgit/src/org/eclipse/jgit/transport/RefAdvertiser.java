@@ -34,6 +34,7 @@
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefComparator;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.Repository;
 
 /**
@@ -282,47 +283,73 @@ public Set<ObjectId> send(Collection<Ref> refs) throws IOException {
 		for (Ref ref : RefComparator.sort(refs)) {
 			// TODO(jrn) revive the SortedMap optimization e.g. by introducing
 			// SortedList
-			ObjectId objectId = ref.getObjectId();
-			if (objectId == null) {
-				continue;
-			}
+			sendRef(ref);
+		}
+		return sent;
+	}
 
-			if (useProtocolV2) {
-				String symrefPart = symrefs.containsKey(ref.getName())
-						? (' ' + REF_ATTR_SYMREF_TARGET
-								+ symrefs.get(ref.getName()))
-						: ""; //$NON-NLS-1$
-				String peelPart = ""; //$NON-NLS-1$
-				if (derefTags) {
-					if (!ref.isPeeled() && repository != null) {
-						ref = repository.getRefDatabase().peel(ref);
-					}
-					ObjectId peeledObjectId = ref.getPeeledObjectId();
-					if (peeledObjectId != null) {
-						peelPart = ' ' + REF_ATTR_PEELED
-								+ peeledObjectId.getName();
-					}
+	/**
+	 * Format an advertisement for the refs of a scanner.
+	 * <p>
+	 * Refs are sent in the order the scanner returns them, so a large
+	 * reference space can be advertised without holding all of it in memory.
+	 * The scanner is not closed.
+	 *
+	 * @param refs
+	 *            refs to format for the client, sorted by name.
+	 * @return set of ObjectIds that were advertised to the client.
+	 * @throws java.io.IOException
+	 *             the refs cannot be read, or the underlying output stream
+	 *             failed to write out an advertisement record.
+	 * @since 6.5
+	 */
+	public Set<ObjectId> send(RefScanner refs) throws IOException {
+		while (refs.next()) {
+			sendRef(refs.getRef());
+		}
+		return sent;
+	}
+
+	private void sendRef(Ref ref) throws IOException {
+		ObjectId objectId = ref.getObjectId();
+		if (objectId == null) {
+			return;
+		}
+
+		if (useProtocolV2) {
+			String symrefPart = symrefs.containsKey(ref.getName())
+					? (' ' + REF_ATTR_SYMREF_TARGET
+							+ symrefs.get(ref.getName()))
+					: ""; //$NON-NLS-1$
+			String peelPart = ""; //$NON-NLS-1$
+			if (derefTags) {
+				if (!ref.isPeeled() && repository != null) {
+					ref = repository.getRefDatabase().peel(ref);
+				}
+				ObjectId peeledObjectId = ref.getPeeledObjectId();
+				if (peeledObjectId != null) {
+					peelPart = ' ' + REF_ATTR_PEELED
+							+ peeledObjectId.getName();
 				}
-				writeOne(objectId.getName() + " " + ref.getName() + symrefPart //$NON-NLS-1$
-						+ peelPart + "\n"); //$NON-NLS-1$
-				continue;
 			}
+			writeOne(objectId.getName() + " " + ref.getName() + symrefPart //$NON-NLS-1$
+					+ peelPart + "\n"); //$NON-NLS-1$
+			return;
+		}
 
-			advertiseAny(objectId, ref.getName());
-
-			if (!derefTags)
-				continue;
+		advertiseAny(objectId, ref.getName());
 
-			if (!ref.isPeeled()) {
-				if (repository == null)
-					continue;
-				ref = repository.getRefDatabase().peel(ref);
-			}
+		if (!derefTags)
+			return;
 
-			if (ref.getPeeledObjectId() != null)
-				advertiseAny(ref.getPeeledObjectId(), ref.getName() + "^{}"); //$NON-NLS-1$
+		if (!ref.isPeeled()) {
+			if (repository == null)
+				return;
+			ref = repository.getRefDatabase().peel(ref);
 		}
-		return sent;
+
+		if (ref.getPeeledObjectId() != null)
+			advertiseAny(ref.getPeeledObjectId(), ref.getName() + "^{}"); //$NON-NLS-1$
 	}
 
 	/**
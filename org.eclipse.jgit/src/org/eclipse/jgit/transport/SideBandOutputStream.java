@@ -12,9 +12,11 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.util.io.FileRegionOutput;
 
 /**
  * Multiplexes data and progress messages.
@@ -24,7 +26,8 @@
  *
  * @since 2.0
  */
-public class SideBandOutputStream extends OutputStream {
+public class SideBandOutputStream extends OutputStream
+		implements FileRegionOutput {
 	/** Channel used for pack data. */
 	public static final int CH_DATA = SideBandInputStream.CH_DATA;
 
@@ -136,6 +139,41 @@ public void write(int b) throws IOException {
 		buffer[cnt++] = (byte) b;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @since 6.5
+	 */
+	@Override
+	public boolean canTransferFrom() {
+		return out instanceof FileRegionOutput
+				&& ((FileRegionOutput) out).canTransferFrom();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the packet headers are written from this stream's buffer, the
+	 * region is passed on to the wrapped stream in packet sized slices.
+	 *
+	 * @since 6.5
+	 */
+	@Override
+	public void transferFrom(FileChannel src, long position, long count)
+			throws IOException {
+		flushBuffer();
+		FileRegionOutput dst = (FileRegionOutput) out;
+		int capacity = buffer.length - HDR_SIZE;
+		while (0 < count) {
+			int n = (int) Math.min(count, capacity);
+			PacketLineOut.formatLength(buffer, HDR_SIZE + n);
+			out.write(buffer, 0, HDR_SIZE);
+			dst.transferFrom(src, position, n);
+			position += n;
+			count -= n;
+		}
+	}
+
 	private void writeBuffer() throws IOException {
 		PacketLineOut.formatLength(buffer, cnt);
 		out.write(buffer, 0, cnt);
@@ -49,10 +49,13 @@
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.Instant;
@@ -66,6 +69,7 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -88,6 +92,7 @@
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.RefScanner;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
 import org.eclipse.jgit.revwalk.DepthWalk;
@@ -109,6 +114,7 @@
 import org.eclipse.jgit.util.io.InterruptTimer;
 import org.eclipse.jgit.util.io.NullOutputStream;
 import org.eclipse.jgit.util.io.TimeoutInputStream;
+import org.eclipse.jgit.util.io.FileRegionOutput;
 import org.eclipse.jgit.util.io.TimeoutOutputStream;
 
 /**
@@ -346,6 +352,8 @@ public Set<String> getOptions() {
 
 	private CachedPackUriProvider cachedPackUriProvider;
 
+	private PackResponseCache packResponseCache;
+
 	/**
 	 * Create a new pack upload for an open repository.
 	 *
@@ -736,6 +744,23 @@ public void setCachedPackUriProvider(@Nullable CachedPackUriProvider p) {
 		cachedPackUriProvider = p;
 	}
 
+	/**
+	 * Set the cache of packs sent to clients.
+	 * <p>
+	 * Packs are stored in the cache and reused to answer identical requests,
+	 * so the cache must only be shared by UploadPacks with the same
+	 * {@link PackConfig}. Packs sent with packfile URIs are not cached.
+	 * Requests answered from the cache report no
+	 * {@link #getStatistics() statistics}.
+	 *
+	 * @param cache
+	 *            the cache, or null to always write a new pack.
+	 * @since 6.5
+	 */
+	public void setPackResponseCache(@Nullable PackResponseCache cache) {
+		packResponseCache = cache;
+	}
+
 	private boolean useProtocolV2() {
 		return (transferConfig.protocolVersion == null
 			|| ProtocolVersion.V2.equals(transferConfig.protocolVersion))
@@ -1136,6 +1161,28 @@ private void lsRefsV2(PacketLineOut pckOut) throws IOException {
 		if (req.getPeel()) {
 			adv.setDerefTags(true);
 		}
+		List<String> prefixes = getScannablePrefixes(req.getRefPrefixes());
+		if (prefixes != null) {
+			// Fast path: stream the refs from the database, in name order as
+			// the prefixes are sorted and do not overlap.
+			if (req.getSymrefs() && prefixes.stream()
+					.anyMatch(Constants.HEAD::startsWith)) {
+				Ref head = db.getRefDatabase().exactRef(Constants.HEAD);
+				if (head != null && head.isSymbolic()
+						&& head.getObjectId() != null) {
+					adv.addSymref(Constants.HEAD, head.getLeaf().getName());
+				}
+			}
+			RefDatabase refDb = db.getRefDatabase();
+			for (String prefix : prefixes) {
+				try (RefScanner rs = refDb.scanRefsByPrefix(prefix)) {
+					adv.send(rs);
+				}
+			}
+			adv.end();
+			return;
+		}
+
 		Map<String, Ref> refsToSend = getFilteredRefs(req.getRefPrefixes());
 		if (req.getSymrefs()) {
 			findSymrefs(adv, refsToSend);
@@ -1145,6 +1192,39 @@ private void lsRefsV2(PacketLineOut pckOut) throws IOException {
 		adv.end();
 	}
 
+	/**
+	 * Get the prefixes to scan the ref database with for ls-refs.
+	 *
+	 * @return the requested prefixes sorted, with prefixes covered by a
+	 *         shorter one removed; or null if the refs to send cannot be
+	 *         read directly from the database because no prefix was
+	 *         requested, or the advertised refs hook or a ref filter
+	 *         selects them.
+	 */
+	@Nullable
+	private List<String> getScannablePrefixes(Collection<String> refPrefixes)
+			throws IOException {
+		if (refPrefixes.isEmpty()) {
+			return null;
+		}
+		if (refs == null && !advertiseRefsHookCalled) {
+			advertiseRefsHook.advertiseRefs(this);
+			advertiseRefsHookCalled = true;
+		}
+		if (refs != null || refFilter != RefFilter.DEFAULT
+				|| transferConfig.getRefFilter() != RefFilter.DEFAULT) {
+			return null;
+		}
+		List<String> prefixes = new ArrayList<>();
+		for (String p : new TreeSet<>(refPrefixes)) {
+			if (prefixes.isEmpty()
+					|| !p.startsWith(prefixes.get(prefixes.size() - 1))) {
+				prefixes.add(p);
+			}
+		}
+		return prefixes;
+	}
+
 	// Resolves ref names from the request's want-ref lines to
 	// object ids, throwing PackProtocolException if any are missing.
 	private Map<String, ObjectId> wantedRefs(FetchV2Request req)
@@ -2343,9 +2423,36 @@ private void sendPack(ProgressMonitor pm, PacketLineOut pckOut,
 		advertised = null;
 		refs = null;
 
+		boolean usePackfileUris = pckOut.isUsingSideband()
+				&& req instanceof FetchV2Request
+				&& cachedPackUriProvider != null
+				&& !((FetchV2Request) req).getPackfileUriProtocols().isEmpty();
+		PackResponseCache cache = usePackfileUris ? null : packResponseCache;
+		ObjectId cacheKey = null;
+		if (cache != null) {
+			cacheKey = packResponseKey(req, allTags, deepenNots);
+			PackResponseCache.Response cached = openCachedResponse(cache,
+					cacheKey);
+			if (cached != null) {
+				try {
+					if (pckOut.isUsingSideband()) {
+						pckOut.writeString(
+								GitProtocolConstants.SECTION_PACKFILE + '\n');
+					}
+					statistics = null;
+					cached.writeTo(packOut);
+					packOut.flush();
+					return;
+				} finally {
+					closeCacheEntry(cached);
+				}
+			}
+		}
+
 		PackConfig cfg = packConfig;
 		if (cfg == null)
 			cfg = new PackConfig(db);
+		PackResponseCache.Insertion insertion = null;
 		@SuppressWarnings("resource") // PackWriter is referenced in the finally
 										// block, and is closed there
 		final PackWriter pw = new PackWriter(cfg, walk.getObjectReader(),
@@ -2447,9 +2554,7 @@ else if (ref.getName().startsWith(Constants.R_HEADS))
 			}
 
 			if (pckOut.isUsingSideband()) {
-				if (req instanceof FetchV2Request &&
-						cachedPackUriProvider != null &&
-						!((FetchV2Request) req).getPackfileUriProtocols().isEmpty()) {
+				if (usePackfileUris) {
 					FetchV2Request reqV2 = (FetchV2Request) req;
 					pw.setPackfileUriConfig(new PackWriter.PackfileUriConfig(
 							pckOut,
@@ -2465,7 +2570,17 @@ else if (ref.getName().startsWith(Constants.R_HEADS))
 				}
 			}
 			pw.enableSearchForReuseTimeout();
-			pw.writePack(pm, NullProgressMonitor.INSTANCE, packOut);
+			if (cache != null) {
+				insertion = insertCachedResponse(cache, cacheKey);
+			}
+			if (insertion != null) {
+				CachingOutputStream out = new CachingOutputStream(packOut,
+						insertion);
+				pw.writePack(pm, NullProgressMonitor.INSTANCE, out);
+				out.commit();
+			} else {
+				pw.writePack(pm, NullProgressMonitor.INSTANCE, packOut);
+			}
 
 			if (msgOut != NullOutputStream.INSTANCE) {
 				String msg = pw.getStatistics().getMessage() + '\n';
@@ -2479,6 +2594,92 @@ else if (ref.getName().startsWith(Constants.R_HEADS))
 				postUploadHook.onPostUpload(statistics);
 			}
 			pw.close();
+			if (insertion != null) {
+				// Discards the pack unless it was committed.
+				closeCacheEntry(insertion);
+			}
+		}
+	}
+
+	@Nullable
+	private static PackResponseCache.Response openCachedResponse(
+			PackResponseCache cache, ObjectId key) {
+		try {
+			return cache.open(key);
+		} catch (IOException e) {
+			// The pack is generated instead; the cache never fails a fetch.
+			return null;
+		}
+	}
+
+	@Nullable
+	private static PackResponseCache.Insertion insertCachedResponse(
+			PackResponseCache cache, ObjectId key) {
+		try {
+			return cache.insert(key);
+		} catch (IOException e) {
+			// The pack is sent without being stored.
+			return null;
+		}
+	}
+
+	private static void closeCacheEntry(Closeable entry) {
+		try {
+			entry.close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
+	}
+
+	/**
+	 * Digest of everything in a request determining the pack sent for it.
+	 */
+	private ObjectId packResponseKey(FetchRequest req,
+			@Nullable Collection<Ref> allTags, List<ObjectId> deepenNots) {
+		Set<String> caps = req.getClientCapabilities();
+		StringBuilder key = new StringBuilder();
+		File dir = db.getDirectory();
+		key.append("repository ") //$NON-NLS-1$
+				.append(dir != null ? dir.getAbsolutePath() : db.toString())
+				.append('\n');
+		appendIds(key, "want", wantAll.isEmpty() ? wantIds : wantAll); //$NON-NLS-1$
+		appendIds(key, "have", commonBase); //$NON-NLS-1$
+		appendIds(key, "shallow", req.getClientShallowCommits()); //$NON-NLS-1$
+		appendIds(key, "deepen-not", deepenNots); //$NON-NLS-1$
+		key.append("deepen ").append(req.getDepth()).append('\n') //$NON-NLS-1$
+				.append("deepen-since ").append(req.getDeepenSince()) //$NON-NLS-1$
+				.append('\n')
+				.append(req.getFilterSpec().filterLine()).append('\n');
+		for (String cap : new String[] { OPTION_OFS_DELTA, OPTION_THIN_PACK,
+				OPTION_INCLUDE_TAG }) {
+			if (caps.contains(cap)) {
+				key.append(cap).append('\n');
+			}
+		}
+		if (caps.contains(OPTION_INCLUDE_TAG) && allTags != null) {
+			// Tags created later must not be missing from the cached pack.
+			TreeMap<String, ObjectId> tags = new TreeMap<>();
+			for (Ref ref : allTags) {
+				if (ref.getObjectId() != null) {
+					tags.put(ref.getName(), ref.getObjectId());
+				}
+			}
+			for (Map.Entry<String, ObjectId> e : tags.entrySet()) {
+				key.append("tag ").append(e.getValue().name()).append(' ') //$NON-NLS-1$
+						.append(e.getKey()).append('\n');
+			}
+		}
+		MessageDigest md = Constants.newMessageDigest();
+		md.update(Constants.encode(key.toString()));
+		return ObjectId.fromRaw(md.digest());
+	}
+
+	private static void appendIds(StringBuilder key, String name,
+			Collection<? extends ObjectId> ids) {
+		List<ObjectId> sorted = new ArrayList<>(ids);
+		Collections.sort(sorted);
+		for (ObjectId id : sorted) {
+			key.append(name).append(' ').append(id.name()).append('\n');
 		}
 	}
 
@@ -2520,7 +2721,74 @@ private List<ObjectId> parseDeepenNots(List<String> deepenNots)
 		return result;
 	}
 
-	private static class ResponseBufferedOutputStream extends OutputStream {
+	/**
+	 * Copies a pack sent to the client into the response cache.
+	 * <p>
+	 * Failing to store the pack does not fail the upload; the pack is then
+	 * only sent.
+	 */
+	private static class CachingOutputStream extends OutputStream {
+		private final OutputStream out;
+
+		private PackResponseCache.Insertion insertion;
+
+		CachingOutputStream(OutputStream out,
+				PackResponseCache.Insertion insertion) {
+			this.out = out;
+			this.insertion = insertion;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			if (insertion != null) {
+				try {
+					insertion.write(b);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			if (insertion != null) {
+				try {
+					insertion.write(b, off, len);
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		void commit() {
+			if (insertion != null) {
+				try {
+					insertion.commit();
+				} catch (IOException e) {
+					discard();
+				}
+			}
+		}
+
+		private void discard() {
+			try {
+				insertion.close();
+			} catch (IOException e) {
+				// Ignore close exceptions
+			}
+			insertion = null;
+		}
+	}
+
+	private static class ResponseBufferedOutputStream extends OutputStream
+			implements FileRegionOutput {
 		private final OutputStream rawOut;
 
 		private OutputStream out;
@@ -2555,6 +2823,18 @@ public void close() throws IOException {
 			out.close();
 		}
 
+		@Override
+		public boolean canTransferFrom() {
+			return out == rawOut && rawOut instanceof FileRegionOutput
+					&& ((FileRegionOutput) rawOut).canTransferFrom();
+		}
+
+		@Override
+		public void transferFrom(FileChannel src, long position, long count)
+				throws IOException {
+			((FileRegionOutput) out).transferFrom(src, position, count);
+		}
+
 		void stopBuffering() throws IOException {
 			if (out != rawOut) {
 				((ByteArrayOutputStream) out).writeTo(rawOut);
@@ -20,8 +20,19 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.time.Instant;
-
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.lib.Constants;
@@ -38,6 +49,11 @@
  * {@link org.eclipse.jgit.treewalk.TreeWalk}.
  */
 public class FileTreeIterator extends WorkingTreeIterator {
+	/** Minimum number of index entries stat'ed by a thread of {@link #preload}. */
+	private static final int PRELOAD_ENTRIES_PER_THREAD = 500;
+
+	/** Maximum number of threads used by {@link #preload}. */
+	private static final int MAX_PRELOAD_THREADS = 20;
 
 	/**
 	 * the starting directory of this Iterator. All entries are located directly
@@ -60,6 +76,12 @@ public class FileTreeIterator extends WorkingTreeIterator {
 	 */
 	protected final FileModeStrategy fileModeStrategy;
 
+	/**
+	 * Attributes of files read ahead of the walk by {@link #preload}, shared
+	 * by all iterators of the walk. Entries are removed once used.
+	 */
+	private Map<File, FS.Attributes> preloaded;
+
 	/**
 	 * Create a new iterator to traverse the work tree and its children.
 	 *
@@ -172,6 +194,9 @@ protected FileTreeIterator(final WorkingTreeIterator p, final File root,
 		directory = root;
 		this.fs = fs;
 		this.fileModeStrategy = fileModeStrategy;
+		if (p instanceof FileTreeIterator) {
+			preloaded = ((FileTreeIterator) p).preloaded;
+		}
 		init(entries());
 	}
 
@@ -209,7 +234,125 @@ protected AbstractTreeIterator enterSubtree() {
 	}
 
 	private Entry[] entries() {
-		return fs.list(directory, fileModeStrategy);
+		if (preloaded == null) {
+			return fs.list(directory, fileModeStrategy);
+		}
+		// Same as FS.list, which is not overridden when preloading.
+		File[] all = directory.listFiles();
+		if (all == null) {
+			return fs.list(directory, fileModeStrategy);
+		}
+		Entry[] result = new Entry[all.length];
+		for (int i = 0; i < result.length; i++) {
+			FS.Attributes attributes = preloaded.remove(all[i]);
+			result[i] = attributes != null
+					? new FileEntry(all[i], fs, attributes, fileModeStrategy)
+					: new FileEntry(all[i], fs, fileModeStrategy);
+		}
+		return result;
+	}
+
+	/** Whether fs lists a directory with one stat per file. */
+	private static boolean listsWithStat(FS fs) {
+		try {
+			return fs.getClass()
+					.getMethod("list", File.class, FileModeStrategy.class) //$NON-NLS-1$
+					.getDeclaringClass() == FS.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the attributes of the files named by an index in parallel, before
+	 * this iterator is walked.
+	 * <p>
+	 * Like C git's {@code core.preloadIndex}, the files of the index are
+	 * stat'ed by several threads up front. Subtree iterators entered later
+	 * take their attributes from these results instead of reading them one
+	 * at a time while the walk lists each directory. Files not in the index
+	 * are still read during the walk.
+	 * <p>
+	 * Small indexes are not preloaded: each thread is given at least
+	 * {@value #PRELOAD_ENTRIES_PER_THREAD} entries. Neither are work trees on
+	 * file systems which override {@link FS#list(File, FileModeStrategy)},
+	 * as they read the attributes while listing a directory anyway.
+	 *
+	 * @param dirCache
+	 *            index whose paths are relative to the directory of this
+	 *            iterator.
+	 * @param threads
+	 *            maximum number of threads reading attributes.
+	 * @throws IOException
+	 *             the attributes could not be read.
+	 * @since 6.5
+	 */
+	public void preload(DirCache dirCache, int threads) throws IOException {
+		int n = dirCache.getEntryCount();
+		threads = Math.min(Math.min(threads, MAX_PRELOAD_THREADS),
+				n / PRELOAD_ENTRIES_PER_THREAD);
+		if (threads < 2 || !listsWithStat(fs)) {
+			return;
+		}
+
+		FS.Attributes[] attributes = new FS.Attributes[n];
+		File[] files = new File[n];
+		int chunk = (n + threads - 1) / threads;
+		List<FutureTask<Void>> tasks = new ArrayList<>(threads);
+		for (int from = 0; from < n; from += chunk) {
+			int start = from;
+			int end = Math.min(n, from + chunk);
+			tasks.add(new FutureTask<>(() -> {
+				String last = null;
+				for (int i = start; i < end; i++) {
+					DirCacheEntry e = dirCache.getEntry(i);
+					String path = e.getPathString();
+					// The entries of this directory are already read, and
+					// skip-worktree files are not compared.
+					if (path.equals(last) || path.indexOf('/') < 0
+							|| e.isSkipWorkTree()) {
+						continue;
+					}
+					last = path;
+					files[i] = new File(directory, path);
+					attributes[i] = fs.getAttributes(files[i]);
+				}
+				return null;
+			}));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+		try {
+			for (FutureTask<Void> t : tasks) {
+				pool.execute(t);
+			}
+			for (FutureTask<Void> t : tasks) {
+				t.get();
+			}
+		} catch (InterruptedException e) {
+			for (FutureTask<Void> t : tasks) {
+				t.cancel(true);
+			}
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause.getMessage(), cause);
+		} finally {
+			pool.shutdown();
+		}
+
+		Map<File, FS.Attributes> map = new HashMap<>(n * 4 / 3);
+		for (int i = 0; i < n; i++) {
+			if (attributes[i] != null) {
+				map.put(files[i], attributes[i]);
+			}
+		}
+		preloaded = map;
 	}
 
 	/**
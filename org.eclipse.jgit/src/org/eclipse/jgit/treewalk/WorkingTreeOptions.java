@@ -41,6 +41,8 @@ public class WorkingTreeOptions {
 
 	private final boolean dirNoGitLinks;
 
+	private final boolean preloadIndex;
+
 	private WorkingTreeOptions(Config rc) {
 		fileMode = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
 				ConfigConstants.CONFIG_KEY_FILEMODE, true);
@@ -58,6 +60,8 @@ private WorkingTreeOptions(Config rc) {
 		dirNoGitLinks = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
 				ConfigConstants.CONFIG_KEY_DIRNOGITLINKS,
 				false);
+		preloadIndex = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_PRELOADINDEX, false);
 	}
 
 	/** @return true if the execute bit on working files should be trusted. */
@@ -128,4 +132,15 @@ public HideDotFiles getHideDotFiles() {
 	 * @since 4.3
 	 */
 	public boolean isDirNoGitLinks() { return dirNoGitLinks; }
+
+	/**
+	 * Whether the files of the index are stat'ed in parallel before comparing
+	 * them with the working tree.
+	 *
+	 * @return {@code true} if the index should be preloaded.
+	 * @since 6.5
+	 */
+	public boolean isPreloadIndex() {
+		return preloadIndex;
+	}
 }
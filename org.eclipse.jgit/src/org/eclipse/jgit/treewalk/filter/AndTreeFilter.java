@@ -13,6 +13,8 @@
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -82,6 +84,32 @@ public static TreeFilter create(Collection<TreeFilter> list) {
 		return new List(subfilters);
 	}
 
+	/**
+	 * Entries must match all filters, so a changed-path limit of any of them
+	 * applies, as does a plain path limit when ANDed with {@link #ANY_DIFF}.
+	 */
+	private static Optional<Set<byte[]>> changedPaths(TreeFilter[] filters) {
+		boolean anyDiff = false;
+		for (TreeFilter f : filters) {
+			Optional<Set<byte[]>> paths = f.getPathsBestEffort();
+			if (paths.isPresent()) {
+				return paths;
+			}
+			anyDiff |= f == ANY_DIFF;
+		}
+		return anyDiff ? pathLimit(filters) : Optional.empty();
+	}
+
+	private static Optional<Set<byte[]>> pathLimit(TreeFilter[] filters) {
+		for (TreeFilter f : filters) {
+			Optional<Set<byte[]>> paths = f.getPathLimit();
+			if (paths.isPresent()) {
+				return paths;
+			}
+		}
+		return Optional.empty();
+	}
+
 	private static class Binary extends AndTreeFilter {
 		private final TreeFilter a;
 
@@ -122,6 +150,16 @@ public boolean shouldBeRecursive() {
 			return a.shouldBeRecursive() || b.shouldBeRecursive();
 		}
 
+		@Override
+		public Optional<Set<byte[]>> getPathsBestEffort() {
+			return changedPaths(new TreeFilter[] { a, b });
+		}
+
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return pathLimit(new TreeFilter[] { a, b });
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return new Binary(a.clone(), b.clone());
@@ -173,6 +211,16 @@ public boolean shouldBeRecursive() {
 			return false;
 		}
 
+		@Override
+		public Optional<Set<byte[]>> getPathsBestEffort() {
+			return changedPaths(subfilters);
+		}
+
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return pathLimit(subfilters);
+		}
+
 		@Override
 		public TreeFilter clone() {
 			final TreeFilter[] s = new TreeFilter[subfilters.length];
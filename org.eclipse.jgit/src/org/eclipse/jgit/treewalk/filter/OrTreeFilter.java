@@ -13,6 +13,9 @@
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -80,6 +83,23 @@ public static TreeFilter create(Collection<TreeFilter> list) {
 		return new List(subfilters);
 	}
 
+	/**
+	 * Entries may match any filter, so all of them must be limited.
+	 */
+	private static Optional<Set<byte[]>> union(TreeFilter[] filters,
+			boolean changed) {
+		Set<byte[]> paths = new HashSet<>();
+		for (TreeFilter f : filters) {
+			Optional<Set<byte[]>> p = changed ? f.getPathsBestEffort()
+					: f.getPathLimit();
+			if (p.isEmpty()) {
+				return Optional.empty();
+			}
+			paths.addAll(p.get());
+		}
+		return Optional.of(paths);
+	}
+
 	private static class Binary extends OrTreeFilter {
 		private final TreeFilter a;
 
@@ -120,6 +140,16 @@ public boolean shouldBeRecursive() {
 			return a.shouldBeRecursive() || b.shouldBeRecursive();
 		}
 
+		@Override
+		public Optional<Set<byte[]>> getPathsBestEffort() {
+			return union(new TreeFilter[] { a, b }, true);
+		}
+
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return union(new TreeFilter[] { a, b }, false);
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return new Binary(a.clone(), b.clone());
@@ -171,6 +201,16 @@ public boolean shouldBeRecursive() {
 			return false;
 		}
 
+		@Override
+		public Optional<Set<byte[]>> getPathsBestEffort() {
+			return union(subfilters, true);
+		}
+
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return union(subfilters, false);
+		}
+
 		@Override
 		public TreeFilter clone() {
 			final TreeFilter[] s = new TreeFilter[subfilters.length];
@@ -11,6 +11,10 @@
 
 package org.eclipse.jgit.treewalk.filter;
 
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -88,6 +92,11 @@ public boolean shouldBeRecursive() {
 		return false;
 	}
 
+	@Override
+	Optional<Set<byte[]>> getPathLimit() {
+		return Optional.of(Collections.singleton(pathRaw));
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public PathFilter clone() {
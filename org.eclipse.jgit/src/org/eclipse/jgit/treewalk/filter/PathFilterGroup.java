@@ -11,7 +11,11 @@
 
 package org.eclipse.jgit.treewalk.filter;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.errors.StopWalkException;
 import org.eclipse.jgit.internal.JGitText;
@@ -136,6 +140,11 @@ public boolean shouldBeRecursive() {
 			return path.shouldBeRecursive();
 		}
 
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return path.getPathLimit();
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return this;
@@ -231,6 +240,12 @@ public boolean shouldBeRecursive() {
 			return !prefixes.isEmpty();
 		}
 
+		@Override
+		Optional<Set<byte[]>> getPathLimit() {
+			return Optional
+					.of(new HashSet<>(Arrays.asList(fullpaths.toArray())));
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return this;
@@ -11,6 +11,8 @@
 package org.eclipse.jgit.treewalk.filter;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -209,6 +211,38 @@ public int matchFilter(TreeWalk walker)
 	 */
 	public abstract boolean shouldBeRecursive();
 
+	/**
+	 * Get the changed paths this filter is limited to, if it can tell.
+	 * <p>
+	 * If the result is present, this filter only includes entries that differ
+	 * between the trees of the walk and whose path is one of the returned
+	 * paths or lies beneath one of them. This lets a caller skip a tree diff
+	 * when an index of changed paths (such as a commit-graph changed-path
+	 * Bloom filter) shows that none of the paths changed.
+	 * <p>
+	 * The default implementation returns {@link Optional#empty()}, which is
+	 * always correct.
+	 *
+	 * @return the paths this filter is limited to, or
+	 *         {@link Optional#empty()} if the filter may include unchanged
+	 *         entries or entries at any path.
+	 * @since 6.5
+	 */
+	public Optional<Set<byte[]>> getPathsBestEffort() {
+		return Optional.empty();
+	}
+
+	/**
+	 * Get the paths this filter is limited to, whether or not the entries
+	 * differ.
+	 *
+	 * @return the paths every included entry is at or beneath, or
+	 *         {@link Optional#empty()} if unknown.
+	 */
+	Optional<Set<byte[]>> getPathLimit() {
+		return getPathsBestEffort();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 *
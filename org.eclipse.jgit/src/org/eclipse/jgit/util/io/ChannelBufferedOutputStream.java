@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered stream over a channel, writing regions of files straight to the
+ * channel.
+ * <p>
+ * Regions passed to {@link #transferFrom(FileChannel, long, long)} are sent
+ * with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which
+ * lets the operating system copy them from the file to a socket without
+ * passing them through the Java heap.
+ *
+ * @since 6.5
+ */
+public class ChannelBufferedOutputStream extends BufferedOutputStream
+		implements FileRegionOutput {
+	private final WritableByteChannel channel;
+
+	/**
+	 * Create a buffered stream over a channel.
+	 *
+	 * @param out
+	 *            stream writing to {@code channel}, such as the output stream
+	 *            of a socket. Buffered data is written to it.
+	 * @param channel
+	 *            the channel {@code out} writes to. Must be in blocking mode.
+	 */
+	public ChannelBufferedOutputStream(OutputStream out,
+			WritableByteChannel channel) {
+		super(out);
+		this.channel = channel;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean canTransferFrom() {
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void transferFrom(FileChannel src, long position, long count)
+			throws IOException {
+		flush();
+		while (0 < count) {
+			long n = src.transferTo(position, count, channel);
+			if (n <= 0 && src.size() <= position) {
+				throw new EOFException();
+			}
+			position += n;
+			count -= n;
+		}
+	}
+}
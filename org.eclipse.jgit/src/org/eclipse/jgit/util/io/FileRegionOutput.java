@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2023, Tencent.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Distribution License v. 1.0 which is available at
+ * https://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * SPDX-License-Identifier: BSD-3-Clause
+ */
+
+package org.eclipse.jgit.util.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Output which can write regions of a file without copying them through the
+ * Java heap.
+ * <p>
+ * Streams wrapping another stream implement this interface by passing regions
+ * on to the wrapped stream, so a region of a pack can be sent to a socket with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * through all layers of a protocol.
+ *
+ * @since 6.5
+ */
+public interface FileRegionOutput {
+	/**
+	 * Whether regions can currently be written with
+	 * {@link #transferFrom(FileChannel, long, long)}.
+	 *
+	 * @return true if regions of a file can be written.
+	 */
+	boolean canTransferFrom();
+
+	/**
+	 * Write a region of a file, as if its bytes were passed to
+	 * {@link java.io.OutputStream#write(byte[], int, int)}.
+	 *
+	 * @param src
+	 *            file to read the region from. The position of the channel is
+	 *            not changed.
+	 * @param position
+	 *            offset of the region in {@code src}.
+	 * @param count
+	 *            number of bytes to write.
+	 * @throws java.io.IOException
+	 *             the file cannot be read, or the output refused the data.
+	 */
+	void transferFrom(FileChannel src, long position, long count)
+			throws IOException;
+}
@@ -13,6 +13,7 @@
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
 
 import org.eclipse.jgit.internal.JGitText;
@@ -20,7 +21,8 @@
 /**
  * OutputStream with a configurable timeout.
  */
-public class TimeoutOutputStream extends OutputStream {
+public class TimeoutOutputStream extends OutputStream
+		implements FileRegionOutput {
 	private final OutputStream dst;
 
 	private final InterruptTimer myTimer;
@@ -97,6 +99,27 @@ public void write(byte[] buf, int off, int len) throws IOException {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public boolean canTransferFrom() {
+		return dst instanceof FileRegionOutput
+				&& ((FileRegionOutput) dst).canTransferFrom();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void transferFrom(FileChannel src, long position, long count)
+			throws IOException {
+		try {
+			beginWrite();
+			((FileRegionOutput) dst).transferFrom(src, position, count);
+		} catch (InterruptedIOException e) {
+			throw writeTimedOut(e);
+		} finally {
+			endWrite();
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void flush() throws IOException {